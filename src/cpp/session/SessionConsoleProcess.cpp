@@ -527,9 +527,11 @@ void ConsoleProcess::deleteEnvFile() const
    procInfo_->deleteEnvFile();
 }
 
-std::string ConsoleProcess::getSavedBufferChunk(int chunk, bool* pMoreAvailable) const
+std::string ConsoleProcess::getSavedBufferChunk(int chunk,
+                                                bool* pMoreAvailable,
+                                                int* pChunkCount) const
 {
-   return procInfo_->getSavedBufferChunk(chunk, pMoreAvailable);
+   return procInfo_->getSavedBufferChunk(chunk, pMoreAvailable, pChunkCount);
 }
 
 std::string ConsoleProcess::getBuffer() const
@@ -795,11 +795,15 @@ Error procGetBufferChunk(const json::JsonRpcRequest& request,
 
    json::Object result;
    bool moreAvailable;
-   std::string chunkContent = proc->getSavedBufferChunk(requestedChunk, &moreAvailable);
+   int chunkCount;
+   std::string chunkContent = proc->getSavedBufferChunk(requestedChunk,
+                                                        &moreAvailable,
+                                                        &chunkCount);
 
    result["chunk"] = chunkContent;
    result["chunk_number"] = requestedChunk;
    result["more_available"] = moreAvailable;
+   result["chunk_count"] = chunkCount;
    pResponse->setResult(result);
 
    return Success();
@@ -120,7 +120,7 @@ void ConsoleProcessInfo::appendToOutputBuffer(char ch)
 }
 
 std::string ConsoleProcessInfo::getSavedBufferChunk(
-      int requestedChunk, bool* pMoreAvailable) const
+      int requestedChunk, bool* pMoreAvailable, int* pChunkCount) const
 {
    // We read the entire buffer into memory to return a given chunk. This is
    // ok for our current usage pattern, where the buffer-size is bounded
@@ -135,6 +135,11 @@ std::string ConsoleProcessInfo::getSavedBufferChunk(
             requestedChunk == 0 ? maxOutputLines_ : 0);
 
    *pMoreAvailable = false;
+   if (pChunkCount)
+   {
+      *pChunkCount = buffer.empty() ?
+               1 : static_cast<int>((buffer.length() - 1) / kOutputBufferSize) + 1;
+   }
 
    // Common case, entire buffer fits in chunk zero
    if (requestedChunk == 0 && (buffer.length() <= kOutputBufferSize))
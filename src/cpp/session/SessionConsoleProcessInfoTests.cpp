@@ -381,6 +381,12 @@ TEST_CASE("ConsoleProcessInfo")
       CHECK_FALSE(moreAvailable);
       CHECK_FALSE(loaded.compare(thirdChunk));
 
+      // chunk count is reported alongside the first chunk
+      int chunkCount = 0;
+      loaded = cpi.getSavedBufferChunk(0, &moreAvailable, &chunkCount);
+      CHECK(moreAvailable);
+      CHECK(chunkCount == 3);
+
       // cleanup
       cpi.deleteLogFile();
       loaded = cpi.getSavedBufferChunk(0, &moreAvailable);
@@ -188,8 +188,11 @@ public:
    void setRpcMode();
 
    // Get the given (0-based) chunk of the saved buffer; if more is available
-   // after the requested chunk, *pMoreAvailable will be set to true
-   std::string getSavedBufferChunk(int chunk, bool* pMoreAvailable) const;
+   // after the requested chunk, *pMoreAvailable will be set to true; if
+   // pChunkCount is supplied it receives the total number of chunks
+   std::string getSavedBufferChunk(int chunk,
+                                   bool* pMoreAvailable,
+                                   int* pChunkCount = nullptr) const;
 
    // Get the full terminal buffer
    std::string getBuffer() const;
@@ -136,10 +136,11 @@ std::string inferDocumentType(const FilePath& documentPath,
 }
 
 void writeDocToJson(boost::shared_ptr<SourceDocument> pDoc,
-                    core::json::Object* pDocJson)
+                    core::json::Object* pDocJson,
+                    bool includeContents = true)
 {
    // write the doc
-   pDoc->writeToJson(pDocJson);
+   pDoc->writeToJson(pDocJson, includeContents);
 
    // derive the extended type property
    (*pDocJson)["extended_type"] = module_context::events()
@@ -147,7 +148,7 @@ void writeDocToJson(boost::shared_ptr<SourceDocument> pDoc,
 
    // amend with chunk definitions if an R Markdown document
    json::Object notebook;
-   if (pDoc->isRMarkdownDocument())
+   if (includeContents && pDoc->isRMarkdownDocument())
    {
       Error error = rmarkdown::notebook::getChunkValues(
             pDoc->path(), pDoc->id(), &notebook);
@@ -581,6 +582,14 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
    if (error)
       return error;
    
+   // Optionally, a list of [offset, length, replacement] hunks to be
+   // applied instead of the single replacement above. As with the single
+   // replacement, offsets and lengths are in bytes and refer to the current
+   // document, so hunks are applied from last to first.
+   json::Array jsonHunks;
+   if (request.params.getSize() > 11 && request.params[11].isArray())
+      jsonHunks = request.params[11].getArray();
+
    // if this has no path then it is an autosave, in this case
    // suppress change detection
    bool hasPath = json::isType<std::string>(jsonPath);
@@ -614,7 +623,44 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
          // the offsets we receive are in bytes, so we can replace the contents
          // of the string directly at the supplied offset + length (the contents
          // string itself is already UTF-8 encoded)
-         contents.replace(offset, length, replacement);
+         if (jsonHunks.isEmpty())
+         {
+            contents.replace(offset, length, replacement);
+         }
+         else
+         {
+            // validate all hunks before touching the contents; a malformed
+            // patch leaves the document untouched and (with no hash in the
+            // response) prompts the client to send the full contents
+            std::size_t limit = contents.size();
+            for (std::size_t i = jsonHunks.getSize(); i > 0; --i)
+            {
+               json::Value jsonHunk = jsonHunks[i - 1];
+               if (!jsonHunk.isArray() || jsonHunk.getArray().getSize() != 3)
+                  return Success();
+
+               json::Array hunk = jsonHunk.getArray();
+               if (!hunk[0].isInt() || !hunk[1].isInt() || !hunk[2].isString())
+                  return Success();
+
+               int hunkOffset = hunk[0].getInt();
+               int hunkLength = hunk[1].getInt();
+               if (hunkOffset < 0 || hunkLength < 0 ||
+                   static_cast<std::size_t>(hunkOffset) + hunkLength > limit)
+               {
+                  return Success();
+               }
+               limit = hunkOffset;
+            }
+
+            for (std::size_t i = jsonHunks.getSize(); i > 0; --i)
+            {
+               json::Array hunk = jsonHunks[i - 1].getArray();
+               contents.replace(hunk[0].getInt(),
+                                hunk[1].getInt(),
+                                hunk[2].getString());
+            }
+         }
       }
 
       // track if we're updating the document contents
@@ -1446,8 +1492,17 @@ Error clientInitDocuments(core::json::Array* pJsonDocs)
       if (error)
          LOG_ERROR(error);
 
+      // documents without unsaved changes are sent without their contents
+      // (or notebook chunk state) to keep the init payload small; the
+      // client fetches them with get_source_document when the document's
+      // tab is first activated
+      bool deferContents = !pDoc->dirty() &&
+                           !pDoc->path().empty() &&
+                           pDoc->collabServer().empty();
+
       json::Object jsonDoc;
-      writeDocToJson(pDoc, &jsonDoc);
+      writeDocToJson(pDoc, &jsonDoc, !deferContents);
+      jsonDoc["contents_deferred"] = deferContents;
       pJsonDocs->push_back(jsonDoc);
 
       source_database::events().onDocUpdated(pDoc);
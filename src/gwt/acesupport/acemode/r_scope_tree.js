@@ -300,6 +300,54 @@ define('mode/r_scope_tree', ["require", "exports", "module"], function(require,
          return resumePos;
       };
 
+      // Like invalidateFrom, but records the children removed from each
+      // level (and the level's previous end) in 'levels', outermost first,
+      // so that they can later be restored.
+      this.detachFrom = function(pos, levels) {
+
+         var level = {node: this, end: this.end, children: []};
+         levels.push(level);
+
+         var index = this.$binarySearch(pos);
+
+         var resumePos;
+         if (index >= 0)
+         {
+            if (comparePoints(pos, this.$children[index].start) <= 0)
+            {
+               resumePos = this.$children[index].preamble;
+            }
+            else
+            {
+               resumePos = this.$children[index].detachFrom(pos, levels);
+               index++;
+            }
+         }
+         else
+         {
+            index = -(index+1);
+            resumePos = pos;
+         }
+
+         level.children = this.$children.splice(index, this.$children.length - index);
+         this.end = null;
+
+         return resumePos;
+      };
+
+      // Moves this node and its descendants down by 'delta' rows.
+      this.$shiftRows = function(delta) {
+         var shift = function(pos) {
+            return pos ? {row: pos.row + delta, column: pos.column} : pos;
+         };
+
+         this.start = shift(this.start);
+         this.preamble = shift(this.preamble);
+         this.end = shift(this.end);
+         for (var i = 0; i < this.$children.length; i++)
+            this.$children[i].$shiftRows(delta);
+      };
+
       // Returns index of the child that contains this position, if it exists;
       // otherwise, -(index + 1) where index is where such a child would be.
       this.$binarySearch = function(pos, start /*optional*/, end /*optional*/) {
@@ -552,9 +600,132 @@ define('mode/r_scope_tree', ["require", "exports", "module"], function(require,
          debuglog("Invalidate from " + pos.row + ", " + pos.column);
          if (comparePoints(this.parsePos, pos) > 0)
             this.parsePos = this.$root.invalidateFrom(pos);
+         this.$detached = null;
          this.printScopeTree();
       };
 
+      // Like invalidateFrom, but keeps the removed scopes so that reattach()
+      // can restore them if reparsing converges with the previous parse.
+      // 'pos' is the start of an edit (or of several edits) whose last row
+      // is 'lastRow', and which added 'delta' rows to the document. Scopes
+      // kept by an earlier detach are replaced unless the edit lies beyond
+      // everything parsed so far. Returns the position from which parsing
+      // should resume.
+      this.detachFrom = function(pos, lastRow, delta) {
+         var firstRow = pos.row;
+         pos = {row: Math.max(0, pos.row-1), column: 0};
+         debuglog("Detach from " + pos.row + ", " + pos.column);
+
+         var detached = this.$detached;
+         if (comparePoints(this.parsePos, pos) > 0)
+         {
+            var levels = [];
+            var parsePos = this.parsePos;
+            this.parsePos = this.$root.detachFrom(pos, levels);
+            this.$detached = {
+               levels: levels,
+               parsePos: parsePos,
+               lastRow: lastRow,
+               delta: delta
+            };
+         }
+         else if (detached)
+         {
+            if (detached.lastRow >= firstRow)
+               detached.lastRow += delta;
+            detached.lastRow = Math.max(detached.lastRow, lastRow);
+            detached.delta += delta;
+         }
+
+         this.printScopeTree();
+         return this.parsePos;
+      };
+
+      // Called when parsing has reached the start of 'row'. If the row lies
+      // after all edits made since detachFrom(), and the open scopes match
+      // the ones that were open at the corresponding row of the previous
+      // parse, the detached scopes beyond it are moved down to match the
+      // edits and restored, along with the previous parse position. Returns
+      // true if scopes were restored.
+      this.reattach = function(row) {
+         var detached = this.$detached;
+         if (!detached || row <= detached.lastRow)
+            return false;
+
+         var delta = detached.delta;
+         var oldPos = {row: row - delta, column: 0};
+         if (comparePoints(oldPos, detached.parsePos) >= 0)
+         {
+            // we've reparsed everything the previous parse covered
+            this.$detached = null;
+            return false;
+         }
+
+         // Find the scopes open at the row in the previous parse. These must
+         // all have been kept by detachFrom(); a detached scope spanning the
+         // row means the parses can't be matched up here.
+         var levels = detached.levels;
+         var depth = 0;
+         for (var i = 0; i < levels.length; i++)
+         {
+            var level = levels[i];
+            if (depth === i && (level.end === null || comparePoints(level.end, oldPos) > 0))
+               depth++;
+
+            var children = level.children;
+            for (var j = 0; j < children.length; j++)
+            {
+               var child = children[j];
+               if (comparePoints(child.preamble, oldPos) < 0 &&
+                   (child.end === null || comparePoints(child.end, oldPos) > 0))
+               {
+                  return false;
+               }
+            }
+         }
+
+         // The scopes open now are the root and its chain of unclosed last
+         // children; they must be exactly the ones open before.
+         var node = this.$root;
+         for (i = 0; i < depth; i++)
+         {
+            if (node !== levels[i].node)
+               return false;
+
+            var last = node.$children[node.$children.length - 1];
+            node = last && last.end === null ? last : null;
+            if (node === null)
+               break;
+         }
+         if (i < depth - 1 || node !== null)
+            return false;
+
+         // Restore the scopes that followed the row, and the ends of the
+         // scopes that were open at it.
+         for (i = 0; i < levels.length; i++)
+         {
+            level = levels[i];
+            children = level.children;
+            for (j = 0; j < children.length; j++)
+            {
+               if (comparePoints(children[j].preamble, oldPos) >= 0)
+               {
+                  children[j].$shiftRows(delta);
+                  level.node.$children.push(children[j]);
+               }
+            }
+
+            if (i < depth && level.end !== null)
+               level.node.end = {row: level.end.row + delta, column: level.end.column};
+         }
+
+         this.parsePos = {row: detached.parsePos.row + delta,
+                          column: detached.parsePos.column};
+         this.$detached = null;
+         this.printScopeTree();
+         return true;
+      };
+
       function $getChunkCount(node) {
          count = node.isChunk() ? 1 : 0;
          var children = node.$children || [];
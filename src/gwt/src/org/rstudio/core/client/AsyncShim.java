@@ -81,6 +81,15 @@ public abstract class AsyncShim<TTarget>
    {
    }
 
+   /**
+    * You can override this to take note of when loading begins. It is
+    * called before the code is downloaded each time the target is needed
+    * but has not yet been created, so it may be called more than once.
+    */
+   protected void onDelayLoadStarted()
+   {
+   }
+
    /**
     * You can override this to do something asynchronous between when the
     * code loads and when the instance is created.
@@ -58,6 +58,9 @@ public class ConsoleOutputWriter
       output_.setText("");
       virtualConsole_ = null;
       lines_ = 0;
+      restoredLines_ = 0;
+      if (scrollback_ != null)
+         scrollback_.clear();
    }
 
    public int getMaxOutputLines()
@@ -71,6 +74,88 @@ public class ConsoleOutputWriter
       trimExcess();
    }
 
+   /**
+    * Enable virtualized scrollback. Only the most recent domLines lines of
+    * output are kept in the DOM; older lines (up to the maximum number of
+    * output lines) are moved to a compact off-DOM store, from which they can
+    * be restored on demand with restoreScrollback().
+    *
+    * @param domLines Maximum number of lines to keep in the DOM
+    */
+   public void setVirtualizedScrollback(int domLines)
+   {
+      domLines_ = domLines;
+      if (scrollback_ == null)
+         scrollback_ = new ConsoleScrollback();
+      trimExcess();
+   }
+
+   /**
+    * @return Is there older output in the off-DOM store that can be restored?
+    */
+   public boolean hasScrollback()
+   {
+      return scrollback_ != null && !scrollback_.isEmpty();
+   }
+
+   /**
+    * Move the newest lines in the off-DOM store back into the DOM, above the
+    * existing output. Restored lines are kept in the DOM (rather than being
+    * moved back by new output) until resetScrollbackWindow() is called.
+    *
+    * @param lines Number of lines to restore
+    * @return Number of lines restored
+    */
+   public int restoreScrollback(int lines)
+   {
+      if (!hasScrollback())
+         return 0;
+
+      JsVectorString texts = JsVectorString.createVector();
+      JsVectorString classNames = JsVectorString.createVector();
+      int restored = scrollback_.removeLast(lines, texts, classNames);
+
+      SpanElement chunk = Document.get().createSpanElement();
+      chunk.setClassName(ConsoleResources.INSTANCE.consoleStyles().outputChunk());
+      for (int i = 0; i < texts.length(); i++)
+      {
+         SpanElement span = Document.get().createSpanElement();
+         if (!StringUtil.isNullOrEmpty(classNames.get(i)))
+            span.setClassName(classNames.get(i));
+         span.setInnerText(texts.get(i));
+         chunk.appendChild(span);
+      }
+      getElement().insertFirst(chunk);
+
+      lines_ += restored;
+      restoredLines_ += restored;
+      return restored;
+   }
+
+   /**
+    * Return the DOM to its normal size, moving any restored lines back to
+    * the off-DOM store (e.g. once the user has scrolled back to the bottom).
+    */
+   public void resetScrollbackWindow()
+   {
+      if (restoredLines_ == 0)
+         return;
+      restoredLines_ = 0;
+      trimExcess();
+   }
+
+   /**
+    * @return The text of all output, including lines held off-DOM (copied
+    *    in place of the DOM's text when all of the output is selected)
+    */
+   public String getAllText()
+   {
+      String text = output_.getElement().getInnerText();
+      if (scrollback_ == null)
+         return text;
+      return scrollback_.getText() + text;
+   }
+
    /**
     * Send text to the console
     * @param text Text to output
@@ -102,16 +187,20 @@ public class ConsoleOutputWriter
          virtualConsole_ = vcFactory_.create(trailing);
       }
 
-      int oldLineCount = DomUtils.countLines(virtualConsole_.getParent(), true);
+      // the virtual console reports how many lines were added and removed
+      // by the submit, so we don't need to recount the whole output
       virtualConsole_.submit(text, className, isError, ariaLiveAnnounce);
-      int newLineCount = DomUtils.countLines(virtualConsole_.getParent(), true);
-      lines_ += newLineCount - oldLineCount;
+      lines_ += virtualConsole_.getNewlinesAdded() -
+                virtualConsole_.getNewlinesRemoved();
 
       return ignoreLineCount ? true : !trimExcess();
    }
 
    public boolean trimExcess()
    {
+      if (scrollback_ != null)
+         return trimToScrollback();
+
       if (maxLines_ <= 0)
          return false;  // No limit in effect
 
@@ -125,6 +214,40 @@ public class ConsoleOutputWriter
       return false;
    }
 
+   private boolean trimToScrollback()
+   {
+      // move lines beyond the DOM window into the off-DOM store; while
+      // restored lines are being viewed, let the DOM grow instead so they
+      // aren't evicted out from under the user
+      int linesToMove = lines_ - domLines_;
+      if (restoredLines_ == 0 && linesToMove > 0)
+      {
+         lines_ -= DomUtils.trimLines(getElement(), linesToMove,
+               new CommandWith2Args<String, String>()
+               {
+                  @Override
+                  public void execute(String text, String className)
+                  {
+                     scrollback_.append(text, className);
+                  }
+               });
+      }
+
+      if (maxLines_ <= 0)
+         return false;  // No limit in effect
+
+      // then discard the oldest lines beyond the overall limit, starting
+      // with those in the store
+      int linesToTrim = lines_ + scrollback_.getLineCount() - maxLines_;
+      if (linesToTrim <= 0)
+         return false;
+
+      linesToTrim -= scrollback_.trimFront(linesToTrim);
+      if (linesToTrim > 0)
+         lines_ -= DomUtils.trimLines(getElement(), linesToTrim);
+      return true;
+   }
+
    // Elements added by last submit call; only captured if
    // outputToConsole/isError was true for performance reasons
    public List<Element> getNewElements()
@@ -145,6 +268,8 @@ public class ConsoleOutputWriter
              !Element.as(child).getInnerText().endsWith("\n"))
          {
             virtualConsole_.submit("\n");
+            lines_ += virtualConsole_.getNewlinesAdded() -
+                      virtualConsole_.getNewlinesRemoved();
          }
          // clear the virtual console so we start with a fresh slate
          virtualConsole_ = null;
@@ -175,6 +300,12 @@ public class ConsoleOutputWriter
 
    private int maxLines_ = -1;
    private int lines_ = 0;
+
+   // virtualized scrollback (null when disabled)
+   private ConsoleScrollback scrollback_;
+   private int domLines_ = 0;
+   private int restoredLines_ = 0;
+
    private final PreWidget output_;
    private VirtualConsole virtualConsole_;
    private VirtualConsoleFactory vcFactory_;
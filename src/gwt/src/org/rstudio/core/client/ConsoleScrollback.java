@@ -0,0 +1,205 @@
+/*
+ * ConsoleScrollback.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+/**
+ * Compact, off-DOM store for console output lines that have scrolled out of
+ * the materialized console window. Output is kept as runs of text paired
+ * with the class name used to style them, oldest first.
+ */
+public class ConsoleScrollback
+{
+   /**
+    * Appends a run of output to the newest end of the store.
+    *
+    * @param text The text of the run
+    * @param className The style of the run, or null
+    */
+   public void append(String text, String className)
+   {
+      if (StringUtil.isNullOrEmpty(text))
+         return;
+
+      className = StringUtil.notNull(className);
+
+      // merge with the previous run when the style matches
+      int last = texts_.length() - 1;
+      if (last >= head_ && StringUtil.equals(classes_.get(last), className))
+         texts_.set(last, texts_.get(last) + text);
+      else
+      {
+         texts_.push(text);
+         classes_.push(className);
+      }
+
+      lines_ += StringUtil.newlineCount(text);
+   }
+
+   /**
+    * Discards the oldest lines in the store.
+    *
+    * @param lines The number of lines to discard
+    * @return The number of lines discarded
+    */
+   public int trimFront(int lines)
+   {
+      int linesLeft = lines;
+      while (linesLeft > 0 && head_ < texts_.length())
+      {
+         String text = texts_.get(head_);
+         int count = StringUtil.newlineCount(text);
+         if (count <= linesLeft)
+         {
+            linesLeft -= count;
+            texts_.set(head_, null);
+            classes_.set(head_, null);
+            head_++;
+         }
+         else
+         {
+            // keep everything after the last newline we're discarding
+            int index = -1;
+            for (int i = 0; i < linesLeft; i++)
+               index = text.indexOf('\n', index + 1);
+            texts_.set(head_, text.substring(index + 1));
+            linesLeft = 0;
+         }
+      }
+
+      int trimmed = lines - linesLeft;
+      lines_ -= trimmed;
+      compact();
+      return trimmed;
+   }
+
+   /**
+    * Removes the newest lines from the store, returning them as runs of text
+    * and styles (oldest first) so they can be materialized again.
+    *
+    * @param lines The number of lines to remove
+    * @param texts Receives the text of the removed runs
+    * @param classNames Receives the style of each removed run
+    * @return The number of lines removed
+    */
+   public int removeLast(int lines,
+                         JsVectorString texts,
+                         JsVectorString classNames)
+   {
+      // the store always ends on a line boundary, so the start of the n'th
+      // line from the end follows the (n+1)'th newline from the end
+      int newlinesLeft = lines + 1;
+      int index = texts_.length() - 1;
+      int offset = -1;
+      for (; index >= head_; index--)
+      {
+         String text = texts_.get(index);
+         int pos = text.length();
+         while (newlinesLeft > 0 && (pos = text.lastIndexOf('\n', pos - 1)) >= 0)
+            newlinesLeft--;
+
+         if (newlinesLeft == 0)
+         {
+            offset = pos + 1;
+            break;
+         }
+      }
+
+      int first = Math.max(index, head_);
+      for (int i = first; i < texts_.length(); i++)
+      {
+         String text = texts_.get(i);
+         if (i == index && offset > 0)
+         {
+            if (offset < text.length())
+            {
+               texts.push(text.substring(offset));
+               classNames.push(classes_.get(i));
+            }
+            continue;
+         }
+         texts.push(text);
+         classNames.push(classes_.get(i));
+      }
+
+      if (index >= head_ && offset > 0)
+      {
+         // keep the head of the partially removed run
+         texts_.set(index, texts_.get(index).substring(0, offset));
+         texts_.setLength(index + 1);
+         classes_.setLength(index + 1);
+      }
+      else
+      {
+         texts_.setLength(first);
+         classes_.setLength(first);
+      }
+
+      int removed = 0;
+      for (int i = 0; i < texts.length(); i++)
+         removed += StringUtil.newlineCount(texts.get(i));
+      lines_ -= removed;
+      compact();
+      return removed;
+   }
+
+   public int getLineCount()
+   {
+      return lines_;
+   }
+
+   public boolean isEmpty()
+   {
+      return lines_ == 0;
+   }
+
+   /**
+    * @return The full text of the stored output, oldest first
+    */
+   public String getText()
+   {
+      return texts_.slice(head_).join("");
+   }
+
+   public void clear()
+   {
+      texts_.setLength(0);
+      classes_.setLength(0);
+      head_ = 0;
+      lines_ = 0;
+   }
+
+   private void compact()
+   {
+      if (head_ == texts_.length())
+      {
+         texts_.setLength(0);
+         classes_.setLength(0);
+         head_ = 0;
+      }
+      else if (head_ > COMPACT_THRESHOLD && head_ * 2 > texts_.length())
+      {
+         texts_.remove(0, head_);
+         classes_.remove(0, head_);
+         head_ = 0;
+      }
+   }
+
+   private static final int COMPACT_THRESHOLD = 256;
+
+   private final JsVectorString texts_ = JsVectorString.createVector();
+   private final JsVectorString classes_ = JsVectorString.createVector();
+   private int head_ = 0;
+   private int lines_ = 0;
+}
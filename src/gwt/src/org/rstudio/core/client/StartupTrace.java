@@ -0,0 +1,338 @@
+/*
+ * StartupTrace.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONBoolean;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+
+/**
+ * Records named spans of work done while the application starts. Times come
+ * from performance.now(), so they are milliseconds since the page began to
+ * load. Recording is on from the time the module loads until finish() is
+ * called (once deferred initialization completes); after that begin() and
+ * mark() do nothing, so callers can leave their instrumentation in place.
+ *
+ * The trace can be exported with toJson() in the Chrome trace event format
+ * (loadable in chrome://tracing or the Performance panel), which makes it
+ * easy to compare the startup of two builds. Once startup completes the
+ * same JSON is also available from window.rstudioStartupTrace().
+ */
+public class StartupTrace
+{
+   public static class Span
+   {
+      Span(String name, String category, double start)
+      {
+         this(name, category, start, -1);
+      }
+
+      Span(String name, String category, double start, double end)
+      {
+         name_ = name;
+         category_ = category;
+         start_ = start;
+         end_ = end;
+      }
+
+      /**
+       * Ends the span. Spans ended after recording stopped are kept, so that
+       * work begun during startup is still reported in full.
+       */
+      public void end()
+      {
+         if (end_ < 0)
+            end_ = now();
+      }
+
+      /**
+       * Records the size of the payload handled by this span (e.g. the
+       * length of an RPC response), in UTF-16 characters.
+       */
+      public void setCharacters(int characters)
+      {
+         characters_ = characters;
+      }
+
+      public String getName()
+      {
+         return name_;
+      }
+
+      public String getCategory()
+      {
+         return category_;
+      }
+
+      public double getStart()
+      {
+         return start_;
+      }
+
+      /**
+       * @return The time the span ended, or -1 if it is still open
+       */
+      public double getEnd()
+      {
+         return end_;
+      }
+
+      public double getDuration()
+      {
+         return end_ < 0 ? 0 : end_ - start_;
+      }
+
+      /**
+       * @return The payload size in characters, or -1 if none was recorded
+       */
+      public int getCharacters()
+      {
+         return characters_;
+      }
+
+      public boolean isMark()
+      {
+         return CATEGORY_MARK.equals(category_);
+      }
+
+      JSONObject toJson()
+      {
+         JSONObject event = new JSONObject();
+         event.put("name", new JSONString(name_));
+         event.put("cat", new JSONString(category_));
+         event.put("ts", new JSONNumber(Math.round(start_ * 1000)));
+         event.put("pid", new JSONNumber(1));
+         event.put("tid", new JSONNumber(1));
+         if (isMark())
+         {
+            event.put("ph", new JSONString("i"));
+            event.put("s", new JSONString("g"));
+         }
+         else
+         {
+            event.put("ph", new JSONString("X"));
+            event.put("dur", new JSONNumber(Math.round(getDuration() * 1000)));
+         }
+
+         JSONObject args = new JSONObject();
+         if (characters_ >= 0)
+            args.put("characters", new JSONNumber(characters_));
+         if (end_ < 0)
+            args.put("open", JSONBoolean.getInstance(true));
+         event.put("args", args);
+         return event;
+      }
+
+      private final String name_;
+      private final String category_;
+      private final double start_;
+      private double end_;
+      private int characters_ = -1;
+   }
+
+   public static boolean isRecording()
+   {
+      return recording_;
+   }
+
+   /**
+    * Begins a span of work.
+    *
+    * @param name The name of the span
+    * @param category The kind of work (e.g. "rpc", "load", "init")
+    * @return The span, which must be ended by the caller; null if the trace
+    *    isn't recording
+    */
+   public static Span begin(String name, String category)
+   {
+      if (!recording_)
+         return null;
+
+      Span span = new Span(name, category, now());
+      add(span);
+      return span;
+   }
+
+   /**
+    * Ends a span returned by begin(); does nothing if span is null.
+    */
+   public static void end(Span span)
+   {
+      if (span != null)
+         span.end();
+   }
+
+   /**
+    * Records a point in time (e.g. a milestone of startup).
+    */
+   public static void mark(String name)
+   {
+      if (!recording_)
+         return;
+
+      double time = now();
+      add(new Span(name, CATEGORY_MARK, time, time));
+   }
+
+   public static void setMetadata(String key, String value)
+   {
+      metadata_.put(key, value);
+   }
+
+   /**
+    * Marks the end of startup and stops recording.
+    */
+   public static void finish(String name)
+   {
+      if (!recording_)
+         return;
+
+      mark(name);
+      finishTime_ = now();
+      recording_ = false;
+      exportToWindow();
+   }
+
+   /**
+    * @return The time startup finished, or the current time if it hasn't
+    */
+   public static double getEndTime()
+   {
+      return finishTime_ >= 0 ? finishTime_ : now();
+   }
+
+   /**
+    * @return The spans recorded, in the order they began
+    */
+   public static Span[] getSpans()
+   {
+      return spans_.toArray(new Span[0]);
+   }
+
+   public static Span[] getCriticalPath()
+   {
+      return getCriticalPath(spans_, getEndTime());
+   }
+
+   /**
+    * Finds the critical path leading to the given time: the span that ended
+    * last before it, then the span that ended last before that one began,
+    * and so on back to the start of the page load. Spans nested within a
+    * span on the path are covered by it and are not listed separately.
+    *
+    * @return The spans on the path, earliest first
+    */
+   public static Span[] getCriticalPath(List<Span> spans, double endTime)
+   {
+      ArrayList<Span> path = new ArrayList<Span>();
+      double time = endTime;
+      while (true)
+      {
+         Span latest = null;
+         for (Span span : spans)
+         {
+            if (span.isMark() || span.end_ < 0 ||
+                span.end_ > time || span.start_ >= time)
+            {
+               continue;
+            }
+
+            // of spans ending at the same time, prefer the outermost
+            if (latest == null ||
+                span.end_ > latest.end_ ||
+                (span.end_ == latest.end_ && span.start_ < latest.start_))
+            {
+               latest = span;
+            }
+         }
+
+         if (latest == null)
+            break;
+
+         path.add(latest);
+         time = latest.start_;
+      }
+
+      Collections.reverse(path);
+      return path.toArray(new Span[0]);
+   }
+
+   /**
+    * @return The trace in the Chrome trace event format, with the critical
+    *    path and any metadata in "otherData"
+    */
+   public static String toJson()
+   {
+      JSONArray events = new JSONArray();
+      for (Span span : spans_)
+         events.set(events.size(), span.toJson());
+
+      JSONArray criticalPath = new JSONArray();
+      for (Span span : getCriticalPath())
+         criticalPath.set(criticalPath.size(), new JSONString(span.getName()));
+
+      JSONObject otherData = new JSONObject();
+      for (Map.Entry<String, String> entry : metadata_.entrySet())
+         otherData.put(entry.getKey(), new JSONString(entry.getValue()));
+      otherData.put("total_ms", new JSONNumber(Math.round(getEndTime())));
+      otherData.put("complete", JSONBoolean.getInstance(finishTime_ >= 0));
+      otherData.put("critical_path", criticalPath);
+
+      JSONObject json = new JSONObject();
+      json.put("traceEvents", events);
+      json.put("displayTimeUnit", new JSONString("ms"));
+      json.put("otherData", otherData);
+      return json.toString();
+   }
+
+   // lets test automation fetch the trace (as JSON) once startup completes
+   private static native void exportToWindow() /*-{
+      $wnd.rstudioStartupTrace = $entry(function() {
+         return @org.rstudio.core.client.StartupTrace::toJson()();
+      });
+   }-*/;
+
+   public static native double now() /*-{
+      var perf = $wnd.performance;
+      return perf && perf.now ? perf.now() : Date.now();
+   }-*/;
+
+   private static void add(Span span)
+   {
+      spans_.add(span);
+
+      // windows that never complete deferred initialization (e.g. satellites)
+      // mustn't record forever
+      if (spans_.size() >= MAX_SPANS)
+         recording_ = false;
+   }
+
+   static final String CATEGORY_MARK = "mark";
+   private static final int MAX_SPANS = 1000;
+
+   private static final ArrayList<Span> spans_ = new ArrayList<Span>();
+   private static final LinkedHashMap<String, String> metadata_ =
+         new LinkedHashMap<String, String>();
+   private static boolean recording_ = true;
+   private static double finishTime_ = -1;
+}
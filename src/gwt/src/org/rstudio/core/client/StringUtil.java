@@ -14,6 +14,7 @@
  */
 package org.rstudio.core.client;
 
+import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.i18n.client.DateTimeFormat;
 import com.google.gwt.i18n.client.NumberFormat;
@@ -1476,13 +1477,30 @@ public class StringUtil
     * @param str2 The target string
     * @return
     */
-   public static native int naturalOrderCompare(String str1, String str2) /*-{
+   public static int naturalOrderCompare(String str1, String str2)
+   {
+      // constructing a collator is far more expensive than comparing with
+      // one, and localeCompare() with options constructs one on every call
+      if (naturalCollator_ == null)
+         naturalCollator_ = createNaturalCollator();
+      return naturalOrderCompare(naturalCollator_, str1, str2);
+   }
+
+   private static native JavaScriptObject createNaturalCollator() /*-{
+      return new Intl.Collator([], { "numeric": true });
+   }-*/;
+
+   private static native int naturalOrderCompare(JavaScriptObject collator,
+                                                 String str1,
+                                                 String str2) /*-{
       // Coerce null/undefined to empty
       var val1 = str1 ? str1 : "";
       var val2 = str2 ? str2 : "";
-      return val1.localeCompare(val2, [], { "numeric": true });
+      return collator.compare(val1, val2);
    }-*/;
    
+   private static JavaScriptObject naturalCollator_ = null;
+   
    private static final NumberFormat FORMAT = NumberFormat.getFormat("0.#");
    private static final NumberFormat PRETTY_NUMBER_FORMAT = NumberFormat.getFormat("#,##0.#####");
    private static final DateTimeFormat DATE_FORMAT
@@ -16,12 +16,6 @@ package org.rstudio.core.client;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import com.google.inject.Provider;
 import com.google.inject.assistedinject.Assisted;
@@ -118,6 +112,8 @@ public class VirtualConsole
    private void formfeed()
    {
       clearPartialAnsiCode();
+      newlinesRemoved_ += lineCount_;
+      lineCount_ = 0;
       output_.setLength(0);
       cursor_ = 0;
       class_.clear();
@@ -132,30 +128,30 @@ public class VirtualConsole
 
    /**
     * Debugging aid
-    * @param entry
-    * @return diagnostic string summarizing the Entry
+    * @param range
+    * @return diagnostic string summarizing the range
     */
-   private String debugDumpClassEntry(Entry<Integer, ClassRange> entry)
+   private String debugDumpClassRange(ClassRange range)
    {
-      if (entry == null)
+      if (range == null)
          return("[null]");
       else
-         return("[" + entry.getKey() + "]=" + entry.getValue().debugDump());
+         return("[" + range.start + "]=" + range.debugDump());
    }
 
    /**
     * Debugging aid
     */
    @SuppressWarnings("unused")
-   private void debugDumpClassMap(String name, Map<Integer, ClassRange> map)
+   private void debugDumpClassRanges(String name, ClassRangeList ranges)
    {
       Debug.logToConsole("Dumping " + name);
-      if (map == null)
+      if (ranges == null)
          Debug.logToConsole("null");
       else
-         for (Map.Entry<Integer, ClassRange> entry : map.entrySet())
+         for (int i = 0; i < ranges.size(); i++)
          {
-            Debug.logToConsole(name + debugDumpClassEntry(entry));
+            Debug.logToConsole(name + debugDumpClassRange(ranges.get(i)));
          }
       Debug.logToConsole("Done dumping " + name);
    }
@@ -193,6 +189,42 @@ public class VirtualConsole
       return parent_;
    }
 
+   /**
+    * @return number of newlines currently in the console buffer
+    */
+   public int getLineCount()
+   {
+      return lineCount_;
+   }
+
+   /**
+    * @return number of newlines added to the buffer by the last submit call
+    */
+   public int getNewlinesAdded()
+   {
+      return newlinesAdded_;
+   }
+
+   /**
+    * @return number of newlines removed from the buffer by the last submit
+    * call, either by being overwritten or cleared with a form feed
+    */
+   public int getNewlinesRemoved()
+   {
+      return newlinesRemoved_;
+   }
+
+   private static int countNewlines(CharSequence text, int start, int end)
+   {
+      int count = 0;
+      for (int i = start; i < end; i++)
+      {
+         if (text.charAt(i) == '\n')
+            count++;
+      }
+      return count;
+   }
+
    /**
     * Appends text to the end of the virtual console.
     *
@@ -203,8 +235,7 @@ public class VirtualConsole
     */
    private void appendText(String text, String clazz, boolean forceNewRange)
    {
-      Entry <Integer, ClassRange> last = class_.lastEntry();
-      ClassRange range = last.getValue();
+      ClassRange range = class_.last();
       if (!forceNewRange && StringUtil.equals(range.clazz, clazz))
       {
          // just append to the existing output stream
@@ -215,7 +246,7 @@ public class VirtualConsole
          // create a new output range with this class
          final ClassRange newRange = new ClassRange(cursor_, clazz, text);
          parent_.appendChild(newRange.element);
-         class_.put(cursor_, newRange);
+         class_.append(newRange);
       }
    }
 
@@ -229,41 +260,47 @@ public class VirtualConsole
       int start = range.start;
       int end = start + range.length;
 
-      Entry<Integer, ClassRange> left = class_.floorEntry(start);
-      Entry<Integer, ClassRange> right = class_.floorEntry(end);
+      int left = class_.floorIndex(start);
+      int right = class_.floorIndex(end);
 
-      // create a view into the map representing the ranges that this class
-      // overlaps
-      SortedMap<Integer, ClassRange> view = null;
-      if (left != null && right != null)
-         view = class_.subMap(left.getKey(), true, right.getKey(), true);
-      else if (left == null && right != null)
-         view = class_.tailMap(right.getKey(), true);
-      else if (left != null)
-         view = class_.headMap(left.getKey(), true);
-
-      // if no overlapping ranges exist, we can just create a new one
-      if (view == null)
+      // find the window of ranges that this class overlaps
+      int first, last;
+      if (left != -1 && right != -1)
+      {
+         first = left;
+         last = right;
+      }
+      else if (left == -1 && right != -1)
+      {
+         first = right;
+         last = class_.size() - 1;
+      }
+      else if (left != -1)
+      {
+         first = 0;
+         last = left;
+      }
+      else
       {
-         class_.put(start, range);
+         // if no overlapping ranges exist, we can just create a new one
+         class_.insert(range);
          if (parent_ != null)
             parent_.appendChild(range.element);
          return;
       }
 
-      // accumulators for actions to take after we finish iterating over the
-      // overlapping ranges (we don't do this in place to avoid invalidating
-      // iterators)
-      Set<Integer> deletions = new TreeSet<>();
-      List<ClassRange> insertions = new ArrayList<>();
-      Map<Integer, Integer> moves = new TreeMap<>();
+      // accumulators for structural changes to make after we finish
+      // iterating over the overlapping ranges; these are reused across calls
+      // to avoid churning objects on every run of output
+      deletions_.clear();
+      insertions_.clear();
 
       boolean haveInsertedRange = false;
 
-      for (Entry<Integer, ClassRange> entry: view.entrySet())
+      for (int i = first; i <= last; i++)
       {
-         ClassRange overlap = entry.getValue();
-         int l = entry.getKey();
+         ClassRange overlap = class_.get(i);
+         int l = overlap.start;
          int r = l + overlap.length;
          boolean matches = StringUtil.equals(range.clazz, overlap.clazz);
          if (start >= l && start < r && end >= r)
@@ -280,7 +317,7 @@ public class VirtualConsole
             {
                // reduce the original range and add ours
                overlap.trimRight(delta);
-               insertions.add(range);
+               insertions_.add(range);
                haveInsertedRange = true;
                if (parent_ != null)
                   parent_.insertAfter(range.element, overlap.element);
@@ -298,7 +335,7 @@ public class VirtualConsole
                // if the original range becomes empty, then delete it
                if (overlap.length == 0)
                {
-                  deletions.add(l);
+                  deletions_.add(overlap);
                   if (parent_ != null)
                      parent_.removeChild(overlap.element);
                }
@@ -310,11 +347,9 @@ public class VirtualConsole
                   range.clearText();
                   if (haveInsertedRange)
                   {
-                     insertions.remove(range);
+                     insertions_.remove(range);
                      haveInsertedRange = false;
                   }
-
-                  moves.put(l, start);
                }
             }
             else
@@ -323,10 +358,7 @@ public class VirtualConsole
                overlap.trimLeft(delta);
 
                if (!range.text().isEmpty())
-                  insertions.add(range);
-
-               // move the shortened range to its new start position
-               moves.put(l, overlap.start);
+                  insertions_.add(range);
 
                if (parent_ != null && !range.text().isEmpty())
                   parent_.insertBefore(range.element, overlap.element);
@@ -336,7 +368,7 @@ public class VirtualConsole
          else if (l > start && r < end)
          {
             // this range is fully overwritten, just delete it
-            deletions.add(l);
+            deletions_.add(overlap);
             if (parent_ != null)
                parent_.removeChild(overlap.element);
          }
@@ -357,7 +389,7 @@ public class VirtualConsole
                overlap.trimRight(amountTrimmed);
 
                // insert the new range
-               insertions.add(range);
+               insertions_.add(range);
                if (parent_ != null)
                   parent_.insertAfter(range.element, overlap.element);
 
@@ -366,30 +398,29 @@ public class VirtualConsole
                      end,
                      overlap.clazz,
                      text.substring((text.length() - (amountTrimmed - range.length))));
-               insertions.add(remainder);
+               insertions_.add(remainder);
                if (parent_ != null)
                   parent_.insertAfter(remainder.element, range.element);
             }
          }
       }
 
-      // process accumulated actions
-      for (Integer key: deletions)
-      {
-         class_.remove(key);
-      }
-
-      for (Integer key: moves.keySet())
+      // process accumulated actions; ranges whose start moved (trimmed or
+      // extended on the left) keep their relative order, so only deletions
+      // and insertions change the structure of the window
+      window_.clear();
+      for (int i = first; i <= last; i++)
       {
-         ClassRange moved = class_.get(key);
-         class_.remove(key);
-         class_.put(moves.get(key), moved);
+         ClassRange existing = class_.get(i);
+         if (!deletions_.contains(existing))
+            window_.add(existing);
       }
+      window_.addAll(insertions_);
+      class_.replace(first, last, window_);
 
-      for (ClassRange val: insertions)
-      {
-         class_.put(val.start, val);
-      }
+      deletions_.clear();
+      insertions_.clear();
+      window_.clear();
    }
 
    /**
@@ -417,6 +448,13 @@ public class VirtualConsole
             insertText(new ClassRange(start, clazz, text));
       }
 
+      // keep track of newlines overwritten and added by this text
+      int removed = countNewlines(output_, start, Math.min(end, output_.length()));
+      int added = countNewlines(text, 0, text.length());
+      newlinesRemoved_ += removed;
+      newlinesAdded_ += added;
+      lineCount_ += added - removed;
+
       output_.replace(start, end, text);
       cursor_ += text.length();
    }
@@ -448,6 +486,9 @@ public class VirtualConsole
       captureNewElements_ = forceNewRange;
       newElements_.clear();
 
+      newlinesAdded_ = 0;
+      newlinesRemoved_ = 0;
+
       newText_ = ariaLiveAnnounce && prefs_.screenReaderEnabled() ? new StringBuilder() : null;
 
       // If previous submit ended with an incomplete ANSI code, add new data
@@ -698,13 +739,152 @@ public class VirtualConsole
       public final SpanElement element;
    }
 
+   /**
+    * Ordered collection of the non-overlapping styled ranges making up the
+    * console output, sorted by start position. Output is almost always
+    * written at or near the end of the buffer, so ranges are kept in an
+    * array (cheap to edit near the tail) rather than a balanced tree, and
+    * lookups use binary search.
+    */
+   private static class ClassRangeList
+   {
+      public int size()
+      {
+         return ranges_.size();
+      }
+
+      public boolean isEmpty()
+      {
+         return ranges_.isEmpty();
+      }
+
+      public ClassRange get(int index)
+      {
+         return ranges_.get(index);
+      }
+
+      public ClassRange last()
+      {
+         return ranges_.isEmpty() ? null : ranges_.get(ranges_.size() - 1);
+      }
+
+      public void clear()
+      {
+         ranges_.clear();
+      }
+
+      /**
+       * @return index of the range with the greatest start position less than
+       * or equal to pos, or -1 if there is no such range
+       */
+      public int floorIndex(int pos)
+      {
+         int lo = 0;
+         int hi = ranges_.size() - 1;
+         int result = -1;
+         while (lo <= hi)
+         {
+            int mid = (lo + hi) >>> 1;
+            if (ranges_.get(mid).start <= pos)
+            {
+               result = mid;
+               lo = mid + 1;
+            }
+            else
+            {
+               hi = mid - 1;
+            }
+         }
+         return result;
+      }
+
+      /**
+       * Adds a range that starts at or after the end of all existing ranges.
+       */
+      public void append(ClassRange range)
+      {
+         ClassRange last = last();
+         if (last != null && last.start == range.start)
+            ranges_.set(ranges_.size() - 1, range);
+         else
+            ranges_.add(range);
+      }
+
+      /**
+       * Adds a range in sorted position, replacing any range with the same
+       * start position.
+       */
+      public void insert(ClassRange range)
+      {
+         int index = floorIndex(range.start);
+         if (index != -1 && ranges_.get(index).start == range.start)
+            ranges_.set(index, range);
+         else
+            ranges_.add(index + 1, range);
+      }
+
+      /**
+       * Replaces the ranges in [first, last] with the given ranges, which are
+       * sorted by start position in place. Where two ranges share a start
+       * position, the one appearing later in the given list wins.
+       */
+      public void replace(int first, int last, List<ClassRange> ranges)
+      {
+         // insertion sort; the window is almost always a handful of ranges
+         for (int i = 1; i < ranges.size(); i++)
+         {
+            ClassRange range = ranges.get(i);
+            int j = i - 1;
+            while (j >= 0 && ranges.get(j).start > range.start)
+            {
+               ranges.set(j + 1, ranges.get(j));
+               j--;
+            }
+            ranges.set(j + 1, range);
+         }
+
+         // drop ranges shadowed by a later range with the same start
+         int n = 0;
+         for (int i = 0; i < ranges.size(); i++)
+         {
+            if (n > 0 && ranges.get(n - 1).start == ranges.get(i).start)
+               ranges.set(n - 1, ranges.get(i));
+            else
+               ranges.set(n++, ranges.get(i));
+         }
+
+         // splice the window in place
+         int count = last - first + 1;
+         int common = Math.min(count, n);
+         for (int i = 0; i < common; i++)
+            ranges_.set(first + i, ranges.get(i));
+         for (int i = common; i < n; i++)
+            ranges_.add(first + i, ranges.get(i));
+         for (int i = count - 1; i >= common; i--)
+            ranges_.remove(first + i);
+      }
+
+      private final ArrayList<ClassRange> ranges_ = new ArrayList<>();
+   }
+
    private static final Pattern CONTROL = Pattern.create("[\r\b\f\n]");
 
    private final StringBuilder output_ = new StringBuilder();
-   private final TreeMap<Integer, ClassRange> class_ = new TreeMap<>();
+   private final ClassRangeList class_ = new ClassRangeList();
+
+   // scratch space for insertText
+   private final List<ClassRange> deletions_ = new ArrayList<>();
+   private final List<ClassRange> insertions_ = new ArrayList<>();
+   private final List<ClassRange> window_ = new ArrayList<>();
    private final Element parent_;
 
    private int cursor_ = 0;
+
+   // newlines in output_, and changes to that count from last submit call
+   private int lineCount_ = 0;
+   private int newlinesAdded_ = 0;
+   private int newlinesRemoved_ = 0;
+
    private AnsiCode ansi_;
    private String partialAnsiCode_;
    private AnsiCode.AnsiClazzes ansiCodeStyles_ = new AnsiCode.AnsiClazzes();
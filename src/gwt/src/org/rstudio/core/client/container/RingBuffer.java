@@ -0,0 +1,114 @@
+/*
+ * RingBuffer.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.container;
+
+// A growable circular queue. Unlike ArrayList.remove(0), removing from
+// the head is O(1), which makes this suitable for FIFO work queues that
+// can accumulate many thousands of entries.
+public class RingBuffer<T>
+{
+   public RingBuffer()
+   {
+      this(16);
+   }
+
+   public RingBuffer(int initialCapacity)
+   {
+      data_ = new Object[Math.max(2, initialCapacity)];
+   }
+
+   public void addLast(T value)
+   {
+      if (size_ == data_.length)
+         grow();
+      data_[(head_ + size_) % data_.length] = value;
+      size_++;
+   }
+
+   @SuppressWarnings("unchecked")
+   public T removeFirst()
+   {
+      if (size_ == 0)
+         return null;
+      T value = (T) data_[head_];
+      data_[head_] = null;
+      head_ = (head_ + 1) % data_.length;
+      size_--;
+      return value;
+   }
+
+   @SuppressWarnings("unchecked")
+   public T peekFirst()
+   {
+      if (size_ == 0)
+         return null;
+      return (T) data_[head_];
+   }
+
+   @SuppressWarnings("unchecked")
+   public T peekLast()
+   {
+      if (size_ == 0)
+         return null;
+      return (T) data_[(head_ + size_ - 1) % data_.length];
+   }
+
+   public void setLast(T value)
+   {
+      if (size_ == 0)
+         throw new IllegalStateException("RingBuffer is empty");
+      data_[(head_ + size_ - 1) % data_.length] = value;
+   }
+
+   // index 0 is the oldest entry
+   @SuppressWarnings("unchecked")
+   public T get(int index)
+   {
+      if (index < 0 || index >= size_)
+         throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size_);
+      return (T) data_[(head_ + index) % data_.length];
+   }
+
+   public int size()
+   {
+      return size_;
+   }
+
+   public boolean isEmpty()
+   {
+      return size_ == 0;
+   }
+
+   public void clear()
+   {
+      for (int i = 0; i < size_; i++)
+         data_[(head_ + i) % data_.length] = null;
+      head_ = 0;
+      size_ = 0;
+   }
+
+   private void grow()
+   {
+      Object[] data = new Object[data_.length * 2];
+      for (int i = 0; i < size_; i++)
+         data[i] = data_[(head_ + i) % data_.length];
+      data_ = data;
+      head_ = 0;
+   }
+
+   private Object[] data_;
+   private int head_ = 0;
+   private int size_ = 0;
+}
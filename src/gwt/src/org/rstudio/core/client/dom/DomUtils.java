@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.rstudio.core.client.BrowseCap;
+import org.rstudio.core.client.CommandWith2Args;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.Point;
 import org.rstudio.core.client.Rectangle;
@@ -90,7 +91,24 @@ public class DomUtils
     */
    public static int trimLines(Element element, int linesToTrim)
    {
-      return trimLines(element.getChildNodes(), linesToTrim);
+      return trimLines(element.getChildNodes(), linesToTrim, null);
+   }
+
+   /**
+    * Trim excess lines from the beginning of the text of an element, passing
+    * each run of trimmed text (and the class name of the element containing
+    * it) to a handler, e.g. so it can be kept off-DOM.
+    *
+    * @param element The element to trim lines from.
+    * @param linesToTrim The number of lines to trim.
+    * @param onTrimmed Receives trimmed text and its class name, in order.
+    * @return Number of lines trimmed
+    */
+   public static int trimLines(Element element,
+                               int linesToTrim,
+                               CommandWith2Args<String, String> onTrimmed)
+   {
+      return trimLines(element.getChildNodes(), linesToTrim, onTrimmed);
    }
 
    public static native void scrollToBottom(Element element) /*-{
@@ -156,7 +174,9 @@ public class DomUtils
    }
 
    private static final Pattern NEWLINE = Pattern.create("\\n");
-   private static int trimLines(NodeList<Node> nodes, final int linesToTrim)
+   private static int trimLines(NodeList<Node> nodes,
+                                final int linesToTrim,
+                                CommandWith2Args<String, String> onTrimmed)
    {
       if (nodes == null || nodes.getLength() == 0 || linesToTrim == 0)
          return 0;
@@ -172,13 +192,15 @@ public class DomUtils
             case Node.ELEMENT_NODE:
                if (((Element)node).getTagName().equalsIgnoreCase("br"))
                {
+                  if (onTrimmed != null)
+                     onTrimmed.execute("\n", null);
                   linesLeft--;
                   node = removeAndGetNext(node);
                   continue;
                }
                else
                {
-                  int trimmed = trimLines(node.getChildNodes(), linesLeft);
+                  int trimmed = trimLines(node.getChildNodes(), linesLeft, onTrimmed);
                   linesLeft -= trimmed;
                   if (!node.hasChildNodes())
                      node = removeAndGetNext(node);
@@ -198,12 +220,16 @@ public class DomUtils
 
                if (linesLeft > 0 || lastMatch == null)
                {
+                  if (onTrimmed != null)
+                     onTrimmed.execute(text, trimmedClassName(node));
                   node = removeAndGetNext(node);
                   continue;
                }
                else
                {
                   int index = lastMatch.getIndex() + 1;
+                  if (onTrimmed != null)
+                     onTrimmed.execute(text.substring(0, index), trimmedClassName(node));
                   if (text.length() == index)
                      node.removeFromParent();
                   else
@@ -216,6 +242,12 @@ public class DomUtils
       return linesToTrim - linesLeft;
    }
 
+   private static String trimmedClassName(Node node)
+   {
+      Element parent = node.getParentElement();
+      return parent == null ? null : parent.getClassName();
+   }
+
    private static Node removeAndGetNext(Node node)
    {
       Node next = node.getNextSibling();
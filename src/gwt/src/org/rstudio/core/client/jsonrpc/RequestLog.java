@@ -15,25 +15,34 @@
 package org.rstudio.core.client.jsonrpc;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONObject;
 
 public class RequestLog
 {
-   public static RequestLogEntry log(String requestId, String requestData)
+   public static RequestLogEntry log(String requestId,
+                                     String methodName,
+                                     String requestData)
    {
+      int requestChars = requestData == null ? 0 : requestData.length();
+
       RequestLogEntry entry = new RequestLogEntry(System.currentTimeMillis(),
-                                                  requestId, requestData);
+                                                  requestId,
+                                                  capture(requestData),
+                                                  methodName);
       entries_.add(entry);
+      storedChars_ += entry.getStoredChars();
 
-      for (int i = 0; entries_.size() > MAX_ENTRIES && i < entries_.size(); i++)
-      {
-         RequestLogEntry oldEntry = entries_.get(i);
-         if (!oldEntry.isAlive())
-         {
-            entries_.remove(i);
-            i--;
-         }
-      }
+      // requests sent during startup are included in the startup trace
+      entry.beginTrace();
+
+      getStats(entry.getStatsKey()).recordRequest(requestChars);
 
+      trim();
       return entry;
    }
 
@@ -45,8 +54,152 @@ public class RequestLog
       return entries;
    }
 
+   /**
+    * @return per-method request counters, most time-consuming first
+    */
+   public static RequestLogStats[] getStats()
+   {
+      ArrayList<RequestLogStats> stats = new ArrayList<RequestLogStats>();
+      for (RequestLogStats methodStats : stats_.values())
+         stats.add(methodStats.clone());
+
+      Collections.sort(stats, new Comparator<RequestLogStats>()
+      {
+         @Override
+         public int compare(RequestLogStats a, RequestLogStats b)
+         {
+            return Long.compare(b.getTotalLatencyMillis(),
+                                a.getTotalLatencyMillis());
+         }
+      });
+
+      return stats.toArray(new RequestLogStats[0]);
+   }
+
+   /**
+    * @return the per-method request counters as JSON
+    */
+   public static String toJson()
+   {
+      JSONArray methods = new JSONArray();
+      for (RequestLogStats stats : getStats())
+         methods.set(methods.size(), stats.toJson());
+
+      JSONObject json = new JSONObject();
+      json.put("methods", methods);
+      return json.toString();
+   }
+
+   /**
+    * Records that a request for the given method was retried after its
+    * error was resolved (e.g. by refreshing credentials).
+    */
+   public static void onRetry(String methodName)
+   {
+      getStats(methodName).recordRetry();
+   }
+
+   /**
+    * When diagnostics are enabled, full request and response payloads are
+    * kept in the log; otherwise only a short prefix of each is stored.
+    */
+   public static void setDiagnosticsEnabled(boolean enabled)
+   {
+      diagnosticsEnabled_ = enabled;
+   }
+
+   public static boolean isDiagnosticsEnabled()
+   {
+      return diagnosticsEnabled_;
+   }
+
+   static void onResponseLogged(RequestLogEntry entry,
+                                int responseType,
+                                int responseChars,
+                                int previousStoredChars,
+                                boolean firstResponse)
+   {
+      if (firstResponse)
+      {
+         RequestLogStats stats = getStats(entry.getStatsKey());
+         if (responseType == RequestLogEntry.ResponseType.Normal)
+         {
+            stats.recordResponse(
+                  responseChars,
+                  entry.getResponseTime() - entry.getRequestTime());
+         }
+         else if (responseType == RequestLogEntry.ResponseType.Cancelled)
+         {
+            stats.recordCancel();
+         }
+         else
+         {
+            stats.recordFailure();
+         }
+      }
+
+      if (entries_.contains(entry))
+      {
+         storedChars_ += entry.getStoredChars() - previousStoredChars;
+         trim();
+      }
+   }
+
+   static void onResponseParsed(RequestLogEntry entry, double parseMillis)
+   {
+      getStats(entry.getStatsKey()).recordParse(parseMillis);
+   }
+
+   static String capture(String data)
+   {
+      if (diagnosticsEnabled_ || data == null ||
+          data.length() <= MAX_CAPTURED_LENGTH)
+      {
+         return data;
+      }
+
+      return data.substring(0, MAX_CAPTURED_LENGTH) +
+            "... [" + (data.length() - MAX_CAPTURED_LENGTH) + " more characters]";
+   }
+
+   private static RequestLogStats getStats(String key)
+   {
+      RequestLogStats stats = stats_.get(key);
+      if (stats == null)
+      {
+         stats = new RequestLogStats(key);
+         stats_.put(key, stats);
+      }
+      return stats;
+   }
+
+   // drop the oldest completed entries until the log fits within both the
+   // entry and payload budgets
+   private static void trim()
+   {
+      for (int i = 0;
+           i < entries_.size() &&
+           (entries_.size() > MAX_ENTRIES || storedChars_ > MAX_STORED_CHARS);
+           i++)
+      {
+         RequestLogEntry oldEntry = entries_.get(i);
+         if (!oldEntry.isAlive())
+         {
+            storedChars_ -= oldEntry.getStoredChars();
+            entries_.remove(i);
+            i--;
+         }
+      }
+   }
+
    private static final ArrayList<RequestLogEntry> entries_ =
          new ArrayList<RequestLogEntry>();
+   private static final HashMap<String, RequestLogStats> stats_ =
+         new HashMap<String, RequestLogStats>();
+   private static long storedChars_ = 0;
+   private static boolean diagnosticsEnabled_ = false;
 
    private static final int MAX_ENTRIES = 50;
+   private static final long MAX_STORED_CHARS = 1024 * 1024;
+   private static final int MAX_CAPTURED_LENGTH = 2048;
 }
@@ -14,7 +14,10 @@
  */
 package org.rstudio.core.client.jsonrpc;
 
+import com.google.gwt.core.client.Duration;
+
 import org.rstudio.core.client.CsvWriter;
+import org.rstudio.core.client.StartupTrace;
 import org.rstudio.core.client.regex.Match;
 import org.rstudio.core.client.regex.Pattern;
 
@@ -31,11 +34,13 @@ public class RequestLogEntry
 
    public RequestLogEntry(long requestTime,
                           String requestId,
-                          String requestData)
+                          String requestData,
+                          String methodName)
    {
       requestTime_ = requestTime;
       requestId_ = requestId;
       requestData_ = requestData;
+      methodName_ = methodName;
    }
 
    public long getRequestTime()
@@ -65,9 +70,53 @@ public class RequestLogEntry
 
    public void logResponse(int responseType, String data)
    {
+      boolean firstResponse = responseType_ == ResponseType.None;
+      int previousStoredChars = getStoredChars();
+
       responseType_ = responseType;
       responseTime_ = System.currentTimeMillis();
-      responseData_ = data;
+      responseData_ = RequestLog.capture(data);
+
+      if (traceSpan_ != null)
+      {
+         if (responseType == ResponseType.Normal && data != null)
+            traceSpan_.setCharacters(data.length());
+         traceSpan_.end();
+         traceSpan_ = null;
+      }
+
+      RequestLog.onResponseLogged(this,
+                                  responseType,
+                                  data == null ? 0 : data.length(),
+                                  previousStoredChars,
+                                  firstResponse);
+   }
+
+   /**
+    * Call before and after parsing the response to record how long parsing
+    * took.
+    */
+   public void beginParse()
+   {
+      parseStart_ = Duration.currentTimeMillis();
+      parseSpan_ = StartupTrace.begin("parse " + methodName_, "parse");
+   }
+
+   public void endParse()
+   {
+      if (parseStart_ < 0)
+         return;
+
+      RequestLog.onResponseParsed(this,
+                                  Duration.currentTimeMillis() - parseStart_);
+      parseStart_ = -1;
+      StartupTrace.end(parseSpan_);
+      parseSpan_ = null;
+   }
+
+   void beginTrace()
+   {
+      traceSpan_ = StartupTrace.begin("rpc " + methodName_, "rpc");
    }
 
    public int getResponseType()
@@ -82,11 +131,33 @@ public class RequestLogEntry
 
    public String getRequestMethodName()
    {
-      if (requestData_ == "[REDACTED]")
-         return requestData_;
+      return methodName_;
+   }
+
+   // the number of payload characters retained by this entry
+   int getStoredChars()
+   {
+      return (requestData_ == null ? 0 : requestData_.length()) +
+             (responseData_ == null ? 0 : responseData_.length());
+   }
+
+   // the key under which this entry's request counters are accumulated
+   String getStatsKey()
+   {
+      return methodName_ != null ? methodName_ : requestId_;
+   }
+
+   // only used for imported logs, which don't record the method separately
+   private static String parseMethodName(String requestData)
+   {
+      if (requestData == null)
+         return null;
+
+      if (requestData == "[REDACTED]")
+         return requestData;
 
       Pattern p = Pattern.create("\\\"method\\\":\\s*\\\"([^\"]+)\\\"");
-      Match match = p.match(requestData_, 0);
+      Match match = p.match(requestData, 0);
       if (match == null)
          return null;
       return match.getGroup(1);
@@ -96,7 +167,8 @@ public class RequestLogEntry
    {
       RequestLogEntry clone = new RequestLogEntry(requestTime_,
                                                   requestId_,
-                                                  requestData_);
+                                                  requestData_,
+                                                  methodName_);
       clone.responseType_ = responseType_;
       clone.responseData_ = responseData_;
       clone.responseTime_ = responseTime_;
@@ -133,7 +205,10 @@ public class RequestLogEntry
          respTime = Long.parseLong(line[4]);
          respData = line[5];
       }
-      RequestLogEntry entry = new RequestLogEntry(reqTime, reqId, reqData);
+      RequestLogEntry entry = new RequestLogEntry(reqTime,
+                                                  reqId,
+                                                  reqData,
+                                                  parseMethodName(reqData));
       entry.responseType_ = respType;
       entry.responseTime_ = respTime;
       entry.responseData_ = respData;
@@ -143,7 +218,11 @@ public class RequestLogEntry
    private final long requestTime_;
    private final String requestId_;
    private final String requestData_;
+   private final String methodName_;
    private Long responseTime_;
    private String responseData_;
    private int responseType_ = ResponseType.None;
+   private double parseStart_ = -1;
+   private StartupTrace.Span traceSpan_;
+   private StartupTrace.Span parseSpan_;
 }
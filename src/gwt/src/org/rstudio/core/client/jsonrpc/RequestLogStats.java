@@ -0,0 +1,242 @@
+/*
+ * RequestLogStats.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.Arrays;
+
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+
+/**
+ * Cumulative request counters for a single RPC method. Payload sizes are
+ * measured in characters of the serialized request/response. Latency
+ * percentiles are computed over the most recent MAX_SAMPLES responses.
+ */
+public class RequestLogStats
+{
+   // upper bounds (exclusive) of the latency histogram buckets, in ms; the
+   // final bucket holds everything slower than the last bound
+   public static final int[] LATENCY_BUCKETS_MS =
+         { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+   public static final int MAX_SAMPLES = 256;
+
+   public RequestLogStats(String methodName)
+   {
+      methodName_ = methodName;
+      latencyCounts_ = new int[LATENCY_BUCKETS_MS.length + 1];
+   }
+
+   void recordRequest(int requestChars)
+   {
+      requestCount_++;
+      inFlight_++;
+      charsSent_ += requestChars;
+   }
+
+   void recordResponse(int responseChars, long latencyMillis)
+   {
+      inFlight_ = Math.max(0, inFlight_ - 1);
+      responseCount_++;
+      charsReceived_ += responseChars;
+      totalLatencyMillis_ += latencyMillis;
+
+      int bucket = 0;
+      while (bucket < LATENCY_BUCKETS_MS.length &&
+             latencyMillis >= LATENCY_BUCKETS_MS[bucket])
+      {
+         bucket++;
+      }
+      latencyCounts_[bucket]++;
+
+      if (samples_ == null)
+         samples_ = new long[Math.min(MAX_SAMPLES, 16)];
+      else if (sampleCount_ == samples_.length && samples_.length < MAX_SAMPLES)
+         samples_ = Arrays.copyOf(samples_, Math.min(MAX_SAMPLES, samples_.length * 2));
+
+      // once full, overwrite the oldest sample
+      samples_[nextSample_] = latencyMillis;
+      nextSample_ = (nextSample_ + 1) % MAX_SAMPLES;
+      sampleCount_ = Math.min(sampleCount_ + 1, MAX_SAMPLES);
+   }
+
+   // the request ended with an error instead of a response
+   void recordFailure()
+   {
+      inFlight_ = Math.max(0, inFlight_ - 1);
+      failureCount_++;
+   }
+
+   // the request was abandoned by the client before it completed
+   void recordCancel()
+   {
+      inFlight_ = Math.max(0, inFlight_ - 1);
+      cancelCount_++;
+   }
+
+   void recordParse(double parseMillis)
+   {
+      parseCount_++;
+      totalParseMillis_ += parseMillis;
+   }
+
+   void recordRetry()
+   {
+      retryCount_++;
+   }
+
+   public String getMethodName()
+   {
+      return methodName_;
+   }
+
+   public int getRequestCount()
+   {
+      return requestCount_;
+   }
+
+   public int getResponseCount()
+   {
+      return responseCount_;
+   }
+
+   public int getInFlightCount()
+   {
+      return inFlight_;
+   }
+
+   public int getFailureCount()
+   {
+      return failureCount_;
+   }
+
+   public int getCancelCount()
+   {
+      return cancelCount_;
+   }
+
+   public int getRetryCount()
+   {
+      return retryCount_;
+   }
+
+   public long getCharsSent()
+   {
+      return charsSent_;
+   }
+
+   public long getCharsReceived()
+   {
+      return charsReceived_;
+   }
+
+   public long getTotalLatencyMillis()
+   {
+      return totalLatencyMillis_;
+   }
+
+   /**
+    * @return counts of responses in each latency bucket; see
+    *    LATENCY_BUCKETS_MS for the bucket bounds
+    */
+   public int[] getLatencyCounts()
+   {
+      return latencyCounts_.clone();
+   }
+
+   /**
+    * @param percentile The percentile to compute, between 0 and 100
+    * @return The latency at that percentile (nearest rank), or 0 if no
+    *    responses have been recorded
+    */
+   public long getLatencyPercentile(double percentile)
+   {
+      if (sampleCount_ == 0)
+         return 0;
+
+      long[] sorted = Arrays.copyOf(samples_, sampleCount_);
+      Arrays.sort(sorted);
+      int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+      return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+   }
+
+   public double getAverageParseMillis()
+   {
+      return parseCount_ == 0 ? 0 : totalParseMillis_ / parseCount_;
+   }
+
+   public JSONObject toJson()
+   {
+      JSONObject json = new JSONObject();
+      json.put("method", new JSONString(methodName_));
+      json.put("requests", new JSONNumber(requestCount_));
+      json.put("inFlight", new JSONNumber(inFlight_));
+      json.put("responses", new JSONNumber(responseCount_));
+      json.put("failures", new JSONNumber(failureCount_));
+      json.put("cancelled", new JSONNumber(cancelCount_));
+      json.put("retries", new JSONNumber(retryCount_));
+      json.put("charsSent", new JSONNumber(charsSent_));
+      json.put("charsReceived", new JSONNumber(charsReceived_));
+      json.put("totalLatency", new JSONNumber(totalLatencyMillis_));
+      json.put("latencyP50", new JSONNumber(getLatencyPercentile(50)));
+      json.put("latencyP95", new JSONNumber(getLatencyPercentile(95)));
+      json.put("latencyP99", new JSONNumber(getLatencyPercentile(99)));
+      json.put("parseAvg", new JSONNumber(getAverageParseMillis()));
+      return json;
+   }
+
+   public RequestLogStats clone()
+   {
+      RequestLogStats clone = new RequestLogStats(methodName_);
+      clone.requestCount_ = requestCount_;
+      clone.inFlight_ = inFlight_;
+      clone.responseCount_ = responseCount_;
+      clone.failureCount_ = failureCount_;
+      clone.cancelCount_ = cancelCount_;
+      clone.retryCount_ = retryCount_;
+      clone.charsSent_ = charsSent_;
+      clone.charsReceived_ = charsReceived_;
+      clone.totalLatencyMillis_ = totalLatencyMillis_;
+      for (int i = 0; i < latencyCounts_.length; i++)
+         clone.latencyCounts_[i] = latencyCounts_[i];
+      clone.parseCount_ = parseCount_;
+      clone.totalParseMillis_ = totalParseMillis_;
+      clone.samples_ = samples_ == null ? null : samples_.clone();
+      clone.sampleCount_ = sampleCount_;
+      clone.nextSample_ = nextSample_;
+      return clone;
+   }
+
+   private final String methodName_;
+   private int requestCount_;
+   private int inFlight_;
+   private int responseCount_;
+   private int failureCount_;
+   private int cancelCount_;
+   private int retryCount_;
+   private long charsSent_;
+   private long charsReceived_;
+   private long totalLatencyMillis_;
+   private final int[] latencyCounts_;
+   private int parseCount_;
+   private double totalParseMillis_;
+
+   // latency samples; grows on demand up to MAX_SAMPLES and is then used as
+   // a circular buffer
+   private long[] samples_;
+   private int sampleCount_;
+   private int nextSample_;
+}
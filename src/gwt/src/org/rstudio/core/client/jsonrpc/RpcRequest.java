@@ -112,6 +112,7 @@ public class RpcRequest
             Debug.log("Request: " + requestString);
 
          requestLogEntry_ = RequestLog.log(requestId,
+                                           method_,
                                            redactLog_ ? "[REDACTED]"
                                                       : requestString);
 
@@ -144,7 +145,15 @@ public class RpcRequest
                         Debug.log("Response: " + responseText);
                      requestLogEntry_.logResponse(ResponseType.Normal,
                                                  responseText);
-                     rpcResponse = RpcResponse.parse(responseText);
+                     requestLogEntry_.beginParse();
+                     try
+                     {
+                        rpcResponse = RpcResponse.parse(responseText);
+                     }
+                     finally
+                     {
+                        requestLogEntry_.endParse();
+                     }
                      
                      // response received and validated, process it!
                      requestCallback.onResponseReceived(enclosingRequest, 
@@ -210,7 +219,9 @@ public class RpcRequest
       
       if (requestLogEntry_ != null)
       {
-         requestLogEntry_.logResponse(ResponseType.Cancelled, "Cancelled");
+         // don't overwrite a response that has already been logged
+         if (requestLogEntry_.isAlive())
+            requestLogEntry_.logResponse(ResponseType.Cancelled, "Cancelled");
          requestLogEntry_ = null;
       }
    }
@@ -0,0 +1,365 @@
+/*
+ * MultiHunkDiff.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A patch made up of one or more replaced regions (hunks) of an original
+ * string. Hunk offsets and lengths are in UTF-8 bytes and refer to the
+ * original string, so hunks can be applied last to first without adjusting
+ * offsets.
+ *
+ * The hunks are found with a line-based Myers diff whose cost is bounded by
+ * MAX_LINES and MAX_EDITS; when a diff would exceed those bounds the result
+ * is a single hunk covering everything between the common head and tail,
+ * exactly as SubstringDiff would produce.
+ */
+public class MultiHunkDiff
+{
+   public static class Hunk
+   {
+      public Hunk(int offset, int length, String replacement)
+      {
+         offset_ = offset;
+         length_ = length;
+         replacement_ = replacement;
+      }
+
+      public int getOffset()
+      {
+         return offset_;
+      }
+
+      public int getLength()
+      {
+         return length_;
+      }
+
+      public String getReplacement()
+      {
+         return replacement_;
+      }
+
+      private final int offset_;
+      private final int length_;
+      private final String replacement_;
+   }
+
+   public static MultiHunkDiff create(String origVal, String newVal)
+   {
+      return create(origVal, 0, origVal.length(), 0, newVal);
+   }
+
+   /**
+    * Diffs a region of a string against its replacement.
+    *
+    * @param origVal The original string
+    * @param origStart The start of the replaced region (in characters)
+    * @param origEnd The end of the replaced region (in characters)
+    * @param origStartOffset The UTF-8 byte offset of origStart in origVal
+    * @param replacement The text replacing the region
+    */
+   public static MultiHunkDiff create(String origVal,
+                                      int origStart,
+                                      int origEnd,
+                                      int origStartOffset,
+                                      String replacement)
+   {
+      MultiHunkDiff diff = new MultiHunkDiff();
+
+      // trim the common head and tail of the region
+      int trimStart = origStart;
+      int trimEnd = origEnd;
+      int newStart = 0;
+      int newEnd = replacement.length();
+      while (origStart < origEnd && newStart < newEnd &&
+             origVal.charAt(origStart) == replacement.charAt(newStart))
+      {
+         origStart++;
+         newStart++;
+      }
+      origStartOffset += SubstringDiff.utf8Length(origVal, trimStart, origStart);
+      while (origEnd > origStart && newEnd > newStart &&
+             origVal.charAt(origEnd - 1) == replacement.charAt(newEnd - 1))
+      {
+         origEnd--;
+         newEnd--;
+      }
+
+      // don't split a surrogate pair
+      if (origStart > trimStart && Character.isHighSurrogate(origVal.charAt(origStart - 1)))
+      {
+         origStart--;
+         newStart--;
+         origStartOffset -= 2;
+      }
+      if (origEnd < trimEnd && Character.isLowSurrogate(origVal.charAt(origEnd)))
+      {
+         origEnd++;
+         newEnd++;
+      }
+
+      if (origStart == origEnd && newStart == newEnd)
+         return diff;
+
+      if (origEnd - origStart + newEnd - newStart >= MIN_SPLIT_LENGTH &&
+          diff.addHunks(origVal, origStart, origEnd, origStartOffset,
+                        replacement, newStart, newEnd))
+      {
+         return diff;
+      }
+
+      diff.hunks_.clear();
+      diff.hunks_.add(new Hunk(
+            origStartOffset,
+            SubstringDiff.utf8Length(origVal, origStart, origEnd),
+            replacement.substring(newStart, newEnd)));
+      return diff;
+   }
+
+   public int getHunkCount()
+   {
+      return hunks_.size();
+   }
+
+   public Hunk getHunk(int index)
+   {
+      return hunks_.get(index);
+   }
+
+   public boolean isEmpty()
+   {
+      return hunks_.isEmpty();
+   }
+
+   /**
+    * @return The total number of replacement characters in all hunks
+    */
+   public int getReplacementLength()
+   {
+      int length = 0;
+      for (Hunk hunk : hunks_)
+         length += hunk.getReplacement().length();
+      return length;
+   }
+
+   // Splits the regions into lines and adds a hunk for each run of lines
+   // that differ. Returns false if the diff exceeds the cost bounds.
+   private boolean addHunks(String origVal, int origStart, int origEnd,
+                            int origStartOffset,
+                            String newVal, int newStart, int newEnd)
+   {
+      int[] origLines = lineStarts(origVal, origStart, origEnd);
+      int[] newLines = lineStarts(newVal, newStart, newEnd);
+      if (origLines == null || newLines == null)
+         return false;
+
+      int n = origLines.length - 1;
+      int m = newLines.length - 1;
+
+      // intern the lines so they can be compared as integers
+      HashMap<String, Integer> ids = new HashMap<String, Integer>();
+      int[] a = new int[n];
+      for (int i = 0; i < n; i++)
+         a[i] = lineId(ids, origVal.substring(origLines[i], origLines[i + 1]));
+      int[] b = new int[m];
+      for (int i = 0; i < m; i++)
+         b[i] = lineId(ids, newVal.substring(newLines[i], newLines[i + 1]));
+
+      int[] matches = matchLines(a, b);
+      if (matches == null)
+         return false;
+
+      // walk the matched lines, emitting a hunk for each gap between them;
+      // gaps separated by only a few unchanged characters are merged
+      int origPos = origStart;
+      int origPosOffset = origStartOffset;
+      int hunkOrig = -1, hunkNew = -1;
+      int hunkOrigEnd = -1, hunkNewEnd = -1;
+      int i = 0, j = 0;
+      for (int match = 0; match <= matches.length; match += 2)
+      {
+         int mi = match < matches.length ? matches[match] : n;
+         int mj = match < matches.length ? matches[match + 1] : m;
+
+         if (mi > i || mj > j)
+         {
+            int gapOrigStart = origLines[i];
+            int gapNewStart = newLines[j];
+            if (hunkOrig >= 0 && gapOrigStart - hunkOrigEnd >= MIN_UNCHANGED_LENGTH)
+            {
+               origPosOffset = addHunk(origVal, origPos, origPosOffset,
+                                       hunkOrig, hunkOrigEnd,
+                                       newVal.substring(hunkNew, hunkNewEnd));
+               origPos = hunkOrigEnd;
+               hunkOrig = -1;
+            }
+
+            if (hunkOrig < 0)
+            {
+               hunkOrig = gapOrigStart;
+               hunkNew = gapNewStart;
+            }
+            hunkOrigEnd = origLines[mi];
+            hunkNewEnd = newLines[mj];
+         }
+
+         i = mi + 1;
+         j = mj + 1;
+      }
+
+      if (hunkOrig >= 0)
+      {
+         addHunk(origVal, origPos, origPosOffset, hunkOrig, hunkOrigEnd,
+                 newVal.substring(hunkNew, hunkNewEnd));
+      }
+
+      return true;
+   }
+
+   // Adds a hunk replacing origVal[start, end), given a preceding position
+   // whose byte offset is known. Returns the byte offset of 'end'.
+   private int addHunk(String origVal, int pos, int posOffset,
+                       int start, int end, String replacement)
+   {
+      int offset = posOffset + SubstringDiff.utf8Length(origVal, pos, start);
+      int length = SubstringDiff.utf8Length(origVal, start, end);
+      hunks_.add(new Hunk(offset, length, replacement));
+      return offset + length;
+   }
+
+   // Returns the start of each line in str[start, end), followed by end, or
+   // null if there are too many lines
+   private static int[] lineStarts(String str, int start, int end)
+   {
+      ArrayList<Integer> starts = new ArrayList<Integer>();
+      for (int pos = start; pos < end; )
+      {
+         if (starts.size() >= MAX_LINES)
+            return null;
+
+         starts.add(pos);
+         int newline = str.indexOf('\n', pos);
+         pos = newline < 0 || newline >= end ? end : newline + 1;
+      }
+
+      int[] result = new int[starts.size() + 1];
+      for (int i = 0; i < starts.size(); i++)
+         result[i] = starts.get(i);
+      result[starts.size()] = end;
+      return result;
+   }
+
+   private static int lineId(HashMap<String, Integer> ids, String line)
+   {
+      Integer id = ids.get(line);
+      if (id == null)
+      {
+         id = ids.size();
+         ids.put(line, id);
+      }
+      return id;
+   }
+
+   // Myers' O(ND) diff, limited to MAX_EDITS insertions and deletions.
+   // Returns the matched lines as (index in a, index in b) pairs in order,
+   // or null if the sequences differ by more than MAX_EDITS lines.
+   private static int[] matchLines(int[] a, int[] b)
+   {
+      int n = a.length;
+      int m = b.length;
+      int max = Math.min(n + m, MAX_EDITS);
+      int offset = max + 1;
+      int[] v = new int[2 * max + 3];
+      ArrayList<int[]> trace = new ArrayList<int[]>();
+
+      int d;
+      boolean found = false;
+      for (d = 0; d <= max && !found; d++)
+      {
+         trace.add(v.clone());
+         for (int k = -d; k <= d; k += 2)
+         {
+            int x;
+            if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]))
+               x = v[offset + k + 1];
+            else
+               x = v[offset + k - 1] + 1;
+
+            int y = x - k;
+            while (x < n && y < m && a[x] == b[y])
+            {
+               x++;
+               y++;
+            }
+
+            v[offset + k] = x;
+            if (x >= n && y >= m)
+            {
+               found = true;
+               break;
+            }
+         }
+      }
+
+      if (!found)
+         return null;
+
+      // backtrack through the trace, collecting the diagonal moves
+      ArrayList<Integer> matches = new ArrayList<Integer>();
+      int x = n;
+      int y = m;
+      for (d = trace.size() - 1; d >= 0; d--)
+      {
+         int[] prev = trace.get(d);
+         int k = x - y;
+         int prevK;
+         if (k == -d || (k != d && prev[offset + k - 1] < prev[offset + k + 1]))
+            prevK = k + 1;
+         else
+            prevK = k - 1;
+
+         int prevX = d == 0 ? 0 : prev[offset + prevK];
+         int prevY = d == 0 ? 0 : prevX - prevK;
+
+         while (x > prevX && y > prevY)
+         {
+            x--;
+            y--;
+            matches.add(y);
+            matches.add(x);
+         }
+
+         x = prevX;
+         y = prevY;
+      }
+
+      int[] result = new int[matches.size()];
+      for (int i = 0; i < result.length; i++)
+         result[i] = matches.get(result.length - 1 - i);
+      return result;
+   }
+
+   private final ArrayList<Hunk> hunks_ = new ArrayList<Hunk>();
+
+   // Regions shorter than this aren't worth splitting
+   private static final int MIN_SPLIT_LENGTH = 1024;
+   // Unchanged text shorter than this is sent rather than splitting a hunk
+   private static final int MIN_UNCHANGED_LENGTH = 256;
+   private static final int MAX_LINES = 20000;
+   private static final int MAX_EDITS = 128;
+}
@@ -45,6 +45,72 @@ public class SubstringDiff
       }
    }
    
+   /**
+    * Creates a diff whose changed region is already known, e.g. from the
+    * edits made to a document. The new contents are only built if
+    * getNewValue() is called.
+    *
+    * @param origVal The original contents
+    * @param origStart The character offset of the changed region in origVal
+    * @param origEnd The character offset of the end of the changed region
+    * @param replacement The text replacing the changed region
+    * @param offset The UTF-8 byte offset of the changed region in origVal
+    * @param length The UTF-8 byte length of the changed region in origVal
+    */
+   public SubstringDiff(String origVal,
+                        int origStart,
+                        int origEnd,
+                        String replacement,
+                        int offset,
+                        int length)
+   {
+      this(origVal, origStart, origEnd, replacement, offset, length, null);
+   }
+
+   /**
+    * As above, with the changed region further broken down into hunks (in
+    * which case the server applies the hunks rather than the single
+    * replacement).
+    */
+   public SubstringDiff(String origVal,
+                        int origStart,
+                        int origEnd,
+                        String replacement,
+                        int offset,
+                        int length,
+                        MultiHunkDiff hunks)
+   {
+      origVal_ = origVal;
+      origStart_ = origStart;
+      origEnd_ = origEnd;
+      replacement_ = replacement;
+      offset_ = offset;
+      length_ = length;
+      hunks_ = hunks;
+      valid_ = true;
+   }
+
+   /**
+    * @return The number of bytes needed to encode str[start, end) as UTF-8
+    */
+   public static int utf8Length(String str, int start, int end)
+   {
+      int length = 0;
+      for (int i = start; i < end; i++)
+      {
+         char ch = str.charAt(i);
+         if (ch < 0x80)
+            length += 1;
+         else if (ch < 0x800)
+            length += 2;
+         else if (ch >= 0xD800 && ch <= 0xDFFF)
+            length += 2; // a surrogate pair is 4 bytes
+         else
+            length += 3;
+      }
+      return length;
+   }
+
    public TextChange[] asTextChanges() 
    {
       ArrayList<TextChange> changes = new ArrayList<TextChange>();
@@ -67,7 +133,7 @@ public class SubstringDiff
          if (origVal_.length() > 0)
             changes.add(new TextChange(TextChange.Type.Delete, origVal_));
          if (newVal_.length() > 0)
-            changes.add(new TextChange(TextChange.Type.Insert, newVal_));
+            changes.add(new TextChange(TextChange.Type.Insert, getNewValue()));
       }
       return changes.toArray(new TextChange[] {});      
    }
@@ -164,6 +230,26 @@ public class SubstringDiff
       return length_;
    }
    
+   /**
+    * @return The hunks making up the changed region, or null if the
+    *    region should be replaced as a whole
+    */
+   public MultiHunkDiff getHunks()
+   {
+      return hunks_;
+   }
+
+   public String getNewValue()
+   {
+      if (newVal_ == null)
+      {
+         newVal_ = origVal_.substring(0, origStart_) +
+                   replacement_ +
+                   origVal_.substring(origEnd_);
+      }
+      return newVal_;
+   }
+
    public boolean isEmpty()
    {
       return length_ == 0 && replacement_.length() == 0;
@@ -175,11 +261,14 @@ public class SubstringDiff
    }
 
    private final String origVal_;
-   private final String newVal_;
+   private String newVal_;
+   private int origStart_;
+   private int origEnd_;
 
    private int offset_;
    private int length_;
    private String replacement_;
+   private MultiHunkDiff hunks_;
    private boolean valid_;
 
 }
@@ -189,6 +189,28 @@ public class DocTabLayoutPanel
       }
    }
 
+   /**
+    * Replaces the content of a tab, keeping the tab's position and selection.
+    * Unlike closing the tab and adding a new one, this fires no close or
+    * selection events.
+    */
+   public void replaceTab(int index,
+                          Widget child,
+                          FileIcon icon,
+                          String docId,
+                          String text,
+                          String tooltip)
+   {
+      if ((index < 0) || (index >= getWidgetCount()))
+         return;
+
+      boolean selected = getSelectedIndex() == index;
+      add(child, icon, docId, text, tooltip, index);
+      if (selected)
+         super.selectTab(index, false);
+      super.remove(index + 1);
+   }
+
    public boolean tryCloseTab(int index, Command onClosed)
    {
       TabClosingEvent event = new TabClosingEvent(index);
@@ -180,6 +180,7 @@ public class AsyncShimGenerator extends Generator
 
          w.println("private void load(final int method, final Object[] args) {");
          w.indent();
+         w.println("if (o == null && method >= 0) onDelayLoadStarted();");
          w.println("GWT.runAsync(new RunAsyncCallback() {");
          w.indent();
          w.println("public void onFailure(Throwable reason) {");
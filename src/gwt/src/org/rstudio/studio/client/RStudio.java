@@ -38,6 +38,7 @@ import org.rstudio.core.client.BrowseCap;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.ElementIds;
 import org.rstudio.core.client.SerializedCommandQueue;
+import org.rstudio.core.client.StartupTrace;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.cellview.LinkColumn;
 import org.rstudio.core.client.files.filedialog.FileDialogResources;
@@ -55,6 +56,7 @@ import org.rstudio.core.client.widget.ThemedButton;
 import org.rstudio.core.client.widget.ThemedPopupPanel;
 import org.rstudio.core.client.widget.WizardResources;
 import org.rstudio.core.client.widget.images.ProgressImages;
+import org.rstudio.studio.client.application.Application;
 import org.rstudio.studio.client.application.ApplicationAction;
 import org.rstudio.studio.client.application.ui.AboutDialogContents;
 import org.rstudio.studio.client.application.ui.RTimeoutOptions;
@@ -122,6 +124,7 @@ public class RStudio implements EntryPoint
 {
    public void onModuleLoad()
    {
+      StartupTrace.mark("module load");
       Debug.injectDebug();
       maybeSetWindowName("rstudio-" + StringUtil.makeRandomId(16));
       maybeDelayLoadApplication(this);
@@ -308,22 +311,34 @@ public class RStudio implements EntryPoint
       final SerializedCommandQueue queue = new SerializedCommandQueue();
 
       // ensure Ace is loaded up front
-      queue.addCommand(continuation -> AceEditor.load(continuation));
+      queue.addCommand(continuation ->
+      {
+         StartupTrace.Span aceSpan = StartupTrace.begin("load Ace", "load");
+         AceEditor.load(() ->
+         {
+            StartupTrace.end(aceSpan);
+            continuation.execute();
+         });
+      });
       
       // load the requested page
       queue.addCommand(continuation -> onDelayLoadApplication());
       
+      final StartupTrace.Span codeSpan =
+            StartupTrace.begin("load application code", "load");
       GWT.runAsync(new RunAsyncCallback()
       {
          @Override
          public void onSuccess()
          {
+            StartupTrace.end(codeSpan);
             queue.run();
          }
          
          @Override
          public void onFailure(Throwable reason)
          {
+            StartupTrace.end(codeSpan);
             dismissProgressAnimation_.execute();
             Window.alert("Error: " + reason.getMessage());
          }
@@ -398,7 +413,12 @@ public class RStudio implements EntryPoint
                   }
                };
 
-         RStudioGinjector.INSTANCE.getApplication().go(
+         StartupTrace.Span injectSpan =
+               StartupTrace.begin("inject Application", "inject");
+         Application application = RStudioGinjector.INSTANCE.getApplication();
+         StartupTrace.end(injectSpan);
+
+         application.go(
                RootLayoutPanel.get(),
                rTimeoutOptions_,
                dismissProgressAnimation_,
@@ -39,6 +39,7 @@ import com.google.inject.Singleton;
 import org.rstudio.core.client.Barrier;
 import org.rstudio.core.client.BrowseCap;
 import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.StartupTrace;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.Barrier.Token;
 import org.rstudio.core.client.command.CommandBinder;
@@ -46,6 +47,7 @@ import org.rstudio.core.client.command.Handler;
 import org.rstudio.core.client.dom.DocumentEx;
 import org.rstudio.core.client.dom.DomUtils;
 import org.rstudio.core.client.dom.WindowEx;
+import org.rstudio.core.client.jsonrpc.RequestLog;
 import org.rstudio.core.client.widget.ModalDialogTracker;
 import org.rstudio.studio.client.RStudioGinjector;
 import org.rstudio.studio.client.application.ApplicationQuit.QuitContext;
@@ -59,6 +61,7 @@ import org.rstudio.studio.client.application.model.SessionSerializationAction;
 import org.rstudio.studio.client.application.ui.AboutDialog;
 import org.rstudio.studio.client.application.ui.RTimeoutOptions;
 import org.rstudio.studio.client.application.ui.RequestLogVisualization;
+import org.rstudio.studio.client.application.ui.StartupTraceVisualization;
 import org.rstudio.studio.client.common.GlobalDisplay;
 import org.rstudio.studio.client.common.SuperDevMode;
 import org.rstudio.studio.client.common.mathjax.MathJaxLoader;
@@ -198,7 +201,12 @@ public class Application implements ApplicationEventHandlers
                dismissLoadingProgress.execute();
             }
 
+            StartupTrace.Span sessionInfoSpan =
+                  StartupTrace.begin("read SessionInfo", "init");
             session_.setSessionInfo(sessionInfo);
+            StartupTrace.end(sessionInfoSpan);
+            StartupTrace.setMetadata("rstudio_version",
+                                     sessionInfo.getRstudioVersion());
 
             // load MathJax
             MathJaxLoader.ensureMathJaxLoaded();
@@ -206,10 +214,13 @@ public class Application implements ApplicationEventHandlers
             // initialize workbench
             // refresh prefs incase they were loaded without sessionInfo (this happens exclusively
             // in desktop mode, though unsure why)
+            StartupTrace.Span prefsSpan =
+                  StartupTrace.begin("write state and prefs", "init");
             userState_.get().writeState(boolArg ->
             {
                userPrefs_.get().writeUserPrefs(boolArg1 ->
                {
+                  StartupTrace.end(prefsSpan);
                   initializeWorkbench();
                });
             });
@@ -270,6 +281,7 @@ public class Application implements ApplicationEventHandlers
       }
 
       // attempt init
+      StartupTrace.mark("client init");
       clientInit.execute(callback, options, true);
 
       sessionOpener_.getJobConnectionStatus(connectionStatusCallback);
@@ -475,6 +487,40 @@ public class Application implements ApplicationEventHandlers
       });
    }
 
+   @Handler
+   public void onDumpRpcMetrics()
+   {
+      Debug.log(RequestLog.toJson());
+   }
+
+   @Handler
+   public void onShowStartupTrace()
+   {
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         public void onFailure(Throwable reason)
+         {
+            Window.alert(reason.toString());
+         }
+
+         public void onSuccess()
+         {
+            final StartupTraceVisualization viz = new StartupTraceVisualization();
+            final RootLayoutPanel root = RootLayoutPanel.get();
+            root.add(viz);
+            root.setWidgetTopBottom(viz, 10, Unit.PX, 10, Unit.PX);
+            root.setWidgetLeftRight(viz, 10, Unit.PX, 10, Unit.PX);
+            viz.addCloseHandler(new CloseHandler<StartupTraceVisualization>()
+            {
+               public void onClose(CloseEvent<StartupTraceVisualization> event)
+               {
+                  root.remove(viz);
+               }
+            });
+         }
+      });
+   }
+
    @Handler
    public void onLogFocusedElement()
    {
@@ -859,8 +905,15 @@ public class Application implements ApplicationEventHandlers
       events_.addHandler(ClientDisconnectedEvent.TYPE, this);
 
       // create workbench
+      StartupTrace.Span workbenchSpan =
+            StartupTrace.begin("inject Workbench", "inject");
       Workbench wb = workbench_.get();
+      StartupTrace.end(workbenchSpan);
+
+      StartupTrace.Span sessionInitSpan =
+            StartupTrace.begin("SessionInitEvent", "init");
       eventBusProvider_.get().fireEvent(new SessionInitEvent());
+      StartupTrace.end(sessionInitSpan);
 
       // disable commands
       SessionInfo sessionInfo = session_.getSessionInfo();
@@ -39,6 +39,7 @@ import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.jsonrpc.RequestLog;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+import org.rstudio.core.client.jsonrpc.RequestLogStats;
 import org.rstudio.core.client.widget.ModalDialog;
 import org.rstudio.core.client.widget.OperationWithInput;
 import org.rstudio.core.client.widget.ScrollPanelWithClick;
@@ -115,6 +116,8 @@ public class RequestLogVisualization extends Composite
                             "<li>P: Play/pause</li>" +
                             "<li>E: Export</li>" +
                             "<li>I: Import</li>" +
+                            "<li>S: Show per-method statistics</li>" +
+                            "<li>J: Show per-method statistics as JSON</li>" +
                             "<li>+/-: Zoom in/out</li>" +
                             "</ul>");
       detail_.setWidget(instructions_);
@@ -141,6 +144,7 @@ public class RequestLogVisualization extends Composite
    protected void onUnload()
    {
       timer_.cancel();
+      RequestLog.setDiagnosticsEnabled(false);
       super.onUnload();
    }
 
@@ -178,6 +182,9 @@ public class RequestLogVisualization extends Composite
    protected void onLoad()
    {
       super.onLoad();
+
+      // capture full payloads while the log is being inspected
+      RequestLog.setDiagnosticsEnabled(true);
       Scheduler.get().scheduleDeferred(new ScheduledCommand()
       {
          public void execute()
@@ -296,6 +303,20 @@ public class RequestLogVisualization extends Composite
                                                      null);
             dialog.showModal();
          }
+         else if (keyCode == 'S')
+         {
+            TextBoxDialog dialog = new TextBoxDialog("Request Statistics",
+                                                     formatStats(),
+                                                     null);
+            dialog.showModal();
+         }
+         else if (keyCode == 'J')
+         {
+            TextBoxDialog dialog = new TextBoxDialog("Request Statistics (JSON)",
+                                                     RequestLog.toJson(),
+                                                     null);
+            dialog.showModal();
+         }
          else if (keyCode == 'I')
          {
             TextBoxDialog dialog = new TextBoxDialog(
@@ -340,6 +361,45 @@ public class RequestLogVisualization extends Composite
       }
    }
 
+   private String formatStats()
+   {
+      StringBuilder builder = new StringBuilder();
+      builder.append("method\tcount\tin flight\tfailures\tcancelled\tretries\tchars sent\t" +
+                     "chars received\tavg ms\tp50 ms\tp95 ms\tp99 ms\tparse ms\t" +
+                     "latency (ms)\n");
+      for (RequestLogStats stats : RequestLog.getStats())
+      {
+         int responses = stats.getResponseCount();
+         builder.append(stats.getMethodName()).append('\t')
+                .append(stats.getRequestCount()).append('\t')
+                .append(stats.getInFlightCount()).append('\t')
+                .append(stats.getFailureCount()).append('\t')
+                .append(stats.getCancelCount()).append('\t')
+                .append(stats.getRetryCount()).append('\t')
+                .append(stats.getCharsSent()).append('\t')
+                .append(stats.getCharsReceived()).append('\t')
+                .append(responses == 0 ? 0 : stats.getTotalLatencyMillis() / responses)
+                .append('\t')
+                .append(stats.getLatencyPercentile(50)).append('\t')
+                .append(stats.getLatencyPercentile(95)).append('\t')
+                .append(stats.getLatencyPercentile(99)).append('\t')
+                .append(Math.round(stats.getAverageParseMillis() * 100) / 100.0)
+                .append('\t');
+
+         int[] counts = stats.getLatencyCounts();
+         for (int i = 0; i < counts.length; i++)
+         {
+            if (counts[i] == 0)
+               continue;
+            String bound = i < RequestLogStats.LATENCY_BUCKETS_MS.length
+                  ? "<" + RequestLogStats.LATENCY_BUCKETS_MS[i]
+                  : ">=" + RequestLogStats.LATENCY_BUCKETS_MS[i - 1];
+            builder.append(bound).append(':').append(counts[i]).append(' ');
+         }
+         builder.append('\n');
+      }
+      return builder.toString();
+   }
 
    private static final int BAR_HEIGHT = 15;
    private double scaleMillisToPixels_ = 0.02;
@@ -0,0 +1,284 @@
+/*
+ * StartupTraceVisualization.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.application.ui;
+
+import com.google.gwt.aria.client.Roles;
+import com.google.gwt.dom.client.Style.Cursor;
+import com.google.gwt.dom.client.Style.FontWeight;
+import com.google.gwt.dom.client.Style.Overflow;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.KeyCodes;
+import com.google.gwt.event.logical.shared.CloseEvent;
+import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.event.logical.shared.HasCloseHandlers;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.safehtml.shared.SafeHtmlUtils;
+import com.google.gwt.user.client.Event;
+import com.google.gwt.user.client.Event.NativePreviewEvent;
+import com.google.gwt.user.client.Event.NativePreviewHandler;
+import com.google.gwt.user.client.ui.*;
+import org.rstudio.core.client.StartupTrace;
+import org.rstudio.core.client.widget.ModalDialog;
+import org.rstudio.core.client.widget.ScrollPanelWithClick;
+
+import java.util.HashSet;
+
+/**
+ * Shows the spans recorded by StartupTrace as a waterfall, one span per row
+ * in the order they began, with the spans on the critical path highlighted.
+ */
+public class StartupTraceVisualization extends Composite
+   implements HasCloseHandlers<StartupTraceVisualization>, NativePreviewHandler
+{
+   private class TextBoxDialog extends ModalDialog<String>
+   {
+      private TextBoxDialog(String caption, String initialValue)
+      {
+         super(caption, Roles.getDialogRole(), null);
+         textArea_ = new TextArea();
+         textArea_.setSize("400px", "300px");
+         textArea_.setText(initialValue);
+      }
+
+      @Override
+      protected String collectInput()
+      {
+         return textArea_.getText();
+      }
+
+      @Override
+      protected boolean validate(String input)
+      {
+         return true;
+      }
+
+      @Override
+      protected Widget createMainWidget()
+      {
+         return textArea_;
+      }
+
+      private final TextArea textArea_;
+   }
+
+   public StartupTraceVisualization()
+   {
+      overviewPanel_ = new LayoutPanel();
+      scrollPanel_ = new ScrollPanelWithClick(overviewPanel_);
+      scrollPanel_.setSize("100%", "100%");
+      scrollPanel_.addClickHandler(new ClickHandler()
+      {
+         public void onClick(ClickEvent event)
+         {
+            detail_.setWidget(instructions_);
+         }
+      });
+
+      SplitLayoutPanel outerPanel = new SplitLayoutPanel();
+      outerPanel.getElement().getStyle().setBackgroundColor("white");
+      outerPanel.getElement().getStyle().setZIndex(500);
+      outerPanel.getElement().getStyle().setOpacity(0.9);
+
+      detail_ = new SimplePanel();
+      detail_.getElement().getStyle().setBackgroundColor("#FFE");
+
+      instructions_ = new HTML();
+      instructions_.setHTML("<p>Each bar is a phase of startup; phases on the " +
+                            "critical path are shown in orange. Click on a " +
+                            "bar to see details. Click on the background to " +
+                            "show these instructions again.</p>" +
+                            "<h4>Available commands:</h4>" +
+                            "<ul>" +
+                            "<li>Esc: Close</li>" +
+                            "<li>C: Show the critical path</li>" +
+                            "<li>J: Export the trace as JSON</li>" +
+                            "<li>+/-: Zoom in/out</li>" +
+                            "</ul>");
+      detail_.setWidget(instructions_);
+
+      outerPanel.addSouth(detail_, 200);
+      outerPanel.add(scrollPanel_);
+
+      initWidget(outerPanel);
+
+      handlerRegistration_ = Event.addNativePreviewHandler(this);
+
+      spans_ = StartupTrace.getSpans();
+      endTime_ = StartupTrace.getEndTime();
+      criticalPath_ = new HashSet<StartupTrace.Span>();
+      for (StartupTrace.Span span : StartupTrace.getCriticalPath())
+         criticalPath_.add(span);
+
+      refresh();
+   }
+
+   private void refresh()
+   {
+      overviewPanel_.clear();
+
+      int totalWidth = (int) (endTime_ * scaleMillisToPixels_);
+      overviewPanel_.setSize(totalWidth + "px",
+                             spans_.length * BAR_HEIGHT + "px");
+
+      for (int i = 0; i < spans_.length; i++)
+         addSpan(i, spans_[i]);
+   }
+
+   private void addSpan(int i, final StartupTrace.Span span)
+   {
+      int top = i * BAR_HEIGHT;
+      int left = (int) (span.getStart() * scaleMillisToPixels_);
+      double end = span.getEnd() < 0 ? endTime_ : span.getEnd();
+      int width = Math.max(MIN_BAR_WIDTH,
+                           (int) ((end - span.getStart()) * scaleMillisToPixels_));
+
+      HTML html = new HTML();
+      html.getElement().getStyle().setOverflow(Overflow.VISIBLE);
+      html.getElement().getStyle().setProperty("whiteSpace", "nowrap");
+      html.setText(span.getName() + " (" + formatMillis(end - span.getStart()) +
+                   (span.getCharacters() >= 0 ? ", " + span.getCharacters() + " characters" : "") +
+                   ")");
+
+      String color;
+      if (criticalPath_.contains(span))
+      {
+         color = "#f90";
+         html.getElement().getStyle().setFontWeight(FontWeight.BOLD);
+      }
+      else if (span.isMark())
+         color = "#888";
+      else if (span.getEnd() < 0)
+         color = "#f99";
+      else
+         color = "#88f";
+      html.getElement().getStyle().setBackgroundColor(color);
+      html.getElement().getStyle().setCursor(Cursor.POINTER);
+
+      html.addClickHandler(new ClickHandler()
+      {
+         public void onClick(ClickEvent event)
+         {
+            event.stopPropagation();
+            detail_.setWidget(new HTML(formatSpan(span)));
+         }
+      });
+
+      overviewPanel_.add(html);
+      overviewPanel_.setWidgetTopHeight(html, top, Unit.PX, BAR_HEIGHT, Unit.PX);
+      overviewPanel_.setWidgetLeftWidth(html, left, Unit.PX, width, Unit.PX);
+      overviewPanel_.getWidgetContainerElement(html).getStyle().setOverflow(Overflow.VISIBLE);
+   }
+
+   public HandlerRegistration addCloseHandler(CloseHandler<StartupTraceVisualization> handler)
+   {
+      return addHandler(handler, CloseEvent.getType());
+   }
+
+   public void onPreviewNativeEvent(NativePreviewEvent event)
+   {
+      if (event.getTypeInt() == Event.ONKEYDOWN)
+      {
+         int keyCode = event.getNativeEvent().getKeyCode();
+         if (keyCode == KeyCodes.KEY_ESCAPE)
+         {
+            CloseEvent.fire(StartupTraceVisualization.this,
+                            StartupTraceVisualization.this);
+            handlerRegistration_.removeHandler();
+         }
+         else if (keyCode == 'C')
+         {
+            TextBoxDialog dialog = new TextBoxDialog("Critical Path",
+                                                     formatCriticalPath());
+            dialog.showModal();
+         }
+         else if (keyCode == 'J')
+         {
+            TextBoxDialog dialog = new TextBoxDialog("Startup Trace (JSON)",
+                                                     StartupTrace.toJson());
+            dialog.showModal();
+         }
+      }
+      else if (event.getTypeInt() == Event.ONKEYPRESS)
+      {
+         if (event.getNativeEvent().getKeyCode() == '+')
+         {
+            scaleMillisToPixels_ *= 2.0;
+            refresh();
+         }
+         else if (event.getNativeEvent().getKeyCode() == '-')
+         {
+            scaleMillisToPixels_ /= 2.0;
+            refresh();
+         }
+      }
+   }
+
+   private String formatCriticalPath()
+   {
+      StringBuilder builder = new StringBuilder();
+      builder.append("start ms\tduration ms\tname\n");
+      double covered = 0;
+      for (StartupTrace.Span span : StartupTrace.getCriticalPath())
+      {
+         covered += span.getDuration();
+         builder.append(formatMillis(span.getStart())).append('\t')
+                .append(formatMillis(span.getDuration())).append('\t')
+                .append(span.getName()).append('\n');
+      }
+      builder.append("\ntotal: ").append(formatMillis(endTime_))
+             .append(" ms; on critical path: ").append(formatMillis(covered))
+             .append(" ms\n");
+      return builder.toString();
+   }
+
+   private String formatSpan(StartupTrace.Span span)
+   {
+      StringBuilder builder = new StringBuilder();
+      builder.append("<b>").append(SafeHtmlUtils.htmlEscape(span.getName()))
+             .append("</b><br/>")
+             .append("Category: ").append(span.getCategory()).append("<br/>")
+             .append("Start: ").append(formatMillis(span.getStart()))
+             .append(" ms<br/>");
+      if (span.getEnd() < 0)
+         builder.append("Still running<br/>");
+      else if (!span.isMark())
+         builder.append("Duration: ").append(formatMillis(span.getDuration()))
+                .append(" ms<br/>");
+      if (span.getCharacters() >= 0)
+         builder.append("Characters: ").append(span.getCharacters()).append("<br/>");
+      if (criticalPath_.contains(span))
+         builder.append("On the critical path<br/>");
+      return builder.toString();
+   }
+
+   private static String formatMillis(double millis)
+   {
+      return Math.round(millis * 10) / 10.0 + "";
+   }
+
+   private static final int BAR_HEIGHT = 15;
+   private static final int MIN_BAR_WIDTH = 2;
+   private double scaleMillisToPixels_ = 0.2;
+   private final StartupTrace.Span[] spans_;
+   private final double endTime_;
+   private final HashSet<StartupTrace.Span> criticalPath_;
+   private LayoutPanel overviewPanel_;
+   private ScrollPanelWithClick scrollPanel_;
+   private HandlerRegistration handlerRegistration_;
+   private SimplePanel detail_;
+   private HTML instructions_;
+}
@@ -48,6 +48,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.events.Past
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.RenderFinishedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.themes.AceTheme;
 
+import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.dom.client.Document;
@@ -62,6 +63,8 @@ import com.google.gwt.event.dom.client.KeyDownEvent;
 import com.google.gwt.event.dom.client.KeyDownHandler;
 import com.google.gwt.event.dom.client.KeyPressHandler;
 import com.google.gwt.event.dom.client.KeyUpHandler;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.Composite;
@@ -94,6 +97,10 @@ public class ShellWidget extends Composite implements ShellDisplay,
       ElementIds.assignElementId(output_.getElement(), ElementIds.CONSOLE_OUTPUT);
       output_.getWidget().addPasteHandler(secondaryInputHandler);
 
+      // keep only a window of recent output in the DOM; older output lives
+      // in an off-DOM store and is restored when scrolled to the top
+      output_.setVirtualizedScrollback(MAX_DOM_OUTPUT_LINES);
+
       pendingInput_ = new PreWidget();
       pendingInput_.setStyleName(styles_.output());
       pendingInput_.addClickHandler(secondaryInputHandler);
@@ -235,6 +242,27 @@ public class ShellWidget extends Composite implements ShellDisplay,
       scrollPanel_.addStyleName("ace_scroller");
       scrollPanel_.addClickHandler(secondaryInputHandler);
       scrollPanel_.addKeyDownHandler(secondaryInputHandler);
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            if (scrollPanel_.getVerticalScrollPosition() == 0 &&
+                output_.hasScrollback())
+            {
+               // materialize a page of older output above the current
+               // output, keeping the visible lines where they were
+               int oldHeight = scrollPanel_.getElement().getScrollHeight();
+               output_.restoreScrollback(SCROLLBACK_RESTORE_LINES);
+               int newHeight = scrollPanel_.getElement().getScrollHeight();
+               scrollPanel_.setVerticalScrollPosition(newHeight - oldHeight);
+            }
+            else if (scrollPanel_.isScrolledToBottom())
+            {
+               output_.resetScrollbackWindow();
+            }
+         }
+      });
 
       secondaryInputHandler.setInput(editor);
 
@@ -272,12 +300,59 @@ public class ShellWidget extends Composite implements ShellDisplay,
       scrollPanel_.scrollToBottom();
    }
 
+   // Lines held in the output's off-DOM scrollback can't be selected, so
+   // when a copied selection spans all of the output, the output's part of
+   // the copied text is replaced with all of it, including those lines
+   private native JavaScriptObject addScrollbackCopyHook(Element output) /*-{
+      var self = this;
+      var listener = $entry(function(event) {
+         var selection = $wnd.getSelection();
+         if (!event.clipboardData || !selection || selection.rangeCount !== 1)
+            return;
+
+         var range = selection.getRangeAt(0);
+         var outputRange = $doc.createRange();
+         outputRange.selectNodeContents(output);
+         if (range.compareBoundaryPoints($wnd.Range.START_TO_START, outputRange) > 0 ||
+             range.compareBoundaryPoints($wnd.Range.END_TO_END, outputRange) < 0)
+            return;
+
+         var text = self.@org.rstudio.studio.client.common.shell.ShellWidget::getScrollbackCopyText()();
+         if (text == null)
+            return;
+
+         var before = range.cloneRange();
+         before.setEnd(outputRange.startContainer, outputRange.startOffset);
+         var after = range.cloneRange();
+         after.setStart(outputRange.endContainer, outputRange.endOffset);
+         event.clipboardData.setData("text/plain",
+               before.toString() + text + after.toString());
+         event.preventDefault();
+      });
+      $doc.addEventListener("copy", listener, true);
+      return listener;
+   }-*/;
+
+   private native void removeScrollbackCopyHook(JavaScriptObject listener) /*-{
+      $doc.removeEventListener("copy", listener, true);
+   }-*/;
+
+   private String getScrollbackCopyText()
+   {
+      // without off-DOM lines the browser's own copy is already complete
+      if (!output_.hasScrollback())
+         return null;
+      return output_.getAllText();
+   }
+
    private boolean initialized_ = false;
    
    @Override
    protected void onLoad()
    {
       super.onLoad();
+
+      scrollbackCopyHook_ = addScrollbackCopyHook(output_.getElement());
       
       if (!initialized_)
       {
@@ -291,6 +366,17 @@ public class ShellWidget extends Composite implements ShellDisplay,
       ElementIds.assignElementId(this.getElement(), ElementIds.SHELL_WIDGET);
    }
 
+   @Override
+   protected void onUnload()
+   {
+      if (scrollbackCopyHook_ != null)
+      {
+         removeScrollbackCopyHook(scrollbackCopyHook_);
+         scrollbackCopyHook_ = null;
+      }
+      super.onUnload();
+   }
+
    protected void doOnLoad()
    {
       input_.autoHeight();
@@ -1010,6 +1096,7 @@ public class ShellWidget extends Composite implements ShellDisplay,
    private VerticalPanel verticalPanel_;
    
    private int editorWidth_ = -1;
+   private JavaScriptObject scrollbackCopyHook_;
    private boolean scrollIntoViewPending_ = false;
 
    // A list of errors that have occurred between console prompts. 
@@ -1017,4 +1104,8 @@ public class ShellWidget extends Composite implements ShellDisplay,
    private boolean clearErrors_ = false;
 
    private static final String KEYWORD_CLASS_NAME = ConsoleResources.KEYWORD_CLASS_NAME;
+
+   // lines of console output kept in the DOM, and restored per scroll to top
+   private static final int MAX_DOM_OUTPUT_LINES = 2000;
+   private static final int SCROLLBACK_RESTORE_LINES = 500;
 }
@@ -0,0 +1,223 @@
+/*
+ * SpellingEngine.js
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+var SpellingEngine;
+
+(function () {
+    "use strict";
+
+    /*
+     *  Worker Definition
+     *
+     *  The worker hosts the Typo instances for the main and any custom
+     *  dictionaries; their parsed tables never leave the worker. Each request
+     *  carries an id that is echoed back in its response along with either a
+     *  result or an error:
+     *
+     *    load    { language, aff, dic, main } -> {}
+     *    check   { words }                    -> { bits } (bit i set if words[i] is correct)
+     *    suggest { words }                    -> { memoized } (word -> Typo memoized entry)
+     */
+    var spellingWorker = function(origin) {
+        var main = null;
+        var custom = {};
+
+        var isCorrect = function(word) {
+            if (main !== null && main.check(word))
+                return true;
+            for (var language in custom) {
+                if (custom.hasOwnProperty(language) && custom[language].check(word))
+                    return true;
+            }
+            return false;
+        };
+
+        var handlers = {
+            load: function(request) {
+                var typo = new Typo(request.language, request.aff, request.dic);
+                if (request.main)
+                    main = typo;
+                else
+                    custom[request.language] = typo;
+                return {};
+            },
+
+            check: function(request) {
+                var bits = [];
+                for (var i = 0; i < request.words.length; i += 32)
+                    bits.push(0);
+                request.words.forEach(function(word, i) {
+                    if (isCorrect(word))
+                        bits[i >> 5] |= 1 << (i & 31);
+                });
+                return { bits: bits };
+            },
+
+            suggest: function(request) {
+                var memoized = {};
+                if (main !== null) {
+                    request.words.forEach(function(word) {
+                        main.suggest(word);
+                        memoized[word] = main.memoized[word];
+                    });
+                }
+                return { memoized: memoized };
+            }
+        };
+
+        onmessage = function(event) {
+            if (event.target.origin !== origin)
+                return;
+
+            var request = event.data;
+            var response;
+            try {
+                response = handlers[request.type](request);
+            }
+            catch (e) {
+                response = { error: String(e) };
+            }
+            response.id = request.id;
+            postMessage(response);
+        };
+    };
+    /*
+     * End Worker Definition
+     */
+
+    SpellingEngine = function(typoJsCode) {
+        this.callbacks = {};
+        this.nextId = 0;
+        this.loaded = false;
+        this.memoized = {};
+
+        if (typeof(Worker) === "undefined" || typeof(URL) === "undefined" || typeof(Blob) === "undefined")
+            return;
+
+        // We are defining our worker inline like this for "simplicity's"
+        // sake due to our unique runtime environment in a Desktop deployment
+        // See: https://stackoverflow.com/questions/5408406/web-workers-without-a-separate-javascript-file
+        // If interested in deeper research
+        var blobURL = URL.createObjectURL(new Blob([
+            typoJsCode,
+            '\n(', spellingWorker.toString(), ')(',
+            JSON.stringify(window.origin), ');'
+        ], {type: 'application/javascript'}));
+        this.w = new Worker(blobURL);
+        URL.revokeObjectURL(blobURL);
+
+        var self = this;
+        this.w.onmessage = function(event) {
+            var response = event.data;
+            var callback = self.callbacks[response.id];
+            delete self.callbacks[response.id];
+            if (callback)
+                callback(response);
+        };
+
+        // fail any outstanding requests if the worker dies
+        this.w.onerror = function(event) {
+            var callbacks = self.callbacks;
+            self.callbacks = {};
+            for (var id in callbacks) {
+                if (callbacks.hasOwnProperty(id))
+                    callbacks[id]({ error: event.message || "Spelling worker error" });
+            }
+        };
+    };
+
+    SpellingEngine.prototype = {
+        isAvailable : function() {
+            return !!this.w;
+        },
+
+        request : function(type, request, callback) {
+            request.id = this.nextId++;
+            request.type = type;
+            this.callbacks[request.id] = callback;
+            this.w.postMessage(request);
+        },
+
+        // Parses a dictionary in the worker. A main dictionary replaces the
+        // previous one (and the suggestions memoized for it).
+        load : function(language, aff, dic, main, callback) {
+            var self = this;
+            this.request("load", { language: language, aff: aff, dic: dic, main: main }, function(response) {
+                if (!response.error && main) {
+                    self.loaded = true;
+                    self.memoized = {};
+                }
+                callback(response.error || null);
+            });
+        },
+
+        check : function(words, callback) {
+            this.request("check", { words: words }, function(response) {
+                callback(response.error ? null : response.bits, response.error || null);
+            });
+        },
+
+        suggest : function(word, callback) {
+            var self = this;
+            this.request("suggest", { words: [word] }, function(response) {
+                if (response.error) {
+                    callback(null, response.error);
+                    return;
+                }
+
+                self.memoize(response.memoized);
+                var entry = response.memoized[word];
+                callback(entry ? entry.suggestions : [], null);
+            });
+        },
+
+        // The suggestions already generated for a word, or null
+        suggestions : function(word) {
+            var entry = this.memoized.hasOwnProperty(word) ? this.memoized[word] : null;
+            return entry ? entry.suggestions : null;
+        },
+
+        // Computes suggestions for the words in the background so that
+        // later suggestions() calls can answer them
+        prefetch : function(words) {
+            if (!this.loaded || !words)
+                return;
+
+            // Only run worker on words we know we don't have memoized
+            var memoized = this.memoized;
+            words = words.filter(function(w) {
+                return !memoized.hasOwnProperty(w);
+            });
+
+            var self = this;
+            if (words.length > 0) {
+                this.request("suggest", { words: words }, function(response) {
+                    if (!response.error)
+                        self.memoize(response.memoized);
+                });
+            }
+        },
+
+        memoize : function(memoized) {
+            for (var word in memoized) {
+                if (memoized.hasOwnProperty(word) && !!memoized[word])
+                    this.memoized[word] = memoized[word];
+            }
+        }
+    };
+})();
+
+if (typeof module !== 'undefined') {
+    module.exports = SpellingEngine;
+}
@@ -0,0 +1,66 @@
+/*
+ * SpellingEngineNative.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.studio.client.common.spelling;
+
+import jsinterop.annotations.JsFunction;
+import jsinterop.annotations.JsPackage;
+import jsinterop.annotations.JsType;
+
+// A spelling engine hosted in a web worker, so that parsing dictionaries
+// and generating suggestions don't block the UI thread
+@JsType(isNative = true, namespace = JsPackage.GLOBAL, name = "SpellingEngine")
+public class SpellingEngineNative
+{
+   @JsFunction
+   public interface LoadCallback
+   {
+      void onLoaded(String error);
+   }
+
+   @JsFunction
+   public interface CheckCallback
+   {
+      // bit i of the bitset is set if words[i] is spelled correctly
+      void onChecked(int[] bits, String error);
+   }
+
+   @JsFunction
+   public interface SuggestCallback
+   {
+      void onSuggested(String[] suggestions, String error);
+   }
+
+   SpellingEngineNative(String typoJsCode) {}
+
+   // false if web workers aren't supported, in which case no other
+   // methods may be called
+   public native boolean isAvailable();
+
+   public native void load(String language,
+                           String aff,
+                           String dic,
+                           boolean main,
+                           LoadCallback callback);
+
+   public native void check(String[] words, CheckCallback callback);
+
+   public native void suggest(String word, SuggestCallback callback);
+
+   // suggestions already generated for the word, or null if there are none
+   public native String[] suggestions(String word);
+
+   public native void prefetch(String[] words);
+}
@@ -1,5 +1,5 @@
 /*
- * SpellingWorkerResources.java
+ * SpellingEngineResources.java
  *
  * Copyright (C) 2020 by RStudio, PBC
  *
@@ -19,11 +19,11 @@ import com.google.gwt.core.client.GWT;
 import com.google.gwt.resources.client.ClientBundle;
 import org.rstudio.core.client.resources.StaticDataResource;
 
-public interface SpellingPrefetcherResources extends ClientBundle
+public interface SpellingEngineResources extends ClientBundle
 {
-   SpellingPrefetcherResources INSTANCE = GWT.create(SpellingPrefetcherResources.class);
+   SpellingEngineResources INSTANCE = GWT.create(SpellingEngineResources.class);
 
-   @Source("SpellingPrefetcher.js")
-   StaticDataResource spellingprefetcherjs();
+   @Source("SpellingEngine.js")
+   StaticDataResource spellingenginejs();
 }
 
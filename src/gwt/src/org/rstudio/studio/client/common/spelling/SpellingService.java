@@ -16,7 +16,6 @@
 package org.rstudio.studio.client.common.spelling;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import org.rstudio.core.client.js.JsUtil;
@@ -104,7 +103,9 @@ public class SpellingService implements HasChangeHandlers
          return;
       }
       
-      // hit the server
+      // hit the server (results that arrive after the dictionaries have
+      // changed are returned to the caller but not cached)
+      final int generation = previousResults_.getGeneration();
       server_.checkSpelling(JsUtil.toJsArrayString(wordsToCheck), 
                             new ServerRequestCallback<JsArrayInteger>() {
 
@@ -123,12 +124,12 @@ public class SpellingService implements HasChangeHandlers
                if (misspelledIndexes.contains(i))
                {
                   spellCheckerResult.getIncorrect().add(word);
-                  previousResults_.put(word, false);
+                  previousResults_.put(word, false, generation);
                }
                else
                {
                   spellCheckerResult.getCorrect().add(word);
-                  previousResults_.put(word,  true);
+                  previousResults_.put(word, true, generation);
                }
             }
             
@@ -172,7 +173,7 @@ public class SpellingService implements HasChangeHandlers
    
    public void invalidateCache()
    {
-      previousResults_.clear();
+      previousResults_.invalidate();
       DomEvent.fireNativeEvent(Document.get().createChangeEvent(),
                                handlerManager_);
    }
@@ -225,8 +226,10 @@ public class SpellingService implements HasChangeHandlers
    private final SpellingServerOperations server_;
    private final UserPrefs uiPrefs_;
    
-   private HashMap<String,Boolean> previousResults_ = 
-                                             new HashMap<String,Boolean>();
+   private final SpellingVerdictCache previousResults_ =
+                              new SpellingVerdictCache(MAX_CACHED_WORDS);
+   
+   private static final int MAX_CACHED_WORDS = 10000;
    
    HandlerManager handlerManager_ = new HandlerManager(this);
    
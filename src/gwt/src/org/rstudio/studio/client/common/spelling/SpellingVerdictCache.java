@@ -0,0 +1,79 @@
+/*
+ * SpellingVerdictCache.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.studio.client.common.spelling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A bounded cache of whether words are spelled correctly according to the
+// current dictionaries. Least recently used words are evicted first. The
+// cache is tied to a generation counter that is bumped whenever the
+// dictionaries change; verdicts computed under an older generation (e.g.
+// by a server request that was in flight during the change) are discarded
+// rather than stored.
+public class SpellingVerdictCache
+{
+   public SpellingVerdictCache(final int maxWords)
+   {
+      verdicts_ = new LinkedHashMap<String, Boolean>(16, 0.75f, true)
+      {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+         {
+            return size() > maxWords;
+         }
+      };
+   }
+
+   /**
+    * @return Whether the word is spelled correctly, or null if the word
+    *    isn't in the cache
+    */
+   public Boolean get(String word)
+   {
+      return verdicts_.get(word);
+   }
+
+   public void put(String word, boolean correct)
+   {
+      verdicts_.put(word, correct);
+   }
+
+   public void put(String word, boolean correct, int generation)
+   {
+      if (generation == generation_)
+         verdicts_.put(word, correct);
+   }
+
+   public int getGeneration()
+   {
+      return generation_;
+   }
+
+   public int size()
+   {
+      return verdicts_.size();
+   }
+
+   public void invalidate()
+   {
+      generation_++;
+      verdicts_.clear();
+   }
+
+   private final LinkedHashMap<String, Boolean> verdicts_;
+   private int generation_ = 0;
+}
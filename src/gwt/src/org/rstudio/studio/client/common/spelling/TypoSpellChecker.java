@@ -15,6 +15,7 @@
 package org.rstudio.studio.client.common.spelling;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
@@ -29,6 +30,7 @@ import com.google.gwt.user.client.Command;
 import com.google.inject.Inject;
 
 import org.rstudio.core.client.CommandWithArg;
+import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.ExternalJavaScriptLoader;
 import org.rstudio.core.client.Mutable;
 import org.rstudio.core.client.StringUtil;
@@ -36,6 +38,7 @@ import org.rstudio.core.client.jsonrpc.RequestLog;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry;
 import org.rstudio.studio.client.RStudioGinjector;
 import org.rstudio.studio.client.common.spelling.model.SpellCheckerResult;
+import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
 import org.rstudio.studio.client.workbench.WorkbenchList;
 import org.rstudio.studio.client.workbench.WorkbenchListManager;
@@ -46,6 +49,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.spelling.Sp
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -70,21 +74,32 @@ public class TypoSpellChecker
             if (cancelled_ || aff.get() == null || dic.get() == null)
                return;
 
-            typoLoader_.addCallback(() -> {
-               TypoNative typo = new TypoNative(language_, aff.get(), dic.get(), null);
-               if (!isCustom_)
+            withSpellingEngine((engine) -> typoLoader_.addCallback(() -> {
+               if (cancelled_)
+                  return;
+
+               // parse and host the dictionary off the UI thread when we can
+               if (engine.isAvailable())
                {
-                  typoNative_ = typo;
-                  loadedDict_ = language_;
-                  typoLoaded_ = true;
+                  engine.load(language_, aff.get(), dic.get(), !isCustom_, (error) ->
+                  {
+                     if (error != null)
+                     {
+                        Debug.log("Error loading dictionary " + language_ + ": " + error);
+                        alive_ = false;
+                        return;
+                     }
+                     onLoaded(null);
+                  });
                }
                else
-                  customTypoNative_.put(language_, typo);
+               {
+                  onLoaded(new TypoNative(language_, aff.get(), dic.get(), null));
+               }
 
                aff.clear();
                dic.clear();
-               alive_ = false;
-            });
+            }));
             
          };
 
@@ -101,12 +116,27 @@ public class TypoSpellChecker
 
       }
       
+      // typo is null when the dictionary is hosted by the spelling engine
+      private void onLoaded(TypoNative typo)
+      {
+         if (!isCustom_)
+         {
+            typoNative_ = typo;
+            loadedDict_ = language_;
+            typoLoaded_ = true;
+         }
+         else
+            customTypoNative_.put(language_, typo);
+         verdicts_.invalidate();
+         alive_ = false;
+      }
+
       private void makeRequest(String path,
                                String suffix,
                                final CommandWithArg<String> callback)
       {
          String logName = language_ + "_" + suffix + "_request";
-         final RequestLogEntry logEntry = RequestLog.log(logName, "");
+         final RequestLogEntry logEntry = RequestLog.log(logName, logName, "");
 
          try
          {
@@ -166,6 +196,9 @@ public class TypoSpellChecker
       void invalidateAllWords();
       void invalidateWord(String word, boolean userDictionary);
 
+      // words that checkSpelling(word) didn't know yet have been checked
+      void onWordsChecked();
+
       void releaseOnDismiss(HandlerRegistration handler);
    }
 
@@ -213,17 +246,6 @@ public class TypoSpellChecker
       userDictionary_ = workbenchListManager.getUserDictionaryList();
       userPrefs_ = uiPrefs;
 
-      if (!spellingWorkerInitialized_)
-      {
-         spellingWorkerInitialized_ = true;
-         ExternalJavaScriptLoader.Callback loadSpellingWorker = () -> {
-            spellingPrefetcherNative_ = new SpellingPrefetcherNative(RES.typoJsCode().getText());
-         };
-         new ExternalJavaScriptLoader(
-            SpellingPrefetcherResources.INSTANCE.spellingprefetcherjs().getSafeUri().asString()
-         ).addCallback(loadSpellingWorker);
-      }
-
       if (domainSpecificWords_.isEmpty())
       {
          String[] words = RES.domainSpecificWords().getText().split("[\\r\\n]+");
@@ -244,23 +266,107 @@ public class TypoSpellChecker
    public boolean realtimeSpellcheckEnabled()
    {
       return userPrefs_.realTimeSpellchecking().getValue() &&
-             typoNative_ != null && loadedDict_ != null &&
+             typoLoaded_ && loadedDict_ != null &&
              canRealtimeSpellcheckDict(loadedDict_);
    }
 
-   // Check the spelling of a single word, directly returning an
-   // array of suggestions for corrections. The array is empty if the
-   // word is deemed correct by the dictionary
+   // Check the spelling of a single word. Only the ignore lists and cached
+   // verdicts are consulted on the UI thread; a word that hasn't been
+   // checked yet is treated as correct until its verdict arrives (see
+   // getVerdict).
    public boolean checkSpelling(String word)
    {
-      return domainSpecificWords_.contains(word.toLowerCase()) ||
-         allIgnoredWords_.contains(word) ||
-         typoNative_.check(word) ||
-         checkCustomDicts(word);
+      Boolean correct = getVerdict(word);
+      return correct == null || correct;
+   }
+
+   /**
+    * @return Whether the word is spelled correctly, or null if that isn't
+    *    known yet. Unknown words are checked by the spelling engine in a
+    *    batch, and the context's onWordsChecked() is called once their
+    *    verdicts are cached.
+    */
+   public Boolean getVerdict(String word)
+   {
+      if (domainSpecificWords_.contains(word.toLowerCase()) ||
+          allIgnoredWords_.contains(word))
+      {
+         return true;
+      }
+
+      Boolean correct = verdicts_.get(word);
+      if (correct != null || !typoLoaded_)
+         return correct;
+
+      if (!isSpellingEngineAvailable())
+         return checkDicts(word);
+
+      if (!checksInFlight_.contains(word) && pendingChecks_.add(word) &&
+          pendingChecks_.size() == 1)
+      {
+         Scheduler.get().scheduleDeferred(() -> sendPendingChecks());
+      }
+      return null;
+   }
+
+   // check a batch of words in the spelling engine, caching their verdicts
+   private void sendPendingChecks()
+   {
+      if (pendingChecks_.isEmpty())
+         return;
+
+      final ArrayList<String> words = new ArrayList<>(pendingChecks_);
+      pendingChecks_.clear();
+      checksInFlight_.addAll(words);
+
+      final int generation = verdicts_.getGeneration();
+      spellingEngine_.check(words.toArray(new String[0]), (bits, error) ->
+      {
+         checksInFlight_.removeAll(words);
+         if (error != null)
+         {
+            Debug.log("Error checking spelling: " + error);
+            return;
+         }
+
+         // words checked against a dictionary that has since been replaced
+         // are checked again when they're next asked for
+         if (generation != verdicts_.getGeneration())
+            return;
+
+         ArrayList<String> misspelled = new ArrayList<>();
+         int maxPrefetch = userPrefs_.maxSpellcheckPrefetch().getValue();
+         for (int i = 0; i < words.size(); i++)
+         {
+            boolean correct = (bits[i >> 5] & (1 << (i & 31))) != 0;
+            verdicts_.put(words.get(i), correct);
+            if (!correct && misspelled.size() < maxPrefetch)
+               misspelled.add(words.get(i));
+         }
+
+         // have suggestions ready for the misspelled words
+         if (!misspelled.isEmpty())
+            spellingEngine_.prefetch(misspelled.toArray(new String[0]));
+
+         context_.onWordsChecked();
+      });
+   }
+
+   // check the word against the dictionaries loaded on the UI thread (used
+   // only when the spelling engine isn't available)
+   private static boolean checkDicts(String word)
+   {
+      Boolean correct = verdicts_.get(word);
+      if (correct == null)
+      {
+         correct = typoNative_.check(word) || checkCustomDicts(word);
+         verdicts_.put(word, correct);
+      }
+      return correct;
    }
 
    // go through all of the custom dictionaries and check the word
-   private boolean checkCustomDicts(String word)
+   private static boolean checkCustomDicts(String word)
    {
       for (Map.Entry<String, TypoNative> pair : customTypoNative_.entrySet())
       {
@@ -296,25 +402,72 @@ public class TypoSpellChecker
          return;
       }
 
+      // resolve what we can synchronously, and send the rest to the
+      // spelling engine in a single batch
+      final ArrayList<String> uncheckedWords = new ArrayList<>();
       for (String word : words)
       {
-         if (isWordIgnored(word))
-         {
-            spellCheckerResult.getCorrect().add(word);
-         }
+         Boolean correct = isWordIgnored(word) ? Boolean.TRUE : verdicts_.get(word);
+         if (correct == null)
+            uncheckedWords.add(word);
          else
+            addResult(spellCheckerResult, word, correct);
+      }
+
+      if (uncheckedWords.isEmpty() || !isSpellingEngineAvailable())
+      {
+         for (String word : uncheckedWords)
+            addResult(spellCheckerResult, word, checkDicts(word));
+         callback.onResponseReceived(spellCheckerResult);
+         return;
+      }
+
+      final int generation = verdicts_.getGeneration();
+      spellingEngine_.check(uncheckedWords.toArray(new String[0]), (bits, error) ->
+      {
+         if (error != null)
          {
-            if (typoNative_.check(word) || checkCustomDicts(word))
+            // the dictionaries only live in the engine, so have the server
+            // check the words it couldn't
+            Debug.log("Error checking spelling: " + error);
+            spellingService_.checkSpelling(uncheckedWords, new ServerRequestCallback<SpellCheckerResult>()
             {
-               spellCheckerResult.getCorrect().add(word);
-            }
-            else
-            {
-               spellCheckerResult.getIncorrect().add(word);
-            }
+               @Override
+               public void onResponseReceived(SpellCheckerResult result)
+               {
+                  spellCheckerResult.getCorrect().addAll(result.getCorrect());
+                  spellCheckerResult.getIncorrect().addAll(result.getIncorrect());
+                  callback.onResponseReceived(spellCheckerResult);
+               }
+
+               @Override
+               public void onError(ServerError serverError)
+               {
+                  callback.onError(serverError);
+               }
+            });
+            return;
          }
-      }
-      callback.onResponseReceived(spellCheckerResult);
+
+         for (int i = 0; i < uncheckedWords.size(); i++)
+         {
+            String word = uncheckedWords.get(i);
+            boolean correct = (bits[i >> 5] & (1 << (i & 31))) != 0;
+            verdicts_.put(word, correct, generation);
+            addResult(spellCheckerResult, word, correct);
+         }
+         callback.onResponseReceived(spellCheckerResult);
+      });
+   }
+
+   private static void addResult(SpellCheckerResult result,
+                                 String word,
+                                 boolean correct)
+   {
+      if (correct)
+         result.getCorrect().add(word);
+      else
+         result.getIncorrect().add(word);
    }
 
    public void addToUserDictionary(final String word)
@@ -364,8 +517,21 @@ public class TypoSpellChecker
       spellingService_.suggestionList(word, callback);
    }
 
+   // Returns the suggestions for a word without waiting. When the spelling
+   // engine hosts the dictionary, only suggestions it has already generated
+   // are returned (generation is started for the next call otherwise).
    public String[] suggestionList(String word)
    {
+      if (isSpellingEngineAvailable())
+      {
+         String[] suggestions = spellingEngine_.suggestions(word);
+         if (suggestions != null)
+            return suggestions;
+
+         spellingEngine_.prefetch(new String[] { word });
+         return new String[0];
+      }
+
       if (typoNative_ == null)
       {
          return new String[0];
@@ -373,6 +539,26 @@ public class TypoSpellChecker
 
       return typoNative_.suggest(word);
    }
+
+   // Generates suggestions off the UI thread when the spelling engine is
+   // available; the results are also memoized for suggestionList(word)
+   public void suggestionList(final String word,
+                              final CommandWithArg<String[]> callback)
+   {
+      if (!typoLoaded_ || !isSpellingEngineAvailable())
+      {
+         callback.execute(suggestionList(word));
+         return;
+      }
+
+      spellingEngine_.suggest(word, (suggestions, error) ->
+      {
+         if (error != null)
+            callback.execute(suggestionList(word));
+         else
+            callback.execute(suggestions);
+      });
+   }
    private boolean isWordIgnored(String word)
    {
       return (domainSpecificWords_.contains(word.toLowerCase()) ||
@@ -412,6 +598,17 @@ public class TypoSpellChecker
       allIgnoredWords_.clear();
       allIgnoredWords_.addAll(userDictionaryWords_);
       allIgnoredWords_.addAll(contextDictionary_);
+      ignoredWordsGeneration_++;
+   }
+
+   /**
+    * @return A value that changes whenever the result of checkSpelling()
+    *    may have changed for some word, e.g. because a dictionary was
+    *    loaded or the ignored words were updated
+    */
+   public int getVerdictGeneration()
+   {
+      return verdicts_.getGeneration() + ignoredWordsGeneration_;
    }
 
    private void loadDictionary()
@@ -462,12 +659,27 @@ public class TypoSpellChecker
 
    public void prefetchWords(ArrayList<String> words)
    {
-      if (spellingWorkerInitialized_)
+      if (isSpellingEngineAvailable())
       {
-         spellingPrefetcherNative_.prefetch(String.join(",", words), typoNative_);
+         spellingEngine_.prefetch(words.toArray(new String[0]));
       }
    }
 
+   private static boolean isSpellingEngineAvailable()
+   {
+      return spellingEngine_ != null && spellingEngine_.isAvailable();
+   }
+
+   private static void withSpellingEngine(final CommandWithArg<SpellingEngineNative> command)
+   {
+      spellingEngineLoader_.addCallback(() ->
+      {
+         if (spellingEngine_ == null)
+            spellingEngine_ = new SpellingEngineNative(RES.typoJsCode().getText());
+         command.execute(spellingEngine_);
+      });
+   }
+
    public boolean shouldCheckSpelling(SpellingDoc spellingDoc, SpellingDoc.WordRange wordRange)
    {
       String word = spellingDoc.getText(wordRange);
@@ -515,8 +727,9 @@ public class TypoSpellChecker
    private final Context context_;
    private static final Resources RES = GWT.create(Resources.class);
 
-   private static SpellingPrefetcherNative spellingPrefetcherNative_;
-   private static boolean spellingWorkerInitialized_ = false;
+   private static SpellingEngineNative spellingEngine_;
+   private static final ExternalJavaScriptLoader spellingEngineLoader_ =
+         new ExternalJavaScriptLoader(SpellingEngineResources.INSTANCE.spellingenginejs().getSafeUri().asString());
 
    private static String loadedDict_;
    private static boolean typoLoaded_ = false;
@@ -524,10 +737,19 @@ public class TypoSpellChecker
    private static HashMap<String, TypoNative> customTypoNative_ = new HashMap<>();
    private static TypoDictionaryRequest activeRequest_;
 
+   // dictionary verdicts are shared by all documents; ignored words are
+   // checked separately since they vary per document
+   private static final int MAX_CACHED_WORDS = 10000;
+   private static final SpellingVerdictCache verdicts_ =
+         new SpellingVerdictCache(MAX_CACHED_WORDS);
+   private int ignoredWordsGeneration_ = 0;
+
    private WorkbenchList userDictionary_;
    private ArrayList<String> userDictionaryWords_;
    private ArrayList<String> contextDictionary_;
    private final HashSet<String> allIgnoredWords_ = new HashSet<>();
+   private final LinkedHashSet<String> pendingChecks_ = new LinkedHashSet<>();
+   private final HashSet<String> checksInFlight_ = new HashSet<>();
    private final HashSet<String> domainSpecificWords_ = new HashSet<>();
    private final ExternalJavaScriptLoader typoLoader_ =
          new ExternalJavaScriptLoader(TypoResources.INSTANCE.typojs().getSafeUri().asString());
@@ -198,6 +198,12 @@ class ClientEvent extends JavaScriptObject
    protected ClientEvent()
    {
    }
+
+   public static final native ClientEvent create(int id,
+                                                 String type,
+                                                 Object data) /*-{
+      return { id: id, type: type, data: data };
+   }-*/;
    
    public final native int getId() /*-{
       return this.id;
@@ -15,12 +15,15 @@
 package org.rstudio.studio.client.server.remote;
 
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 
+import org.rstudio.core.client.StartupTrace;
+import org.rstudio.core.client.container.RingBuffer;
 import org.rstudio.core.client.events.ExecuteAppCommandEvent;
 import org.rstudio.core.client.events.HighlightEvent;
 import org.rstudio.core.client.files.FileSystemItem;
@@ -138,8 +141,9 @@ import org.rstudio.studio.client.workbench.views.environment.model.DebugSourceRe
 import org.rstudio.studio.client.workbench.views.environment.model.EnvironmentContextData;
 import org.rstudio.studio.client.workbench.views.environment.model.RObject;
 import org.rstudio.studio.client.workbench.views.files.events.DirectoryNavigateEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeBatchEvent;
 import org.rstudio.studio.client.workbench.views.files.model.FileChange;
+import org.rstudio.studio.client.workbench.views.files.model.FileChangeBatch;
 import org.rstudio.studio.client.workbench.views.help.events.ShowHelpEvent;
 import org.rstudio.studio.client.workbench.views.history.events.HistoryEntriesAddedEvent;
 import org.rstudio.studio.client.workbench.views.history.model.HistoryEntry;
@@ -202,8 +206,6 @@ import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEve
 import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEvent.Reason;
 import org.rstudio.studio.client.workbench.views.viewer.events.ViewerNavigateEvent;
 
-import java.util.ArrayList;
-
 public class ClientEventDispatcher 
 {
    public ClientEventDispatcher(EventBus eventBus)
@@ -219,26 +221,135 @@ public class ClientEventDispatcher
 
    public void enqueEvent(ClientEvent event)
    {
-      pendingEvents_.add(event);
-      if (pendingEvents_.size() == 1)
+      // merge streaming output into the tail of the queue when possible so
+      // that bursts of output reach the EventBus as a single dispatch
+      ClientEvent last = pendingEvents_.peekLast();
+      if (last != null)
+      {
+         ClientEvent merged = coalesce(last, event);
+         if (merged != null)
+         {
+            pendingEvents_.setLast(merged);
+            return;
+         }
+      }
+
+      pendingEvents_.addLast(event);
+      if (!dispatchScheduled_)
       {
+         dispatchScheduled_ = true;
          Scheduler.get().scheduleIncremental(new RepeatingCommand()
          {
             public boolean execute()
             {
-               final int MAX_EVENTS_AT_ONCE = 200;
-               for (int i = 0;
-                    i < MAX_EVENTS_AT_ONCE && pendingEvents_.size() > 0;
-                    i++)
+               // dispatch events until we've used up our time budget for
+               // this slice, always making progress by at least one event.
+               // file changes are collected and delivered as one batch at
+               // the end of the slice (or before any other event, so that
+               // they're never reordered relative to it)
+               double start = Duration.currentTimeMillis();
+               do
                {
-                  ClientEvent currentEvent = pendingEvents_.remove(0);
-                  dispatchEvent(currentEvent);
+                  ClientEvent currentEvent = pendingEvents_.removeFirst();
+                  if (currentEvent.getType() == ClientEvent.FileChanged)
+                  {
+                     FileChange fileChange = currentEvent.getData();
+                     fileChanges_.add(fileChange);
+                  }
+                  else
+                  {
+                     dispatchFileChanges();
+                     dispatchEvent(currentEvent);
+                  }
                }
-               return pendingEvents_.size() > 0;
+               while (!pendingEvents_.isEmpty() &&
+                      Duration.currentTimeMillis() - start < MAX_SLICE_MILLIS);
+               dispatchFileChanges();
+
+               dispatchScheduled_ = !pendingEvents_.isEmpty();
+               return dispatchScheduled_;
             }
          });
       }
    }
+
+   // returns an event combining the output of 'last' and 'next', or null
+   // if the two events cannot be merged
+   private ClientEvent coalesce(ClientEvent last, ClientEvent next)
+   {
+      String type = next.getType();
+      if (!type.equals(last.getType()))
+         return null;
+
+      if (type.equals(ClientEvent.ConsoleOutput) ||
+          type.equals(ClientEvent.ConsoleError))
+      {
+         ConsoleText lastText = last.getData();
+         ConsoleText nextText = next.getData();
+         if (!canCoalesce(lastText.text, nextText.text))
+            return null;
+         if (lastText.console == null
+               ? nextText.console != null
+               : !lastText.console.equals(nextText.console))
+            return null;
+
+         ConsoleText merged = new ConsoleText();
+         merged.console = nextText.console;
+         merged.text = lastText.text + nextText.text;
+         return ClientEvent.create(next.getId(), type, merged);
+      }
+      else if (type.equals(ClientEvent.BuildOutput) ||
+               type.equals(ClientEvent.CompilePdfOutputEvent))
+      {
+         CompileOutput lastOutput = last.getData();
+         CompileOutput nextOutput = next.getData();
+         if (lastOutput.getType() != nextOutput.getType())
+            return null;
+         if (!canCoalesce(lastOutput.getOutput(), nextOutput.getOutput()))
+            return null;
+
+         CompileOutput merged = CompileOutput.create(
+               nextOutput.getType(),
+               lastOutput.getOutput() + nextOutput.getOutput());
+         return ClientEvent.create(next.getId(), type, merged);
+      }
+      else if (type.equals(ClientEvent.HTMLPreviewOutputEvent))
+      {
+         String lastOutput = last.getData();
+         String nextOutput = next.getData();
+         if (!canCoalesce(lastOutput, nextOutput))
+            return null;
+
+         return ClientEvent.create(next.getId(), type, lastOutput + nextOutput);
+      }
+
+      return null;
+   }
+
+   private void dispatchFileChanges()
+   {
+      if (fileChanges_.isEmpty())
+         return;
+
+      try
+      {
+         eventBus_.dispatchEvent(
+               new FileChangeBatchEvent(fileChanges_.takeChanges()));
+      }
+      catch(Throwable e)
+      {
+         GWT.log("WARNING: Exception occurred dispatching event: " +
+                 ClientEvent.FileChanged, e);
+      }
+   }
+
+   private boolean canCoalesce(String lastOutput, String nextOutput)
+   {
+      // cap the size of merged output so a single dispatch stays cheap
+      return lastOutput != null &&
+             nextOutput != null &&
+             lastOutput.length() + nextOutput.length() <= MAX_COALESCED_LENGTH;
+   }
    
    private void dispatchEvent(ClientEvent event) 
    { 
@@ -280,11 +391,6 @@ public class ClientEventDispatcher
             ShowEditorData data = event.getData();
             eventBus_.dispatchEvent(new ShowEditorEvent(data));
          }
-         else if (type == ClientEvent.FileChanged)
-         {
-            FileChange fileChange = event.getData();
-            eventBus_.dispatchEvent(new FileChangeEvent(fileChange));
-         }
          else if (type == ClientEvent.WorkingDirChanged)
          {
             String path = event.getData();
@@ -506,7 +612,11 @@ public class ClientEventDispatcher
          }
          else if (type == ClientEvent.DeferredInitCompleted)
          {
+            StartupTrace.Span span =
+                  StartupTrace.begin("DeferredInitCompletedEvent", "init");
             eventBus_.dispatchEvent(new DeferredInitCompletedEvent());
+            StartupTrace.end(span);
+            StartupTrace.finish("startup complete");
          }
          else if (type == ClientEvent.PlotsZoomSizeChanged)
          {
@@ -1091,7 +1201,14 @@ public class ClientEventDispatcher
 
    private final EventBus eventBus_;
 
-   private final ArrayList<ClientEvent> pendingEvents_ = new ArrayList<ClientEvent>();
-   
+   private final RingBuffer<ClientEvent> pendingEvents_ = new RingBuffer<ClientEvent>();
+   private boolean dispatchScheduled_ = false;
+   private final FileChangeBatch fileChanges_ = new FileChangeBatch();
+
+   // milliseconds of dispatch work to do before yielding to the browser
+   private static final double MAX_SLICE_MILLIS = 8;
+
+   // maximum length of the output text produced by merging events
+   private static final int MAX_COALESCED_LENGTH = 64 * 1024;
 
 }
@@ -38,6 +38,7 @@ import org.rstudio.core.client.jsonrpc.RpcRequest;
 import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
 import org.rstudio.core.client.jsonrpc.RpcResponse;
 import org.rstudio.core.client.jsonrpc.RpcResponseHandler;
+import org.rstudio.core.client.patch.MultiHunkDiff;
 import org.rstudio.studio.client.application.ApplicationTutorialEvent;
 import org.rstudio.studio.client.application.Desktop;
 import org.rstudio.studio.client.application.events.*;
@@ -2123,6 +2124,7 @@ public class RemoteServer implements Server
                                 int length,
                                 boolean valid,
                                 String hash,
+                                MultiHunkDiff hunks,
                                 ServerRequestCallback<String> requestCallback)
    {
       eventBus_.fireEvent(new ApplicationTutorialEvent(ApplicationTutorialEvent.FILE_SAVE));
@@ -2134,11 +2136,35 @@ public class RemoteServer implements Server
       params.set(3, encoding == null ? JSONNull.getInstance() : new JSONString(encoding));
       params.set(4, new JSONString(StringUtil.notNull(foldSpec)));
       params.set(5, chunkDefs == null ? JSONNull.getInstance() : new JSONObject(chunkDefs));
-      params.set(6, new JSONString(replacement));
-      params.set(7, new JSONNumber(offset));
-      params.set(8, new JSONNumber(length));
+      if (hunks == null)
+      {
+         params.set(6, new JSONString(replacement));
+         params.set(7, new JSONNumber(offset));
+         params.set(8, new JSONNumber(length));
+      }
+      else
+      {
+         // the hunks replace the single region; don't send it as well
+         params.set(6, new JSONString(""));
+         params.set(7, new JSONNumber(0));
+         params.set(8, new JSONNumber(0));
+      }
       params.set(9, JSONBoolean.getInstance(valid));
       params.set(10, new JSONString(hash));
+      if (hunks != null)
+      {
+         JSONArray jsonHunks = new JSONArray();
+         for (int i = 0; i < hunks.getHunkCount(); i++)
+         {
+            MultiHunkDiff.Hunk hunk = hunks.getHunk(i);
+            JSONArray jsonHunk = new JSONArray();
+            jsonHunk.set(0, new JSONNumber(hunk.getOffset()));
+            jsonHunk.set(1, new JSONNumber(hunk.getLength()));
+            jsonHunk.set(2, new JSONString(hunk.getReplacement()));
+            jsonHunks.set(i, jsonHunk);
+         }
+         params.set(11, jsonHunks);
+      }
       sendRequest(RPC_SCOPE, SAVE_DOCUMENT_DIFF, params, requestCallback);
    }
 
@@ -3492,6 +3518,8 @@ public class RemoteServer implements Server
                // allow retry on success, otherwise handle unauthorized error
                if (response == RemoteServerAuth.CREDENTIALS_UPDATE_SUCCESS)
                {
+                  // only count the retry once the request is actually resent
+                  RequestLog.onRetry(request.getMethod());
                   retryHandler.onRetry();
                }
                else
@@ -3751,6 +3779,7 @@ public class RemoteServer implements Server
 
       final RequestLogEntry requestLogEntry = RequestLog.log(
          Integer.toString(Random.nextInt()),
+         method,
          redactLog ? "[REDACTED]": request.toString());
 
       sendRequestViaMainWorkbench(
@@ -130,10 +130,24 @@ class RemoteServerAuth
    private static ArrayList<FormPanel> previousUpdateCredentialsForms_ = 
                                             new ArrayList<FormPanel>();
    
+   // log entries for those forms; abandoned requests are logged as cancelled
+   // so they don't stay in flight in the request stats
+   private static ArrayList<RequestLogEntry> previousUpdateCredentialsLogEntries_ =
+                                            new ArrayList<RequestLogEntry>();
+   
    private void safeCleanupPreviousUpdateCredentials()
    {
       try
       {
+         for (int i=0; i<previousUpdateCredentialsLogEntries_.size(); i++)
+         {
+            RequestLogEntry logEntry = previousUpdateCredentialsLogEntries_.get(i);
+            if (logEntry.isAlive())
+               logEntry.logResponse(ResponseType.Cancelled, "Cancelled");
+         }
+         
+         previousUpdateCredentialsLogEntries_.clear();
+         
          for (int i=0; i<previousUpdateCredentialsForms_.size(); i++)
          {
             FormPanel formPanel = previousUpdateCredentialsForms_.get(i);
@@ -168,7 +182,9 @@ class RemoteServerAuth
       // to the data format expected by RequestLog
       String requestId = Integer.toString(Random.nextInt());
       String requestData = createRequestData();
-      final RequestLogEntry logEntry = RequestLog.log(requestId, requestData);
+      final RequestLogEntry logEntry = RequestLog.log(requestId,
+                                                      "update_credentials",
+                                                      requestData);
       
       // form submit complete handler
       updateCredentialsForm.addSubmitCompleteHandler(new SubmitCompleteHandler(){
@@ -229,6 +245,7 @@ class RemoteServerAuth
             
             // remove the hidden form (from both last-ditch list and DOM)
             previousUpdateCredentialsForms_.remove(updateCredentialsForm);
+            previousUpdateCredentialsLogEntries_.remove(logEntry);
             Scheduler.get().scheduleDeferred(new ScheduledCommand() {
                public void execute()
                {
@@ -241,6 +258,7 @@ class RemoteServerAuth
       // add the (hidden) form panel to the document and last ditch list
       RootPanel.get().add(updateCredentialsForm, -1000, -1000);
       previousUpdateCredentialsForms_.add(updateCredentialsForm);
+      previousUpdateCredentialsLogEntries_.add(logEntry);
       
       // submit the form
       updateCredentialsForm.submit();
@@ -23,8 +23,8 @@ import org.rstudio.core.client.widget.SearchDisplay;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
 import org.rstudio.core.client.CodeNavigationTarget;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeBatchEvent;
+import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 import org.rstudio.studio.client.workbench.views.source.events.XRefNavigationEvent;
 
 import com.google.gwt.core.client.Scheduler;
@@ -151,17 +151,23 @@ public class CodeSearch
      });
      
      eventBusHandlers_.add(
-           eventBus.addHandler(FileChangeEvent.TYPE, new FileChangeHandler() {
+           eventBus.addHandler(FileChangeBatchEvent.TYPE, new FileChangeBatchEvent.Handler() {
         @Override
-        public void onFileChange(FileChangeEvent event)
+        public void onFileChangeBatch(FileChangeBatchEvent event)
         {           
-           // if this was an R file then invalidate the cache
+           // if any of these were R files then invalidate the cache
            CodeSearchOracle oracle = display_.getSearchOracle();
            if (oracle.hasCachedResults())
            {
-              FileSystemItem fsi = event.getFileChange().getFile();
-              if (fsi.getExtension().toLowerCase().equals(".r"))
-                 oracle.clear();
+              for (FileChange fileChange : event.getFileChanges())
+              {
+                 FileSystemItem fsi = fileChange.getFile();
+                 if (fsi.getExtension().toLowerCase().equals(".r"))
+                 {
+                    oracle.clear();
+                    break;
+                 }
+              }
            }
         } 
      }));
@@ -127,6 +127,18 @@ public abstract class Prefs
       }
       
       public T getValue()
+      {
+         // The resolved value is cached until this pref is written or the
+         // layers are replaced, since it's read far more often than either.
+         if (resolvedGeneration_ != generation_)
+         {
+            resolvedValue_ = resolveValue();
+            resolvedGeneration_ = generation_;
+         }
+         return resolvedValue_;
+      }
+      
+      private T resolveValue()
       {
          // Work backwards through all layers, starting with the most specific
          // and working towards the most general.
@@ -181,6 +193,7 @@ public abstract class Prefs
          if (projValues.hasKey(name_))
          {
             projValues.unset(name_);
+            invalidate();
             if (fireEvents)
                ValueChangeEvent.fire(this, getValue());
          }
@@ -209,11 +222,17 @@ public abstract class Prefs
             return;
 
          doSetValue(root, name_, value);
+         invalidate();
          if (fireEvents)
             ValueChangeEvent.fire(this, getValue());
          
       }
       
+      private void invalidate()
+      {
+         resolvedGeneration_ = -1;
+      }
+      
       public String getTitle()
       {
          return title_;
@@ -228,6 +247,8 @@ public abstract class Prefs
       private final String description_;
       private final T defaultValue_;
       private final HandlerManager handlerManager_ = new HandlerManager(this);
+      private T resolvedValue_;
+      private int resolvedGeneration_ = -1;
    }
 
    public class BooleanValue extends JsonValue<Boolean>
@@ -476,9 +497,14 @@ public abstract class Prefs
    protected void updatePrefs(JsArray<PrefLayer> layers)
    {
       layers_ = layers;
+      generation_++;
    }
    
    private JsArray<PrefLayer> layers_;
+   
+   // incremented whenever the layers are replaced, invalidating every
+   // value's resolved (cached) value
+   private int generation_ = 0;
    private final HashMap<String, PrefValue<?>> values_ =
          new HashMap<String, PrefValue<?>>();
 }
@@ -17,6 +17,7 @@ package org.rstudio.studio.client.workbench.ui;
 import com.google.gwt.user.client.ui.IsWidget;
 import com.google.gwt.user.client.ui.Widget;
 import org.rstudio.core.client.AsyncShim;
+import org.rstudio.core.client.StartupTrace;
 import org.rstudio.core.client.events.HasEnsureHeightHandlers;
 import org.rstudio.core.client.events.HasEnsureHiddenHandlers;
 import org.rstudio.core.client.events.HasEnsureVisibleHandlers;
@@ -36,6 +37,22 @@ public abstract class DelayLoadTabShim<T extends IsWidget,
       parentTab_ = (TParentTab) parentTab;
    }
 
+   @Override
+   protected void onDelayLoadStarted()
+   {
+      super.onDelayLoadStarted();
+      if (loadSpan_ == null)
+         loadSpan_ = StartupTrace.begin("load " + parentTab_.getTitle() + " tab",
+                                        "load");
+   }
+
+   @Override
+   protected void onDelayLoadFailure(Throwable reason)
+   {
+      super.onDelayLoadFailure(reason);
+      StartupTrace.end(loadSpan_);
+   }
+
    @Override
    protected void onDelayLoadSuccess(T obj)
    {
@@ -68,6 +85,7 @@ public abstract class DelayLoadTabShim<T extends IsWidget,
 
       child.setSize("100%", "100%");
       parentTab_.getPanel().add(child);
+      StartupTrace.end(loadSpan_);
    }
 
    public abstract void onBeforeUnselected();
@@ -76,4 +94,5 @@ public abstract class DelayLoadTabShim<T extends IsWidget,
    public abstract void setFocus();
 
    private TParentTab parentTab_;
+   private StartupTrace.Span loadSpan_;
 }
@@ -31,6 +31,7 @@ import com.google.inject.name.Named;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.JsArrayUtil;
 import org.rstudio.core.client.MathUtil;
+import org.rstudio.core.client.StartupTrace;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.Triad;
 import org.rstudio.core.client.command.AppCommand;
@@ -241,6 +242,11 @@ public class PaneManager
                       OptionsLoader.Shim optionsLoader,
                       Provider<GlobalDisplay> pGlobalDisplay)
    {
+      // the panes themselves are injected before we get here, so this span
+      // covers just building the layout
+      StartupTrace.Span layoutSpan = StartupTrace.begin("PaneManager layout",
+                                                        "init");
+
       eventBus_ = eventBus;
       session_ = session;
       commands_ = commands;
@@ -441,6 +447,7 @@ public class PaneManager
 
       manageLayoutCommands();
       new ZoomedTabStateValue();
+      StartupTrace.end(layoutSpan);
    }
 
    int computeAppropriateWidth()
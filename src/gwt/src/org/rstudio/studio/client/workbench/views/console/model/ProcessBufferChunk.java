@@ -34,4 +34,11 @@ public class ProcessBufferChunk extends JavaScriptObject
    public final native boolean getMoreAvailable() /*-{
       return this.more_available;
    }-*/;
+
+   /**
+    * @return total number of chunks in the buffer, or -1 if not reported
+    */
+   public final native int getChunkCount() /*-{
+      return this.hasOwnProperty("chunk_count") ? this.chunk_count : -1;
+   }-*/;
 }
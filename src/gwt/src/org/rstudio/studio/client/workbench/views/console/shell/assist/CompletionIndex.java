@@ -0,0 +1,138 @@
+/*
+ * CompletionIndex.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.console.shell.assist;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.common.codetools.Completions;
+import org.rstudio.studio.client.workbench.views.console.events.ConsoleRestartRCompletedEvent;
+import org.rstudio.studio.client.workbench.views.console.shell.assist.RCompletionManager.AutocompletionContext;
+import org.rstudio.studio.client.workbench.views.packages.events.PackageStateChangedEvent;
+import org.rstudio.studio.client.workbench.views.packages.events.PackageStateChangedHandler;
+import org.rstudio.studio.client.workbench.views.packages.events.PackageStatusChangedEvent;
+import org.rstudio.studio.client.workbench.views.packages.events.PackageStatusChangedHandler;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+// Namespace completion listings (the full set of objects offered after
+// 'pkg::' or 'pkg:::') depend only on the installed and loaded packages, not
+// on the document being edited, so they are shared by every editor and the
+// console. The index is tied to a generation counter that is bumped whenever
+// the set of packages may have changed; responses to requests issued under
+// an older generation are discarded rather than stored.
+@Singleton
+public class CompletionIndex
+      implements PackageStatusChangedHandler,
+                 PackageStateChangedHandler,
+                 ConsoleRestartRCompletedEvent.Handler
+{
+   @Inject
+   public CompletionIndex(EventBus events)
+   {
+      events.addHandler(PackageStatusChangedEvent.TYPE, this);
+      events.addHandler(PackageStateChangedEvent.TYPE, this);
+      events.addHandler(ConsoleRestartRCompletedEvent.TYPE, this);
+   }
+
+   /**
+    * @return The index key for a completion request, or null if the
+    *    request is not for a namespace listing
+    */
+   public static String namespaceKey(List<String> assocData,
+                                     List<Integer> dataType)
+   {
+      if (assocData.size() != 1 || dataType.size() != 1)
+         return null;
+
+      int type = dataType.get(0);
+      if (type == AutocompletionContext.TYPE_NAMESPACE_EXPORTED)
+         return assocData.get(0) + "::";
+      else if (type == AutocompletionContext.TYPE_NAMESPACE_ALL)
+         return assocData.get(0) + ":::";
+      else
+         return null;
+   }
+
+   public int getGeneration()
+   {
+      return generation_;
+   }
+
+   public Completions get(String key)
+   {
+      return listings_.get(key);
+   }
+
+   /**
+    * Stores a full (unfiltered) namespace listing.
+    *
+    * @param key The key returned by namespaceKey()
+    * @param generation The generation at the time the request was made
+    * @param completions The server's response
+    */
+   public void put(String key, int generation, Completions completions)
+   {
+      if (generation != generation_)
+         return;
+
+      if (!completions.isCacheable() || !completions.getExcludeOtherCompletions())
+         return;
+
+      listings_.put(key, completions);
+   }
+
+   public void invalidate()
+   {
+      generation_++;
+      listings_.clear();
+   }
+
+   @Override
+   public void onPackageStatusChanged(PackageStatusChangedEvent event)
+   {
+      invalidate();
+   }
+
+   @Override
+   public void onPackageStateChanged(PackageStateChangedEvent event)
+   {
+      invalidate();
+   }
+
+   @Override
+   public void onRestartRCompleted(ConsoleRestartRCompletedEvent event)
+   {
+      invalidate();
+   }
+
+   private static final int MAX_LISTINGS = 32;
+
+   // least recently used listings are evicted first
+   private final LinkedHashMap<String, Completions> listings_ =
+         new LinkedHashMap<String, Completions>(16, 0.75f, true)
+   {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Completions> eldest)
+      {
+         return size() > MAX_LISTINGS;
+      }
+   };
+
+   private int generation_ = 0;
+}
@@ -63,6 +63,7 @@ public class CompletionRequester
 {
    private CodeToolsServerOperations server_;
    private UserPrefs uiPrefs_;
+   private CompletionIndex completionIndex_;
    private final DocDisplay docDisplay_;
    private final SnippetHelper snippets_;
 
@@ -81,10 +82,13 @@ public class CompletionRequester
    }
 
    @Inject
-   void initialize(CodeToolsServerOperations server, UserPrefs uiPrefs)
+   void initialize(CodeToolsServerOperations server,
+                   UserPrefs uiPrefs,
+                   CompletionIndex completionIndex)
    {
       server_ = server;
       uiPrefs_ = uiPrefs;
+      completionIndex_ = completionIndex;
    }
 
    private boolean usingCache(
@@ -151,8 +155,9 @@ public class CompletionRequester
                                    final String diff,
                                    CompletionResult cachedResult)
    {
-      ArrayList<QualifiedName> newCompletions = new ArrayList<>();
-      newCompletions.ensureCapacity(cachedResult.completions.size());
+      // Each keystroke can only remove candidates, so start from the most
+      // recently narrowed list for a prefix of this diff when we have one
+      ArrayList<QualifiedName> candidates = narrowingCandidates(diff, cachedResult);
 
       // For completions that are files or directories, we need to post-process
       // the token and the qualified name to strip out just the basename (filename).
@@ -162,49 +167,61 @@ public class CompletionRequester
 
       // Transform the token once beforehand for completions.
       final String tokenSub   = token.substring(token.lastIndexOf('/') + 1);
-      final String tokenFuzzy = fuzzy(tokenSub);
-
-      for (QualifiedName qname : cachedResult.completions)
+      final String tokenFuzzy = fuzzy(tokenSub).toLowerCase();
+
+      // Filter and score each candidate exactly once, keeping the scores in
+      // a parallel array so that sorting doesn't need to re-score
+      int n = candidates.size();
+      final QualifiedName[] matches = new QualifiedName[n];
+      final int[] scores = new int[n];
+      int count = 0;
+      for (int i = 0; i < n; i++)
       {
-         // File types are narrowed only by the file name
-         if (RCompletionType.isFileType(qname.type))
-         {
-            if (StringUtil.isSubsequence(basename(qname.name), tokenFuzzy, true))
-               newCompletions.add(qname);
-         }
-         else
-         {
-            if (StringUtil.isSubsequence(qname.name, tokenFuzzy, true) &&
-                filterStartsWithDot(qname.name, token))
-               newCompletions.add(qname);
-         }
+         QualifiedName qname = candidates.get(i);
+
+         // File types are narrowed and scored only by the file name
+         boolean isFile = RCompletionType.isFileType(qname.type);
+         String name = isFile ? basename(qname.name) : qname.name;
+         if (!StringUtil.isSubsequence(name.toLowerCase(), tokenFuzzy))
+            continue;
+         if (!isFile && !filterStartsWithDot(qname.name, token))
+            continue;
+
+         int score = isFile
+               ? CodeSearchOracle.scoreMatch(name, tokenSub, true)
+               : CodeSearchOracle.scoreMatch(name, token, false);
+
+         // Place arguments higher (give less penalty)
+         if (qname.type == RCompletionType.ARGUMENT)
+            score -= 3;
+
+         matches[count] = qname;
+         scores[count] = score;
+         count++;
       }
 
-      newCompletions.sort(new Comparator<QualifiedName>()
-      {
+      Integer[] order = new Integer[count];
+      for (int i = 0; i < count; i++)
+         order[i] = i;
 
+      Arrays.sort(order, new Comparator<Integer>()
+      {
          @Override
-         public int compare(QualifiedName lhs, QualifiedName rhs)
+         public int compare(Integer lhs, Integer rhs)
          {
-            int lhsScore = RCompletionType.isFileType(lhs.type)
-                  ? CodeSearchOracle.scoreMatch(basename(lhs.name), tokenSub, true)
-                  : CodeSearchOracle.scoreMatch(lhs.name, token, false);
-            
-            int rhsScore = RCompletionType.isFileType(rhs.type)
-               ? CodeSearchOracle.scoreMatch(basename(rhs.name), tokenSub, true)
-               : CodeSearchOracle.scoreMatch(rhs.name, token, false);
-
-            // Place arguments higher (give less penalty)
-            if (lhs.type == RCompletionType.ARGUMENT) lhsScore -= 3;
-            if (rhs.type == RCompletionType.ARGUMENT) rhsScore -= 3;
-
+            int lhsScore = scores[lhs];
+            int rhsScore = scores[rhs];
             if (lhsScore == rhsScore)
-               return lhs.compareTo(rhs);
+               return matches[lhs].compareTo(matches[rhs]);
 
             return lhsScore < rhsScore ? -1 : 1;
          }
       });
 
+      ArrayList<QualifiedName> newCompletions = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+         newCompletions.add(matches[order[i]]);
+
       CompletionResult result = new CompletionResult(
             token,
             newCompletions,
@@ -216,6 +233,25 @@ public class CompletionRequester
       return result;
    }
 
+   private ArrayList<QualifiedName> narrowingCandidates(String diff,
+                                                        CompletionResult cachedResult)
+   {
+      // A narrowed list for a shorter diff holds every candidate that can
+      // match this one, unless the extra characters introduce a '/' (which
+      // changes the file name being matched)
+      for (int i = diff.length() - 1; i > 0; i--)
+      {
+         if (diff.charAt(i) == '/')
+            break;
+
+         CompletionResult narrowed = cachedCompletions_.get(diff.substring(0, i));
+         if (narrowed != null)
+            return narrowed.completions;
+      }
+
+      return cachedResult.completions;
+   }
+
    public void getDplyrJoinCompletionsString(
          final String token,
          final String string,
@@ -344,6 +380,27 @@ public class CompletionRequester
       if (usingCache(token, isHelp, callback))
          return;
 
+      // Namespace listings are shared with other editors and the console;
+      // prime our own cache with the full listing and narrow it from there
+      final String namespaceKey = CompletionIndex.namespaceKey(assocData, dataType);
+      final int generation = completionIndex_.getGeneration();
+      if (namespaceKey != null)
+      {
+         Completions listing = completionIndex_.get(namespaceKey);
+         if (listing != null)
+         {
+            CompletionResult result = processCompletions("", listing, isConsole);
+            if (token.length() == 0)
+            {
+               callback.onResponseReceived(result);
+               return;
+            }
+
+            if (usingCache(token, isHelp, callback))
+               return;
+         }
+      }
+
       doGetCompletions(
             token,
             assocData,
@@ -369,74 +426,87 @@ public class CompletionRequester
          @Override
          public void onResponseReceived(Completions response)
          {
-            cachedLinePrefix_ = token;
-            String token = response.getToken();
-
-            JsArrayString comp = response.getCompletions();
-            JsArrayString pkgs = response.getPackages();
-            JsArrayBoolean quote = response.getQuote();
-            JsArrayInteger type = response.getType();
-            JsArrayString meta = response.getMeta();
-            ArrayList<QualifiedName> newComp = new ArrayList<>();
-
-            // Get function completions from the server
-            for (int i = 0; i < comp.length(); i++)
-               if (comp.get(i).endsWith(" = "))
-                  newComp.add(new QualifiedName(comp.get(i), pkgs.get(i), quote.get(i), type.get(i), meta.get(i), response.getHelpHandler(), response.getLanguage()));
-
-            // Try getting our own function argument completions
-            if (!response.getExcludeOtherCompletions())
-            {
-               addFunctionArgumentCompletions(token, newComp);
-               addScopedArgumentCompletions(token, newComp);
-            }
+            if (namespaceKey != null && token.length() == 0)
+               completionIndex_.put(namespaceKey, generation, response);
 
-            // Get variable completions from the current scope
-            if (!response.getExcludeOtherCompletions())
-            {
-               addScopedCompletions(token, newComp, "variable");
-               addScopedCompletions(token, newComp, "function");
-            }
+            callback.onResponseReceived(
+                  processCompletions(token, response, isConsole));
+         }
+      });
+   }
 
-            // Get other server completions
-            for (int i = 0; i < comp.length(); i++)
-               if (!comp.get(i).endsWith(" = "))
-                  newComp.add(new QualifiedName(comp.get(i), pkgs.get(i), quote.get(i), type.get(i), meta.get(i), response.getHelpHandler(), response.getLanguage()));
+   private CompletionResult processCompletions(String linePrefix,
+                                               Completions response,
+                                               boolean isConsole)
+   {
+      cachedLinePrefix_ = linePrefix;
+      String token = response.getToken();
 
-            // Get snippet completions. Bail if this isn't a top-level
-            // completion -- TODO is to add some more context that allows us
-            // to properly ascertain this.
-            if (isTopLevelCompletionRequest())
-            {
-               // disable snippets if Python REPL is active for now
-               boolean noSnippets =
-                     isConsole &&
-                     !StringUtil.equals(response.getLanguage(), ConsoleLanguageTracker.LANGUAGE_R);
+      JsArrayString comp = response.getCompletions();
+      JsArrayString pkgs = response.getPackages();
+      JsArrayBoolean quote = response.getQuote();
+      JsArrayInteger type = response.getType();
+      JsArrayString meta = response.getMeta();
+      ArrayList<QualifiedName> newComp = new ArrayList<>();
 
-               if (!noSnippets)
-               {
-                  addSnippetCompletions(token, newComp);
-               }
-            }
+      // Get function completions from the server
+      for (int i = 0; i < comp.length(); i++)
+         if (comp.get(i).endsWith(" = "))
+            newComp.add(new QualifiedName(comp.get(i), pkgs.get(i), quote.get(i), type.get(i), meta.get(i), response.getHelpHandler(), response.getLanguage()));
+
+      // Try getting our own function argument completions
+      if (!response.getExcludeOtherCompletions())
+      {
+         addFunctionArgumentCompletions(token, newComp);
+         addScopedArgumentCompletions(token, newComp);
+      }
 
-            // Remove duplicates
-            newComp = resolveDuplicates(newComp);
+      // Get variable completions from the current scope
+      if (!response.getExcludeOtherCompletions())
+      {
+         addScopedCompletions(token, newComp, "variable");
+         addScopedCompletions(token, newComp, "function");
+      }
 
-            CompletionResult result = new CompletionResult(
-                  response.getToken(),
-                  newComp,
-                  response.getGuessedFunctionName(),
-                  response.getSuggestOnAccept(),
-                  response.getOverrideInsertParens());
+      // Get other server completions
+      for (int i = 0; i < comp.length(); i++)
+         if (!comp.get(i).endsWith(" = "))
+            newComp.add(new QualifiedName(comp.get(i), pkgs.get(i), quote.get(i), type.get(i), meta.get(i), response.getHelpHandler(), response.getLanguage()));
 
-            if (response.isCacheable())
-            {
-               cachedCompletions_.put("", result);
-            }
+      // Get snippet completions. Bail if this isn't a top-level
+      // completion -- TODO is to add some more context that allows us
+      // to properly ascertain this.
+      if (isTopLevelCompletionRequest())
+      {
+         // disable snippets if Python REPL is active for now
+         boolean noSnippets =
+               isConsole &&
+               !StringUtil.equals(response.getLanguage(), ConsoleLanguageTracker.LANGUAGE_R);
 
-            callback.onResponseReceived(result);
+         if (!noSnippets)
+         {
+            addSnippetCompletions(token, newComp);
          }
-      });
+      }
+
+      // Remove duplicates
+      newComp = resolveDuplicates(newComp);
+
+      CompletionResult result = new CompletionResult(
+            response.getToken(),
+            newComp,
+            response.getGuessedFunctionName(),
+            response.getSuggestOnAccept(),
+            response.getOverrideInsertParens());
+
+      // results narrowed from a previous listing no longer apply
+      cachedCompletions_.clear();
+      if (response.isCacheable())
+      {
+         cachedCompletions_.put("", result);
+      }
+
+      return result;
    }
 
    private ArrayList<QualifiedName>
@@ -280,6 +280,12 @@ public class EnvironmentPane extends WorkbenchPane
       objects_.removeObject(objectName);
    }
 
+   @Override
+   public void applyObjectChanges(List<RObject> assigned, List<String> removed)
+   {
+      objects_.applyObjectChanges(assigned, removed);
+   }
+
    @Override
    public void setContextDepth(int contextDepth)
    {
@@ -63,6 +63,8 @@ import org.rstudio.studio.client.workbench.views.console.events.ConsoleWriteInpu
 import org.rstudio.studio.client.workbench.views.console.events.SendToConsoleEvent;
 
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.user.client.Timer;
 import com.google.inject.Inject;
 
@@ -92,7 +94,9 @@ import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperat
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class EnvironmentPresenter extends BasePresenter
         implements OpenDataFileHandler
@@ -107,6 +111,7 @@ public class EnvironmentPresenter extends BasePresenter
       String getMonitoredEnvironment();
       void addObject(RObject object);
       void addObjects(JsArray<RObject> objects);
+      void applyObjectChanges(List<RObject> assigned, List<String> removed);
       void clearObjects();
       void clearSelection();
       void setContextDepth(int contextDepth);
@@ -234,7 +239,7 @@ public class EnvironmentPresenter extends BasePresenter
          @Override
          public void onEnvironmentObjectAssigned(EnvironmentObjectAssignedEvent event)
          {
-            view_.addObject(event.getObjectInfo());
+            queueObjectAssigned(event.getObjectInfo());
          }
       });
 
@@ -244,7 +249,7 @@ public class EnvironmentPresenter extends BasePresenter
          @Override
          public void onEnvironmentObjectRemoved(EnvironmentObjectRemovedEvent event)
          {
-            view_.removeObject(event.getObjectName());
+            queueObjectRemoved(event.getObjectName());
          }
       });
       
@@ -254,12 +259,12 @@ public class EnvironmentPresenter extends BasePresenter
          
          for (RObject object : JsUtil.asIterable(data.getChangedObjects()))
          {
-            view_.addObject(object);
+            queueObjectAssigned(object);
          }
          
          for (String object : JsUtil.asIterable(data.getRemovedObjects()))
          {
-            view_.removeObject(object);
+            queueObjectRemoved(object);
          }
       });
 
@@ -415,6 +420,7 @@ public class EnvironmentPresenter extends BasePresenter
                            public void onSuccess()
                            {
                               view_.clearSelection();
+                              discardObjectChanges();
                               view_.clearObjects();
                            }
                        });
@@ -430,7 +436,7 @@ public class EnvironmentPresenter extends BasePresenter
                               view_.clearSelection();
                               for (String obj: objectNames)
                               {
-                                 view_.removeObject(obj);
+                                 queueObjectRemoved(obj);
                               }
                            }
                        });
@@ -689,6 +695,9 @@ public class EnvironmentPresenter extends BasePresenter
          boolean useBrowseSources,
          String functionCode)
    {
+      // changes queued for the previous environment are superseded by the
+      // new environment's object list, which callers apply next
+      discardObjectChanges();
       boolean enteringDebugMode = setContextDepth(contextDepth);
       environmentName_ = environmentName;
       functionEnvName_ = functionEnvName;
@@ -856,8 +865,70 @@ public class EnvironmentPresenter extends BasePresenter
       }
    }
 
+   // Object assignments and removals are collected for the rest of the
+   // current event dispatch slice and applied to the view as one batch, so
+   // that tight loops in R don't redraw the pane once per object. Only the
+   // last change to each object matters.
+   private void queueObjectAssigned(RObject object)
+   {
+      pendingObjectChanges_.remove(object.getName());
+      pendingObjectChanges_.put(object.getName(), object);
+      scheduleObjectChanges();
+   }
+
+   private void queueObjectRemoved(String objectName)
+   {
+      pendingObjectChanges_.remove(objectName);
+      pendingObjectChanges_.put(objectName, null);
+      scheduleObjectChanges();
+   }
+
+   private void scheduleObjectChanges()
+   {
+      if (objectChangesScheduled_)
+         return;
+
+      objectChangesScheduled_ = true;
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            objectChangesScheduled_ = false;
+            flushObjectChanges();
+         }
+      });
+   }
+
+   private void flushObjectChanges()
+   {
+      if (pendingObjectChanges_.isEmpty())
+         return;
+
+      ArrayList<RObject> assigned = new ArrayList<RObject>();
+      ArrayList<String> removed = new ArrayList<String>();
+      for (Map.Entry<String, RObject> change : pendingObjectChanges_.entrySet())
+      {
+         if (change.getValue() == null)
+            removed.add(change.getKey());
+         else
+            assigned.add(change.getValue());
+      }
+      pendingObjectChanges_.clear();
+
+      view_.applyObjectChanges(assigned, removed);
+   }
+
+   // drops queued changes when the view's objects are about to be replaced
+   // wholesale, so they aren't drawn only to be cleared
+   private void discardObjectChanges()
+   {
+      pendingObjectChanges_.clear();
+   }
+
    private void setViewFromEnvironmentList(JsArray<RObject> objects)
    {
+      discardObjectChanges();
       view_.clearObjects();
       view_.addObjects(objects);
    }
@@ -1031,6 +1102,9 @@ public class EnvironmentPresenter extends BasePresenter
    private String functionEnvName_;
    private Timer requeryContextTimer_;
    private SearchPathFunctionDefinition searchFunction_;
+   private final LinkedHashMap<String, RObject> pendingObjectChanges_ =
+         new LinkedHashMap<String, RObject>();
+   private boolean objectChangesScheduled_;
    
    final String dataImportDependecyUserAction_ = "Preparing data import";
 }
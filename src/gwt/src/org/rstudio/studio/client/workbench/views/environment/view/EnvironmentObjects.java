@@ -17,6 +17,7 @@ package org.rstudio.studio.client.workbench.views.environment.view;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 import com.google.gwt.core.client.GWT;
@@ -139,69 +140,47 @@ public class EnvironmentObjects extends ResizeComposite
 
    public void addObject(RObject obj)
    {
-      int idx = indexOfExistingObject(obj.getName());
-      final RObjectEntry newEntry = entryFromRObject(obj);
-      boolean added = false;
-
-      // if the object is already in the environment, just update the value
-      if (idx >= 0)
-      {
-         final RObjectEntry oldEntry = objectDataProvider_.getList().get(idx);
-
-         if (oldEntry.rObject.getType() == obj.getType())
-         {
-            // type hasn't changed
-            if (oldEntry.expanded && 
-                newEntry.contentsAreDeferred)
-            {
-               // we're replacing an object that has server-deferred contents--
-               // refill it immediately. (another approach would be to push the
-               // set of currently expanded objects to the server so these
-               // objects would show up on the client already expanded)
-               fillEntryContents(newEntry, idx, false);
-            }
-            else
-            {
-               // contents aren't deferred, just use the expanded state directly
-               newEntry.expanded = oldEntry.expanded;
-            }
-            objectDataProvider_.getList().set(idx, newEntry);
-            added = true;
-         }
-         else
-         {
-            // types did change, do a full add/remove
-            objectDataProvider_.getList().remove(idx);
-         }
-         
-      }
-      if (!added)
-      {
-         RObjectEntry entry = entryFromRObject(obj);
-         idx = indexOfNewObject(entry);
-         objectDataProvider_.getList().add(idx, entry);
-      }
-      updateCategoryLeaders(true);
-      
-      // scroll into view
-      scrollTimer_.setRow(idx);
-      scrollTimer_.schedule(100);
+      applyObjectChanges(Collections.singletonList(obj),
+                         Collections.<String>emptyList());
    }
 
    public void removeObject(String objName)
    {
-      int idx = indexOfExistingObject(objName);
-      if (idx >= 0)
+      applyObjectChanges(Collections.<RObject>emptyList(),
+                         Collections.singletonList(objName));
+   }
+
+   // applies a batch of removals and assignments, then updates category
+   // leaders and scrolls to the last assigned object once for the batch
+   public void applyObjectChanges(List<RObject> assigned, List<String> removed)
+   {
+      ArrayList<Integer> categories = new ArrayList<Integer>();
+
+      for (String objName : removed)
       {
-         objectDataProvider_.getList().remove(idx);
+         RObjectEntry entry = removeEntry(objName);
+         if (entry != null && !categories.contains(entry.getCategory()))
+            categories.add(entry.getCategory());
       }
 
-      updateCategoryLeaders(true);
+      RObjectEntry lastEntry = null;
+      for (RObject obj : assigned)
+         lastEntry = addEntry(obj, categories);
+
+      updateCategoryLeaders(categories);
+
+      // scroll into view
+      if (lastEntry != null)
+      {
+         scrollTimer_.setRow(indexOfEntry(lastEntry));
+         scrollTimer_.schedule(100);
+      }
    }
    
    public void clearObjects()
    {
       objectDataProvider_.getList().clear();
+      objectsByName_.clear();
    }
    
    public void clearSelection()
@@ -219,6 +198,7 @@ public class EnvironmentObjects extends ResizeComposite
       {
          RObjectEntry entry = entryFromRObject(objects.get(i));
          objectEntryList.add(entry);
+         objectsByName_.put(entry.rObject.getName(), entry);
       }
       Collections.sort(objectEntryList, objectSort_);
 
@@ -542,42 +522,228 @@ public class EnvironmentObjects extends ResizeComposite
 
    // Private methods: object management --------------------------------------
 
-   private int indexOfExistingObject(String objectName)
+   // adds or updates the entry for an object, noting the categories whose
+   // leaders may have changed
+   private RObjectEntry addEntry(RObject obj, List<Integer> categories)
    {
       List<RObjectEntry> objects = objectDataProvider_.getList();
+      final RObjectEntry newEntry = entryFromRObject(obj);
+      RObjectEntry oldEntry = objectsByName_.get(obj.getName());
+      int idx = oldEntry == null ? -1 : indexOfEntry(oldEntry);
+      int oldCategory = -1;
+      boolean added = false;
+      boolean refill = false;
 
-      // find the position of the object in the list--we can't use binary
-      // search here since we're matching on names and the list isn't sorted
-      // by name (it's sorted by type, then name)
-      int index;
-      boolean foundObject = false;
-      for (index = 0; index < objects.size(); index++)
+      // if the object is already in the environment, just update the value
+      if (idx >= 0)
       {
-         if (objects.get(index).rObject.getName() == objectName)
+         oldCategory = oldEntry.getCategory();
+         if (oldEntry.rObject.getType() == obj.getType())
          {
-            foundObject = true;
-            break;
+            // type hasn't changed
+            if (oldEntry.expanded && 
+                newEntry.contentsAreDeferred)
+            {
+               // we're replacing an object that has server-deferred contents--
+               // refill it immediately. (another approach would be to push the
+               // set of currently expanded objects to the server so these
+               // objects would show up on the client already expanded)
+               refill = true;
+            }
+            else
+            {
+               // contents aren't deferred, just use the expanded state directly
+               newEntry.expanded = oldEntry.expanded;
+            }
+
+            // replace in place unless the new value moves it in the sort
+            // order (e.g. its size changed while sorting by size)
+            if (isSortedAt(newEntry, idx))
+            {
+               objects.set(idx, newEntry);
+               added = true;
+            }
          }
+
+         if (!added)
+         {
+            // types (or sort position) did change, do a full add/remove
+            objects.remove(idx);
+         }
+      }
+      if (!added)
+      {
+         idx = indexOfNewObject(newEntry);
+         objects.add(idx, newEntry);
+      }
+      objectsByName_.put(obj.getName(), newEntry);
+
+      if (refill)
+         fillEntryContents(newEntry, idx, false);
+
+      if (oldCategory >= 0 && !categories.contains(oldCategory))
+         categories.add(oldCategory);
+      if (!categories.contains(newEntry.getCategory()))
+         categories.add(newEntry.getCategory());
+
+      return newEntry;
+   }
+
+   // removes the entry for an object, returning it (or null if there was
+   // no such object)
+   private RObjectEntry removeEntry(String objName)
+   {
+      RObjectEntry entry = objectsByName_.remove(objName);
+      if (entry == null)
+         return null;
+
+      int idx = indexOfEntry(entry);
+      if (idx >= 0)
+      {
+         objectDataProvider_.getList().remove(idx);
       }
 
-      return foundObject ? index : -1;
+      return entry;
+   }
+
+   // returns the position of an entry in the table, or -1 if it isn't there
+   private int indexOfEntry(RObjectEntry entry)
+   {
+      List<RObjectEntry> objects = objectDataProvider_.getList();
+
+      // the table is kept in sort order, so the entry lies within the run of
+      // entries that compare equal to it
+      for (int idx = lowerBound(entry); idx < objects.size(); idx++)
+      {
+         RObjectEntry candidate = objects.get(idx);
+         if (candidate == entry)
+            return idx;
+         if (objectSort_.compare(entry, candidate) != 0)
+            break;
+      }
+
+      // not where the sort order says it should be; fall back to a scan
+      return objects.indexOf(entry);
    }
 
    // returns the position a new object entry should occupy in the table
    private int indexOfNewObject(RObjectEntry obj)
    {
       List<RObjectEntry> objects = objectDataProvider_.getList();
-      int numObjects = objects.size();
-      int idx;
-      // consider: can we use binary search here?
-      for (idx = 0; idx < numObjects; idx++)
+
+      // insert after any entries that compare equal
+      int lo = lowerBound(obj);
+      int hi = objects.size();
+      while (lo < hi)
+      {
+         int mid = (lo + hi) >>> 1;
+         if (objectSort_.compare(obj, objects.get(mid)) < 0)
+            hi = mid;
+         else
+            lo = mid + 1;
+      }
+      return lo;
+   }
+
+   // returns the first position whose entry does not sort before the given one
+   private int lowerBound(RObjectEntry obj)
+   {
+      List<RObjectEntry> objects = objectDataProvider_.getList();
+      int lo = 0;
+      int hi = objects.size();
+      while (lo < hi)
+      {
+         int mid = (lo + hi) >>> 1;
+         if (objectSort_.compare(objects.get(mid), obj) < 0)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return lo;
+   }
+
+   // whether an entry can occupy the given position without breaking the
+   // sort order of its neighbors
+   private boolean isSortedAt(RObjectEntry entry, int idx)
+   {
+      List<RObjectEntry> objects = objectDataProvider_.getList();
+      if (idx > 0 && objectSort_.compare(objects.get(idx - 1), entry) > 0)
+         return false;
+      if (idx < objects.size() - 1 &&
+          objectSort_.compare(entry, objects.get(idx + 1)) > 0)
+         return false;
+      return true;
+   }
+
+   // after adding or removing objects in the given categories, re-tag the
+   // leaders of those categories and the first object; only the rows around
+   // the changes can be affected
+   private void updateCategoryLeaders(List<Integer> categories)
+   {
+      if (objectDisplayType_ != OBJECT_LIST_VIEW || categories.isEmpty())
+         return;
+
+      // category runs are only contiguous when sorting by category
+      if (objectSort_.getSortType() != RObjectEntrySort.SORT_AUTO)
       {
-         if (objectSort_.compare(obj, objects.get(idx)) < 0)
+         updateCategoryLeaders(true);
+         return;
+      }
+
+      for (int category : categories)
+      {
+         int start = indexOfCategory(category);
+         int end = indexOfCategory(category + 1);
+         updateLeader(start, end, false);
+      }
+      updateLeader(0, objectDataProvider_.getList().size(), true);
+   }
+
+   // returns the position of the first entry in the category (or a later
+   // one), assuming the table is sorted by category
+   private int indexOfCategory(int category)
+   {
+      List<RObjectEntry> objects = objectDataProvider_.getList();
+      int lo = 0;
+      int hi = objects.size();
+      while (lo < hi)
+      {
+         int mid = (lo + hi) >>> 1;
+         if (objects.get(mid).getCategory() < category)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return lo;
+   }
+
+   // marks the first visible entry in [start, end) as the leader (of its
+   // category, or of the whole table) and unmarks the visible entry after it,
+   // which is the only other entry that can have led before the change
+   private void updateLeader(int start, int end, boolean firstObject)
+   {
+      List<RObjectEntry> objects = objectDataProvider_.getList();
+      boolean foundLeader = false;
+      for (int i = start; i < end; i++)
+      {
+         RObjectEntry entry = objects.get(i);
+         if (!entry.visible)
+            continue;
+
+         boolean leader = firstObject ? entry.isFirstObject : entry.isCategoryLeader;
+         if (leader != !foundLeader)
          {
-            break;
+            if (firstObject)
+               entry.isFirstObject = !foundLeader;
+            else
+               entry.isCategoryLeader = !foundLeader;
+            redrawRowSafely(i);
          }
+
+         if (foundLeader)
+            break;
+         foundLeader = true;
       }
-      return idx;
    }
 
    // after adds or removes, we need to tag the new category-leading objects
@@ -762,6 +928,8 @@ public class EnvironmentObjects extends ResizeComposite
    Label environmentEmptyMessage_;
 
    private ListDataProvider<RObjectEntry> objectDataProvider_;
+   private final HashMap<String, RObjectEntry> objectsByName_ =
+         new HashMap<String, RObjectEntry>();
    private RObjectEntrySort objectSort_;
 
    private EnvironmentObjectsObserver observer_;
@@ -31,6 +31,11 @@ class RObjectEntrySort implements Comparator<RObjectEntry>
       sortType_ = sortType;
    }
    
+   public int getSortType()
+   {
+      return sortType_;
+   }
+   
    public void setSortColumn(int sortColumn)
    {
       sortColumn_ = sortColumn;
@@ -62,10 +62,11 @@ import org.rstudio.studio.client.workbench.views.source.events.SourcePathChanged
 import org.rstudio.studio.client.workbench.views.terminal.events.CreateNewTerminalEvent;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class Files
       extends BasePresenter
-      implements FileChangeHandler, 
+      implements FileChangeBatchEvent.Handler, 
                  OpenFileInBrowserHandler,
                  DirectoryNavigateHandler,
                  RenameSourceFileEvent.Handler
@@ -94,7 +95,7 @@ public class Files
       void listDirectory(FileSystemItem directory, 
                          ServerDataSource<DirectoryListing> filesDS);
       
-      void updateDirectoryListing(FileChange action);
+      void updateDirectoryListing(List<FileChange> actions);
       
       void renameFile(FileSystemItem from, FileSystemItem to);
       
@@ -173,7 +174,7 @@ public class Files
       ((Binder)GWT.create(Binder.class)).bind(commands, this);
 
       
-      eventBus_.addHandler(FileChangeEvent.TYPE, this);
+      eventBus_.addHandler(FileChangeBatchEvent.TYPE, this);
       eventBus_.addHandler(RenameSourceFileEvent.TYPE, this);
 
       initSession();
@@ -611,9 +612,9 @@ public class Files
       eventBus_.fireEvent(new ShowFolderEvent(currentPath_));
    }
    
-   public void onFileChange(FileChangeEvent event)
+   public void onFileChangeBatch(FileChangeBatchEvent event)
    {
-      view_.updateDirectoryListing(event.getFileChange());
+      view_.updateDirectoryListing(event.getFileChanges());
    }
 
    public void onOpenFileInBrowser(OpenFileInBrowserEvent event)
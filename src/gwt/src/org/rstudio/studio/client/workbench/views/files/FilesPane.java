@@ -57,6 +57,7 @@ import org.rstudio.studio.client.workbench.views.files.model.PendingFileUpload;
 import org.rstudio.studio.client.workbench.views.files.ui.*;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class FilesPane extends WorkbenchPane implements Files.Display
 {
@@ -169,12 +170,12 @@ public class FilesPane extends WorkbenchPane implements Files.Display
       });
    }
    
-   public void updateDirectoryListing(FileChange fileAction)
+   public void updateDirectoryListing(List<FileChange> fileActions)
    {
       if (filesList_ != null) // can be called by file_changed event
                              // prior to widget creation
       {
-         filesList_.updateWithAction(fileAction);
+         filesList_.updateWithActions(fileActions);
       }
    }
    
@@ -0,0 +1,58 @@
+/*
+ * FileChangeBatchEvent.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.files.events;
+
+import java.util.List;
+
+import org.rstudio.studio.client.workbench.views.files.model.FileChange;
+
+import com.google.gwt.event.shared.EventHandler;
+import com.google.gwt.event.shared.GwtEvent;
+
+// The file changes received from the server in one dispatch slice, in the
+// order they occurred (see FileChangeBatch for how repeats are merged)
+public class FileChangeBatchEvent extends GwtEvent<FileChangeBatchEvent.Handler>
+{
+   public interface Handler extends EventHandler
+   {
+      void onFileChangeBatch(FileChangeBatchEvent event);
+   }
+
+   public FileChangeBatchEvent(List<FileChange> fileChanges)
+   {
+      fileChanges_ = fileChanges;
+   }
+
+   public List<FileChange> getFileChanges()
+   {
+      return fileChanges_;
+   }
+
+   @Override
+   public Type<Handler> getAssociatedType()
+   {
+      return TYPE;
+   }
+
+   @Override
+   protected void dispatch(Handler handler)
+   {
+      handler.onFileChangeBatch(this);
+   }
+
+   private final List<FileChange> fileChanges_;
+
+   public static final Type<Handler> TYPE = new Type<>();
+}
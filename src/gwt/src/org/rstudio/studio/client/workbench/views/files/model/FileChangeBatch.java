@@ -0,0 +1,68 @@
+/*
+ * FileChangeBatch.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.files.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// Collects file changes for delivery as a single event. A modification of
+// a path whose latest change in the batch is also a modification replaces
+// that change (keeping its place in the batch) rather than being appended,
+// so a file rewritten many times in a burst is reported once with its
+// final metadata. Other changes are kept in order.
+public class FileChangeBatch
+{
+   public void add(FileChange fileChange)
+   {
+      String path = fileChange.getFile().getPath();
+      Integer index = lastChange_.get(path);
+      if (index != null &&
+          fileChange.getType() == FileChange.MODIFIED &&
+          fileChanges_.get(index).getType() == FileChange.MODIFIED)
+      {
+         fileChanges_.set(index, fileChange);
+         return;
+      }
+
+      lastChange_.put(path, fileChanges_.size());
+      fileChanges_.add(fileChange);
+   }
+
+   public boolean isEmpty()
+   {
+      return fileChanges_.isEmpty();
+   }
+
+   public int size()
+   {
+      return fileChanges_.size();
+   }
+
+   /**
+    * @return The changes collected so far; the batch is left empty
+    */
+   public ArrayList<FileChange> takeChanges()
+   {
+      ArrayList<FileChange> fileChanges = fileChanges_;
+      fileChanges_ = new ArrayList<FileChange>();
+      lastChange_.clear();
+      return fileChanges;
+   }
+
+   private ArrayList<FileChange> fileChanges_ = new ArrayList<FileChange>();
+
+   // index of the latest change to each path
+   private final HashMap<String, Integer> lastChange_ = new HashMap<String, Integer>();
+}
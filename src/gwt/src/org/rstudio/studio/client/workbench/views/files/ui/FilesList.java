@@ -15,9 +15,10 @@
 package org.rstudio.studio.client.workbench.views.files.ui;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
 
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.StringUtil;
@@ -27,7 +28,7 @@ import org.rstudio.core.client.cellview.LabeledBoolean;
 import org.rstudio.core.client.cellview.LinkColumn;
 import org.rstudio.core.client.files.FileSystemItem;
 import org.rstudio.core.client.widget.OperationWithInput;
-import org.rstudio.core.client.widget.RStudioDataGrid;
+import org.rstudio.core.client.widget.VirtualizedDataGrid;
 import org.rstudio.studio.client.ResizableHeader;
 import org.rstudio.studio.client.common.filetypes.FileIcon;
 import org.rstudio.studio.client.common.filetypes.FileIconResourceCell;
@@ -38,13 +39,14 @@ import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.dom.client.NodeList;
 import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.dom.client.Style.WhiteSpace;
+import com.google.gwt.dom.client.TableRowElement;
 import com.google.gwt.event.logical.shared.ResizeEvent;
 import com.google.gwt.event.logical.shared.ResizeHandler;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.safehtml.shared.SafeHtmlUtils;
-import com.google.gwt.user.cellview.client.DataGrid;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.ColumnSortEvent;
 import com.google.gwt.user.cellview.client.ColumnSortList;
@@ -73,16 +75,11 @@ public class FilesList extends Composite
       observer_ = observer;
       order_ = order;
       
-      // create data provider and sort handler
+      // create data provider
       dataProvider_ = new ListDataProvider<FileSystemItem>();
-      sortHandler_ = new ColumnSortEvent.ListHandler<FileSystemItem>(
-                                                      dataProvider_.getList());
       
       // create cell table
-      filesDataGrid_ = new RStudioDataGrid<FileSystemItem>(
-                                          15,
-                                          FilesListDataGridResources.INSTANCE,
-                                          KEY_PROVIDER);
+      filesDataGrid_ = new FilesDataGrid();
       selectionModel_ = new MultiSelectionModel<FileSystemItem>(KEY_PROVIDER);
       filesDataGrid_.setSelectionModel(
          selectionModel_, 
@@ -96,7 +93,7 @@ public class FilesList extends Composite
       
       // add columns
       addSelectionColumn();
-      addIconColumn(fileTypeRegistry);
+      iconColumn_ = addIconColumn(fileTypeRegistry);
       nameColumn_ = addNameColumn();
       sizeColumn_ = addSizeColumn();
       modifiedColumn_ = addModifiedColumn();
@@ -167,19 +164,6 @@ public class FilesList extends Composite
       filesDataGrid_.addColumn(iconColumn, 
             SafeHtmlUtils.fromSafeConstant("<span aria-label=\"File Type\"><br/></span>"));
       filesDataGrid_.setColumnWidth(iconColumn, ICON_COLUMN_WIDTH_PIXELS, Unit.PX);
-    
-      sortHandler_.setComparator(iconColumn, new FilesListComparator() {
-         @Override
-         public int doCompare(FileSystemItem arg0, FileSystemItem arg1)
-         {
-            if (arg0.isDirectory() && !arg1.isDirectory())
-               return 1;
-            else if (arg1.isDirectory() && !arg0.isDirectory())
-               return -1;
-            else
-               return arg0.getExtension().compareTo(arg1.getExtension());
-         }
-      });
       
       return iconColumn;
    }
@@ -208,24 +192,6 @@ public class FilesList extends Composite
       nameColumn.setSortable(true);
       filesDataGrid_.addColumn(nameColumn, "Name");
       
-      sortHandler_.setComparator(nameColumn, new FilesListComparator() {
-         @Override
-         public int doCompare(FileSystemItem arg0, FileSystemItem arg1)
-         {
-            if (order_ == SortOrder.Natural)
-            {
-               // Natural ordering (the default) preserves ascending sequences
-               // in filenames
-               return StringUtil.naturalOrderCompare(arg0.getName(), arg1.getName());
-            }
-            else
-            {
-               // Lexicographic ordering is simpler (just goes char by char)
-               return arg0.getName().compareToIgnoreCase(arg1.getName());
-            }
-         }
-      });
-      
       return nameColumn;
    }
    
@@ -245,15 +211,6 @@ public class FilesList extends Composite
       filesDataGrid_.addColumn(sizeColumn, new ResizableHeader(filesDataGrid_, "Size"));
       filesDataGrid_.setColumnWidth(sizeColumn, SIZE_COLUMN_WIDTH_PIXELS, Unit.PX);
       
-      sortHandler_.setComparator(sizeColumn, new FoldersOnBottomComparator() {
-         @Override
-         public int doItemCompare(FileSystemItem arg0, FileSystemItem arg1)
-         {
-            return new Long(arg0.getLength()).compareTo(
-                                             new Long(arg1.getLength()));
-         }
-      });
-      
       return sizeColumn;
    }
 
@@ -273,14 +230,6 @@ public class FilesList extends Composite
       filesDataGrid_.addColumn(modColumn, new ResizableHeader(filesDataGrid_, "Modified"));
       filesDataGrid_.setColumnWidth(modColumn, MODIFIED_COLUMN_WIDTH_PIXELS, Unit.PX); 
       
-      sortHandler_.setComparator(modColumn, new FoldersOnBottomComparator() {
-         @Override
-         public int doItemCompare(FileSystemItem arg0, FileSystemItem arg1)
-         {
-            return arg0.getLastModified().compareTo(arg1.getLastModified());
-         }
-      });
-      
       return modColumn;
    }
    
@@ -346,8 +295,9 @@ public class FilesList extends Composite
             // record active sort column ascending state
             activeSortColumnAscending_ = event.isSortAscending();
             
-            // delegate the sort
-            sortHandler_.onColumnSort(event);
+            // sort on the active column
+            sortColumn_ = event.getColumn();
+            sortFiles();
          }
          
          private native final JsArray<ColumnSortInfo> newSortOrderArray()
@@ -386,20 +336,23 @@ public class FilesList extends Composite
       containingPath_ = containingPath;
       parentPath_ = containingPath_.getParentPath();
       
-      // set page size (+1 for parent path)
-      filesDataGrid_.setPageSize(files.length() + 1);
+      // build the list and its index
+      ArrayList<FileSystemItem> fileList =
+            new ArrayList<FileSystemItem>(files.length() + 1);
+      rows_.clear();
       
-      // get underlying list
-      List<FileSystemItem> fileList = dataProvider_.getList();
-      fileList.clear();
-            
       // add entry for parent path if we have one
       if (parentPath_ != null)
          fileList.add(parentPath_);
       
       // add files to table
       for (int i=0; i<files.length(); i++)
-         fileList.add(files.get(i));
+      {
+         FileSystemItem file = files.get(i);
+         fileList.add(file);
+         rows_.put(file.getPath(), new FileSortKey(file, order_));
+      }
+      dataProvider_.setList(fileList);
            
       // apply sort list
       applyColumnSortList();
@@ -425,27 +378,45 @@ public class FilesList extends Composite
    
    public ArrayList<FileSystemItem> getSelectedFiles()
    {    
-      // first make sure there are no leftover items in the selected set
-      Set<FileSystemItem> selectedSet = selectionModel_.getSelectedSet();
-      selectedSet.retainAll(dataProvider_.getList());
+      // skip any leftover items in the selected set
+      ArrayList<FileSystemItem> selectedFiles = new ArrayList<FileSystemItem>();
+      for (FileSystemItem item : selectionModel_.getSelectedSet())
+      {
+         if (rows_.containsKey(item.getPath()))
+            selectedFiles.add(item);
+      }
+   
+      return selectedFiles;
+   }
    
-      return new ArrayList<FileSystemItem>(selectedSet);
+   public void updateWithActions(List<FileChange> viewActions)
+   {
+      boolean deleted = false;
+      for (FileChange viewAction : viewActions)
+         deleted |= applyAction(viewAction);
+      
+      // if a file is deleted and then re-added within the same
+      // event loop (as occurs when gedit saves a text file) the
+      // table doesn't always update correctly (it has a duplicate
+      // of the item deleted / re-added). the call to flush overcomes
+      // this issue
+      if (deleted)
+         dataProvider_.flush();
    }
    
-   public void updateWithAction(FileChange viewAction)
+   // applies a change to the list; returns true if a file was removed
+   private boolean applyAction(FileChange viewAction)
    {        
       final FileSystemItem file = viewAction.getFile();
-      final List<FileSystemItem> files = getFiles();
+      final FileSortKey existing = rows_.get(file.getPath());
       switch(viewAction.getType())
       {
       case FileChange.ADD:
          if (file.getParentPath().equalTo(containingPath_))
          {
-            int row = rowForFile(file);
-            if (row == -1)
+            if (existing == null)
             {
-               files.add(file);
-               filesDataGrid_.setPageSize(files.size() + 1);
+               insertFile(file);
             }
             else
             {
@@ -454,56 +425,41 @@ public class FilesList extends Composite
                // a rename. in this case the file already exists due
                // to the eager rename in the client but still needs its
                // metadata updated
-               files.set(row, file);
+               replaceFile(existing, file);
             }
          }
-         break;
+         return false;
          
       case FileChange.MODIFIED:
-         {
-            int row = rowForFile(file);
-            if (row != -1)
-            {
-               // the selection model loses the selection state when we update
-               // the row, so save and restore it manually.
-               boolean selected = selectionModel_.isSelected(file);
-               files.set(row, file);
-               selectionModel_.setSelected(file, selected);
-            }
-         }
-         break;
+         if (existing != null)
+            replaceFile(existing, file);
+         return false;
  
       case FileChange.DELETE:
+         if (existing != null)
          {
-            int row = rowForFile(file);
-            if (row != -1)
-            {
-               files.remove(row);
-               
-               // if a file is deleted and then re-added within the same
-               // event loop (as occurs when gedit saves a text file) the
-               // table doesn't always update correctly (it has a duplicate
-               // of the item deleted / re-added). the call to flush overcomes
-               // this issue
-               dataProvider_.flush();
-            }
+            removeFile(existing);
+            return true;
          }
-         break;
+         return false;
       
       default:
          Debug.log("Unexpected file change type: " + viewAction.getType());
-         
-         break;
+         return false;
       }
    }
    
    public void renameFile(FileSystemItem from, FileSystemItem to)
    {
-      int index = getFiles().indexOf(from);
-      if (index != -1)
+      FileSortKey existing = rows_.get(from.getPath());
+      if (existing != null)
       {
          selectNone();
-         getFiles().set(index, to);
+         removeFile(existing);
+         FileSortKey target = rows_.get(to.getPath());
+         if (target != null)
+            removeFile(target);
+         insertFile(to);
       }
    }
    
@@ -512,14 +468,162 @@ public class FilesList extends Composite
       return dataProvider_.getList();
    }
    
-   private int rowForFile(FileSystemItem file)
+   // the first row holding a file (the parent path, if any, is always on top)
+   private int firstFileRow()
+   {
+      return parentPath_ != null ? 1 : 0;
+   }
+   
+   private boolean isSorted()
+   {
+      return sortColumn_ == iconColumn_ ||
+             sortColumn_ == nameColumn_ ||
+             sortColumn_ == sizeColumn_ ||
+             sortColumn_ == modifiedColumn_;
+   }
+   
+   private void insertFile(FileSystemItem file)
+   {
+      FileSortKey key = new FileSortKey(file, order_);
+      List<FileSystemItem> files = getFiles();
+      int row = isSorted() ? -(findRow(key) + 1) : files.size();
+      files.add(row, file);
+      rows_.put(key.path, key);
+      scheduleRedraw();
+   }
+   
+   private void removeFile(FileSortKey key)
+   {
+      List<FileSystemItem> files = getFiles();
+      int row = isSorted() ? findRow(key) : files.indexOf(key.file);
+      if (row >= 0)
+         files.remove(row);
+      rows_.remove(key.path);
+      scheduleRedraw();
+   }
+   
+   // replaces a file with updated metadata, which may move it to a new row
+   private void replaceFile(FileSortKey existing, FileSystemItem file)
+   {
+      // the selection model loses the selection state when we update
+      // the row, so save and restore it manually.
+      boolean selected = selectionModel_.isSelected(existing.file);
+      removeFile(existing);
+      insertFile(file);
+      selectionModel_.setSelected(file, selected);
+   }
+   
+   // binary search of the sorted rows; returns the row holding the key's
+   // file, or (-(insertion row) - 1) if it isn't in the list
+   private int findRow(FileSortKey key)
    {
       List<FileSystemItem> files = getFiles();
-      for (int i=0; i<files.size(); i++)
-         if (files.get(i).equalTo(file))
-            return i;
+      int low = firstFileRow();
+      int high = files.size() - 1;
+      while (low <= high)
+      {
+         int mid = (low + high) >>> 1;
+         int result = compareRows(rows_.get(files.get(mid).getPath()), key);
+         if (result < 0)
+            low = mid + 1;
+         else if (result > 0)
+            high = mid - 1;
+         else
+            return mid;
+      }
+      return -(low + 1);
+   }
+   
+   private void sortFiles()
+   {
+      if (!isSorted())
+         return;
+      
+      // sort the precomputed keys rather than the items themselves
+      List<FileSystemItem> files = getFiles();
+      int first = firstFileRow();
+      FileSortKey[] keys = new FileSortKey[files.size() - first];
+      for (int i = 0; i < keys.length; i++)
+         keys[i] = rows_.get(files.get(first + i).getPath());
+      Arrays.sort(keys, new Comparator<FileSortKey>()
+      {
+         @Override
+         public int compare(FileSortKey key1, FileSortKey key2)
+         {
+            return compareRows(key1, key2);
+         }
+      });
+      
+      ArrayList<FileSystemItem> sorted = new ArrayList<FileSystemItem>(files.size());
+      if (parentPath_ != null)
+         sorted.add(parentPath_);
+      for (FileSortKey key : keys)
+         sorted.add(key.file);
+      dataProvider_.setList(sorted);
+      scheduleRedraw();
+   }
+   
+   private int compareRows(FileSortKey key1, FileSortKey key2)
+   {
+      int result = 0;
+      if (sortColumn_ == iconColumn_)
+      {
+         if (key1.isDirectory != key2.isDirectory)
+            result = key1.isDirectory ? 1 : -1;
+         else
+            result = key1.extension.compareTo(key2.extension);
+      }
+      else if (sortColumn_ == nameColumn_)
+      {
+         if (order_ == SortOrder.Natural)
+         {
+            // Natural ordering (the default) preserves ascending sequences
+            // in filenames
+            result = StringUtil.naturalOrderCompare(key1.name, key2.name);
+         }
+         else
+         {
+            // Lexicographic ordering is simpler (just goes char by char)
+            result = key1.name.compareTo(key2.name);
+         }
+      }
+      else
+      {
+         // folders stay on the bottom in either direction
+         if (key1.isDirectory != key2.isDirectory)
+            return key1.isDirectory ? 1 : -1;
+         
+         if (sortColumn_ == sizeColumn_)
+            result = Double.compare(key1.length, key2.length);
+         else
+            result = Double.compare(key1.lastModified, key2.lastModified);
+      }
       
-      return -1;
+      if (!activeSortColumnAscending_)
+         result = -result;
+      
+      // break ties by path so that every file has exactly one row
+      return result != 0 ? result : key1.path.compareTo(key2.path);
+   }
+   
+   // the grid must be fully redrawn (rather than have individual rows
+   // replaced) for its padding rows to stay in step with the list; changes
+   // made in the same event loop share one redraw
+   private void scheduleRedraw()
+   {
+      if (redrawPending_)
+         return;
+      
+      redrawPending_ = true;
+      Scheduler.get().scheduleFinally(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            redrawPending_ = false;
+            filesDataGrid_.redraw();
+         }
+      });
    }
    
    private void applyColumnSortList()
@@ -616,85 +720,86 @@ public class FilesList extends Composite
          }
     };
     
-    // comparator which ensures that the parent path is always on top
-    private abstract class FilesListComparator implements Comparator<FileSystemItem>
-    {     
-       @Override
-       public int compare(FileSystemItem arg0, FileSystemItem arg1)
-       {
-          int ascendingFactor = activeSortColumnAscending_ ? -1 : 1;
-          
-          if (arg0 == parentPath_)
-             return 1 * ascendingFactor;
-          else if (arg1 == parentPath_)
-             return -1 * ascendingFactor;
-          else
-             return doCompare(arg0, arg1);
-       }
-       
-       protected abstract int doCompare(FileSystemItem arg0, FileSystemItem arg1);    
-    }
-    
-    private abstract class SeparateFoldersComparator extends FilesListComparator
-    {
-       public SeparateFoldersComparator(boolean foldersOnBottom)
-       {
-          if (foldersOnBottom)
-             sortFactor_ = 1;
-          else
-             sortFactor_ = -1;
-       }
-       
-       protected int doCompare(FileSystemItem arg0, FileSystemItem arg1)
-       {
-          int ascendingResult = activeSortColumnAscending_ ? 1 : -1;
-          
-          if (arg0.isDirectory() && !arg1.isDirectory())
-             return ascendingResult * sortFactor_;
-          else if (arg1.isDirectory() && !arg0.isDirectory())
-             return -ascendingResult * sortFactor_;
-          else
-             return doItemCompare(arg0, arg1);
-       }
-       
-       protected abstract int doItemCompare(FileSystemItem arg0, FileSystemItem arg1);    
-       
-       private final int sortFactor_;
-    }
-    
-    private abstract class FoldersOnBottomComparator extends SeparateFoldersComparator
-    {
-       public FoldersOnBottomComparator() 
-       { 
-          super(true); 
-       }
-    }
-    
-    @SuppressWarnings("unused")
-    private abstract class FoldersOnTopComparator extends SeparateFoldersComparator
-    {
-       public FoldersOnTopComparator() 
-       { 
-          super(false); 
-       }
-    }
-    
+   // renders only the rows around the viewport, so that directories with
+   // tens of thousands of entries don't produce as many table rows
+   private class FilesDataGrid extends VirtualizedDataGrid<FileSystemItem>
+   {
+      public FilesDataGrid()
+      {
+         super(FilesListDataGridResources.INSTANCE, KEY_PROVIDER);
+      }
+      
+      @Override
+      public int getRowHeight()
+      {
+         // the row height depends on the theme and font size, so measure
+         // a drawn row (the first and last rows may be padding)
+         NodeList<TableRowElement> rows = getTableBodyElement().getRows();
+         if (rows.getLength() >= 3)
+         {
+            int height = rows.getItem(rows.getLength() / 2).getOffsetHeight();
+            if (height > 0)
+               rowHeight_ = height;
+         }
+         return rowHeight_;
+      }
+      
+      @Override
+      public int getTotalNumberOfRows()
+      {
+         return getFiles().size();
+      }
+      
+      private int rowHeight_ = DEFAULT_ROW_HEIGHT_PIXELS;
+   }
+   
+   // the values a file is sorted on, computed once per file rather than
+   // on every comparison
+   private static class FileSortKey
+   {
+      public FileSortKey(FileSystemItem file, SortOrder order)
+      {
+         this.file = file;
+         path = file.getPath();
+         isDirectory = file.isDirectory();
+         name = order == SortOrder.Natural ?
+               file.getName() :
+               file.getName().toLowerCase();
+         extension = file.getExtension();
+         length = file.getLength();
+         lastModified = file.getLastModifiedNative();
+      }
+      
+      public final FileSystemItem file;
+      public final String path;
+      public final boolean isDirectory;
+      public final String name;
+      public final String extension;
+      public final double length;
+      public final double lastModified;
+   }
    
    private FileSystemItem containingPath_ = null;
    private FileSystemItem parentPath_ = null;
   
-   private final DataGrid<FileSystemItem> filesDataGrid_; 
+   private final FilesDataGrid filesDataGrid_; 
+   private final Column<FileSystemItem, FileIcon> iconColumn_;
    private final LinkColumn<FileSystemItem> nameColumn_;
    private final TextColumn<FileSystemItem> sizeColumn_;
    private final TextColumn<FileSystemItem> modifiedColumn_;
    private final SortOrder order_;
    private boolean activeSortColumnAscending_ = true;
    private boolean applyingProgrammaticSort_ = false;
+   private Object sortColumn_ = null;
+   private boolean redrawPending_ = false;
    
    
    private final MultiSelectionModel<FileSystemItem> selectionModel_;
    private final ListDataProvider<FileSystemItem> dataProvider_;
-   private final ColumnSortEvent.ListHandler<FileSystemItem> sortHandler_;
+   
+   // files in the list (other than the parent path), by path
+   private final HashMap<String, FileSortKey> rows_ =
+         new HashMap<String, FileSortKey>();
 
    private final Files.Display.Observer observer_;
    private final ResizeLayoutPanel layoutPanel_;
@@ -703,6 +808,7 @@ public class FilesList extends Composite
    private static final int ICON_COLUMN_WIDTH_PIXELS = 26;
    private static final int SIZE_COLUMN_WIDTH_PIXELS = 80;
    private static final int MODIFIED_COLUMN_WIDTH_PIXELS = 160;
+   private static final int DEFAULT_ROW_HEIGHT_PIXELS = 22;
    
    private static final int BOUNDARY_WIDTH_PIXELS = 500;
    private static final int MINIMUM_NAME_COLUMN_WIDTH_PIXELS = 
@@ -45,6 +45,7 @@ import org.rstudio.core.client.Mutable;
 import org.rstudio.core.client.ResultCallback;
 import org.rstudio.core.client.SerializedCommand;
 import org.rstudio.core.client.SerializedCommandQueue;
+import org.rstudio.core.client.StartupTrace;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.command.AppCommand;
 import org.rstudio.core.client.command.CommandBinder;
@@ -131,6 +132,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.codebrowser.CodeBrowserEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.explorer.events.OpenObjectExplorerEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.explorer.model.ObjectExplorerHandle;
+import org.rstudio.studio.client.workbench.views.source.editors.placeholder.PlaceholderEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.profiler.OpenProfileEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.profiler.model.ProfilerContents;
 import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
@@ -240,6 +242,12 @@ public class Source implements InsertSourceHandler,
                   String tooltip,
                   Integer position,
                   boolean switchToTab);
+      void replaceTab(Widget oldWidget,
+                      Widget widget,
+                      FileIcon icon,
+                      String docId,
+                      String name,
+                      String tooltip);
 
       int getTabCount();
       int getActiveTabIndex();
@@ -356,6 +364,11 @@ public class Source implements InsertSourceHandler,
                      // react to the new file type
                      ((TextEditingTarget)input).setPath(toPath);
                   }
+                  else if (input instanceof PlaceholderEditingTarget)
+                  {
+                     // a restored tab that hasn't been loaded yet
+                     ((PlaceholderEditingTarget)input).setPath(toPath);
+                  }
                   else
                   {
                      // for other files, just rename the tab
@@ -464,7 +477,10 @@ public class Source implements InsertSourceHandler,
    public void load()
    {
       AceEditor.load(() -> {
+         StartupTrace.Span span = StartupTrace.begin("Source.loadFullSource",
+                                                     "init");
          loadFullSource();
+         StartupTrace.end(span);
       });
    }
 
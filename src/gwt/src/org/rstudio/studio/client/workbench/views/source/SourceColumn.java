@@ -507,23 +507,7 @@ public class SourceColumn implements BeforeShowEvent.Handler,
                       true);
       fireDocTabsChanged();
 
-      target.getName().addValueChangeHandler(event -> {
-         display_.renameTab(widget,
-                            target.getIcon(),
-                            event.getValue(),
-                            target.getPath());
-         fireDocTabsChanged();
-      });
-
-      display_.setDirty(widget, target.dirtyState().getValue());
-      target.dirtyState().addValueChangeHandler(event -> {
-         display_.setDirty(widget, event.getValue());
-         manageCommands(false);
-      });
-
-      target.addEnsureVisibleHandler(event -> display_.selectTab(widget));
-
-      target.addCloseHandler(voidCloseEvent -> closeTab(widget, false));
+      attachTab(target, widget);
 
       events_.fireEvent(new SourceDocAddedEvent(doc, mode, name_));
 
@@ -545,6 +529,79 @@ public class SourceColumn implements BeforeShowEvent.Handler,
       return target;
    }
 
+   /**
+    * Replaces a placeholder for a restored document with the document's
+    * real editing target, in the same tab.
+    *
+    * @param placeholder The placeholder target
+    * @param doc The document, including its contents
+    * @return The new target, or null if the placeholder is no longer open
+    *    in this column
+    */
+   public EditingTarget replaceTab(EditingTarget placeholder, SourceDocument doc)
+   {
+      int index = editors_.indexOf(placeholder);
+      if (index < 0)
+         return null;
+
+      final EditingTarget target = editingTargetSource_.getEditingTarget(
+            this,
+            doc,
+            fileContext_,
+            (EditingTarget et) ->
+            {
+               String prefix = et.getDefaultNamePrefix();
+               return getNextDefaultName(prefix);
+            });
+
+      final Widget widget = createWidget(target);
+      editors_.set(index, target);
+      display_.replaceTab(placeholder.asWidget(),
+                          widget,
+                          target.getIcon(),
+                          target.getId(),
+                          target.getName().getValue(),
+                          target.getTabTooltip());
+      attachTab(target, widget);
+
+      if (target instanceof TextEditingTarget && doc.isReadOnly())
+      {
+         ((TextEditingTarget) target).setIntendedAsReadOnly(
+            JsUtil.toList(doc.getReadOnlyAlternatives()));
+      }
+
+      if (activeEditor_ == placeholder)
+      {
+         onActivate(target);
+         manageCommands(true);
+      }
+
+      fireDocTabsChanged();
+      return target;
+   }
+
+   // hooks a newly added target up to its tab
+   private void attachTab(final EditingTarget target, final Widget widget)
+   {
+      target.getName().addValueChangeHandler(event -> {
+         display_.renameTab(widget,
+                            target.getIcon(),
+                            event.getValue(),
+                            target.getPath());
+         fireDocTabsChanged();
+      });
+
+      display_.setDirty(widget, target.dirtyState().getValue());
+      target.dirtyState().addValueChangeHandler(event -> {
+         display_.setDirty(widget, event.getValue());
+         manageCommands(false);
+      });
+
+      target.addEnsureVisibleHandler(event -> display_.selectTab(widget));
+
+      target.addCloseHandler(voidCloseEvent -> closeTab(widget, false));
+   }
+
    public void closeDoc(String docId)
    {
       suspendDocumentClose_ = true;
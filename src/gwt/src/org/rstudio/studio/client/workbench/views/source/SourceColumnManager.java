@@ -76,6 +76,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.codebrowser.Code
 import org.rstudio.studio.client.workbench.views.source.editors.data.DataEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.explorer.ObjectExplorerEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.explorer.model.ObjectExplorerHandle;
+import org.rstudio.studio.client.workbench.views.source.editors.placeholder.PlaceholderEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
@@ -1958,6 +1959,38 @@ public class SourceColumnManager implements CommandPaletteEntrySource,
          ? activeColumn_.getActiveEditor()
          : findEditor(id);
 
+      withTextTarget(target, command, onFailure);
+   }
+
+   /**
+    * Runs command with the text editor for target, loading it first if target
+    * is a restored tab that hasn't been loaded yet.
+    */
+   static void withTextTarget(EditingTarget target,
+                              final CommandWithArg<TextEditingTarget> command,
+                              final Command onFailure)
+   {
+      withLoadedTarget(target, loaded ->
+      {
+         if (!(loaded instanceof TextEditingTarget))
+         {
+            if (onFailure != null)
+               onFailure.execute();
+            return;
+         }
+
+         command.execute((TextEditingTarget) loaded);
+      }, onFailure);
+   }
+
+   /**
+    * Runs command with the real editor for target; a restored tab that hasn't
+    * been loaded yet is replaced by its editor first.
+    */
+   static void withLoadedTarget(EditingTarget target,
+                                CommandWithArg<EditingTarget> command,
+                                Command onFailure)
+   {
       if (target == null)
       {
          if (onFailure != null)
@@ -1965,14 +1998,13 @@ public class SourceColumnManager implements CommandPaletteEntrySource,
          return;
       }
 
-      if (!(target instanceof TextEditingTarget))
+      if (target instanceof PlaceholderEditingTarget)
       {
-         if (onFailure != null)
-            onFailure.execute();
+         ((PlaceholderEditingTarget) target).materialize(command, onFailure);
          return;
       }
 
-      command.execute((TextEditingTarget) target);
+      command.execute(target);
    }
 
    public HashSet<AppCommand> getDynamicCommands()
@@ -2271,7 +2303,11 @@ public class SourceColumnManager implements CommandPaletteEntrySource,
                column.selectTab(target.asWidget());
                pMruList_.get().add(thisPath);
                if (resultCallback != null)
-                  resultCallback.onSuccess(target);
+               {
+                  // callers expect the real editor for the file, so a
+                  // restored tab that hasn't been loaded yet is loaded first
+                  withLoadedTarget(target, resultCallback::onSuccess, null);
+               }
                return true;
             }
          }
@@ -132,6 +132,18 @@ public class SourcePane extends LazyPanel implements Display,
          tabPanel_.selectTab(widget, true /* focus newly added tab */);
    }
 
+   @Override
+   public void replaceTab(Widget oldWidget,
+                          Widget widget,
+                          FileIcon icon,
+                          String docId,
+                          String name,
+                          String tooltip)
+   {
+      tabPanel_.replaceTab(tabPanel_.getWidgetIndex(oldWidget),
+                           widget, icon, docId, name, tooltip);
+   }
+
    @Override
    public int getTabCount()
    {
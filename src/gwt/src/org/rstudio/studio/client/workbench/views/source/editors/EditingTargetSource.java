@@ -23,6 +23,7 @@ import org.rstudio.studio.client.workbench.views.source.SourceColumn;
 import org.rstudio.studio.client.workbench.views.source.editors.codebrowser.CodeBrowserEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.data.DataEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.explorer.ObjectExplorerEditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.placeholder.PlaceholderEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.profiler.ProfilerEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.urlcontent.UrlContentEditingTarget;
@@ -62,7 +63,8 @@ public interface EditingTargetSource
                   Provider<UrlContentEditingTarget> pUrlContentEditingTarget,
                   Provider<CodeBrowserEditingTarget> pCodeBrowserEditingTarget,
                   Provider<ProfilerEditingTarget> pProfilerEditingTarget,
-                  Provider<ObjectExplorerEditingTarget> pObjectExplorerEditingTarget)
+                  Provider<ObjectExplorerEditingTarget> pObjectExplorerEditingTarget,
+                  Provider<PlaceholderEditingTarget> pPlaceholderEditingTarget)
       {
          registry_ = registry;
          pTextEditingTarget_ = pTextEditingTarget;
@@ -71,6 +73,7 @@ public interface EditingTargetSource
          pCodeBrowserEditingTarget_ = pCodeBrowserEditingTarget;
          pProfilerEditingTarget_ = pProfilerEditingTarget;
          pObjectExplorerEditingTarget_ = pObjectExplorerEditingTarget;
+         pPlaceholderEditingTarget_ = pPlaceholderEditingTarget;
       }
 
       public EditingTarget getEditingTarget(FileType type)
@@ -97,7 +100,15 @@ public interface EditingTargetSource
                                             final EditingTargetNameProvider defaultNameProvider)
       {
          final FileType type = getTypeFromDocument(registry_, document);
-         EditingTarget target = getEditingTarget(type);
+
+         // text documents restored without their contents get a lightweight
+         // placeholder, which fetches the contents when first activated
+         EditingTarget target;
+         if (document.isContentsDeferred() && type instanceof TextFileType)
+            target = pPlaceholderEditingTarget_.get();
+         else
+            target = getEditingTarget(type);
+
          target.initialize(column,
                            document,
                            fileContext,
@@ -114,5 +125,6 @@ public interface EditingTargetSource
       private final Provider<CodeBrowserEditingTarget> pCodeBrowserEditingTarget_;
       private final Provider<ProfilerEditingTarget> pProfilerEditingTarget_;
       private final Provider<ObjectExplorerEditingTarget> pObjectExplorerEditingTarget_;
+      private final Provider<PlaceholderEditingTarget> pPlaceholderEditingTarget_;
    }
 }
@@ -0,0 +1,570 @@
+/*
+ * PlaceholderEditingTarget.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.placeholder;
+
+import com.google.gwt.aria.client.Roles;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.event.logical.shared.CloseEvent;
+import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.gwt.event.shared.HandlerManager;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.HasValue;
+import com.google.gwt.user.client.ui.SimpleLayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.inject.Inject;
+
+import org.rstudio.core.client.CommandWithArg;
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.command.AppCommand;
+import org.rstudio.core.client.events.EnsureHeightEvent;
+import org.rstudio.core.client.events.EnsureVisibleEvent;
+import org.rstudio.core.client.files.FileSystemContext;
+import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.studio.client.common.ReadOnlyValue;
+import org.rstudio.studio.client.common.Value;
+import org.rstudio.studio.client.common.filetypes.FileIcon;
+import org.rstudio.studio.client.common.filetypes.FileType;
+import org.rstudio.studio.client.common.filetypes.TextFileType;
+import org.rstudio.studio.client.palette.model.CommandPaletteItem;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.workbench.views.source.SourceColumn;
+import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.EditingTargetSource.EditingTargetNameProvider;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.events.CollabEditStartParams;
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
+import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+// Stands in for a restored document whose contents were not sent with the
+// session (see SourceDocument.isContentsDeferred()). Only the document's
+// title, path and dirty state are kept; the first time the tab is activated
+// (or is navigated to) the contents are fetched and the placeholder is
+// replaced in its column by the document's real editing target.
+public class PlaceholderEditingTarget implements EditingTarget
+{
+   @Inject
+   public PlaceholderEditingTarget(SourceServerOperations server)
+   {
+      server_ = server;
+   }
+
+   public void materialize(CommandWithArg<EditingTarget> onMaterialized)
+   {
+      materialize(onMaterialized, null);
+   }
+
+   /**
+    * Fetches the document and replaces this placeholder with the document's
+    * real editing target.
+    *
+    * @param onMaterialized Invoked with the real target once it has been
+    *    created (may be null)
+    * @param onFailure Invoked if the real target can't be created, e.g.
+    *    because the document couldn't be fetched or the tab was closed
+    *    (may be null)
+    */
+   public void materialize(CommandWithArg<EditingTarget> onMaterialized,
+                           Command onFailure)
+   {
+      if (target_ != null)
+      {
+         if (onMaterialized != null)
+            onMaterialized.execute(target_);
+         return;
+      }
+
+      if (dismissed_)
+      {
+         if (onFailure != null)
+            onFailure.execute();
+         return;
+      }
+
+      if (onMaterialized != null)
+         pending_.add(onMaterialized);
+      if (onFailure != null)
+         pendingFailures_.add(onFailure);
+
+      if (requested_)
+         return;
+
+      requested_ = true;
+      server_.getSourceDocument(getId(), new ServerRequestCallback<SourceDocument>()
+      {
+         @Override
+         public void onResponseReceived(SourceDocument document)
+         {
+            if (dismissed_)
+               return;
+
+            target_ = column_.replaceTab(PlaceholderEditingTarget.this, document);
+            if (target_ == null)
+            {
+               requested_ = false;
+               failPending();
+               return;
+            }
+
+            if (initiallyLoaded_)
+               target_.onInitiallyLoaded();
+            if (focusPending_)
+               target_.focus();
+
+            ArrayList<CommandWithArg<EditingTarget>> pending =
+                  new ArrayList<CommandWithArg<EditingTarget>>(pending_);
+            pending_.clear();
+            pendingFailures_.clear();
+            for (CommandWithArg<EditingTarget> command : pending)
+               command.execute(target_);
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            Debug.logError(error);
+            requested_ = false;
+            failPending();
+         }
+      });
+   }
+
+   private void failPending()
+   {
+      ArrayList<Command> failures = new ArrayList<Command>(pendingFailures_);
+      pending_.clear();
+      pendingFailures_.clear();
+      for (Command command : failures)
+         command.execute();
+   }
+
+   @Override
+   public String getId()
+   {
+      return doc_.getId();
+   }
+
+   @Override
+   public HasValue<String> getName()
+   {
+      return name_;
+   }
+
+   @Override
+   public String getTitle()
+   {
+      return name_.getValue();
+   }
+
+   @Override
+   public String getPath()
+   {
+      return doc_.getPath();
+   }
+
+   /**
+    * Moves the placeholder to a new path, e.g. when its file is renamed
+    * before it has been loaded.
+    */
+   public void setPath(FileSystemItem file)
+   {
+      doc_.setPath(file.getPath());
+      name_.setValue(file.getName(), true);
+
+      // make sure the tab's tooltip is updated, even if the name hasn't
+      // changed
+      name_.fireChangeEvent();
+   }
+
+   @Override
+   public String getContext()
+   {
+      return null;
+   }
+
+   @Override
+   public FileIcon getIcon()
+   {
+      return fileType_.getDefaultFileIcon();
+   }
+
+   @Override
+   public String getTabTooltip()
+   {
+      return getPath();
+   }
+
+   @Override
+   public FileType getFileType()
+   {
+      return fileType_;
+   }
+
+   @Override
+   public TextFileType getTextFileType()
+   {
+      return fileType_;
+   }
+
+   @Override
+   public void adaptToExtendedFileType(String extendedType)
+   {
+   }
+
+   @Override
+   public String getExtendedFileType()
+   {
+      return doc_.getExtendedType();
+   }
+
+   @Override
+   public HashSet<AppCommand> getSupportedCommands()
+   {
+      return new HashSet<AppCommand>();
+   }
+
+   @Override
+   public void manageCommands()
+   {
+   }
+
+   @Override
+   public boolean canCompilePdf()
+   {
+      return false;
+   }
+
+   @Override
+   public void verifyCppPrerequisites()
+   {
+   }
+
+   @Override
+   public void verifyPythonPrerequisites()
+   {
+   }
+
+   @Override
+   public void verifyD3Prerequisites()
+   {
+   }
+
+   @Override
+   public void verifyNewSqlPrerequisites()
+   {
+   }
+
+   @Override
+   public void focus()
+   {
+      focusPending_ = true;
+   }
+
+   @Override
+   public void onActivate()
+   {
+      // every restored tab is briefly selected as it is added, so wait until
+      // restoring is done and materialize only if this tab is still active
+      active_ = true;
+      Scheduler.get().scheduleDeferred(() ->
+      {
+         if (active_)
+            materialize(null);
+      });
+   }
+
+   @Override
+   public void onDeactivate()
+   {
+      active_ = false;
+      focusPending_ = false;
+   }
+
+   @Override
+   public void onInitiallyLoaded()
+   {
+      initiallyLoaded_ = true;
+   }
+
+   @Override
+   public void recordCurrentNavigationPosition()
+   {
+   }
+
+   // navigation is deferred to the real target, which is created on demand
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent)
+   {
+      materialize(target -> target.navigateToPosition(position, recordCurrent));
+   }
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent,
+                                  boolean highlightLine)
+   {
+      materialize(target -> target.navigateToPosition(
+            position, recordCurrent, highlightLine));
+   }
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent,
+                                  boolean highlightLine,
+                                  boolean moveCursor,
+                                  Command onNavigationCompleted)
+   {
+      materialize(target -> target.navigateToPosition(
+            position, recordCurrent, highlightLine, moveCursor,
+            onNavigationCompleted));
+   }
+
+   @Override
+   public void restorePosition(SourcePosition position)
+   {
+      materialize(target -> target.restorePosition(position));
+   }
+
+   @Override
+   public SourcePosition currentPosition()
+   {
+      return null;
+   }
+
+   @Override
+   public boolean isAtSourceRow(SourcePosition position)
+   {
+      return false;
+   }
+
+   @Override
+   public void forceLineHighlighting()
+   {
+   }
+
+   @Override
+   public void setSourceOnSave(boolean sourceOnSave)
+   {
+      doc_.setSourceOnSave(sourceOnSave);
+   }
+
+   @Override
+   public void setCursorPosition(Position position)
+   {
+      materialize(target -> target.setCursorPosition(position));
+   }
+
+   @Override
+   public void ensureCursorVisible()
+   {
+   }
+
+   // a placeholder has no contents to search (callers that need to search
+   // a restored document load it first; see SourceColumnManager)
+
+   @Override
+   public Position search(String regex)
+   {
+      return null;
+   }
+
+   @Override
+   public Position search(Position startPos, String regex)
+   {
+      return null;
+   }
+
+   @Override
+   public void highlightDebugLocation(SourcePosition startPos,
+                                      SourcePosition endPos,
+                                      boolean executing)
+   {
+      materialize(target -> target.highlightDebugLocation(
+            startPos, endPos, executing));
+   }
+
+   @Override
+   public void endDebugHighlighting()
+   {
+   }
+
+   @Override
+   public void beginCollabSession(CollabEditStartParams params)
+   {
+      materialize(target -> target.beginCollabSession(params));
+   }
+
+   @Override
+   public void endCollabSession()
+   {
+   }
+
+   @Override
+   public boolean onBeforeDismiss()
+   {
+      return true;
+   }
+
+   @Override
+   public void onDismiss(int dismissType)
+   {
+      dismissed_ = true;
+      failPending();
+   }
+
+   @Override
+   public ReadOnlyValue<Boolean> dirtyState()
+   {
+      return dirtyState_;
+   }
+
+   @Override
+   public boolean isSaveCommandActive()
+   {
+      return dirtyState_.getValue();
+   }
+
+   @Override
+   public void forceSaveCommandActive()
+   {
+   }
+
+   @Override
+   public void save(Command onCompleted)
+   {
+      onCompleted.execute();
+   }
+
+   @Override
+   public void saveWithPrompt(Command onCompleted, Command onCancelled)
+   {
+      onCompleted.execute();
+   }
+
+   @Override
+   public void revertChanges(Command onCompleted)
+   {
+      onCompleted.execute();
+   }
+
+   @Override
+   public void initialize(SourceColumn column,
+                          SourceDocument document,
+                          FileSystemContext fileContext,
+                          FileType type,
+                          EditingTargetNameProvider defaultNameProvider)
+   {
+      column_ = column;
+      doc_ = document;
+      fileType_ = (TextFileType) type;
+      name_.setValue(FileSystemItem.getNameFromPath(document.getPath()), true);
+      dirtyState_.setValue(document.isDirty(), false);
+
+      panel_ = new SimpleLayoutPanel();
+      Roles.getTabpanelRole().set(panel_.getElement());
+      Roles.getTabpanelRole().setAriaLabelProperty(panel_.getElement(),
+                                                   name_.getValue());
+   }
+
+   @Override
+   public long getFileSizeLimit()
+   {
+      return Long.MAX_VALUE;
+   }
+
+   @Override
+   public long getLargeFileSize()
+   {
+      return Long.MAX_VALUE;
+   }
+
+   @Override
+   public String getDefaultNamePrefix()
+   {
+      return null;
+   }
+
+   @Override
+   public String getCurrentStatus()
+   {
+      return name_.getValue() + " loading";
+   }
+
+   @Override
+   public List<CommandPaletteItem> getCommandPaletteItems()
+   {
+      return new ArrayList<CommandPaletteItem>();
+   }
+
+   @Override
+   public Widget asWidget()
+   {
+      return panel_;
+   }
+
+   @Override
+   public HandlerRegistration addEnsureVisibleHandler(EnsureVisibleEvent.Handler handler)
+   {
+      return handlers_.addHandler(EnsureVisibleEvent.TYPE, handler);
+   }
+
+   @Override
+   public HandlerRegistration addEnsureHeightHandler(EnsureHeightEvent.Handler handler)
+   {
+      return handlers_.addHandler(EnsureHeightEvent.TYPE, handler);
+   }
+
+   @Override
+   public HandlerRegistration addCloseHandler(CloseHandler<Void> handler)
+   {
+      return handlers_.addHandler(CloseEvent.getType(), handler);
+   }
+
+   @Override
+   public void fireEvent(GwtEvent<?> event)
+   {
+      handlers_.fireEvent(event);
+   }
+
+   private SourceColumn column_;
+   private SourceDocument doc_;
+   private TextFileType fileType_;
+   private SimpleLayoutPanel panel_;
+   private EditingTarget target_;
+
+   private boolean active_ = false;
+   private boolean requested_ = false;
+   private boolean dismissed_ = false;
+   private boolean focusPending_ = false;
+   private boolean initiallyLoaded_ = false;
+
+   private final ArrayList<CommandWithArg<EditingTarget>> pending_ =
+         new ArrayList<CommandWithArg<EditingTarget>>();
+   private final ArrayList<Command> pendingFailures_ = new ArrayList<Command>();
+   private final Value<String> name_ = new Value<String>(null);
+   private final Value<Boolean> dirtyState_ = new Value<Boolean>(false);
+   private final HandlerManager handlers_ = new HandlerManager(this);
+
+   private final SourceServerOperations server_;
+}
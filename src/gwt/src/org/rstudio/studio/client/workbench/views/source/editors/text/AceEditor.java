@@ -1527,6 +1527,11 @@ public class AceEditor implements DocDisplay,
       return getSession().getDocument().getLength();
    }
 
+   public int getDroppedChangeCount()
+   {
+      return widget_.getDroppedChangeCount();
+   }
+
    @Override
    public int getPixelWidth()
    {
@@ -4195,6 +4200,14 @@ public class AceEditor implements DocDisplay,
       return getSession().getTokens(row);
    }
    
+   @Override
+   public String getTokenizerState(int row)
+   {
+      // states may be arrays (for modes with nested states); compare them
+      // as strings, as Ace does
+      return getSession().getState(row) + "";
+   }
+   
    @Override
    public TokenIterator createTokenIterator()
    {
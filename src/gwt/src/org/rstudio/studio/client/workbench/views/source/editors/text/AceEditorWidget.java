@@ -124,6 +124,7 @@ public class AceEditorWidget extends Composite
             if (inOnChangeHandler_)
             {
                Debug.log("Warning: ignoring recursive ACE change event");
+               droppedChangeCount_++;
                return;
             }
             inOnChangeHandler_ = true;
@@ -151,6 +152,8 @@ public class AceEditorWidget extends Composite
             }
             catch (Exception ex)
             {
+               // some handlers may not have seen the change
+               droppedChangeCount_++;
                Debug.log("Exception occurred during ACE change event: " + 
                          ex.getMessage());
             }
@@ -459,6 +462,15 @@ public class AceEditorWidget extends Composite
       toggleBreakpointAtPosition(Position.create(pos.getRow(), 0));
    }
    
+   /**
+    * @return The number of change events that were not (or not fully)
+    *    delivered as DocumentChangedEvents
+    */
+   public int getDroppedChangeCount()
+   {
+      return droppedChangeCount_;
+   }
+
    public AceEditorNative getEditor() {
       return editor_;
    }
@@ -1265,6 +1277,7 @@ public class AceEditorWidget extends Composite
    private final List<HandlerRegistration> aceEventHandlers_;
    private boolean initToEmptyString_ = true;
    private boolean inOnChangeHandler_ = false;
+   private int droppedChangeCount_ = 0;
    private boolean isRendered_ = false;
    private ArrayList<Breakpoint> breakpoints_ = new ArrayList<>();
    private ArrayList<AnchoredAceAnnotation> annotations_ = new ArrayList<>();
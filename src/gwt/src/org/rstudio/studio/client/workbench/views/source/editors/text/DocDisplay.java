@@ -330,6 +330,8 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    
    int getLength(int row);
    int getRowCount();
+   // increases whenever a change isn't delivered as a DocumentChangedEvent
+   int getDroppedChangeCount();
    String getLine(int row);
    int getPixelWidth();
    
@@ -362,6 +364,9 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    Token getTokenAt(int row, int column);
    Token getTokenAt(Position position);
    JsArray<Token> getTokens(int row);
+   // the tokenizer state at the end of the row (only meaningful for rows
+   // that have been tokenized)
+   String getTokenizerState(int row);
    
    TokenIterator createTokenIterator();
    TokenIterator createTokenIterator(Position position);
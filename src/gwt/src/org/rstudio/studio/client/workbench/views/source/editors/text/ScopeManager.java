@@ -36,6 +36,8 @@ public class ScopeManager
    public final native JsArray<Scope> getActiveScopes(Position position);
    public final native JsArray<Scope> getScopeList();
    public final native Position invalidateFrom(Position position);
+   public final native Position detachFrom(Position position, int lastRow, int delta);
+   public final native boolean reattach(int row);
    
    @JsOverlay
    public final Scope getScopeAt(Position position)
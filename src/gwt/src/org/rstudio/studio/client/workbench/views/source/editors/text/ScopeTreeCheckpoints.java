@@ -0,0 +1,78 @@
+/*
+ * ScopeTreeCheckpoints.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// The tokenizer states recorded at regularly spaced rows while building a
+// scope tree. A rebuild that reaches one of these rows in the same state
+// may have caught up with the previous parse.
+class ScopeTreeCheckpoints
+{
+   ScopeTreeCheckpoints(int interval)
+   {
+      interval_ = interval;
+   }
+
+   // Called when parsing moves from 'prevRow' to the start of 'row', where
+   // 'state' is the tokenizer state at the end of the row before it. Returns
+   // true if the previous parse recorded the same state for 'row'.
+   public boolean matches(int prevRow, int row, String state)
+   {
+      // rows without tokens were skipped, so their checkpoints (if any)
+      // weren't updated by this parse
+      for (int i = prevRow + 1; i < row; i++)
+         states_.remove(i);
+
+      String previous = states_.get(row);
+      return previous != null && previous.equals(state);
+   }
+
+   // Records the state at the start of 'row' for the next rebuild (if the
+   // row is a checkpoint), replacing any state left by the previous parse
+   public void record(int row, String state)
+   {
+      if (row % interval_ == 0)
+         states_.put(row, state);
+      else
+         states_.remove(row);
+   }
+
+   // Keeps checkpoints in step with an edit that replaced the rows from
+   // 'startRow' to 'oldLastRow' and added 'delta' rows
+   public void shift(int startRow, int oldLastRow, int delta)
+   {
+      if (states_.isEmpty())
+         return;
+
+      HashMap<Integer, String> shifted = new HashMap<>();
+      for (Map.Entry<Integer, String> entry : states_.entrySet())
+      {
+         int row = entry.getKey();
+         if (row <= startRow)
+            shifted.put(row, entry.getValue());
+         else if (row > oldLastRow)
+            shifted.put(row + delta, entry.getValue());
+      }
+      states_ = shifted;
+   }
+
+   // row => the tokenizer state at the start of that row, as of the
+   // previous parse
+   private HashMap<Integer, String> states_ = new HashMap<>();
+
+   private final int interval_;
+}
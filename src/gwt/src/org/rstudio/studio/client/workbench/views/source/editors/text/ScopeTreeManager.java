@@ -15,7 +15,9 @@
 package org.rstudio.studio.client.workbench.views.source.editors.text;
 
 import org.rstudio.studio.client.RStudioGinjector;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Range;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Token;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.TokenIterator;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.ActiveScopeChangedEvent;
@@ -23,6 +25,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.events.Curs
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.ScopeTreeReadyEvent;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.event.logical.shared.AttachEvent;
@@ -58,15 +61,7 @@ public abstract class ScopeTreeManager
             }),
             
             docDisplay.addDocumentChangedHandler((DocumentChangedEvent event) -> {
-               final Position position = event.getEvent().getRange().getStart();
-               Scheduler.get().scheduleDeferred(() -> {
-                  
-                  Position rebuildPos = scopeManager_.invalidateFrom(Position.create(position));
-                  if (rebuildPos == null)
-                     rebuildPos = position;
-                     
-                  worker_.rebuildScopeTreeFromRow(rebuildPos.getRow());
-               });
+               worker_.onDocumentChanged(event.getEvent());
             }),
             
             docDisplay.addCursorChangedHandler((CursorChangedEvent event) -> {
@@ -104,6 +99,17 @@ public abstract class ScopeTreeManager
          handler.removeHandler();
    }
    
+   // Builds the scope tree in time-limited slices, yielding between them
+   // so that long documents don't block input.
+   //
+   // After an edit, the scopes following the edit are detached rather than
+   // discarded, and the rebuild checks at checkpoint rows (where the
+   // tokenizer state from the previous parse was recorded) whether it has
+   // converged with the previous parse: i.e. whether it has passed the
+   // edited rows, the tokenizer state matches, and the same scopes are
+   // open. If so, the detached scopes are moved down to match the edit and
+   // restored, so the work done is proportional to the size of the edit
+   // rather than to the rest of the document.
    private class Worker
    {
       private Worker()
@@ -118,76 +124,148 @@ public abstract class ScopeTreeManager
          };
       }
       
-      public void rebuildScopeTreeFromRow(int row)
+      public void onDocumentChanged(AceDocumentChangeEventNative event)
+      {
+         Range range = event.getRange();
+         int startRow = range.getStart().getRow();
+         int endRow = range.getEnd().getRow();
+         boolean insert = "insert".equals(event.getAction());
+         int delta = insert ? endRow - startRow : startRow - endRow;
+         
+         // the last row touched by the change, as the document is now
+         int lastRow = insert ? endRow : startRow;
+         
+         checkpoints_.shift(startRow, lastRow - delta, delta);
+         
+         // changes are batched up until the rebuild runs
+         if (!changePending_)
+         {
+            changePending_ = true;
+            changeStart_ = Position.create(range.getStart());
+            changeLastRow_ = lastRow;
+            changeDelta_ = delta;
+            Scheduler.get().scheduleDeferred(() -> {
+               changePending_ = false;
+               Position rebuildPos = scopeManager_.detachFrom(
+                     changeStart_, changeLastRow_, changeDelta_);
+               if (rebuildPos == null)
+                  rebuildPos = changeStart_;
+               
+               rebuildScopeTreeFrom(rebuildPos);
+            });
+         }
+         else
+         {
+            if (range.getStart().isBefore(changeStart_))
+               changeStart_ = Position.create(range.getStart());
+            if (changeLastRow_ >= startRow)
+               changeLastRow_ += delta;
+            changeLastRow_ = Math.max(changeLastRow_, lastRow);
+            changeDelta_ += delta;
+         }
+      }
+      
+      public void rebuildScopeTreeFrom(Position position)
       {
-         startRow_ = row;
-         endRow_ = Math.min(docDisplay_.getRowCount(), startRow_ + ROWS_TOKENIZED_PER_ITERATION);
+         timer_.cancel();
+         position_ = position;
          work();
       }
       
-      private int work()
+      private void work()
       {
-         Position position = Position.create(startRow_ - 1, 0);
+         double deadline = Duration.currentTimeMillis() + SLICE_MS;
          
          // if editing near the start of the document, the token iterator may fail
          // to find any initial token. in that case, just step forward (this should
          // walk to the first token in the document)
          TokenIterator it = docDisplay_.createTokenIterator();
-         Token token = it.moveToPosition(position, true);
+         Token token = it.moveToPosition(position_, true);
          if (token == null)
             token = it.stepForward();
          
-         while (true)
+         int lastRow = -1;
+         while (token != null)
          {
-            // if we don't have a token, that implies we've reached the end of the document.
-            // notify listeners that we're done building the scope tree
-            if (token == null)
+            int row = it.getCurrentTokenRow();
+            if (lastRow != -1 && row != lastRow)
             {
-               // save the parse position (needed when invalidating rows as the document mutates)
-               scopeManager_.setParsePosition(Position.create(it.getCurrentTokenRow(), -1));
-               
-               // notify listeners that we have a scope tree + the current scope
-               JsArray<Scope> scopeTree = scopeManager_.getScopeList();
-               Scope currentScope = scopeManager_.getScopeAt(docDisplay_.getCursorPosition());
-               ScopeTreeReadyEvent event = new ScopeTreeReadyEvent(scopeTree, currentScope);
-               docDisplay_.fireEvent(event);
+               // we're at the start of a new row; if we've caught up with
+               // the previous parse, we're done with this rebuild
+               if (checkpoint(lastRow, row))
+               {
+                  Position parsePos = scopeManager_.getParsePosition();
+                  if (parsePos.getRow() >= docDisplay_.getRowCount())
+                  {
+                     onScopeTreeReady();
+                     return;
+                  }
+                  
+                  // the previous parse was itself incomplete; pick up
+                  // where it left off
+                  token = it.moveToPosition(Position.create(parsePos.getRow(), 0), true);
+                  lastRow = -1;
+                  continue;
+               }
                
-               // we're done!
-               return docDisplay_.getRowCount();
+               // yield if we've used up this slice
+               if (Duration.currentTimeMillis() > deadline)
+               {
+                  // save the parse position (needed when invalidating rows as the document mutates)
+                  scopeManager_.setParsePosition(Position.create(row, -1));
+                  position_ = Position.create(row, 0);
+                  timer_.schedule(DELAY_MS);
+                  return;
+               }
             }
-            
-            // if we've walked past the end row, bail
-            int row = it.getCurrentTokenRow();
-            if (row >= endRow_)
-               break;
+            lastRow = row;
             
             // let subclass respond to current token, and move forward
             onToken(token, it.getCurrentTokenPosition(), scopeManager_);
             token = it.stepForward();
          }
          
-         // save the parse position (needed when invalidating rows as the document mutates)
-         scopeManager_.setParsePosition(Position.create(it.getCurrentTokenRow(), -1));
-         
-         // if there are still rows to be tokenized in the document,
-         // schedule more work
-         if (startRow_ < docDisplay_.getRowCount())
-         {
-            startRow_ = it.getCurrentTokenRow();
-            endRow_ = Math.min(docDisplay_.getRowCount(), startRow_ + ROWS_TOKENIZED_PER_ITERATION);
-            timer_.schedule(DELAY_MS);
-         }
+         // we've reached the end of the document
+         scopeManager_.setParsePosition(Position.create(docDisplay_.getRowCount(), -1));
+         onScopeTreeReady();
+      }
+      
+      // Called when parsing moves from 'prevRow' to the start of 'row'.
+      // Returns true if the previous parse's scopes were restored.
+      private boolean checkpoint(int prevRow, int row)
+      {
+         String state = docDisplay_.getTokenizerState(row - 1);
+         if (checkpoints_.matches(prevRow, row, state) && scopeManager_.reattach(row))
+            return true;
          
-         return it.getCurrentTokenRow();
+         checkpoints_.record(row, state);
+         return false;
+      }
+      
+      private void onScopeTreeReady()
+      {
+         // notify listeners that we have a scope tree + the current scope
+         JsArray<Scope> scopeTree = scopeManager_.getScopeList();
+         Scope currentScope = scopeManager_.getScopeAt(docDisplay_.getCursorPosition());
+         ScopeTreeReadyEvent event = new ScopeTreeReadyEvent(scopeTree, currentScope);
+         docDisplay_.fireEvent(event);
       }
       
-      private int startRow_;
-      private int endRow_;
+      private Position position_;
+      
+      private boolean changePending_ = false;
+      private Position changeStart_;
+      private int changeLastRow_;
+      private int changeDelta_;
+      
+      private final ScopeTreeCheckpoints checkpoints_ =
+            new ScopeTreeCheckpoints(CHECKPOINT_ROWS);
       
       private final Timer timer_;
       
       private static final int DELAY_MS = 5;
-      private static final int ROWS_TOKENIZED_PER_ITERATION = 200;
+      private static final int SLICE_MS = 10;
+      private static final int CHECKPOINT_ROWS = 32;
    }
    
    protected Scope lastActiveScope_;
@@ -132,8 +132,7 @@ import org.rstudio.studio.client.workbench.ui.FontSizeManager;
 import org.rstudio.studio.client.workbench.views.console.events.SendToConsoleEvent;
 import org.rstudio.studio.client.workbench.views.console.shell.editor.InputEditorPosition;
 import org.rstudio.studio.client.workbench.views.console.shell.editor.InputEditorSelection;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeBatchEvent;
 import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 import org.rstudio.studio.client.workbench.views.help.events.ShowHelpEvent;
 import org.rstudio.studio.client.workbench.views.jobs.events.JobRunScriptEvent;
@@ -1791,16 +1790,27 @@ public class TextEditingTarget implements
             }
       ));
 
-      releaseOnDismiss_.add(events_.addHandler(FileChangeEvent.TYPE,
-                                               new FileChangeHandler() {
+      releaseOnDismiss_.add(events_.addHandler(FileChangeBatchEvent.TYPE,
+                                               new FileChangeBatchEvent.Handler() {
          @Override
-         public void onFileChange(FileChangeEvent event)
+         public void onFileChangeBatch(FileChangeBatchEvent event)
          {
             // screen out adds and events that aren't for our path
-            FileChange fileChange = event.getFileChange();
-            if (fileChange.getType() == FileChange.ADD)
-               return;
-            else if (!fileChange.getFile().getPath().equals(getPath()))
+            boolean changed = false;
+            boolean modified = false;
+            String path = getPath();
+            for (FileChange fileChange : event.getFileChanges())
+            {
+               if (fileChange.getType() == FileChange.ADD)
+                  continue;
+               else if (!fileChange.getFile().getPath().equals(path))
+                  continue;
+
+               changed = true;
+               modified |= fileChange.getType() == FileChange.MODIFIED;
+            }
+
+            if (!changed)
                return;
 
             // always check for changes if this is the active editor
@@ -1810,8 +1820,7 @@ public class TextEditingTarget implements
             // also check for changes on modifications if we are not dirty
             // note that we don't check for changes on removed files because
             // this will show a confirmation dialog
-            else if (event.getFileChange().getType() == FileChange.MODIFIED &&
-                     dirtyState().getValue() == false)
+            else if (modified && dirtyState().getValue() == false)
             {
                checkForExternalEdit();
             }
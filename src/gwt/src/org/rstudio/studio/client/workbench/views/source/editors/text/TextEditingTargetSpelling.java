@@ -16,7 +16,9 @@
 package org.rstudio.studio.client.workbench.views.source.editors.text;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.shared.GWT;
@@ -26,6 +28,7 @@ import com.google.gwt.resources.client.ClientBundle;
 import com.google.gwt.resources.client.ImageResource;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.MenuItem;
+import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.command.AppCommand;
 import org.rstudio.core.client.widget.ToolbarPopupMenu;
 import org.rstudio.studio.client.common.spelling.TypoSpellChecker;
@@ -57,6 +60,37 @@ public class TextEditingTargetSpelling extends SpellingContext
       lintManager_ = lintManager;
       prefs_ = prefs;
       injectContextMenuHandler();
+
+      // forget the rows an edit touched, and move the rows below it along
+      // with their text (rows whose tokenizer state changed as a result are
+      // caught when they're next checked)
+      releaseOnDismiss(docDisplay_.addDocumentChangedHandler((event) ->
+      {
+         Range range = event.getEvent().getRange();
+         int startRow = range.getStart().getRow();
+         int endRow = range.getEnd().getRow();
+         boolean insert = "insert".equals(event.getEvent().getAction());
+
+         if (startRow == endRow)
+         {
+            rows_.remove(startRow);
+            return;
+         }
+
+         int lastRow = insert ? startRow : endRow;
+         int delta = insert ? endRow - startRow : startRow - endRow;
+         HashMap<Integer, RowSpelling> rows = new HashMap<>();
+         for (Map.Entry<Integer, RowSpelling> entry : rows_.entrySet())
+         {
+            int row = entry.getKey();
+            if (row < startRow)
+               rows.put(row, entry.getValue());
+            else if (row > lastRow)
+               rows.put(row + delta, entry.getValue());
+         }
+         rows_.clear();
+         rows_.putAll(rows);
+      }));
    }
    
 
@@ -76,41 +110,85 @@ public class TextEditingTargetSpelling extends SpellingContext
          return lint;
       }
       
-      SpellingDoc spellingDoc = docDisplay_.getSpellingDoc();
-      
-      // only get tokens for the visible screen
-      Iterable<SpellingDoc.WordRange> wordSource = spellingDoc.getWords(
-         docDisplay_.indexFromPosition(Position.create(docDisplay_.getFirstVisibleRow(), 0)),
-         docDisplay_.indexFromPosition(Position.create(docDisplay_.getLastVisibleRow(), docDisplay_.getLength(docDisplay_.getLastVisibleRow()))));
+      // drop rows checked against an older dictionary or ignore list
+      int generation = typo().getVerdictGeneration();
+      if (generation != rowsGeneration_ || rows_.size() > MAX_CACHED_ROWS)
+      {
+         rows_.clear();
+         rowsGeneration_ = generation;
+      }
 
-      final ArrayList<SpellingDoc.WordRange> wordRanges = new ArrayList<>();
+      SpellingDoc spellingDoc = docDisplay_.getSpellingDoc();
       ArrayList<String> prefetchWords = new ArrayList<>();
-
-     
-      for (SpellingDoc.WordRange wordRange : wordSource)
+      int maxWords = prefs_.maxSpellcheckWords().getValue();
+      int checkedWords = 0;
+
+      // only check rows on the visible screen, reusing the results for rows
+      // that haven't changed since they were last checked. The tokenizer
+      // state flows down the document, so a row is also checked again when
+      // the state it starts in has changed (e.g. an edit above opened a
+      // string).
+      int lastRow = docDisplay_.getLastVisibleRow();
+      for (int row = docDisplay_.getFirstVisibleRow(); row <= lastRow; row++)
       {
-         if (!typo().shouldCheckSpelling(spellingDoc, wordRange))
-            continue;
-
-         wordRanges.add(wordRange);
-
-         // only check a certain number of words at once to not overwhelm the system
-         if (wordRanges.size() > prefs_.maxSpellcheckWords().getValue())
-            break;
+         String text = docDisplay_.getLine(row);
+         String state = row > 0 ? docDisplay_.getTokenizerState(row - 1) : "";
+         RowSpelling rowSpelling = rows_.get(row);
+         if (rowSpelling == null ||
+             !rowSpelling.text.equals(text) ||
+             !rowSpelling.state.equals(state))
+         {
+            // only check a certain number of words at once to not overwhelm the system
+            if (checkedWords > maxWords)
+               break;
 
-         String word = spellingDoc.getText(wordRange);
-         if (!typo().checkSpelling(word)) {
-            if (prefetchWords.size() < prefs_.maxSpellcheckPrefetch().getValue())
-               prefetchWords.add(word);
+            rowSpelling = new RowSpelling(text, state);
+            int rowStart = docDisplay_.indexFromPosition(Position.create(row, 0));
+            Iterable<SpellingDoc.WordRange> wordSource =
+                  spellingDoc.getWords(rowStart, rowStart + text.length());
+
+            boolean complete = true;
+            for (SpellingDoc.WordRange wordRange : wordSource)
+            {
+               if (!typo().shouldCheckSpelling(spellingDoc, wordRange))
+                  continue;
+
+               if (++checkedWords > maxWords)
+               {
+                  complete = false;
+                  break;
+               }
+
+               // words that haven't been checked yet are checked in the
+               // background, and the row is checked again once they have
+               String word = spellingDoc.getText(wordRange);
+               Boolean correct = typo().getVerdict(word);
+               if (correct == null)
+               {
+                  complete = false;
+               }
+               else if (!correct)
+               {
+                  if (prefetchWords.size() < prefs_.maxSpellcheckPrefetch().getValue())
+                     prefetchWords.add(word);
+
+                  rowSpelling.columns.add(wordRange.start - rowStart);
+                  rowSpelling.columns.add(wordRange.end - rowStart);
+               }
+            }
+
+            // a row that was cut short is checked again next time
+            if (complete)
+               rows_.put(row, rowSpelling);
+         }
 
-            Position wordStart = docDisplay_.positionFromIndex(wordRange.start);
-            Position wordEnd = docDisplay_.positionFromIndex(wordRange.end);
-            
+         for (int i = 0; i < rowSpelling.columns.size(); i += 2)
+         {
             lint.push(LintItem.create(
-               wordStart.getRow(),
-               wordStart.getColumn(),
-               wordEnd.getRow(),
-               wordEnd.getColumn(),
+               row,
+               rowSpelling.columns.get(i),
+               row,
+               rowSpelling.columns.get(i + 1),
                "Spellcheck",
                "spelling"));
          }
@@ -125,6 +203,7 @@ public class TextEditingTargetSpelling extends SpellingContext
    @Override
    public void invalidateAllWords()
    {
+      rows_.clear();
       docDisplay_.removeMarkers((a, m) -> a != null && a.text().toLowerCase().contains("spellcheck"));
       lintManager_.relintAfterDelay(LintManager.DEFAULT_LINT_DELAY);
    }
@@ -132,8 +211,15 @@ public class TextEditingTargetSpelling extends SpellingContext
    @Override
    public void invalidateWord(String word, boolean userDictionary)
    {
+      rows_.clear();
       docDisplay_.removeMarkersAtWord(word);
    }
+
+   @Override
+   public void onWordsChecked()
+   {
+      lintManager_.relintAfterDelay(LintManager.DEFAULT_LINT_DELAY);
+   }
    
 
    private void injectContextMenuHandler()
@@ -184,74 +270,94 @@ public class TextEditingTargetSpelling extends SpellingContext
             return;
          }
 
-         // final variables for lambdas
-         final String replaceWord = word;
-         final Range replaceRange = wordRange;
-
-         final ToolbarPopupMenu menu = new ToolbarPopupMenu();
-
-         String[] suggestions = typo().suggestionList(word);
-
          // We now know we're going to show our menu, stop default context menu
          event.preventDefault();
          event.stopPropagation();
 
-         int i = 0;
-         for (String suggestion : suggestions)
-         {
-            // Only show a limited number of suggestions
-            if (i >= MAX_SUGGESTIONS)
-               break;
+         // suggestions are generated off the UI thread, so show the menu
+         // once they arrive
+         final String replaceWord = word;
+         final Range replaceRange = wordRange;
+         final int clientX = event.getNativeEvent().getClientX();
+         final int clientY = event.getNativeEvent().getClientY();
+         typo().suggestionList(word, (suggestions) ->
+            showSpellingMenu(replaceWord, replaceRange, suggestions, clientX, clientY));
+      });
 
-            MenuItem suggestionItem = new MenuItem(
-               AppCommand.formatMenuLabel(null, suggestion, ""),
-               true,
-               () -> {
-                  docDisplay_.removeMarkersAtCursorPosition();
-                  docDisplay_.replaceRange(replaceRange, suggestion);
-                  lintManager_.relintAfterDelay(LintManager.DEFAULT_LINT_DELAY);
-               });
-
-            menu.addItem(suggestionItem);
-            i++;
-         }
+      // relint the viewport as the user scrolls around
+      docDisplay_.addScrollYHandler((event) -> lintManager_.relintAfterDelay(LintManager.DEFAULT_LINT_DELAY));
+   }
 
-         // Only add a separator if we have suggestions to separate from
-         if (suggestions.length > 0)
-            menu.addSeparator();
+   private void showSpellingMenu(final String replaceWord,
+                                 final Range replaceRange,
+                                 String[] suggestions,
+                                 final int clientX,
+                                 final int clientY)
+   {
+      // the document may have been edited while the suggestions were being
+      // generated
+      if (!isWordAt(replaceWord, replaceRange))
+         return;
 
-         MenuItem ignoreItem = new MenuItem(
-            AppCommand.formatMenuLabel(null, "Ignore word", ""),
+      final ToolbarPopupMenu menu = new ToolbarPopupMenu();
+
+      int i = 0;
+      for (String suggestion : suggestions)
+      {
+         // Only show a limited number of suggestions
+         if (i >= MAX_SUGGESTIONS)
+            break;
+
+         MenuItem suggestionItem = new MenuItem(
+            AppCommand.formatMenuLabel(null, suggestion, ""),
             true,
             () -> {
-               typo().addIgnoredWord(replaceWord);
+               if (!isWordAt(replaceWord, replaceRange))
+                  return;
                docDisplay_.removeMarkersAtCursorPosition();
+               docDisplay_.replaceRange(replaceRange, suggestion);
+               lintManager_.relintAfterDelay(LintManager.DEFAULT_LINT_DELAY);
             });
 
-         menu.addItem(ignoreItem);
+         menu.addItem(suggestionItem);
+         i++;
+      }
+
+      // Only add a separator if we have suggestions to separate from
+      if (suggestions.length > 0)
          menu.addSeparator();
 
-         MenuItem addToDictionaryItem = new MenuItem(
-            AppCommand.formatMenuLabel(RES.addToDictIcon(), "Add to user dictionary", ""),
-            true,
-            () -> {
-               typo().addToUserDictionary(replaceWord);
-               docDisplay_.removeMarkersAtCursorPosition();
-            });
+      MenuItem ignoreItem = new MenuItem(
+         AppCommand.formatMenuLabel(null, "Ignore word", ""),
+         true,
+         () -> {
+            typo().addIgnoredWord(replaceWord);
+            docDisplay_.removeMarkersAtCursorPosition();
+         });
 
-         menu.addItem(addToDictionaryItem);
+      menu.addItem(ignoreItem);
+      menu.addSeparator();
 
-         menu.setPopupPositionAndShow((offWidth, offHeight) -> {
-            int clientX = event.getNativeEvent().getClientX();
-            int clientY = event.getNativeEvent().getClientY();
-            int menuX = Math.min(clientX, Window.getClientWidth() - offWidth);
-            int menuY = Math.min(clientY, Window.getClientHeight() - offHeight);
-            menu.setPopupPosition(menuX, menuY);
+      MenuItem addToDictionaryItem = new MenuItem(
+         AppCommand.formatMenuLabel(RES.addToDictIcon(), "Add to user dictionary", ""),
+         true,
+         () -> {
+            typo().addToUserDictionary(replaceWord);
+            docDisplay_.removeMarkersAtCursorPosition();
          });
+
+      menu.addItem(addToDictionaryItem);
+
+      menu.setPopupPositionAndShow((offWidth, offHeight) -> {
+         int menuX = Math.min(clientX, Window.getClientWidth() - offWidth);
+         int menuY = Math.min(clientY, Window.getClientHeight() - offHeight);
+         menu.setPopupPosition(menuX, menuY);
       });
+   }
 
-      // relint the viewport as the user scrolls around
-      docDisplay_.addScrollYHandler((event) -> lintManager_.relintAfterDelay(LintManager.DEFAULT_LINT_DELAY));
+   private boolean isWordAt(String word, Range range)
+   {
+      return StringUtil.equals(docDisplay_.getTextForRange(range), word);
    }
 
    private static final Resources RES = GWT.create(Resources.class);
@@ -264,11 +370,31 @@ public class TextEditingTargetSpelling extends SpellingContext
       }
    }
 
+   // The misspelled words found on a row when it was last checked, as
+   // pairs of start and end columns, along with the row's text and the
+   // tokenizer state it started in
+   private static class RowSpelling
+   {
+      RowSpelling(String text, String state)
+      {
+         this.text = text;
+         this.state = state;
+      }
+
+      final String text;
+      final String state;
+      final ArrayList<Integer> columns = new ArrayList<>();
+   }
+
    private final static int MAX_SUGGESTIONS = 5;
+   private final static int MAX_CACHED_ROWS = 2000;
 
    private final DocDisplay docDisplay_;
    private final LintManager lintManager_;
    private final UserPrefs prefs_;
+
+   private final HashMap<Integer, RowSpelling> rows_ = new HashMap<>();
+   private int rowsGeneration_ = -1;
   
 
 }
@@ -16,17 +16,16 @@ package org.rstudio.studio.client.workbench.views.source.editors.text.ace;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.rstudio.core.client.BrowseCap;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.ListUtil;
-import org.rstudio.core.client.MapUtil;
-import org.rstudio.core.client.MapUtil.ForEachCommand;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.ListUtil.FilterPredicate;
 import org.rstudio.core.client.MouseTracker;
 import org.rstudio.core.client.command.KeyboardShortcut;
-import org.rstudio.core.client.container.SafeMap;
 import org.rstudio.core.client.dom.DomUtils;
 import org.rstudio.core.client.files.FileSystemItem;
 import org.rstudio.core.client.regex.Match;
@@ -47,6 +46,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.EditorModeChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.CommandClickEvent;
+import org.rstudio.studio.client.workbench.views.source.events.ScrollYEvent;
 
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
@@ -76,7 +76,8 @@ public class AceEditorBackgroundLinkHighlighter
             DocumentChangedEvent.Handler,
             EditorModeChangedEvent.Handler,
             MouseMoveHandler,
-            MouseUpHandler
+            MouseUpHandler,
+            ScrollYEvent.Handler
 {
    interface Highlighter
    {
@@ -102,23 +103,16 @@ public class AceEditorBackgroundLinkHighlighter
       RStudioGinjector.INSTANCE.injectMembers(this);
       
       editor_ = editor;
-      activeMarkers_ = new SafeMap<Integer, List<MarkerRegistration>>();
+      activeMarkers_ = new TreeMap<Integer, List<MarkerRegistration>>();
+      markerPool_ = new ArrayList<MarkerRegistration>();
       
-      nextHighlightStart_ = 0;
+      resetHighlightedRows();
       timer_ = new Timer()
       {
          @Override
          public void run()
          {
-            int n = editor_.getCurrentLineCount();
-            int startRow = nextHighlightStart_;
-            int endRow   = Math.min(nextHighlightStart_ + N_HIGHLIGHT_ROWS, n);
-            
-            for (int row = startRow; row < endRow; row++)
-               highlightRow(row);
-            
-            nextHighlightStart_ = endRow;
-            if (endRow != n)
+            if (highlightRows())
                timer_.schedule(5);
          }
       };
@@ -133,6 +127,7 @@ public class AceEditorBackgroundLinkHighlighter
       handlers_.add(editor_.addEditorModeChangedHandler(this));
       handlers_.add(editor_.addMouseMoveHandler(this));
       handlers_.add(editor_.addMouseUpHandler(this));
+      handlers_.add(editor_.addScrollYHandler(this));
       
       refreshHighlighters(editor_.getModeId());
    }
@@ -150,23 +145,107 @@ public class AceEditorBackgroundLinkHighlighter
             highlighters_.add(webLinkHighlighter());
             if (fileType != null && (fileType.isMarkdown() || fileType.isRmd()))
                highlighters_.add(markdownLinkHighlighter());
-            nextHighlightStart_ = 0;
+            resetHighlightedRows();
             timer_.schedule(700);
          }
       });
    }
    
+   private void resetHighlightedRows()
+   {
+      highlightStart_ = 0;
+      highlightEnd_ = 0;
+      dirtyStart_ = -1;
+      dirtyEnd_ = -1;
+   }
+   
+   // Highlights the next slice of rows. Rows in [highlightStart_,
+   // highlightEnd_) have already been highlighted; the range grows towards
+   // the target rows (the whole document, or just the rows around the
+   // viewport for large documents) a slice at a time. Returns true if there
+   // are more rows left to highlight.
+   private boolean highlightRows()
+   {
+      int n = editor_.getCurrentLineCount();
+      int targetStart = 0;
+      int targetEnd = n;
+      if (n > VIEWPORT_MODE_ROWS)
+      {
+         targetStart = Math.max(0, editor_.getFirstVisibleRow() - VIEWPORT_MARGIN_ROWS);
+         targetEnd = Math.min(n, editor_.getLastVisibleRow() + 1 + VIEWPORT_MARGIN_ROWS);
+         
+         // drop markers for rows that have scrolled out of range
+         clearMarkers(activeMarkers_.headMap(targetStart));
+         clearMarkers(activeMarkers_.tailMap(targetEnd));
+      }
+      
+      // keep only the highlighted rows that are still in range
+      highlightEnd_ = Math.min(highlightEnd_, n);
+      if (highlightEnd_ <= targetStart || highlightStart_ >= targetEnd ||
+          highlightStart_ >= highlightEnd_)
+      {
+         highlightStart_ = targetStart;
+         highlightEnd_ = targetStart;
+      }
+      else
+      {
+         highlightStart_ = Math.max(highlightStart_, targetStart);
+         highlightEnd_ = Math.min(highlightEnd_, targetEnd);
+      }
+      
+      // re-highlight edited rows
+      if (dirtyStart_ >= 0)
+      {
+         int startRow = Math.max(dirtyStart_, highlightStart_);
+         int endRow = Math.min(dirtyEnd_ + 1, highlightEnd_);
+         for (int row = startRow; row < endRow; row++)
+            rehighlightRow(row);
+         dirtyStart_ = -1;
+         dirtyEnd_ = -1;
+      }
+      
+      // extend the highlighted rows, below first and then above
+      if (highlightEnd_ < targetEnd)
+      {
+         int endRow = Math.min(highlightEnd_ + N_HIGHLIGHT_ROWS, targetEnd);
+         for (int row = highlightEnd_; row < endRow; row++)
+            highlightRow(row);
+         highlightEnd_ = endRow;
+      }
+      else if (highlightStart_ > targetStart)
+      {
+         int startRow = Math.max(highlightStart_ - N_HIGHLIGHT_ROWS, targetStart);
+         for (int row = startRow; row < highlightStart_; row++)
+            highlightRow(row);
+         highlightStart_ = startRow;
+      }
+      
+      return highlightStart_ > targetStart || highlightEnd_ < targetEnd;
+   }
+   
    private void highlightRow(int row)
    {
       for (Highlighter highlighter : highlighters_)
          highlighter.highlight(editor_, editor_.getLine(row), row);
    }
    
-   private void registerActiveMarker(int row,
-                                     String id,
-                                     int markerId,
-                                     final AnchoredRange range)
+   // Highlights an edited row, keeping the markers it already had for links
+   // that are still there and releasing the rest
+   private void rehighlightRow(int row)
+   {
+      rehighlightMarkers_ = activeMarkers_.remove(row);
+      highlightRow(row);
+      if (rehighlightMarkers_ != null)
+      {
+         for (MarkerRegistration marker : rehighlightMarkers_)
+            releaseMarker(marker);
+      }
+      rehighlightMarkers_ = null;
+   }
+   
+   private void registerActiveMarker(final MarkerRegistration newMarker)
    {
+      int row = newMarker.getRow();
       if (!activeMarkers_.containsKey(row))
          activeMarkers_.put(row, new ArrayList<MarkerRegistration>());
       List<MarkerRegistration> markers = activeMarkers_.get(row);
@@ -177,9 +256,9 @@ public class AceEditorBackgroundLinkHighlighter
          @Override
          public boolean test(MarkerRegistration marker)
          {
-            if (range.intersects(marker.getRange()))
+            if (newMarker.getRange().intersects(marker.getRange()))
             {
-               marker.detach();
+               releaseMarker(marker);
                return false;
             }
             return true;
@@ -187,10 +266,81 @@ public class AceEditorBackgroundLinkHighlighter
       });
       
       // add our new marker
-      filtered.add(new MarkerRegistration(id, markerId, range));
+      filtered.add(newMarker);
       activeMarkers_.put(row, filtered);
    }
    
+   private void addActiveMarker(MarkerRegistration marker)
+   {
+      int row = marker.getRow();
+      if (!activeMarkers_.containsKey(row))
+         activeMarkers_.put(row, new ArrayList<MarkerRegistration>());
+      activeMarkers_.get(row).add(marker);
+   }
+   
+   // Markers are filed under the row their range starts on. Inserting or
+   // removing lines moves the markers' anchors, so the entries for the rows
+   // below the edit are re-keyed to match; markers on removed lines end up
+   // on the edited row, which is re-highlighted anyway.
+   private void shiftMarkerRows(int row, int delta)
+   {
+      SortedMap<Integer, List<MarkerRegistration>> tail =
+            activeMarkers_.tailMap(row + 1);
+      if (tail.isEmpty())
+         return;
+      
+      List<Integer> rows = new ArrayList<Integer>(tail.keySet());
+      List<List<MarkerRegistration>> markers =
+            new ArrayList<List<MarkerRegistration>>(tail.values());
+      tail.clear();
+      
+      for (int i = 0; i < rows.size(); i++)
+      {
+         int newRow = Math.max(row, rows.get(i) + delta);
+         List<MarkerRegistration> existing = activeMarkers_.get(newRow);
+         if (existing == null)
+            activeMarkers_.put(newRow, markers.get(i));
+         else
+            existing.addAll(markers.get(i));
+      }
+   }
+   
+   private MarkerRegistration acquireMarker(Position start, Position end)
+   {
+      if (!markerPool_.isEmpty())
+      {
+         MarkerRegistration marker = markerPool_.remove(markerPool_.size() - 1);
+         marker.attach(start, end);
+         return marker;
+      }
+      
+      final String id = "ace_marker-" + StringUtil.makeRandomId(16);
+      final String styles = RES.styles().highlight() + " ace_marker " + id;
+      AnchoredRange anchoredRange = editor_.getSession().createAnchoredRange(start, end, true);
+      
+      final String title = BrowseCap.isMacintosh()
+            ? "Open Link (Command+Click)"
+            : "Open Link (Shift+Click)";
+      MarkerRenderer renderer =
+            MarkerRenderer.create(editor_.getWidget().getEditor(), styles, title);
+      
+      return new MarkerRegistration(id, styles, renderer, anchoredRange);
+   }
+   
+   private void releaseMarker(MarkerRegistration marker)
+   {
+      marker.detach();
+      if (markerPool_.size() < MAX_POOLED_MARKERS)
+         markerPool_.add(marker);
+   }
+   
+   // Adjusts a row index that follows an edit at 'row' which inserted or
+   // removed 'delta' rows
+   private static int shiftRow(int index, int row, int delta)
+   {
+      return index > row ? Math.max(row + 1, index + delta) : index;
+   }
+   
    private boolean isRequiredClickModifier(int modifier)
    {
       return BrowseCap.isMacintosh()
@@ -214,10 +364,10 @@ public class AceEditorBackgroundLinkHighlighter
    {
       Position position = editor_.screenCoordinatesToDocumentPosition(pageX, pageY);
       int row = position.getRow();
-      if (!activeMarkers_.containsKey(row))
+      List<MarkerRegistration> markers = activeMarkers_.get(row);
+      if (markers == null)
          return null;
       
-      List<MarkerRegistration> markers = activeMarkers_.get(row);
       for (MarkerRegistration marker : markers)
          if (marker.getRange().contains(position))
             return marker;
@@ -273,47 +423,15 @@ public class AceEditorBackgroundLinkHighlighter
    
    private void clearAllMarkers()
    {
-      MapUtil.forEach(activeMarkers_, new ForEachCommand<Integer, List<MarkerRegistration>>()
-      {
-         @Override
-         public void execute(Integer row, List<MarkerRegistration> markers)
-         {
-            for (MarkerRegistration marker : markers)
-               marker.detach();
-         }
-      });
-      activeMarkers_.clear();
+      clearMarkers(activeMarkers_);
    }
    
-   private void clearMarkers(final Range range)
+   private void clearMarkers(SortedMap<Integer, List<MarkerRegistration>> markers)
    {
-      for (int row = range.getStart().getRow();
-           row <= range.getEnd().getRow();
-           row++)
-      {
-         if (!activeMarkers_.containsKey(row))
-            continue;
-         
-         // clear markers that are included within this range
-         List<MarkerRegistration> markers = activeMarkers_.get(row);
-         List<MarkerRegistration> filtered = ListUtil.filter(markers, new FilterPredicate<MarkerRegistration>()
-         {
-            @Override
-            public boolean test(MarkerRegistration marker)
-            {
-               if (range.contains(marker.getRange()))
-               {
-                  marker.detach();
-                  return false;
-               }
-               
-               return true;
-            }
-         });
-         
-         // update active markers for this row
-         activeMarkers_.put(row, filtered);
-      }
+      for (List<MarkerRegistration> rowMarkers : markers.values())
+         for (MarkerRegistration marker : rowMarkers)
+            releaseMarker(marker);
+      markers.clear();
    }
    
    private void navigateToUrl(String url)
@@ -384,9 +502,22 @@ public class AceEditorBackgroundLinkHighlighter
       Position start = Position.create(row, startColumn);
       Position end   = Position.create(row, endColumn);
       Range range = Range.fromPoints(start, end);
-      if (activeMarkers_.containsKey(row))
+      if (rehighlightMarkers_ != null)
+      {
+         for (MarkerRegistration marker : rehighlightMarkers_)
+         {
+            if (marker.getRange().isEqualTo(range))
+            {
+               rehighlightMarkers_.remove(marker);
+               addActiveMarker(marker);
+               return;
+            }
+         }
+      }
+      
+      List<MarkerRegistration> markers = activeMarkers_.get(row);
+      if (markers != null)
       {
-         List<MarkerRegistration> markers = activeMarkers_.get(row);
          for (MarkerRegistration marker : markers)
          {
             if (marker.getRange().isEqualTo(range))
@@ -394,19 +525,7 @@ public class AceEditorBackgroundLinkHighlighter
          }
       }
 
-      // create an anchored range and add a marker for it
-      final String id = "ace_marker-" + StringUtil.makeRandomId(16);
-      final String styles = RES.styles().highlight() + " ace_marker " + id;
-      AnchoredRange anchoredRange = editor.getSession().createAnchoredRange(start, end, true);
-      
-      final String title = BrowseCap.isMacintosh()
-            ? "Open Link (Command+Click)"
-            : "Open Link (Shift+Click)";
-      MarkerRenderer renderer =
-            MarkerRenderer.create(editor.getWidget().getEditor(), styles, title);
-      
-      int markerId = editor.getSession().addMarker(anchoredRange, styles, renderer, true);
-      registerActiveMarker(row, id, markerId, anchoredRange);
+      registerActiveMarker(acquireMarker(start, end));
    }
    
    private Highlighter webLinkHighlighter()
@@ -575,39 +694,41 @@ public class AceEditorBackgroundLinkHighlighter
    @Override
    public void onDocumentChanged(DocumentChangedEvent event)
    {
-      // clear markers within the delete range
-      clearMarkers(event.getEvent().getRange());
-      
-      // prepare highlighter
-      int row = event.getEvent().getRange().getStart().getRow();
-      nextHighlightStart_ = Math.min(nextHighlightStart_, row);
-      timer_.schedule(700);
+      Range range = event.getEvent().getRange();
+      int row = range.getStart().getRow();
+      int endRow = range.getEnd().getRow();
+      boolean insert = "insert".equals(event.getEvent().getAction());
+      int delta = insert ? endRow - row : row - endRow;
       
-      // update marker positions (deferred so that anchors update)
-      Scheduler.get().scheduleDeferred(new ScheduledCommand()
+      // the markers' anchors move with the edit; shift their entries and the
+      // highlighted rows below the edit, rather than re-scanning them
+      if (delta != 0)
       {
-         @Override
-         public void execute()
+         shiftMarkerRows(row, delta);
+         highlightStart_ = shiftRow(highlightStart_, row, delta);
+         highlightEnd_ = shiftRow(highlightEnd_, row, delta);
+         if (dirtyStart_ >= 0)
          {
-            final SafeMap<Integer, List<MarkerRegistration>> newMarkers =
-                  new SafeMap<Integer, List<MarkerRegistration>>();
-            MapUtil.forEach(activeMarkers_, new ForEachCommand<Integer, List<MarkerRegistration>>()
-            {
-               @Override
-               public void execute(Integer oldRow, List<MarkerRegistration> markers)
-               {
-                  if (markers == null || markers.isEmpty())
-                     return;
-
-                  // all markers here should have same row
-                  int newRow = markers.get(0).getRange().getStart().getRow();
-                  newMarkers.put(newRow, markers);
-               }
-            });
-            activeMarkers_.clear();
-            activeMarkers_ = newMarkers;
+            dirtyStart_ = shiftRow(dirtyStart_, row, delta);
+            dirtyEnd_ = shiftRow(dirtyEnd_, row, delta);
          }
-      });
+      }
+      
+      // mark the edited rows for re-highlighting (which also clears the
+      // markers for links that were edited away)
+      int lastRow = insert ? endRow : row;
+      dirtyStart_ = dirtyStart_ < 0 ? row : Math.min(dirtyStart_, row);
+      dirtyEnd_ = Math.max(dirtyEnd_, lastRow);
+      timer_.schedule(700);
+   }
+   
+   @Override
+   public void onScrollY(ScrollYEvent event)
+   {
+      // highlight rows scrolled into view (only large documents are
+      // highlighted around the viewport rather than in full)
+      if (editor_.getCurrentLineCount() > VIEWPORT_MODE_ROWS)
+         timer_.schedule(50);
    }
    
    @Override
@@ -621,10 +742,10 @@ public class AceEditorBackgroundLinkHighlighter
    {
       Position position = event.getEvent().getDocumentPosition();
       int row = position.getRow();
-      if (!activeMarkers_.containsKey(row))
+      List<MarkerRegistration> markers = activeMarkers_.get(row);
+      if (markers == null)
          return;
       
-      List<MarkerRegistration> markers = activeMarkers_.get(row);
       for (MarkerRegistration registration : markers)
       {
          if (registration.getRange().contains(position))
@@ -751,11 +872,23 @@ public class AceEditorBackgroundLinkHighlighter
    
    private class MarkerRegistration
    {
-      public MarkerRegistration(String id, int markerId, AnchoredRange range)
+      public MarkerRegistration(String id,
+                                String styles,
+                                MarkerRenderer renderer,
+                                AnchoredRange range)
       {
          id_ = id;
-         markerId_ = markerId;
+         styles_ = styles;
+         renderer_ = renderer;
          range_ = range;
+         markerId_ = editor_.getSession().addMarker(range_, styles_, renderer_, true);
+      }
+      
+      // reuses a detached marker for a new range
+      public void attach(Position start, Position end)
+      {
+         range_.reattach(editor_.getSession().getDocument(), start, end);
+         markerId_ = editor_.getSession().addMarker(range_, styles_, renderer_, true);
       }
       
       public void detach()
@@ -779,9 +912,16 @@ public class AceEditorBackgroundLinkHighlighter
          return range_;
       }
       
+      public int getRow()
+      {
+         return range_.getStart().getRow();
+      }
+      
       private final String id_;
-      private final int markerId_;
+      private final String styles_;
+      private final MarkerRenderer renderer_;
       private final AnchoredRange range_;
+      private int markerId_;
    }
    
    private final AceEditor editor_;
@@ -789,10 +929,23 @@ public class AceEditorBackgroundLinkHighlighter
    private final Timer timer_;
    private final List<HandlerRegistration> handlers_;
    
-   private SafeMap<Integer, List<MarkerRegistration>> activeMarkers_;
-   private int nextHighlightStart_;
+   private final TreeMap<Integer, List<MarkerRegistration>> activeMarkers_;
+   private final List<MarkerRegistration> markerPool_;
+   private List<MarkerRegistration> rehighlightMarkers_;
+   private static final int MAX_POOLED_MARKERS = 200;
+   
+   // rows [highlightStart_, highlightEnd_) have been highlighted, and rows
+   // [dirtyStart_, dirtyEnd_] have been edited since (-1 if none)
+   private int highlightStart_;
+   private int highlightEnd_;
+   private int dirtyStart_;
+   private int dirtyEnd_;
    private static final int N_HIGHLIGHT_ROWS = 200;
    
+   // documents longer than this are only highlighted around the viewport
+   private static final int VIEWPORT_MODE_ROWS = 5000;
+   private static final int VIEWPORT_MARGIN_ROWS = 100;
+   
    private HandlerRegistration previewHandler_;
    private Element activeHighlightMarkerEl_;
    
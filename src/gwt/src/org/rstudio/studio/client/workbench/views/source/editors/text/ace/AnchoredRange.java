@@ -24,4 +24,14 @@ public class AnchoredRange extends Range
       if (this.end && this.end.detach)
          this.end.detach();
    }-*/;
+   
+   // Re-attaches a detached range to the document at a new position
+   public final native void reattach(Document document,
+                                     Position start,
+                                     Position end) /*-{
+      this.start.attach(document);
+      this.start.setPosition(start.row, start.column);
+      this.end.attach(document);
+      this.end.setPosition(end.row, end.column);
+   }-*/;
 }
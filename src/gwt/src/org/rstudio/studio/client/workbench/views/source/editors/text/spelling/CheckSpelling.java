@@ -326,13 +326,19 @@ public class CheckSpelling
             // the legacy code can be removed.
             if (TypoSpellChecker.isLoaded())
             {
-               String[] suggestions = typoSpellChecker_.suggestionList(word);
-               view_.setSuggestions(suggestions);
-               if (suggestions.length > 0)
+               typoSpellChecker_.suggestionList(word, (String[] suggestions) ->
                {
-                  view_.getReplacement().setText(suggestions[0]);
-                  view_.focusReplacement();
-               }
+                  // ignore suggestions for a word we've since moved past
+                  if (!word.equals(view_.getMisspelledWord().getText()))
+                     return;
+
+                  view_.setSuggestions(suggestions);
+                  if (suggestions.length > 0)
+                  {
+                     view_.getReplacement().setText(suggestions[0]);
+                     view_.focusReplacement();
+                  }
+               });
             }
             else
             {
@@ -34,8 +34,7 @@ import org.rstudio.studio.client.workbench.WorkbenchContext;
 import org.rstudio.studio.client.workbench.model.BlogdownConfig;
 import org.rstudio.studio.client.workbench.model.Session;
 import org.rstudio.studio.client.workbench.model.SessionInfo;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeBatchEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ImagePreviewer;
 import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.events.XRefNavigationEvent;
@@ -75,12 +74,14 @@ public class VisualModePanmirrorContext
       events_ = events;
       
       // notify watchers of file changes
-      events.addHandler(FileChangeEvent.TYPE, new FileChangeHandler() {
+      events.addHandler(FileChangeBatchEvent.TYPE, new FileChangeBatchEvent.Handler() {
          @Override
-         public void onFileChange(FileChangeEvent event)
+         public void onFileChangeBatch(FileChangeBatchEvent event)
          {
-            fileWatchers_.forEach(fileWatcher -> {
-               fileWatcher.onFileChanged(event.getFileChange().getFile());
+            event.getFileChanges().forEach(fileChange -> {
+               fileWatchers_.forEach(fileWatcher -> {
+                  fileWatcher.onFileChanged(fileChange.getFile());
+               });
             }); 
          }
       });
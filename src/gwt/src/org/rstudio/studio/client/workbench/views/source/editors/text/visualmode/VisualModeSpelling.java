@@ -294,6 +294,14 @@ public class VisualModeSpelling extends SpellingContext
       if (userDictionary)
          eventBus_.fireEvent(new VisualModeSpellingAddToDictionaryEvent(word));
    }
+
+   @Override
+   public void onWordsChecked()
+   {
+      // words reported as correct while their verdicts were pending may
+      // turn out to be misspelled
+      context_.invalidateAllWords();
+   }
    
    private final DocDisplay docDisplay_;
    private final Context context_;
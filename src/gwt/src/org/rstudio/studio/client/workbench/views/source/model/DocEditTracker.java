@@ -0,0 +1,190 @@
+/*
+ * DocEditTracker.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+import org.rstudio.core.client.patch.MultiHunkDiff;
+import org.rstudio.core.client.patch.SubstringDiff;
+import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+
+// Tracks which lines of a document have been edited since some base version
+// of its contents, as a run of untouched lines at the start of the document
+// and a run of untouched lines at the end. Everything between the two runs
+// is treated as changed, which lets a save patch be built from just those
+// lines rather than by diffing the full contents.
+//
+// A tracker that is not valid has no known relationship to the base (e.g.
+// because it was created before the editor and base were known to match);
+// callers must fall back to a full diff in that case.
+public class DocEditTracker
+{
+   // Creates an invalid tracker
+   public DocEditTracker()
+   {
+      valid_ = false;
+   }
+
+   // Creates a tracker for a document that currently matches its base
+   public DocEditTracker(int rowCount)
+   {
+      valid_ = true;
+      rowCount_ = rowCount;
+   }
+
+   public boolean isValid()
+   {
+      return valid_;
+   }
+
+   public void invalidate()
+   {
+      valid_ = false;
+   }
+
+   public void onDocumentChanged(AceDocumentChangeEventNative event)
+   {
+      if (!valid_)
+         return;
+
+      int startRow = event.getRange().getStart().getRow();
+      int endRow = event.getRange().getEnd().getRow();
+      boolean insert = "insert".equals(event.getAction());
+
+      rowCount_ += insert ? endRow - startRow : startRow - endRow;
+
+      // the last row touched by the change, as the document is now
+      int lastRow = insert ? endRow : startRow;
+      int rowsAfter = rowCount_ - 1 - lastRow;
+      if (rowsAfter < 0)
+      {
+         invalidate();
+         return;
+      }
+
+      if (!dirty_)
+      {
+         headRows_ = startRow;
+         tailRows_ = rowsAfter;
+         dirty_ = true;
+      }
+      else
+      {
+         headRows_ = Math.min(headRows_, startRow);
+         tailRows_ = Math.min(tailRows_, rowsAfter);
+      }
+   }
+
+   /**
+    * Builds the patch that turns the base contents into the document's
+    * current contents.
+    *
+    * @param base The base contents the edits were tracked against
+    * @param baseUtf8Length The UTF-8 length of base, or -1 if unknown
+    * @param docDisplay The document
+    * @return The patch (whose getNewValue() is the current contents), or
+    *    null if the tracked edits can't be used; the current contents
+    *    themselves are not read
+    */
+   public SubstringDiff createDiff(String base,
+                                   int baseUtf8Length,
+                                   DocDisplay docDisplay)
+   {
+      if (!valid_)
+         return null;
+
+      // a change event we didn't see (e.g. a suppressed recursive event)
+      // would leave the row count out of step
+      int rows = docDisplay.getRowCount();
+      if (rows != rowCount_)
+         return null;
+
+      if (!dirty_)
+         return new SubstringDiff(base, 0, 0, "", 0, 0);
+
+      if (headRows_ + tailRows_ >= rows)
+         return null;
+
+      // find the changed lines in the base contents
+      int oldStart = 0;
+      for (int i = 0; i < headRows_; i++)
+      {
+         int newline = base.indexOf('\n', oldStart);
+         if (newline < 0)
+            return null;
+         oldStart = newline + 1;
+      }
+
+      int oldEnd = base.length();
+      for (int i = 0; i < tailRows_; i++)
+      {
+         int newline = base.lastIndexOf('\n', oldEnd - 1);
+         if (newline < 0)
+            return null;
+         oldEnd = newline;
+      }
+      if (tailRows_ > 0)
+         oldEnd++;
+
+      if (oldStart > oldEnd)
+         return null;
+
+      // and their replacement in the document
+      Position start = Position.create(headRows_, 0);
+      Position end = tailRows_ > 0 ?
+            Position.create(rows - tailRows_, 0) :
+            Position.create(rows - 1, docDisplay.getLine(rows - 1).length());
+      String replacement = docDisplay.getCode(start, end);
+
+      // edits that were later undone
+      if (replacement.equals(base.substring(oldStart, oldEnd)))
+         return new SubstringDiff(base, 0, 0, "", 0, 0);
+
+      // offsets are sent in UTF-8 bytes; when the base's length is known,
+      // only the shorter of the head and tail needs to be measured
+      int length = SubstringDiff.utf8Length(base, oldStart, oldEnd);
+      int offset;
+      if (baseUtf8Length >= 0 && base.length() - oldEnd < oldStart)
+      {
+         offset = baseUtf8Length - length -
+                  SubstringDiff.utf8Length(base, oldEnd, base.length());
+      }
+      else
+      {
+         offset = SubstringDiff.utf8Length(base, 0, oldStart);
+      }
+
+      // edits far apart (e.g. at the top and bottom of the document) are
+      // sent as separate hunks rather than as everything in between
+      MultiHunkDiff hunks = null;
+      if (replacement.length() + oldEnd - oldStart >= SPLIT_THRESHOLD)
+      {
+         hunks = MultiHunkDiff.create(base, oldStart, oldEnd, offset, replacement);
+         if (hunks.getHunkCount() < 2)
+            hunks = null;
+      }
+
+      return new SubstringDiff(base, oldStart, oldEnd, replacement,
+                               offset, length, hunks);
+   }
+
+   private static final int SPLIT_THRESHOLD = 4096;
+
+   private boolean valid_;
+   private boolean dirty_ = false;
+   private int rowCount_;
+   private int headRows_;
+   private int tailRows_;
+}
@@ -48,6 +48,7 @@ import org.rstudio.studio.client.workbench.prefs.model.UserPrefs;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.editors.text.Fold;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.VimMarks;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.FoldChangeEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.SourceOnSaveChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.rmd.ChunkDefinition;
@@ -55,12 +56,14 @@ import org.rstudio.studio.client.workbench.views.source.events.SaveFailedEvent;
 import org.rstudio.studio.client.workbench.views.source.events.SaveFileEvent;
 import org.rstudio.studio.client.workbench.views.source.events.SaveInitiatedEvent;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
 public class DocUpdateSentinel
       implements ValueChangeHandler<Void>,
-      FoldChangeEvent.Handler
+      FoldChangeEvent.Handler,
+      DocumentChangedEvent.Handler
 {
    private class ReopenFileCallback extends ServerRequestCallback<SourceDocument>
    {
@@ -80,6 +83,7 @@ public class DocUpdateSentinel
       {
          sourceDoc_ = response;
          docDisplay_.setCode(sourceDoc_.getContents(), true);
+         invalidateEdits();
          dirtyState_.markClean();
 
          if (progress_ != null)
@@ -130,6 +134,7 @@ public class DocUpdateSentinel
       eventBus_ = events;
       prefs_ = prefs;
       changeTracker_ = docDisplay.getChangeTracker();
+      droppedChangeCount_ = docDisplay.getDroppedChangeCount();
       propertyChangeHandlers_ =
             new HashMap<String, ValueChangeHandlerManager<String>>();
 
@@ -161,6 +166,7 @@ public class DocUpdateSentinel
 
       docDisplay_.addValueChangeHandler(this);
       docDisplay_.addFoldChangeHandler(this);
+      docDisplay_.addDocumentChangedHandler(this);
 
       // Web only
       if (!Desktop.isDesktop())
@@ -454,8 +460,27 @@ public class DocUpdateSentinel
          actually sent to the server. */
       final ChangeTracker thisChangeTracker = changeTracker_.fork();
 
-      final String newContents = docDisplay_.getCode();
+      // Build the patch from the lines edited since the last acknowledged
+      // save when we can; otherwise diff the full contents. The server only
+      // checks the hash of the contents the patch applies to, so a patch
+      // built from tracked edits is only used if it reproduces the editor's
+      // contents exactly (an edit within a line could have been missed).
+      checkDroppedChanges();
       String oldContents = sourceDoc_.getContents();
+      final String newContents = docDisplay_.getCode();
+      SubstringDiff diff = editsSinceSave_.createDiff(oldContents,
+                                                      getSavedUtf8Length(),
+                                                      docDisplay_);
+      if (diff != null && !diff.getNewValue().equals(newContents))
+      {
+         Debug.log("Tracked edits don't match the document; diffing " +
+                   "the full contents");
+         invalidateEdits();
+         diff = null;
+      }
+      if (diff == null)
+         diff = new SubstringDiff(oldContents, newContents);
+
       final String hash = sourceDoc_.getHash();
 
       final String foldSpec = Fold.encode(Fold.flatten(docDisplay_.getFolds()));
@@ -465,8 +490,6 @@ public class DocUpdateSentinel
       JsArray<ChunkDefinition> oldChunkDefs =
             sourceDoc_.getNotebookDoc().getChunkDefs();
 
-      SubstringDiff diff = new SubstringDiff(oldContents, newContents);
-
       // Don't auto-save when there are no changes. In addition to being
       // wasteful, it causes the server to think the document is dirty.
       if (path == null && fileType == null && diff.isValid() && diff.isEmpty()
@@ -492,6 +515,17 @@ public class DocUpdateSentinel
       }
 
 
+      // Edits made while this save is in flight are tracked against the
+      // contents being sent, in case it succeeds
+      final DocEditTracker editsSinceThisSave =
+            new DocEditTracker(docDisplay_.getRowCount());
+      inFlightEdits_.add(editsSinceThisSave);
+      final int newUtf8Length = savedUtf8Length_ >= 0 && diff.isValid() ?
+            savedUtf8Length_ - diff.getLength() +
+               SubstringDiff.utf8Length(diff.getReplacement(), 0,
+                                        diff.getReplacement().length()) :
+            -1;
+
       try
       {
          if (path != null)
@@ -517,6 +551,7 @@ public class DocUpdateSentinel
             diff.getLength(),
             diff.isValid(),
             hash,
+            diff.getHunks(),
             new ServerRequestCallback<String>()
             {
                @Override
@@ -548,6 +583,7 @@ public class DocUpdateSentinel
                      Debug.logException(e);
                   }
 
+                  inFlightEdits_.remove(editsSinceThisSave);
                   changesPending_ = false;
                }
 
@@ -574,6 +610,7 @@ public class DocUpdateSentinel
                                            path,
                                            fileType,
                                            encoding);
+                        onEditsSaved(editsSinceThisSave, newUtf8Length);
                      }
                      catch(Exception ex)
                      {
@@ -594,6 +631,7 @@ public class DocUpdateSentinel
                   {
                      // We just hit a race condition where two updates
                      // happened at once. Try again
+                     inFlightEdits_.remove(editsSinceThisSave);
                      doSave(path, fileType, encoding, progress);
                   }
                   else
@@ -616,6 +654,52 @@ public class DocUpdateSentinel
       return true;
    }
 
+   // The save that started editsSinceSave has been acknowledged, so edits
+   // are now tracked against the contents it sent
+   private void onEditsSaved(DocEditTracker editsSinceSave, int utf8Length)
+   {
+      int index = inFlightEdits_.indexOf(editsSinceSave);
+      if (index < 0)
+      {
+         invalidateEdits();
+         return;
+      }
+
+      // saves that were started earlier can no longer succeed
+      inFlightEdits_.subList(0, index + 1).clear();
+      editsSinceSave_ = editsSinceSave;
+      savedUtf8Length_ = utf8Length;
+   }
+
+   private void invalidateEdits()
+   {
+      editsSinceSave_.invalidate();
+      for (DocEditTracker edits : inFlightEdits_)
+         edits.invalidate();
+      savedUtf8Length_ = -1;
+   }
+
+   // Edits can't be tracked across a change we weren't told about
+   private void checkDroppedChanges()
+   {
+      int dropped = docDisplay_.getDroppedChangeCount();
+      if (dropped != droppedChangeCount_)
+      {
+         droppedChangeCount_ = dropped;
+         invalidateEdits();
+      }
+   }
+
+   private int getSavedUtf8Length()
+   {
+      if (savedUtf8Length_ < 0 && editsSinceSave_.isValid())
+      {
+         String contents = sourceDoc_.getContents();
+         savedUtf8Length_ = SubstringDiff.utf8Length(contents, 0, contents.length());
+      }
+      return savedUtf8Length_;
+   }
+
    private void onSuccessfulUpdate(String contents,
                                    String hash,
                                    String path,
@@ -809,6 +893,15 @@ public class DocUpdateSentinel
          autosaver_.nudge();
    }
 
+   @Override
+   public void onDocumentChanged(DocumentChangedEvent event)
+   {
+      checkDroppedChanges();
+      editsSinceSave_.onDocumentChanged(event.getEvent());
+      for (DocEditTracker edits : inFlightEdits_)
+         edits.onDocumentChanged(event.getEvent());
+   }
+
    @Override
    public void onFoldChange(FoldChangeEvent event)
    {
@@ -933,6 +1026,15 @@ public class DocUpdateSentinel
                  propertyChangeHandlers_;
    private boolean loggedAutosaveError_ = false;
 
+   // Edits since the contents in sourceDoc_ were saved (invalid until the
+   // first save establishes that the editor and sourceDoc_ agree), and
+   // edits since each save that hasn't been acknowledged yet
+   private DocEditTracker editsSinceSave_ = new DocEditTracker();
+   private int droppedChangeCount_;
+   private final ArrayList<DocEditTracker> inFlightEdits_ =
+         new ArrayList<DocEditTracker>();
+   private int savedUtf8Length_ = -1;
+
    public final static String PROPERTY_TRUE = "true";
    public final static String PROPERTY_FALSE = "false";
 
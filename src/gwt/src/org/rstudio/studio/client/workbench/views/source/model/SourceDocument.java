@@ -79,6 +79,14 @@ public class SourceDocument extends JavaScriptObject
       this.contents = contents;
    }-*/;
 
+   /**
+    * True if the contents were left out when the document was sent (as for
+    * saved documents restored at startup) and must be fetched separately.
+    */
+   public native final boolean isContentsDeferred() /*-{
+      return !!this.contents_deferred;
+   }-*/;
+
    /**
     * True if changes have been saved to the ID that have not been persisted
     * to the file.
@@ -18,6 +18,7 @@ import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
 
 import org.rstudio.core.client.js.JsObject;
+import org.rstudio.core.client.patch.MultiHunkDiff;
 import org.rstudio.studio.client.common.codetools.CodeToolsServerOperations;
 import org.rstudio.studio.client.common.crypto.CryptoServerOperations;
 import org.rstudio.studio.client.events.GetEditorContextEvent;
@@ -110,6 +111,11 @@ public interface SourceServerOperations extends FilesServerOperations,
     * Note in particular that the semantics for the path parameter is the
     * same as saveDocument.
     *
+    * If hunks is non-null, its hunks are applied instead of the single
+    * replacement, and the replacement, offset and length are sent empty
+    * (the client and session are always built together, so the session
+    * is known to understand hunks).
+    *
     * If the return value is null, the save failed for some reason and
     * saveDocument() should be used as a fallback. If the return value is
     * non-null, it is the hash value of the new contents.
@@ -125,6 +131,7 @@ public interface SourceServerOperations extends FilesServerOperations,
                          int length,
                          boolean valid,
                          String hash,
+                         MultiHunkDiff hunks,
                          ServerRequestCallback<String> requestCallback);
 
    void checkForExternalEdit(
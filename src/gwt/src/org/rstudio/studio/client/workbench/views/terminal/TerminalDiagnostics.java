@@ -40,7 +40,71 @@ public class TerminalDiagnostics
    public void resetLog()
    {
       diagnostic_ = null;
+      inputChunks_ = 0;
+      inputChars_ = 0;
+      inputMillis_ = 0;
+      inputRoundTripTotal_ = 0;
+      inputRoundTripMax_ = 0;
+      inputRoundTrip_ = 0;
+   }
+
+   /**
+    * Record an acknowledged chunk of user input.
+    * @param chars length of the chunk
+    * @param roundTripMillis time from sending the chunk to its acknowledgement
+    * @param busyMillis time elapsed with input in flight since the previous
+    *                   acknowledgement (or since input started being sent)
+    */
+   public void recordInput(int chars, double roundTripMillis, double busyMillis)
+   {
+      inputChunks_++;
+      inputChars_ += chars;
+      inputMillis_ += busyMillis;
+      inputRoundTripTotal_ += roundTripMillis;
+      inputRoundTripMax_ = Math.max(inputRoundTripMax_, roundTripMillis);
+
+      // smoothed as for TCP's SRTT
+      if (inputChunks_ == 1)
+         inputRoundTrip_ = roundTripMillis;
+      else
+         inputRoundTrip_ = 0.875 * inputRoundTrip_ + 0.125 * roundTripMillis;
+   }
+
+   /**
+    * @return smoothed input round-trip time in milliseconds, or 0 if no
+    *         input has been acknowledged yet
+    */
+   public double getInputRoundTrip()
+   {
+      return inputRoundTrip_;
+   }
+
+   public String getInputStatistics()
+   {
+      if (inputChunks_ == 0)
+         return("<none>\n");
+
+      StringBuilder stats = new StringBuilder();
+      stats.append("Chunks:      '").append(inputChunks_).append("'\n");
+      stats.append("Characters:  '").append(inputChars_).append("'\n");
+      stats.append("Round trip:  'avg=").append(Math.round(inputRoundTripTotal_ / inputChunks_))
+           .append("ms/smoothed=").append(Math.round(inputRoundTrip_))
+           .append("ms/max=").append(Math.round(inputRoundTripMax_)).append("ms'\n");
+      if (inputMillis_ > 0)
+      {
+         stats.append("Throughput:  '")
+              .append(Math.round(inputChars_ * 1000 / inputMillis_))
+              .append(" chars/sec'\n");
+      }
+      return stats.toString();
    }
 
    private StringBuilder diagnostic_;
+
+   private int inputChunks_;
+   private double inputChars_;
+   private double inputMillis_;
+   private double inputRoundTripTotal_;
+   private double inputRoundTripMax_;
+   private double inputRoundTrip_;
 }
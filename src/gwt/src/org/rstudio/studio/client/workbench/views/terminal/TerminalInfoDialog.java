@@ -87,6 +87,9 @@ public class TerminalInfoDialog extends ModalDialogBase
          diagnostics.append("\nConnection Information\n----------------------\n");
          diagnostics.append(session.getSocket().getConnectionDiagnostics());
 
+         diagnostics.append("\nInput Throughput\n----------------\n");
+         diagnostics.append(session.getSocket().getInputDiagnostics());
+
          diagnostics.append("\nLocal-echo Match Failures\n-------------------------\n");
          if (!localEchoEnabled)
             diagnostics.append("<Not applicable>\n");
@@ -25,7 +25,6 @@ import org.rstudio.core.client.HandlerRegistrations;
 import org.rstudio.core.client.ResultCallback;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.studio.client.RStudioGinjector;
-import org.rstudio.studio.client.application.Desktop;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.application.events.SessionSerializationEvent;
 import org.rstudio.studio.client.application.events.ThemeChangedEvent;
@@ -264,12 +263,16 @@ public class TerminalSession extends XTermWidget
    {
       inputQueue_.setLength(0);
       inputSequence_ = ShellInput.IGNORE_SEQUENCE;
+      inputInFlight_ = 0;
+      inputGeneration_++;
+      flushInputPending_ = false;
       socket_.disconnect(permanent);
       registrations_.removeHandler();
       consoleProcess_ = null;
       connected_ = false;
       connecting_ = false;
       restartSequenceWritten_ = false;
+      bufferReload_ = null;
       setNotReloading();
       deferredOutput_.clear();
    }
@@ -390,63 +393,117 @@ public class TerminalSession extends XTermWidget
     * Send user input to the server, breaking down into chunks. We do this
     * for when a large amount of text is pasted into the terminal; we don't
     * want to overwhelm the RPC.
+    *
+    * Over RPC, several chunks may be in flight at once (the server puts them
+    * back in order using their sequence numbers), and chunks get larger as
+    * the measured round-trip time grows, so that a large paste over a slow
+    * connection isn't limited to one small chunk per round trip.
     */
    private void sendUserInput()
    {
-      final int MAXCHUNK = 128;
-      String userInput;
+      while (inputQueue_.length() > 0 && canSendInput())
+      {
+         int chunkSize = inputChunkSize();
+         String userInput;
+         if (inputQueue_.length() > chunkSize)
+         {
+            userInput = inputQueue_.substring(0, chunkSize);
+            inputQueue_.delete(0, chunkSize);
+         }
+         else
+         {
+            userInput = inputQueue_.toString();
+            inputQueue_.setLength(0);
+         }
+
+         sendInputChunk(userInput);
+      }
+
+      // after a chunk was lost the server must be flushed even if there's
+      // no more input to send, or input sent after the gap is held there
+      if (flushInputPending_ && inputInFlight_ == 0)
+         sendInputChunk("");
+   }
+
+   private boolean canSendInput()
+   {
+      if (inputInFlight_ == 0)
+         return true;
 
-      if (inputQueue_.length() == 0)
+      // only pipeline input the server can reorder; in particular, a flush
+      // must not overtake (or be overtaken by) sequenced input
+      if (!isSequencingInput() || inputSequence_ < 0 ||
+            nextInputSequence() == ShellInput.FLUSH_SEQUENCE)
       {
-         return;
+         return false;
       }
-      if (inputQueue_.length() > MAXCHUNK)
+
+      return inputInFlight_ < MAX_INPUT_IN_FLIGHT;
+   }
+
+   private int inputChunkSize()
+   {
+      int multiple = (int)(socket_.getInputRoundTrip() / INPUT_CHUNK_ROUND_TRIP_MS);
+      return Math.min(MIN_INPUT_CHUNK * Math.max(1, multiple), MAX_INPUT_CHUNK);
+   }
+
+   // Send a sequence number with each message over RPC so the server can put
+   // messages back in order; on desktop, rapid typing sometimes causes RPC
+   // messages for writeStandardInput to arrive out of sequence, and we may
+   // also have several chunks of input in flight at once
+   private boolean isSequencingInput()
+   {
+      return consoleProcess_.getChannelMode() == ConsoleProcessInfo.CHANNEL_RPC;
+   }
+
+   private int nextInputSequence()
+   {
+      if (inputSequence_ == ShellInput.IGNORE_SEQUENCE)
       {
-         userInput = inputQueue_.substring(0, MAXCHUNK);
-         inputQueue_.delete(0, MAXCHUNK);
+         // First message sent for this client-side terminal instance, start
+         // by flushing the server-side queue to reset server's "last-sequence"
+         // back to default.
+         return ShellInput.FLUSH_SEQUENCE;
+      }
+      else if (inputSequence_ == ShellInput.FLUSH_SEQUENCE)
+      {
+         // Last message has flushed server, start tracking sequences again.
+         return 0;
+      }
+      else if (inputSequence_ >= Integer.MAX_VALUE - 100)
+      {
+         // Very diligent typist!  Tell server to flush its input
+         // queue, temporarily ignoring sequences.
+         return ShellInput.FLUSH_SEQUENCE;
       }
       else
       {
-         userInput = inputQueue_.toString();
-         inputQueue_.setLength(0);
+         return inputSequence_ + 1;
       }
+   }
 
-      // On desktop, rapid typing sometimes causes RPC messages for writeStandardInput
-      // to arrive out of sequence in the terminal; send a sequence number with each
-      // message so server can put messages back in order
-      if (Desktop.hasDesktopFrame() &&
-            consoleProcess_.getChannelMode() == ConsoleProcessInfo.CHANNEL_RPC)
+   private void sendInputChunk(String userInput)
+   {
+      if (isSequencingInput())
       {
-         if (inputSequence_ == ShellInput.IGNORE_SEQUENCE)
-         {
-            // First message sent for this client-side terminal instance, start
-            // by flushing the server-side queue to reset server's "last-sequence"
-            // back to default.
-            inputSequence_ = ShellInput.FLUSH_SEQUENCE;
-         }
-         else if (inputSequence_ == ShellInput.FLUSH_SEQUENCE)
-         {
-            // Last message has flushed server, start tracking sequences again.
-            inputSequence_ = 0;
-         }
-         else if (inputSequence_ >= Integer.MAX_VALUE - 100)
-         {
-            // Very diligent typist!  Tell server to flush its input
-            // queue, temporarily ignoring sequences.
-            inputSequence_ = ShellInput.FLUSH_SEQUENCE;
-         }
-         else
-         {
-            inputSequence_++;
-         }
+         inputSequence_ = nextInputSequence();
+         if (inputSequence_ == ShellInput.FLUSH_SEQUENCE)
+            flushInputPending_ = false;
       }
 
+      final int generation = inputGeneration_;
+      inputInFlight_++;
       socket_.dispatchInput(inputSequence_, userInput, doLocalEcho(),
             new VoidServerRequestCallback() {
 
                @Override
                public void onResponseReceived(Void response)
                {
+                  // ignore responses for a previous connection
+                  if (generation != inputGeneration_)
+                     return;
+
+                  inputInFlight_--;
                   sendUserInput();
                }
 
@@ -455,6 +512,24 @@ public class TerminalSession extends XTermWidget
                {
                   Debug.logError(error);
                   writeError(error.getUserMessage());
+
+                  if (generation != inputGeneration_)
+                     return;
+
+                  // the server holds sequenced input that follows a gap until
+                  // the missing chunk arrives, which it now never will; start
+                  // over with a flush (sent once nothing else is in flight,
+                  // so the flush can't overtake earlier chunks)
+                  if (isSequencingInput())
+                  {
+                     inputSequence_ = ShellInput.IGNORE_SEQUENCE;
+                     flushInputPending_ = true;
+                  }
+
+                  // keep draining the queue, or input typed since would wait
+                  // until the next keystroke
+                  inputInFlight_--;
+                  sendUserInput();
                }
             });
    }
@@ -737,7 +812,7 @@ public class TerminalSession extends XTermWidget
       else
       {
          setReloading();
-         fetchNextChunk(0);
+         startBufferReload();
       }
    }
 
@@ -771,7 +846,7 @@ public class TerminalSession extends XTermWidget
       }
    }
 
-   private void fetchNextChunk(final int chunkToFetch)
+   private void startBufferReload()
    {
       if (!shellSupportsReload())
       {
@@ -779,47 +854,211 @@ public class TerminalSession extends XTermWidget
          return;
       }
 
+      final BufferReload reload = new BufferReload();
+      bufferReload_ = reload;
       Scheduler.get().scheduleDeferred(() ->
       {
          onResize();
-         if (consoleProcess_ != null)
+         if (bufferReload_ == reload && consoleProcess_ != null)
+            reload.request(0);
+      });
+   }
+
+   /**
+    * Reloads the saved buffer from the server.
+    *
+    * The first chunk is fetched on its own, as requesting it trims the
+    * server's copy of the buffer, and its response says how many chunks
+    * there are. The rest are then fetched several at a time, reassembled in
+    * order, and written to the terminal in batches, each batch written once
+    * the terminal has parsed the previous one.
+    *
+    * For large buffers, the last chunk is fetched first and its complete
+    * lines shown as soon as it arrives, so the most recent output is visible
+    * while the rest loads; the terminal is then reset and the whole buffer
+    * written in order.
+    */
+   private class BufferReload
+   {
+      void request(int chunkNumber)
+      {
+         inFlight_++;
+         consoleProcess_.getTerminalBufferChunk(chunkNumber,
+               new ServerRequestCallback<ProcessBufferChunk>()
          {
-            consoleProcess_.getTerminalBufferChunk(chunkToFetch,
-                  new ServerRequestCallback<ProcessBufferChunk>()
+            @Override
+            public void onResponseReceived(final ProcessBufferChunk chunk)
             {
-               @Override
-               public void onResponseReceived(final ProcessBufferChunk chunk)
-               {
-                  accept(chunk.getChunk());
-                  if (chunk.getMoreAvailable())
-                  {
-                     fetchNextChunk(chunk.getChunkNumber() + 1);
-                  }
-                  else
-                  {
-                     writeRestartSequence();
-                     if (procInfo_.getZombie())
-                        showZombieMessage();
-                     setNotReloading();
-                     for (String outputStr : deferredOutput_)
-                     {
-                        socket_.dispatchOutput(outputStr, doLocalEcho());
-                     }
-                     deferredOutput_.clear();
-                  }
-               }
+               if (bufferReload_ != BufferReload.this)
+                  return;
 
-               @Override
-               public void onError(ServerError error)
+               inFlight_--;
+               onChunk(chunk);
+            }
+
+            @Override
+            public void onError(ServerError error)
+            {
+               if (bufferReload_ != BufferReload.this)
+                  return;
+
+               bufferReload_ = null;
+               Debug.logError(error);
+               writeError(error.getUserMessage());
+               setNotReloading();
+               deferredOutput_.clear();
+            }
+         });
+      }
+
+      private void onChunk(ProcessBufferChunk chunk)
+      {
+         int number = chunk.getChunkNumber();
+         while (chunks_.size() <= number)
+            chunks_.add(null);
+         chunks_.set(number, chunk.getChunk());
+
+         if (!chunk.getMoreAvailable())
+         {
+            // requests past the end also come back empty with nothing more
+            lastChunk_ = lastChunk_ < 0 ? number : Math.min(lastChunk_, number);
+         }
+         else
+         {
+            chunkLimit_ = Math.max(chunkLimit_, number + 1);
+         }
+
+         if (number == 0 && chunk.getMoreAvailable())
+         {
+            int chunkCount = chunk.getChunkCount();
+            if (chunkCount < 0)
+            {
+               // count not reported; speculatively fetch ahead
+               speculate_ = true;
+            }
+            else
+            {
+               chunkLimit_ = Math.max(chunkLimit_, chunkCount - 1);
+               if (chunkCount >= TAIL_FIRST_MIN_CHUNKS)
                {
-                  Debug.logError(error);
-                  writeError(error.getUserMessage());
-                  setNotReloading();
-                  deferredOutput_.clear();
+                  tailChunk_ = chunkCount - 1;
+                  request(tailChunk_);
                }
-            });
+            }
          }
-      });
+
+         if (number == tailChunk_ && !isFetched())
+            showTail(chunk.getChunk());
+
+         requestMore();
+         writeChunks();
+      }
+
+      private void requestMore()
+      {
+         int limit = speculate_ ? chunkLimit_ + MAX_CHUNK_REQUESTS - 1 : chunkLimit_;
+         if (lastChunk_ >= 0)
+            limit = Math.min(limit, lastChunk_);
+
+         while (inFlight_ < MAX_CHUNK_REQUESTS && nextRequest_ <= limit)
+         {
+            if (nextRequest_ != tailChunk_)
+               request(nextRequest_);
+            nextRequest_++;
+         }
+      }
+
+      private boolean isFetched()
+      {
+         if (lastChunk_ < 0)
+            return false;
+         for (int i = 0; i <= lastChunk_; i++)
+         {
+            if (chunks_.get(i) == null)
+               return false;
+         }
+         return true;
+      }
+
+      private void showTail(String tail)
+      {
+         // skip the (likely partial) first line
+         int newline = tail.indexOf('\n');
+         if (newline < 0)
+            return;
+
+         accept(tail.substring(newline + 1));
+         tailShown_ = true;
+      }
+
+      private void writeChunks()
+      {
+         if (writing_)
+            return;
+
+         // when showing the tail first, wait until the whole buffer can
+         // replace it
+         if (tailChunk_ >= 0 && !isFetched())
+            return;
+
+         StringBuilder batch = new StringBuilder();
+         while (nextWrite_ < chunks_.size() &&
+                chunks_.get(nextWrite_) != null &&
+                (lastChunk_ < 0 || nextWrite_ <= lastChunk_) &&
+                batch.length() < WRITE_BATCH_SIZE)
+         {
+            batch.append(chunks_.get(nextWrite_));
+            nextWrite_++;
+         }
+
+         if (batch.length() == 0)
+         {
+            if (lastChunk_ >= 0 && nextWrite_ > lastChunk_)
+               finish();
+            return;
+         }
+
+         if (tailShown_)
+         {
+            reset();
+            tailShown_ = false;
+         }
+
+         writing_ = true;
+         write(batch.toString(), () ->
+         {
+            if (bufferReload_ != BufferReload.this)
+               return;
+
+            writing_ = false;
+            writeChunks();
+         });
+      }
+
+      private void finish()
+      {
+         bufferReload_ = null;
+         writeRestartSequence();
+         if (procInfo_.getZombie())
+            showZombieMessage();
+         setNotReloading();
+         for (String outputStr : deferredOutput_)
+         {
+            socket_.dispatchOutput(outputStr, doLocalEcho());
+         }
+         deferredOutput_.clear();
+      }
+
+      private final ArrayList<String> chunks_ = new ArrayList<>();
+      private int inFlight_;
+      private int nextRequest_ = 1;
+      private int nextWrite_;
+      private int chunkLimit_;
+      private int lastChunk_ = -1;
+      private int tailChunk_ = -1;
+      private boolean speculate_;
+      private boolean tailShown_;
+      private boolean writing_;
    }
 
    public void showZombieMessage()
@@ -939,6 +1178,22 @@ public class TerminalSession extends XTermWidget
       haveLoadedBuffer_ = true;
    }
 
+   // input chunking: chunks start at MIN_INPUT_CHUNK characters and grow by
+   // that much for each INPUT_CHUNK_ROUND_TRIP_MS of measured round-trip time
+   private static final int MIN_INPUT_CHUNK = 128;
+   private static final int MAX_INPUT_CHUNK = 8192;
+   private static final int INPUT_CHUNK_ROUND_TRIP_MS = 20;
+
+   // kept well below the server's out-of-sequence auto-flush limit
+   private static final int MAX_INPUT_IN_FLIGHT = 4;
+
+   // buffer reload: concurrent chunk requests, characters written to the
+   // terminal per batch, and the buffer size (in chunks) at which the most
+   // recent output is shown first
+   private static final int MAX_CHUNK_REQUESTS = 4;
+   private static final int WRITE_BATCH_SIZE = 65536;
+   private static final int TAIL_FIRST_MIN_CHUNKS = 8;
+
    private final HandlerRegistrations registrations_ = new HandlerRegistrations();
    private final TerminalSessionSocket socket_;
    private ConsoleProcess consoleProcess_;
@@ -951,9 +1206,13 @@ public class TerminalSession extends XTermWidget
    private boolean reloading_;
    private boolean haveLoadedBuffer_;
    private final ArrayList<String> deferredOutput_ = new ArrayList<>();
+   private BufferReload bufferReload_;
    private boolean restartSequenceWritten_;
    private final StringBuilder inputQueue_ = new StringBuilder();
    private int inputSequence_ = ShellInput.IGNORE_SEQUENCE;
+   private int inputInFlight_;
+   private int inputGeneration_;
+   private boolean flushInputPending_;
    private boolean newTerminal_ = true;
    private boolean showAltAfterReload_;
    private final boolean createdByApi_;
@@ -31,6 +31,7 @@ import org.rstudio.studio.client.server.VoidServerRequestCallback;
 import org.rstudio.studio.client.workbench.views.terminal.events.TerminalDataInputEvent;
 import org.rstudio.studio.client.workbench.views.terminal.xterm.XTermWidget;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.sksamuel.gwt.websockets.CloseEvent;
@@ -305,7 +306,7 @@ public class TerminalSessionSocket
       case ConsoleProcessInfo.CHANNEL_RPC:
          consoleProcess_.writeStandardInput(
                ShellInput.create(inputSequence, input,  true /*echo input*/),
-               requestCallback);
+               timeInput(input.length(), requestCallback));
          break;
       case ConsoleProcessInfo.CHANNEL_WEBSOCKET:
          if (socket_ != null)
@@ -323,6 +324,49 @@ public class TerminalSessionSocket
       }
    }
 
+   /**
+    * Wrap an input request callback to record its round-trip time and the
+    * resulting input throughput.
+    */
+   private VoidServerRequestCallback timeInput(
+         final int chars,
+         final VoidServerRequestCallback requestCallback)
+   {
+      final double sent = Duration.currentTimeMillis();
+      if (inputInFlight_ == 0)
+         inputBusySince_ = sent;
+      inputInFlight_++;
+
+      return new VoidServerRequestCallback()
+      {
+         @Override
+         public void onResponseReceived(Void response)
+         {
+            double now = Duration.currentTimeMillis();
+            diagnostic_.recordInput(chars, now - sent, now - inputBusySince_);
+            inputBusySince_ = now;
+            inputInFlight_ = Math.max(0, inputInFlight_ - 1);
+            requestCallback.onResponseReceived(response);
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            inputInFlight_ = Math.max(0, inputInFlight_ - 1);
+            requestCallback.onError(error);
+         }
+      };
+   }
+
+   /**
+    * @return smoothed round-trip time of input requests in milliseconds, or
+    *         0 if not known
+    */
+   public double getInputRoundTrip()
+   {
+      return diagnostic_.getInputRoundTrip();
+   }
+
    /**
     * Send output to the terminal emulator.
     * @param output text to send to the terminal
@@ -402,6 +446,11 @@ public class TerminalSessionSocket
       return diagnostic_.getLog();
    }
 
+   public String getInputDiagnostics()
+   {
+      return diagnostic_.getInputStatistics();
+   }
+
    public String getLocalEchoDiagnostics()
    {
       return localEcho_.getDiagnostics();
@@ -426,6 +475,8 @@ public class TerminalSessionSocket
    private Websocket socket_;
    private final TerminalLocalEcho localEcho_;
    private final TerminalDiagnostics diagnostic_ = new TerminalDiagnostics();
+   private int inputInFlight_;
+   private double inputBusySince_;
 
    // RegEx to match common password prompts
    private static final String PASSWORD_REGEX = "(?:password:)|(?:passphrase:)";
@@ -156,6 +156,17 @@ public class XTermWidget extends Widget
       terminal_.write(str, null);
    }
 
+   /**
+    * Write text to the terminal.
+    * @param str Text to write
+    * @param onParsed Invoked once the terminal has processed the text
+    */
+   public void write(String str, Command onParsed)
+   {
+      terminal_.scrollToBottom();
+      terminal_.write(str, () -> onParsed.execute());
+   }
+
    /**
     * Clear terminal buffer.
     */
@@ -164,6 +175,14 @@ public class XTermWidget extends Widget
       terminal_.clear();
    }
 
+   /**
+    * Perform a full reset of the terminal, clearing its buffer and modes.
+    */
+   public void reset()
+   {
+      terminal_.reset();
+   }
+
    @Override
    protected void onUnload()
    {
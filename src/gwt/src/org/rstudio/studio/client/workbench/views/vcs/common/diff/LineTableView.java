@@ -17,22 +17,32 @@ package org.rstudio.studio.client.workbench.views.vcs.common.diff;
 import com.google.gwt.cell.client.AbstractCell;
 import com.google.gwt.cell.client.ValueUpdater;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.NativeEvent;
 import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.KeyDownHandler;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.user.cellview.client.CellTable;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.RowStyles;
 import com.google.gwt.user.cellview.client.TextColumn;
+import com.google.gwt.user.client.ui.ScrollPanel;
+import com.google.gwt.user.client.ui.Widget;
 import com.google.gwt.view.client.MultiSelectionModel;
 import com.google.gwt.view.client.ProvidesKey;
 import com.google.gwt.view.client.SelectionChangeEvent;
 import com.google.gwt.view.client.SelectionChangeEvent.Handler;
 import com.google.inject.Inject;
+import org.rstudio.core.client.BrowseCap;
 import org.rstudio.core.client.SafeHtmlUtil;
+import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.dom.DomUtils;
 import org.rstudio.core.client.dom.DomUtils.NodePredicate;
 import org.rstudio.core.client.theme.RStudioCellTableStyle;
@@ -48,6 +58,7 @@ import org.rstudio.studio.client.workbench.views.vcs.common.events.DiffLinesActi
 import org.rstudio.studio.client.workbench.views.vcs.common.events.DiffLinesActionHandler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 
 public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements Display
@@ -81,6 +92,8 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
       String stageMode();
       String workingMode();
       String noStageMode();
+
+      String collapsed();
    }
 
    public class LineContentCell extends AbstractCell<ChunkOrLine>
@@ -97,6 +110,16 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
                                  NativeEvent event,
                                  ValueUpdater<ChunkOrLine> chunkOrLineValueUpdater)
       {
+         if ("mousedown".equals(event.getType())
+             && event.getButton() == NativeEvent.BUTTON_LEFT
+             && collapsedRegions_.containsKey(value))
+         {
+            event.preventDefault();
+            event.stopPropagation();
+            expandRegion(value);
+            return;
+         }
+
          if ("mousedown".equals(event.getType())
              && event.getButton() == NativeEvent.BUTTON_LEFT
              && parent.isOrHasChild(event.getEventTarget().<Node>cast()))
@@ -246,6 +269,7 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
                         final LineTableViewCellTableResources res)
    {
       super(1, res);
+      filesCompared_ = filesCompared;
 
       FontSizer.applyNormalFontSize(this);
       addStyleName("rstudio-fixed-width-font");
@@ -301,12 +325,18 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
             {
                return res.cellTableStyle().header();
             }
+            else if (collapsedRegions_.containsKey(chunkOrLine))
+            {
+               return res.cellTableStyle().collapsed();
+            }
             else
             {
                String prefix = "";
                if (startRows_.contains(rowIndex))
                   prefix += res.cellTableStyle().start() + " ";
-               if (endRows_.contains(rowIndex))
+               // Edge case: last line is a diff line
+               if (endRows_.contains(rowIndex) ||
+                   (useEndBorder_ && rowIndex == rows_.size() - 1))
                   prefix += res.cellTableStyle().end() + " ";
 
                switch (line.getType())
@@ -379,13 +409,30 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
       });
       setSelectionModel(selectionModel_);
 
+      // Ctrl+A in MultiSelectCellTable only reaches the rendered rows
+      addKeyDownHandler(new KeyDownHandler()
+      {
+         @Override
+         public void onKeyDown(KeyDownEvent event)
+         {
+            int modifiers = KeyboardShortcut.getModifierValue(event.getNativeEvent());
+            if (event.getNativeKeyCode() == 'A' &&
+                modifiers == (BrowseCap.hasMetaKey() ? KeyboardShortcut.META
+                                                     : KeyboardShortcut.CTRL))
+            {
+               for (ChunkOrLine line : lines_)
+                  selectionModel_.setSelected(line, true);
+            }
+         }
+      });
+
       setData(new ArrayList<ChunkOrLine>(), PatchMode.Working);
    }
 
    private void refreshValue(ChunkOrLine value)
    {
-      int index = lines_.indexOf(value);
-      if (index >= 0)
+      int index = rows_.indexOf(value);
+      if (index >= 0 && index < renderedRows_)
       {
          ArrayList<ChunkOrLine> list = new ArrayList<ChunkOrLine>();
          list.add(value);
@@ -442,20 +489,324 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
             break;
       }
 
-      lines_ = diffData;
-      setPageSize(diffData.size());
+      // Callers commonly restore the current scroll position after new data
+      // is set, so remember it before the table shrinks to its first page
+      ScrollPanel scrollPanel = getScrollPanel();
+      int scrollTop = scrollPanel == null ? 0 :
+            scrollPanel.getVerticalScrollPosition();
+
+      lines_ = new ArrayList<ChunkOrLine>(diffData);
       selectionModel_.clear();
       firstSelectedLine_ = null;
-      setRowData(diffData);
+      expandedRegions_.clear();
+
+      rebuildRows();
+      renderedRows_ = 0;
+      renderRows(Math.min(rows_.size(), RENDER_PAGE_ROWS));
+      renderThrough(scrollTop);
+      scheduleFillViewport();
+   }
+
+   /**
+    * Renders enough rows for the enclosing scroll panel to be scrolled to
+    * the given position (plus a screenful below it), then scrolls there.
+    * Use this rather than setting the scroll position directly, which the
+    * browser clamps to the rows rendered so far.
+    */
+   public void restoreScrollPosition(int scrollTop)
+   {
+      ScrollPanel scrollPanel = getScrollPanel();
+      if (scrollPanel == null)
+         return;
+
+      renderThrough(scrollTop);
+      scrollPanel.setVerticalScrollPosition(scrollTop);
+   }
 
+   @Override
+   public void appendData(ArrayList<ChunkOrLine> diffData)
+   {
+      if (diffData.isEmpty())
+         return;
+
+      lines_.addAll(diffData);
+
+      // Only the rows from the trailing run of unchanged lines onward can
+      // change (that run may now be long enough to collapse); the row before
+      // it is redrawn too since it may no longer be the last row
+      int firstChanged = Math.max(0, tailRow_ - 1);
+      int rendered = Math.min(renderedRows_, firstChanged);
+      appendRows();
+
+      int end = Math.min(rows_.size(),
+                         Math.max(renderedRows_, RENDER_PAGE_ROWS));
+      renderedRows_ = rendered;
+      renderRows(end);
+      scheduleFillViewport();
+   }
+
+   // Maps the diff lines onto table rows, replacing the middle of each long
+   // run of unchanged lines with a single placeholder row (unless the user
+   // has expanded it), and recomputes the region borders for those rows
+   private void rebuildRows()
+   {
+      rows_.clear();
+      collapsedRegions_.clear();
       startRows_.clear();
       endRows_.clear();
+      tailLine_ = 0;
+      tailRow_ = 0;
+      appendRows();
+   }
 
+   // Maps the lines from the trailing run of unchanged lines onward, which
+   // are the only ones whose rows can change as more lines are appended
+   private void appendRows()
+   {
+      int firstRow = tailRow_;
+      int oldRowCount = rows_.size();
+      for (int i = firstRow; i < oldRowCount; i++)
+         collapsedRegions_.remove(rows_.get(i));
+      rows_.subList(firstRow, oldRowCount).clear();
+
+      int n = lines_.size();
+      int i = tailLine_;
+      tailLine_ = n;
+      tailRow_ = -1;
+      while (i < n)
+      {
+         int end = i;
+         while (end < n && isUnchanged(lines_.get(end)))
+            end++;
+
+         if (end == i)
+         {
+            rows_.add(lines_.get(i++));
+            continue;
+         }
+
+         if (end == n)
+         {
+            tailLine_ = i;
+            tailRow_ = rows_.size();
+         }
+
+         int hidden = end - i - 2 * COLLAPSE_CONTEXT_LINES;
+         if (hidden >= COLLAPSE_MIN_LINES && !expandedRegions_.contains(i))
+         {
+            int hiddenStart = i + COLLAPSE_CONTEXT_LINES;
+            rows_.addAll(lines_.subList(i, hiddenStart));
+
+            ChunkOrLine placeholder = createPlaceholder(i, hidden);
+            collapsedRegions_.put(placeholder, i);
+            rows_.add(placeholder);
+
+            rows_.addAll(lines_.subList(hiddenStart + hidden, end));
+         }
+         else
+         {
+            rows_.addAll(lines_.subList(i, end));
+         }
+         i = end;
+      }
+      if (tailRow_ < 0)
+         tailRow_ = rows_.size();
+
+      updateBorders(firstRow, oldRowCount);
+   }
+
+   private boolean isUnchanged(ChunkOrLine chunkOrLine)
+   {
+      Line line = chunkOrLine.getLine();
+      return line != null && line.getType() == Line.Type.Same;
+   }
+
+   private ChunkOrLine createPlaceholder(int regionStart, int hiddenLines)
+   {
+      int columns = Math.max(2, filesCompared_);
+      String text = "\u22EF " + hiddenLines + " unchanged lines (click to expand)";
+
+      // Negative diff indexes keep placeholders from sharing selection keys
+      // with real lines
+      return new ChunkOrLine(new Line(Line.Type.Same,
+                                      new boolean[columns],
+                                      new int[columns],
+                                      text,
+                                      -(regionStart + 1)));
+   }
+
+   private void expandRegion(ChunkOrLine placeholder)
+   {
+      Integer regionStart = collapsedRegions_.get(placeholder);
+      if (regionStart == null)
+         return;
+
+      int index = rows_.indexOf(placeholder);
+      expandedRegions_.add(regionStart);
+      rebuildRows();
+
+      // Render at least through the expanded lines
+      int rendered = Math.min(rows_.size(),
+                              Math.max(renderedRows_, index + 1 + RENDER_PAGE_ROWS));
+      renderedRows_ = 0;
+      renderRows(rendered);
+   }
+
+   // Renders table rows up to (but not including) row index 'end'. Only the
+   // rows that have been scrolled near are handed to the table; more are
+   // rendered as the enclosing scroll panel approaches the last one.
+   private void renderRows(int end)
+   {
+      int start = renderedRows_;
+      renderedRows_ = end;
+      setPageSize(Math.max(end, 1));
+      setRowCount(end, true);
+      if (end > start)
+         setRowData(start, rows_.subList(start, end));
+   }
+
+   private void scheduleFillViewport()
+   {
+      if (fillViewportScheduled_)
+         return;
+
+      fillViewportScheduled_ = true;
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            fillViewportScheduled_ = false;
+            fillViewport();
+         }
+      });
+   }
+
+   private void fillViewport()
+   {
+      if (renderedRows_ >= rows_.size())
+         return;
+
+      ScrollPanel scrollPanel = getScrollPanel();
+      if (scrollPanel == null)
+      {
+         // Without a scroll panel there is no viewport to limit rendering
+         if (isAttached())
+            renderRows(rows_.size());
+         return;
+      }
+
+      // Keep at least a screenful of rows rendered below the visible area
+      Element viewport = scrollPanel.getElement();
+      int threshold = viewport.getAbsoluteBottom() + viewport.getClientHeight();
+      if (getElement().getAbsoluteBottom() < threshold)
+      {
+         renderRows(Math.min(rows_.size(), renderedRows_ + RENDER_PAGE_ROWS));
+         scheduleFillViewport();
+      }
+   }
+
+   // Renders pages until the table extends a screenful past the bottom of
+   // the viewport as it would be when scrolled to 'scrollTop'
+   private void renderThrough(int scrollTop)
+   {
+      ScrollPanel scrollPanel = getScrollPanel();
+      if (scrollPanel == null || !isAttached())
+         return;
+
+      Element viewport = scrollPanel.getElement();
+      int target = scrollTop + 2 * viewport.getClientHeight();
+      while (renderedRows_ < rows_.size())
+      {
+         // bottom of the table in the scroll panel's content coordinates
+         int bottom = getElement().getAbsoluteBottom() -
+                      viewport.getAbsoluteTop() +
+                      scrollPanel.getVerticalScrollPosition();
+         if (bottom >= target)
+            break;
+         renderRows(Math.min(rows_.size(), renderedRows_ + RENDER_PAGE_ROWS));
+      }
+   }
+
+   private ScrollPanel getScrollPanel()
+   {
+      if (scrollPanel_ == null)
+      {
+         for (Widget parent = getParent(); parent != null; parent = parent.getParent())
+         {
+            if (parent instanceof ScrollPanel)
+            {
+               scrollPanel_ = (ScrollPanel) parent;
+               scrollRegistration_ = scrollPanel_.addScrollHandler(new ScrollHandler()
+               {
+                  @Override
+                  public void onScroll(ScrollEvent event)
+                  {
+                     scheduleFillViewport();
+                  }
+               });
+               break;
+            }
+         }
+      }
+      return scrollPanel_;
+   }
+
+   @Override
+   protected void onLoad()
+   {
+      super.onLoad();
+      scheduleFillViewport();
+   }
+
+   @Override
+   protected void onUnload()
+   {
+      if (scrollRegistration_ != null)
+      {
+         scrollRegistration_.removeHandler();
+         scrollRegistration_ = null;
+      }
+      scrollPanel_ = null;
+      super.onUnload();
+   }
+
+   @Override
+   public void moveSelection(boolean up, boolean extend)
+   {
+      // Moving down from the last rendered row needs the next one rendered
+      if (!up && renderedRows_ > 0 && renderedRows_ < rows_.size() &&
+          selectionModel_.isSelected(rows_.get(renderedRows_ - 1)))
+      {
+         renderRows(Math.min(rows_.size(), renderedRows_ + RENDER_PAGE_ROWS));
+      }
+
+      super.moveSelection(up, extend);
+   }
+
+   // Recomputes the region borders for the rows from 'firstRow' on, given
+   // that 'oldRowCount' rows had borders computed before
+   private void updateBorders(int firstRow, int oldRowCount)
+   {
+      for (int i = firstRow; i < oldRowCount; i++)
+         startRows_.remove(i);
+      // an end border is recorded on the row before the one that ends it
+      for (int i = Math.max(0, firstRow - 1); i < oldRowCount; i++)
+         endRows_.remove(i);
+
+      // Suppress at start to avoid 2px border
       Line.Type state = Line.Type.Same;
-      boolean suppressNextStart = true; // Suppress at start to avoid 2px border
-      for (int i = 0; i < lines_.size(); i++)
+      boolean suppressNextStart = true;
+      if (firstRow > 0)
       {
-         ChunkOrLine chunkOrLine = lines_.get(i);
+         Line previous = rows_.get(firstRow - 1).getLine();
+         state = previous == null ? Line.Type.Same : previous.getType();
+         suppressNextStart = previous == null;
+      }
+
+      for (int i = firstRow; i < rows_.size(); i++)
+      {
+         ChunkOrLine chunkOrLine = rows_.get(i);
          Line line = chunkOrLine.getLine();
          boolean isChunk = line == null;
          Line.Type newState = isChunk ? Line.Type.Same : line.getType();
@@ -463,10 +814,6 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
          if (useStartBorder_ && i == 0)
             startRows_.add(i);
 
-         // Edge case: last line is a diff line
-         if (useEndBorder_ && i == lines_.size() - 1)
-            endRows_.add(i);
-
          if (newState != state)
          {
             // Note: endRows_ doesn't include the borders between insertions and
@@ -487,10 +834,10 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
    @Override
    protected boolean canSelectVisibleRow(int visibleRow)
    {
-      if (visibleRow < 0 || visibleRow >= lines_.size())
+      if (visibleRow < 0 || visibleRow >= rows_.size())
          return false;
 
-      Line line = lines_.get(visibleRow).getLine();
+      Line line = rows_.get(visibleRow).getLine();
       return line != null && (line.getType() == Type.Insertion
                               || line.getType() == Type.Deletion);
    }
@@ -545,7 +892,23 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
    }
 
    private boolean showActions_ = true;
+   private final int filesCompared_;
+   // All diff lines, including those inside collapsed regions
    private ArrayList<ChunkOrLine> lines_;
+   // The table's rows: lines_ with collapsed regions replaced by placeholders
+   private final ArrayList<ChunkOrLine> rows_ = new ArrayList<ChunkOrLine>();
+   // Placeholder row -> index in lines_ of the unchanged run it collapses
+   private final HashMap<ChunkOrLine, Integer> collapsedRegions_ =
+         new HashMap<ChunkOrLine, Integer>();
+   private final HashSet<Integer> expandedRegions_ = new HashSet<Integer>();
+   // Where the trailing run of unchanged lines starts, in lines_ and in
+   // rows_ (the ends of those lists if the last line is a change)
+   private int tailLine_ = 0;
+   private int tailRow_ = 0;
+   private int renderedRows_ = 0;
+   private boolean fillViewportScheduled_ = false;
+   private ScrollPanel scrollPanel_;
+   private HandlerRegistration scrollRegistration_;
    private SwitchableSelectionModel<ChunkOrLine> selectionModel_;
    private HashSet<Integer> startRows_ = new HashSet<Integer>();
    private HashSet<Integer> endRows_ = new HashSet<Integer>();
@@ -553,6 +916,9 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
    private boolean useEndBorder_ = true;
    // Keep explicit track of the first selected line so we can render it differently
    private ChunkOrLine firstSelectedLine_;
+   private static final int RENDER_PAGE_ROWS = 200;
+   private static final int COLLAPSE_CONTEXT_LINES = 5;
+   private static final int COLLAPSE_MIN_LINES = 100;
    private static final LineTableViewCellTableResources RES = GWT.create(LineTableViewCellTableResources.class);
    private static final LineActionButtonRenderer blueButtonRenderer_ = LineActionButtonRenderer.createBlue();
    private static final LineActionButtonRenderer grayButtonRenderer_ = LineActionButtonRenderer.createGray();
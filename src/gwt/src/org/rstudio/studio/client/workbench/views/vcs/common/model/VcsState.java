@@ -29,14 +29,15 @@ import org.rstudio.studio.client.common.GlobalDisplay;
 import org.rstudio.studio.client.common.vcs.StatusAndPath;
 import org.rstudio.studio.client.common.vcs.StatusAndPathInfo;
 import org.rstudio.studio.client.workbench.model.Session;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeBatchEvent;
 import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEvent;
 import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEvent.Reason;
 import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshHandler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 public abstract class VcsState
 {
@@ -82,48 +83,25 @@ public abstract class VcsState
             }
          }
       }));
-      registrations.add(eventBus_.addHandler(FileChangeEvent.TYPE, new FileChangeHandler()
+      registrations.add(eventBus_.addHandler(FileChangeBatchEvent.TYPE, new FileChangeBatchEvent.Handler()
       {
          @Override
-         public void onFileChange(FileChangeEvent event)
+         public void onFileChangeBatch(FileChangeBatchEvent event)
          {
             if (!session.getSessionInfo().isVcsEnabled())
                registrations.removeHandler();
 
-            FileChange fileChange = event.getFileChange();
-            FileSystemItem file = fileChange.getFile();
-
-            StatusAndPath status = StatusAndPath.fromInfo(
-                  getStatusFromFile(file));
-
-            if (needsFullRefresh(file))
-            {
-               refresh(false);
-               return;
-            }
-
-            if (status_ != null && status != null)
+            for (FileChange fileChange : event.getFileChanges())
             {
-               for (int i = 0; i < status_.size(); i++)
+               if (needsFullRefresh(fileChange.getFile()))
                {
-                  if (status.getRawPath() == status_.get(i).getRawPath())
-                  {
-                     if (StringUtil.notNull(status.getStatus()).trim().length() == 0)
-                        status_.remove(i);
-                     else
-                        status_.set(i, status);
-                     handlers_.fireEvent(new VcsRefreshEvent(Reason.FileChange));
-                     return;
-                  }
-               }
-
-               if (status.getStatus().trim().length() != 0)
-               {
-                  status_.add(status);
-                  handlers_.fireEvent(new VcsRefreshEvent(Reason.FileChange));
+                  refresh(false);
                   return;
                }
             }
+
+            if (status_ != null && applyFileChanges(event.getFileChanges()))
+               handlers_.fireEvent(new VcsRefreshEvent(Reason.FileChange));
          }
       }));
 
@@ -137,6 +115,62 @@ public abstract class VcsState
       });
    }
 
+   // updates the status of each changed file; returns true if any status
+   // was added, changed or removed
+   private boolean applyFileChanges(List<FileChange> fileChanges)
+   {
+      HashMap<String, Integer> rows = new HashMap<String, Integer>();
+      for (int i = 0; i < status_.size(); i++)
+         rows.put(status_.get(i).getRawPath(), i);
+
+      boolean changed = false;
+      boolean removed = false;
+      for (FileChange fileChange : fileChanges)
+      {
+         StatusAndPath status = StatusAndPath.fromInfo(
+               getStatusFromFile(fileChange.getFile()));
+         if (status == null)
+            continue;
+
+         boolean clean = StringUtil.notNull(status.getStatus()).trim().length() == 0;
+         Integer row = rows.get(status.getRawPath());
+         if (row != null)
+         {
+            if (clean)
+            {
+               // removed rows are dropped together once all changes are in
+               status_.set(row, null);
+               rows.remove(status.getRawPath());
+               removed = true;
+            }
+            else
+            {
+               status_.set(row, status);
+            }
+            changed = true;
+         }
+         else if (!clean)
+         {
+            rows.put(status.getRawPath(), status_.size());
+            status_.add(status);
+            changed = true;
+         }
+      }
+
+      if (removed)
+      {
+         int count = 0;
+         for (int i = 0; i < status_.size(); i++)
+         {
+            if (status_.get(i) != null)
+               status_.set(count++, status_.get(i));
+         }
+         status_.subList(count, status_.size()).clear();
+      }
+
+      return changed;
+   }
+
    public void bindRefreshHandler(Widget owner,
                                   final VcsRefreshHandler handler)
    {
@@ -500,10 +500,38 @@ public class GitReviewPanel extends ResizeComposite implements Display
 
       getLineTableDisplay().setData(lines, patchMode);
 
-      diffScroll_.setVerticalScrollPosition(vscroll);
+      // The diff arrives a page at a time, so the saved offset may lie past
+      // the lines we have so far; keep restoring it as pages are appended
+      pendingScroll_ = vscroll;
+      restorePendingScroll();
       diffScroll_.setHorizontalScrollPosition(hscroll);
    }
 
+   @Override
+   public void appendData(ArrayList<ChunkOrLine> lines)
+   {
+      getLineTableDisplay().appendData(lines);
+
+      // stop chasing the saved offset once the user has scrolled elsewhere
+      if (pendingScroll_ >= 0 &&
+          diffScroll_.getVerticalScrollPosition() != appliedScroll_)
+      {
+         pendingScroll_ = -1;
+      }
+      restorePendingScroll();
+   }
+
+   private void restorePendingScroll()
+   {
+      if (pendingScroll_ < 0)
+         return;
+
+      lines_.restoreScrollPosition(pendingScroll_);
+      appliedScroll_ = diffScroll_.getVerticalScrollPosition();
+      if (appliedScroll_ >= pendingScroll_)
+         pendingScroll_ = -1;
+   }
+
    @Override
    public HasText getCommitMessage()
    {
@@ -773,6 +801,11 @@ public class GitReviewPanel extends ResizeComposite implements Display
 
    private SizeWarningWidget overrideSizeWarning_;
 
+   // vertical offset to restore once enough of the diff has been appended,
+   // and the offset we last scrolled to while doing so
+   private int pendingScroll_ = -1;
+   private int appliedScroll_ = 0;
+
    private static final Resources RES = GWT.create(Resources.class);
    static {
       RES.styles().ensureInjected();
@@ -14,8 +14,10 @@
  */
 package org.rstudio.studio.client.workbench.views.vcs.git.dialog;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.NativeEvent;
 import com.google.gwt.event.dom.client.*;
@@ -61,8 +63,8 @@ import org.rstudio.studio.client.workbench.model.ClientState;
 import org.rstudio.studio.client.workbench.model.Session;
 import org.rstudio.studio.client.workbench.model.helper.IntStateValue;
 import org.rstudio.studio.client.workbench.prefs.model.UserPrefs;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeBatchEvent;
+import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 import org.rstudio.studio.client.workbench.views.vcs.common.ChangelistTable;
 import org.rstudio.studio.client.workbench.views.vcs.common.ConsoleProgressDialog;
 import org.rstudio.studio.client.workbench.views.vcs.common.VCSFileOpener;
@@ -112,6 +114,7 @@ public class GitReviewPresenter implements ReviewPresenter
       HasValue<Boolean> getCommitIsAmend();
 
       void setData(ArrayList<ChunkOrLine> lines, PatchMode patchMode);
+      void appendData(ArrayList<ChunkOrLine> lines);
 
       HasClickHandlers getOverrideSizeWarningButton();
       void showSizeWarning(long sizeInBytes);
@@ -268,10 +271,10 @@ public class GitReviewPresenter implements ReviewPresenter
          @Override
          protected HandlerRegistration doRegister()
          {
-            return events.addHandler(FileChangeEvent.TYPE, new FileChangeHandler()
+            return events.addHandler(FileChangeBatchEvent.TYPE, new FileChangeBatchEvent.Handler()
             {
                @Override
-               public void onFileChange(FileChangeEvent event)
+               public void onFileChangeBatch(FileChangeBatchEvent event)
                {
                   ArrayList<StatusAndPath> paths = view_.getChangelistTable()
                         .getSelectedItems();
@@ -281,11 +284,15 @@ public class GitReviewPresenter implements ReviewPresenter
                      return;
                   }
 
-                  StatusAndPath vcsStatus = StatusAndPath.fromInfo(
-                        event.getFileChange().getFile().getGitStatus());
-                  if (paths.get(0).getRawPath() == vcsStatus.getRawPath())
+                  for (FileChange fileChange : event.getFileChanges())
                   {
-                     gitState.refresh(false);
+                     StatusAndPath vcsStatus = StatusAndPath.fromInfo(
+                           fileChange.getFile().getGitStatus());
+                     if (paths.get(0).getRawPath() == vcsStatus.getRawPath())
+                     {
+                        gitState.refresh(false);
+                        break;
+                     }
                   }
                }
             });
@@ -805,32 +812,16 @@ public class GitReviewPresenter implements ReviewPresenter
                   if (token.isInvalid())
                      return;
 
-                  // Use lastResponse_ to prevent unnecessary flicker
                   String response = diffResult.getDecodedValue();
                   if (response.equals(currentResponse_))
                      return;
                   currentResponse_ = response;
                   currentSourceEncoding_ = diffResult.getSourceEncoding();
 
-                  UnifiedParser parser = new UnifiedParser(response);
-                  parser.nextFilePair();
-
-                  ArrayList<ChunkOrLine> allLines = new ArrayList<ChunkOrLine>();
-
-                  activeChunks_.clear();
-                  for (DiffChunk chunk;
-                       null != (chunk = parser.nextChunk());)
-                  {
-                     activeChunks_.add(chunk);
-                     allLines.add(new ChunkOrLine(chunk));
-                     for (Line line : chunk.getLines())
-                        allLines.add(new ChunkOrLine(line));
-                  }
-
                   view_.setShowActions(
                         !"??".equals(item.getStatus()) &&
                         !"UU".equals(item.getStatus()));
-                  view_.setData(allLines, patchMode);
+                  renderDiff(response, patchMode);
                }
 
                @Override
@@ -848,8 +839,64 @@ public class GitReviewPresenter implements ReviewPresenter
             });
    }
 
+   // Parses and renders the diff a page at a time, yielding to the browser
+   // between pages so that very large diffs don't freeze the dialog. The
+   // first page replaces the current contents; later pages are appended.
+   private void renderDiff(String response, final PatchMode patchMode)
+   {
+      renderInvalidation_.invalidate();
+      final Token token = renderInvalidation_.getInvalidationToken();
+
+      final UnifiedParser parser = new UnifiedParser(response);
+      parser.nextFilePair();
+      activeChunks_.clear();
+
+      RepeatingCommand renderPage = new RepeatingCommand()
+      {
+         @Override
+         public boolean execute()
+         {
+            if (token.isInvalid())
+               return false;
+
+            ArrayList<ChunkOrLine> page = new ArrayList<ChunkOrLine>();
+            double deadline = Duration.currentTimeMillis() + RENDER_SLICE_MILLIS;
+
+            DiffChunk chunk = null;
+            while (page.size() < RENDER_PAGE_LINES &&
+                   (page.isEmpty() || Duration.currentTimeMillis() < deadline) &&
+                   null != (chunk = parser.nextChunk()))
+            {
+               activeChunks_.add(chunk);
+               page.add(new ChunkOrLine(chunk));
+               for (Line line : chunk.getLines())
+                  page.add(new ChunkOrLine(line));
+            }
+
+            if (firstPage_)
+            {
+               firstPage_ = false;
+               view_.setData(page, patchMode);
+            }
+            else
+            {
+               view_.appendData(page);
+            }
+
+            // the loop only ends without a chunk once the diff is exhausted
+            return chunk != null;
+         }
+
+         private boolean firstPage_ = true;
+      };
+
+      if (renderPage.execute())
+         Scheduler.get().scheduleIncremental(renderPage);
+   }
+
    private void clearDiff()
    {
+      renderInvalidation_.invalidate();
       softModeSwitch_ = false;
       currentResponse_ = null;
       currentFilename_ = null;
@@ -932,6 +979,7 @@ public class GitReviewPresenter implements ReviewPresenter
    private final Display view_;
    private final GlobalDisplay globalDisplay_;
    private ArrayList<DiffChunk> activeChunks_ = new ArrayList<DiffChunk>();
+   private final Invalidation renderInvalidation_ = new Invalidation();
    private String currentResponse_;
    private String currentSourceEncoding_;
    private String currentFilename_;
@@ -942,6 +990,9 @@ public class GitReviewPresenter implements ReviewPresenter
    private final UserPrefs uiPrefs_;
    private final VCSFileOpener vcsFileOpener_;
    private boolean initialized_;
+
+   private static final int RENDER_PAGE_LINES = 2000;
+   private static final double RENDER_SLICE_MILLIS = 20;
    private static final String MODULE_GIT = "vcs_git";
    private static final String KEY_CONTEXT_LINES = "context_lines";
    private final int gitCommitLargeFileSize_;
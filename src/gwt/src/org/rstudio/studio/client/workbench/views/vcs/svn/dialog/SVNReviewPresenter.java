@@ -49,8 +49,8 @@ import org.rstudio.studio.client.workbench.commands.Commands;
 import org.rstudio.studio.client.workbench.model.ClientState;
 import org.rstudio.studio.client.workbench.model.Session;
 import org.rstudio.studio.client.workbench.model.helper.IntStateValue;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeBatchEvent;
+import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 import org.rstudio.studio.client.workbench.views.vcs.common.ChangelistTable;
 import org.rstudio.studio.client.workbench.views.vcs.common.ProcessCallback;
 import org.rstudio.studio.client.workbench.views.vcs.common.VCSFileOpener;
@@ -210,10 +210,10 @@ public class SVNReviewPresenter implements ReviewPresenter
          @Override
          protected HandlerRegistration doRegister()
          {
-            return events.addHandler(FileChangeEvent.TYPE, new FileChangeHandler()
+            return events.addHandler(FileChangeBatchEvent.TYPE, new FileChangeBatchEvent.Handler()
             {
                @Override
-               public void onFileChange(FileChangeEvent event)
+               public void onFileChangeBatch(FileChangeBatchEvent event)
                {
                   ArrayList<StatusAndPath> paths = view_.getChangelistTable()
                         .getSelectedItems();
@@ -223,11 +223,15 @@ public class SVNReviewPresenter implements ReviewPresenter
                      return;
                   }
 
-                  StatusAndPath vcsStatus = StatusAndPath.fromInfo(
-                        event.getFileChange().getFile().getSVNStatus());
-                  if (paths.get(0).getRawPath() == vcsStatus.getRawPath())
+                  for (FileChange fileChange : event.getFileChanges())
                   {
-                     svnState.refresh(false);
+                     StatusAndPath vcsStatus = StatusAndPath.fromInfo(
+                           fileChange.getFile().getSVNStatus());
+                     if (paths.get(0).getRawPath() == vcsStatus.getRawPath())
+                     {
+                        svnState.refresh(false);
+                        break;
+                     }
                   }
                }
             });
@@ -0,0 +1,367 @@
+(function() {
+
+var ScopeManager = require("mode/r_scope_tree").ScopeManager;
+
+// Builds the scope tree of a document made up of braces and strings the way
+// ScopeTreeManager does: the tokenizer state at the end of each row is
+// "string" within a string and "start" otherwise, and after an edit the
+// rebuild stops as soon as it reaches a checkpoint row in the same state and
+// with the same scopes open as in the previous parse.
+var CHECKPOINT_ROWS = 5;
+
+var ScopeTreeBuilder = function(lines) {
+   this.lines = lines.slice();
+   this.manager = new ScopeManager();
+   this.checkpoints = {};
+   this.pending = null;
+   this.tokenize();
+   this.rebuildFrom({row: 0, column: 0});
+};
+
+(function() {
+
+   // Each non-blank character is a token.
+   this.tokenize = function() {
+      this.tokens = [];
+      this.states = [];
+      var inString = false;
+      for (var row = 0; row < this.lines.length; row++)
+      {
+         var line = this.lines[row];
+         for (var column = 0; column < line.length; column++)
+         {
+            var value = line.charAt(column);
+            if (value === " ")
+               continue;
+
+            this.tokens.push({row: row, column: column, value: value, inString: inString});
+            if (value === "\"")
+               inString = !inString;
+         }
+         this.states.push(inString ? "string" : "start");
+      }
+   };
+
+   this.indexOf = function(pos) {
+      for (var i = 0; i < this.tokens.length; i++)
+      {
+         var token = this.tokens[i];
+         if (token.row > pos.row || (token.row === pos.row && token.column >= pos.column))
+            return i;
+      }
+      return this.tokens.length;
+   };
+
+   this.rebuildFrom = function(pos) {
+      this.rowsParsed = 0;
+      var i = this.indexOf(pos);
+      var lastRow = -1;
+      while (i < this.tokens.length)
+      {
+         var token = this.tokens[i];
+         if (lastRow !== -1 && token.row !== lastRow)
+         {
+            if (this.checkpoint(lastRow, token.row))
+            {
+               var parsePos = this.manager.getParsePosition();
+               if (parsePos.row >= this.lines.length)
+                  return;
+
+               i = this.indexOf({row: parsePos.row, column: 0});
+               lastRow = -1;
+               continue;
+            }
+         }
+
+         if (token.row !== lastRow)
+            this.rowsParsed++;
+         lastRow = token.row;
+
+         this.onToken(token);
+         i++;
+      }
+
+      this.manager.setParsePosition({row: this.lines.length, column: -1});
+   };
+
+   this.checkpoint = function(prevRow, row) {
+      for (var i = prevRow + 1; i < row; i++)
+         delete this.checkpoints[i];
+
+      var state = this.states[row - 1];
+      if (this.checkpoints[row] === state && this.manager.reattach(row))
+         return true;
+
+      if (row % CHECKPOINT_ROWS === 0)
+         this.checkpoints[row] = state;
+      else
+         delete this.checkpoints[row];
+      return false;
+   };
+
+   this.onToken = function(token) {
+      if (token.inString)
+         return;
+
+      var pos = {row: token.row, column: token.column};
+      if (token.value === "{")
+      {
+         var label = this.lines[token.row].substring(0, token.column).trim();
+         if (label)
+            this.manager.onNamedScopeStart(label, pos);
+         else
+            this.manager.onScopeStart(pos);
+      }
+      else if (token.value === "}")
+      {
+         this.manager.onScopeEnd({row: token.row, column: token.column + 1});
+      }
+   };
+
+   this.insert = function(pos, text) {
+      var parts = text.split("\n");
+      var line = this.lines[pos.row];
+      var last = parts.length - 1;
+      var end = {
+         row: pos.row + last,
+         column: (last === 0 ? pos.column : 0) + parts[last].length
+      };
+
+      parts[0] = line.substring(0, pos.column) + parts[0];
+      parts[last] = parts[last] + line.substring(pos.column);
+      this.lines.splice.apply(this.lines, [pos.row, 1].concat(parts));
+      this.onDocumentChanged("insert", pos, end);
+   };
+
+   this.remove = function(start, end) {
+      var joined = this.lines[start.row].substring(0, start.column) +
+                   this.lines[end.row].substring(end.column);
+      this.lines.splice(start.row, end.row - start.row + 1, joined);
+      this.onDocumentChanged("remove", start, end);
+   };
+
+   // Mirrors ScopeTreeManager.Worker.onDocumentChanged; the rebuild waits
+   // for flush().
+   this.onDocumentChanged = function(action, start, end) {
+      this.tokenize();
+
+      var insert = action === "insert";
+      var delta = insert ? end.row - start.row : start.row - end.row;
+      var lastRow = insert ? end.row : start.row;
+      this.shiftCheckpoints(start.row, lastRow - delta, delta);
+
+      var pending = this.pending;
+      if (!pending)
+      {
+         this.pending = {start: start, lastRow: lastRow, delta: delta};
+         return;
+      }
+
+      if (start.row < pending.start.row ||
+          (start.row === pending.start.row && start.column < pending.start.column))
+      {
+         pending.start = start;
+      }
+      if (pending.lastRow >= start.row)
+         pending.lastRow += delta;
+      pending.lastRow = Math.max(pending.lastRow, lastRow);
+      pending.delta += delta;
+   };
+
+   this.shiftCheckpoints = function(startRow, oldLastRow, delta) {
+      var shifted = {};
+      for (var key in this.checkpoints)
+      {
+         var row = parseInt(key, 10);
+         if (row <= startRow)
+            shifted[row] = this.checkpoints[key];
+         else if (row > oldLastRow)
+            shifted[row + delta] = this.checkpoints[key];
+      }
+      this.checkpoints = shifted;
+   };
+
+   this.flush = function() {
+      var pending = this.pending;
+      this.pending = null;
+      var pos = this.manager.detachFrom(pending.start, pending.lastRow, pending.delta);
+      this.rebuildFrom(pos || pending.start);
+   };
+
+}).call(ScopeTreeBuilder.prototype);
+
+function describe(nodes) {
+   var result = [];
+   for (var i = 0; i < nodes.length; i++)
+   {
+      var node = nodes[i];
+      result.push({
+         label: node.label,
+         preamble: node.preamble,
+         start: node.start,
+         end: node.end,
+         children: describe(node.$children)
+      });
+   }
+   return result;
+}
+
+// Asserts that 'builder' has the same scope tree (and parse position) as a
+// parse of its document from scratch
+function assertConverged(assert, builder) {
+   var reparsed = new ScopeTreeBuilder(builder.lines);
+   assert.deepEqual(describe(builder.manager.getScopeList()),
+                    describe(reparsed.manager.getScopeList()),
+                    "scope tree matches a full reparse");
+   assert.deepEqual(builder.manager.getParsePosition(),
+                    reparsed.manager.getParsePosition(),
+                    "parse position matches a full reparse");
+}
+
+// eight five-row functions, each starting at a checkpoint row
+function makeDocument() {
+   var lines = [];
+   for (var i = 0; i < 8; i++)
+   {
+      lines.push("f" + i + " {");
+      lines.push("   if {");
+      lines.push("      x");
+      lines.push("   }");
+      lines.push("}");
+   }
+   return lines;
+}
+
+QUnit.module("Scope tree");
+
+QUnit.test("$shiftRows moves a scope and its children", function(assert) {
+   var builder = new ScopeTreeBuilder(["f {", "   if {", "   }", "}"]);
+   var node = builder.manager.getScopeList()[0];
+
+   node.$shiftRows(3);
+
+   assert.deepEqual(node.preamble, {row: 3, column: 2});
+   assert.deepEqual(node.end, {row: 6, column: 1});
+   assert.deepEqual(node.$children[0].start, {row: 4, column: 6});
+   assert.deepEqual(node.$children[0].end, {row: 5, column: 4});
+});
+
+QUnit.test("detachFrom keeps the scopes it removes", function(assert) {
+   var builder = new ScopeTreeBuilder(makeDocument());
+   var manager = builder.manager;
+
+   var pos = manager.detachFrom({row: 12, column: 0}, 12, 0);
+
+   assert.deepEqual(pos, {row: 11, column: 0}, "resumes before the edit");
+   var scopes = manager.getScopeList();
+   assert.equal(scopes.length, 3, "scopes after the edit are removed");
+   assert.equal(scopes[2].end, null, "the scope containing the edit is reopened");
+   assert.equal(scopes[2].$children.length, 0);
+
+   var levels = manager.$detached.levels;
+   assert.equal(levels.length, 2);
+   assert.equal(levels[0].children.length, 5, "later functions are kept");
+   assert.equal(levels[1].node, scopes[2]);
+   assert.deepEqual(levels[1].end, {row: 14, column: 1});
+   assert.equal(levels[1].children[0].label, "if");
+});
+
+QUnit.test("reattach refuses rows it can't match up", function(assert) {
+   var builder = new ScopeTreeBuilder(makeDocument());
+   var manager = builder.manager;
+   manager.detachFrom({row: 12, column: 0}, 12, 0);
+
+   assert.notOk(manager.reattach(12), "row within the edit");
+   assert.notOk(manager.reattach(13), "a detached scope is open at the row");
+   assert.notOk(manager.reattach(15), "other scopes are open at the row");
+   assert.ok(manager.$detached, "detached scopes are kept for a later row");
+});
+
+QUnit.test("reattach restores the scopes after an edit", function(assert) {
+   var builder = new ScopeTreeBuilder(makeDocument());
+
+   builder.insert({row: 2, column: 7}, "\n      y\n      z");
+   builder.flush();
+
+   assertConverged(assert, builder);
+   assert.ok(builder.rowsParsed < 10, "rebuild stopped at a checkpoint");
+   assert.deepEqual(builder.manager.getScopeList()[7].end, {row: 41, column: 1});
+});
+
+QUnit.test("Edit above a checkpoint", function(assert) {
+   var builder = new ScopeTreeBuilder(makeDocument());
+
+   builder.remove({row: 7, column: 0}, {row: 8, column: 0});
+   builder.flush();
+
+   assertConverged(assert, builder);
+   assert.ok(builder.rowsParsed < 10, "rebuild stopped at a checkpoint");
+});
+
+QUnit.test("Edit spanning a checkpoint", function(assert) {
+   var builder = new ScopeTreeBuilder(makeDocument());
+
+   builder.remove({row: 14, column: 1}, {row: 17, column: 7});
+   builder.insert({row: 14, column: 1}, "\ng {\n   h {");
+   builder.flush();
+
+   assertConverged(assert, builder);
+   assert.ok(builder.rowsParsed < 10, "rebuild stopped at a checkpoint");
+});
+
+QUnit.test("Edit below the last checkpoint", function(assert) {
+   var builder = new ScopeTreeBuilder(makeDocument());
+
+   builder.insert({row: 38, column: 0}, "   }\n   if {\n");
+   builder.flush();
+
+   assertConverged(assert, builder);
+});
+
+QUnit.test("Edit that opens a scope", function(assert) {
+   // every later scope now lies within the new one, so the open scopes
+   // never match those of the previous parse
+   var builder = new ScopeTreeBuilder(makeDocument());
+
+   builder.insert({row: 10, column: 0}, "g {\n");
+   builder.flush();
+
+   assertConverged(assert, builder);
+   assert.equal(builder.manager.getScopeList().length, 3);
+});
+
+QUnit.test("Edit that opens a string", function(assert) {
+   // the tokenizer state differs at every later checkpoint, both when the
+   // string is opened and when it's closed again
+   var builder = new ScopeTreeBuilder(makeDocument());
+
+   builder.insert({row: 10, column: 3}, "\"");
+   builder.flush();
+
+   assertConverged(assert, builder);
+   assert.equal(builder.manager.getScopeList().length, 2);
+
+   builder.insert({row: 30, column: 3}, "\"");
+   builder.flush();
+
+   assertConverged(assert, builder);
+   assert.equal(builder.manager.getScopeList().length, 4);
+});
+
+QUnit.test("Batched edits above, inside and below checkpoints", function(assert) {
+   var builder = new ScopeTreeBuilder(makeDocument());
+
+   builder.insert({row: 21, column: 0}, "   {\n   }\n");
+   builder.remove({row: 7, column: 0}, {row: 9, column: 0});
+   builder.insert({row: 30, column: 7}, "\n      w");
+   builder.flush();
+
+   assertConverged(assert, builder);
+
+   builder.remove({row: 0, column: 0}, {row: 5, column: 0});
+   builder.flush();
+
+   assertConverged(assert, builder);
+});
+
+})();
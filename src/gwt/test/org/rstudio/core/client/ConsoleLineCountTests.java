@@ -0,0 +1,167 @@
+/*
+ * ConsoleLineCountTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import org.rstudio.core.client.dom.DomUtils;
+import org.rstudio.studio.client.workbench.prefs.model.UserPrefs;
+
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.junit.client.GWTTestCase;
+
+import junit.framework.Assert;
+
+// Verifies that the incremental line accounting done by VirtualConsole and
+// ConsoleOutputWriter agrees with a full count of the lines in the DOM.
+public class ConsoleLineCountTests extends GWTTestCase
+{
+   private final String nullClazz = null;
+   private final boolean notError = false;
+   private final boolean checkLineCount = false;
+
+   private static class FakePrefs implements VirtualConsole.Preferences
+   {
+      @Override
+      public int truncateLongLinesInConsoleHistory()
+      {
+         return 1000;
+      }
+
+      @Override
+      public String consoleAnsiMode()
+      {
+         return UserPrefs.ANSI_CONSOLE_MODE_ON;
+      }
+
+      @Override
+      public boolean screenReaderEnabled()
+      {
+         return false;
+      }
+   }
+
+   private static class VCFactory implements VirtualConsoleFactory
+   {
+      @Override
+      public VirtualConsole create(Element elem)
+      {
+         return new VirtualConsole(elem, new FakePrefs());
+      }
+   }
+
+   private ConsoleOutputWriter getCOW()
+   {
+      return new ConsoleOutputWriter(new VCFactory(), null);
+   }
+
+   private void write(ConsoleOutputWriter output, String text)
+   {
+      output.outputToConsole(text, nullClazz, notError, checkLineCount, false);
+   }
+
+   private void assertConsistent(ConsoleOutputWriter output, int expected)
+   {
+      Assert.assertEquals(expected, output.getCurrentLines());
+      Assert.assertEquals(expected, DomUtils.countLines(output.getElement(), true));
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testSubmitReportsNewlines()
+   {
+      VirtualConsole vc = new VirtualConsole(null, new FakePrefs());
+      vc.submit("one\ntwo\nthree");
+      Assert.assertEquals(2, vc.getNewlinesAdded());
+      Assert.assertEquals(0, vc.getNewlinesRemoved());
+      Assert.assertEquals(2, vc.getLineCount());
+
+      vc.submit("\n");
+      Assert.assertEquals(1, vc.getNewlinesAdded());
+      Assert.assertEquals(0, vc.getNewlinesRemoved());
+      Assert.assertEquals(3, vc.getLineCount());
+   }
+
+   public void testCarriageReturn()
+   {
+      ConsoleOutputWriter output = getCOW();
+      write(output, "1\n2\n");
+      assertConsistent(output, 2);
+
+      // progress-bar style updates rewrite the current line only
+      for (int i = 0; i < 10; i++)
+      {
+         write(output, "\rprogress " + i);
+         assertConsistent(output, 2);
+      }
+
+      write(output, "\rdone\n");
+      assertConsistent(output, 3);
+   }
+
+   public void testBackspaceOverNewline()
+   {
+      VirtualConsole vc = new VirtualConsole(null, new FakePrefs());
+      vc.submit("a\n\bX");
+      Assert.assertEquals("aX", vc.toString());
+      Assert.assertEquals(1, vc.getNewlinesAdded());
+      Assert.assertEquals(1, vc.getNewlinesRemoved());
+      Assert.assertEquals(0, vc.getLineCount());
+   }
+
+   public void testBackspaceWithinLine()
+   {
+      ConsoleOutputWriter output = getCOW();
+      write(output, "hello\n");
+      write(output, "world\b\b\b\bX\n");
+      assertConsistent(output, 2);
+   }
+
+   public void testFormFeed()
+   {
+      ConsoleOutputWriter output = getCOW();
+      write(output, "one\ntwo\nthree\n");
+      assertConsistent(output, 3);
+
+      write(output, "four\n\ffive\n");
+      assertConsistent(output, 1);
+
+      write(output, "six\n");
+      assertConsistent(output, 2);
+   }
+
+   public void testFormFeedInVirtualConsole()
+   {
+      VirtualConsole vc = new VirtualConsole(null, new FakePrefs());
+      vc.submit("one\ntwo\n");
+      vc.submit("three\n\ffour\n");
+      Assert.assertEquals(2, vc.getNewlinesAdded());
+      Assert.assertEquals(3, vc.getNewlinesRemoved());
+      Assert.assertEquals(1, vc.getLineCount());
+   }
+
+   public void testTrimmingUsesCounter()
+   {
+      ConsoleOutputWriter output = getCOW();
+      output.setMaxOutputLines(10);
+      for (int i = 0; i < 25; i++)
+      {
+         write(output, i + "\r" + i + "\n");
+         assertConsistent(output, Math.min(i + 1, 10));
+      }
+   }
+}
@@ -239,6 +239,61 @@ public class ConsoleOutputWriterTests extends GWTTestCase
       Assert.assertEquals(expected, getInnerHTML(output));
    }
 
+   public void testVirtualizedScrollback()
+   {
+      // only a window of lines should stay in the DOM, with older lines kept
+      // off-DOM up to the maximum line count
+      ConsoleOutputWriter output = getCOW();
+      output.setMaxOutputLines(100);
+      output.setVirtualizedScrollback(10);
+
+      StringBuilder expected = new StringBuilder();
+      for (int i = 0; i < 50; i++)
+      {
+         Assert.assertTrue(output.outputToConsole(numberedLine(i),
+               myClass, notError, checkLineCount, false));
+         expected.append(numberedLine(i));
+      }
+      Assert.assertEquals(10, output.getCurrentLines());
+      Assert.assertEquals(10, DomUtils.countLines(output.getElement(), true));
+      Assert.assertTrue(output.hasScrollback());
+      Assert.assertEquals(expected.toString(), output.getAllText());
+
+      // restore some older lines above the current output
+      Assert.assertEquals(5, output.restoreScrollback(5));
+      Assert.assertEquals(15, output.getCurrentLines());
+      Assert.assertEquals(15, DomUtils.countLines(output.getElement(), true));
+      Assert.assertEquals(expected.toString(), output.getAllText());
+      SpanElement restored = SpanElement.as(output.getElement().getFirstChildElement());
+      Assert.assertEquals("<span class=\"myClass\">35\n36\n37\n38\n39\n</span>",
+            restored.getInnerHTML());
+
+      // restored lines survive new output until the window is reset
+      output.outputToConsole(numberedLine(50), myClass, notError, checkLineCount, false);
+      expected.append(numberedLine(50));
+      Assert.assertEquals(16, output.getCurrentLines());
+      output.resetScrollbackWindow();
+      Assert.assertEquals(10, output.getCurrentLines());
+      Assert.assertEquals(expected.toString(), output.getAllText());
+
+      // exceeding the overall maximum discards the oldest stored lines
+      for (int i = 51; i < 120; i++)
+      {
+         output.outputToConsole(numberedLine(i), myClass, notError, checkLineCount, false);
+      }
+      expected.setLength(0);
+      for (int i = 20; i < 120; i++)
+      {
+         expected.append(numberedLine(i));
+      }
+      Assert.assertEquals(10, output.getCurrentLines());
+      Assert.assertEquals(expected.toString(), output.getAllText());
+
+      output.clearConsoleOutput();
+      Assert.assertFalse(output.hasScrollback());
+      Assert.assertEquals("", output.getAllText());
+   }
+
    ////////////////////////////////////////////////////////////////////////////
    // Below here are a bunch of tests I had written in R and was checking by
    // eyeball directly in RStudio. https://github.com/gtritchie/console_tests
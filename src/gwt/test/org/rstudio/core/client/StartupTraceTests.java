@@ -0,0 +1,98 @@
+/*
+ * StartupTraceTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.ArrayList;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class StartupTraceTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testEmpty()
+   {
+      assertEquals(0, StartupTrace.getCriticalPath(
+            new ArrayList<StartupTrace.Span>(), 100).length);
+   }
+
+   public void testSequentialSpans()
+   {
+      ArrayList<StartupTrace.Span> spans = new ArrayList<StartupTrace.Span>();
+      StartupTrace.Span load = span(spans, "load", 0, 40);
+      StartupTrace.Span rpc = span(spans, "rpc", 40, 90);
+      StartupTrace.Span init = span(spans, "init", 95, 120);
+
+      StartupTrace.Span[] path = StartupTrace.getCriticalPath(spans, 120);
+      assertEquals(3, path.length);
+      assertSame(load, path[0]);
+      assertSame(rpc, path[1]);
+      assertSame(init, path[2]);
+   }
+
+   public void testParallelSpans()
+   {
+      // the shorter of two overlapping spans doesn't hold up startup
+      ArrayList<StartupTrace.Span> spans = new ArrayList<StartupTrace.Span>();
+      span(spans, "prefs", 10, 30);
+      StartupTrace.Span rpc = span(spans, "rpc", 10, 80);
+      StartupTrace.Span init = span(spans, "init", 80, 100);
+
+      StartupTrace.Span[] path = StartupTrace.getCriticalPath(spans, 100);
+      assertEquals(2, path.length);
+      assertSame(rpc, path[0]);
+      assertSame(init, path[1]);
+   }
+
+   public void testNestedSpans()
+   {
+      // spans within a span on the path are covered by it
+      ArrayList<StartupTrace.Span> spans = new ArrayList<StartupTrace.Span>();
+      StartupTrace.Span workbench = span(spans, "workbench", 0, 50);
+      span(spans, "panes", 0, 50);
+      span(spans, "source", 20, 30);
+
+      StartupTrace.Span[] path = StartupTrace.getCriticalPath(spans, 60);
+      assertEquals(1, path.length);
+      assertSame(workbench, path[0]);
+   }
+
+   public void testIgnoresMarksAndOpenSpans()
+   {
+      ArrayList<StartupTrace.Span> spans = new ArrayList<StartupTrace.Span>();
+      StartupTrace.Span rpc = span(spans, "rpc", 0, 50);
+      spans.add(new StartupTrace.Span("client init", StartupTrace.CATEGORY_MARK, 60, 60));
+      spans.add(new StartupTrace.Span("load tab", "load", 55));
+      span(spans, "late", 70, 200);
+
+      StartupTrace.Span[] path = StartupTrace.getCriticalPath(spans, 100);
+      assertEquals(1, path.length);
+      assertSame(rpc, path[0]);
+   }
+
+   private static StartupTrace.Span span(ArrayList<StartupTrace.Span> spans,
+                                         String name,
+                                         double start,
+                                         double end)
+   {
+      StartupTrace.Span span = new StartupTrace.Span(name, "test", start, end);
+      spans.add(span);
+      return span;
+   }
+}
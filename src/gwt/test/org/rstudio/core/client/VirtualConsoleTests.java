@@ -1169,4 +1169,31 @@ public class VirtualConsoleTests extends GWTTestCase
       Assert.assertEquals(expected, ele.getInnerHTML());
       Assert.assertEquals("Inverted with red background yellow foreground Inverted with default colors", vc.toString());
    }
+
+   public void testColoredCarriageReturn()
+   {
+      // redrawing a coloured progress bar with \r splits and merges styled
+      // ranges at the end of the buffer; the rendered ranges must always
+      // match the console's text
+      PreElement ele = Document.get().createPreElement();
+      VirtualConsole vc = getVC(ele);
+      vc.submit("Downloading\n");
+
+      final int updates = 1000;
+      final int width = 20;
+      String last = null;
+      for (int i = 0; i < updates; i++)
+      {
+         int done = i % (width + 1);
+         String bar = StringUtil.repeat("=", done);
+         String rest = StringUtil.repeat("-", width - done);
+         vc.submit("\r" + setCsiCode(32) + bar +
+                   setCsiCode(AnsiCode.RESET_FOREGROUND) + rest + " " + i);
+         last = bar + rest + " " + i;
+         Assert.assertEquals("Downloading\n" + last, ele.getInnerText());
+      }
+
+      Assert.assertEquals("Downloading\n" + last, vc.toString());
+      Assert.assertEquals("Downloading\n" + last, ele.getInnerText());
+   }
 }
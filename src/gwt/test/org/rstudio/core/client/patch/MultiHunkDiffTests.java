@@ -0,0 +1,126 @@
+/*
+ * MultiHunkDiffTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class MultiHunkDiffTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testIdentical()
+   {
+      String doc = makeDocument(100);
+      assertTrue(MultiHunkDiff.create(doc, doc).isEmpty());
+   }
+
+   public void testSmallEditIsSingleHunk()
+   {
+      String orig = "x <- 1\ny <- 2\n";
+      String changed = "x <- 1\ny <- 3\n";
+      MultiHunkDiff diff = MultiHunkDiff.create(orig, changed);
+      assertEquals(1, diff.getHunkCount());
+      assertEquals(12, diff.getHunk(0).getOffset());
+      assertEquals(1, diff.getHunk(0).getLength());
+      assertEquals("3", diff.getHunk(0).getReplacement());
+   }
+
+   public void testDistantEditsAreSplit()
+   {
+      String orig = makeDocument(1000);
+      String changed = "# header\n" + orig + "# footer\n";
+      MultiHunkDiff diff = MultiHunkDiff.create(orig, changed);
+      assertEquals(2, diff.getHunkCount());
+      assertTrue(diff.getReplacementLength() < 100);
+      assertEquals(changed, apply(orig, diff));
+   }
+
+   public void testNonAsciiOffsets()
+   {
+      String orig = "# \u00e9\u00e8 \ud83d\ude00\n" + makeDocument(1000);
+      String changed = "# \u00e9\u00e8 \ud83d\ude01\n" +
+                       makeDocument(500) +
+                       "z <- '\u4e2d'\n" +
+                       makeDocument(1000).substring(makeDocument(500).length());
+      MultiHunkDiff diff = MultiHunkDiff.create(orig, changed);
+      assertEquals(2, diff.getHunkCount());
+      assertEquals(changed, apply(orig, diff));
+   }
+
+   public void testRegionDiff()
+   {
+      // diff only the middle of a document, as DocEditTracker does
+      String orig = makeDocument(1000);
+      String changed = "a" + orig.substring(1, orig.length() - 1) + "b";
+      String head = orig.substring(0, 100);
+      String tail = orig.substring(orig.length() - 100);
+      String base = head + orig + tail;
+      MultiHunkDiff diff = MultiHunkDiff.create(
+            base, head.length(), head.length() + orig.length(),
+            SubstringDiff.utf8Length(head, 0, head.length()), changed);
+      assertEquals(2, diff.getHunkCount());
+      assertEquals(head + changed + tail, apply(base, diff));
+   }
+
+   public void testSeparatedEditsSendOnlyChangedText()
+   {
+      // edits at both ends of a large document are sent as two small hunks
+      // rather than as everything in between
+      String orig = makeDocument(10000);
+      String changed = "# header\n" + orig + "# footer\n";
+      MultiHunkDiff diff = MultiHunkDiff.create(orig, changed);
+      assertEquals(2, diff.getHunkCount());
+      assertEquals("# header\n# footer\n".length(),
+                   diff.getReplacementLength());
+      assertEquals(changed, apply(orig, diff));
+   }
+
+   private static String makeDocument(int lines)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < lines; i++)
+         builder.append("x").append(i).append(" <- rnorm(").append(i).append(")\n");
+      return builder.toString();
+   }
+
+   // applies the hunks to a string by converting their byte offsets back to
+   // character offsets
+   private static String apply(String orig, MultiHunkDiff diff)
+   {
+      String result = orig;
+      for (int i = diff.getHunkCount() - 1; i >= 0; i--)
+      {
+         MultiHunkDiff.Hunk hunk = diff.getHunk(i);
+         int start = toCharOffset(orig, hunk.getOffset());
+         int end = toCharOffset(orig, hunk.getOffset() + hunk.getLength());
+         result = result.substring(0, start) +
+                  hunk.getReplacement() +
+                  result.substring(end);
+      }
+      return result;
+   }
+
+   private static int toCharOffset(String str, int byteOffset)
+   {
+      int pos = 0;
+      for (int bytes = 0; bytes < byteOffset; pos++)
+         bytes += SubstringDiff.utf8Length(str, pos, pos + 1);
+      return pos;
+   }
+}
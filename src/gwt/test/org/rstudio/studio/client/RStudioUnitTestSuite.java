@@ -15,19 +15,27 @@
 package org.rstudio.studio.client;
 
 import org.rstudio.core.client.AnsiCodeTests;
+import org.rstudio.core.client.ConsoleLineCountTests;
 import org.rstudio.core.client.ConsoleOutputWriterTests;
 import org.rstudio.core.client.ElementIdsTests;
 import org.rstudio.core.client.SafeHtmlUtilTests;
+import org.rstudio.core.client.StartupTraceTests;
 import org.rstudio.core.client.StringUtilTests;
 import org.rstudio.core.client.URIUtilsTests;
 import org.rstudio.core.client.VirtualConsoleTests;
 import org.rstudio.core.client.dom.DomUtilsTests;
+import org.rstudio.core.client.patch.MultiHunkDiffTests;
 import org.rstudio.studio.client.application.model.SessionScopeTests;
 import org.rstudio.studio.client.common.r.RTokenizerTests;
+import org.rstudio.studio.client.common.spelling.SpellingVerdictCacheTests;
+import org.rstudio.studio.client.workbench.prefs.model.PrefsTests;
+import org.rstudio.studio.client.workbench.views.files.model.FileChangeBatchTests;
 import org.rstudio.studio.client.workbench.views.jobs.model.JobManagerTests;
 import org.rstudio.studio.client.workbench.views.jobs.view.JobsListTests;
 // Disabled in v1.3 due to failures. See #4249.
 // import org.rstudio.studio.client.workbench.views.source.editors.text.assist.RChunkHeaderParserTests;
+import org.rstudio.studio.client.workbench.views.source.SourceColumnManagerTests;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ScopeTreeCheckpointsTests;
 import org.rstudio.studio.client.workbench.views.terminal.TerminalLocalEchoTests;
 import org.rstudio.studio.client.workbench.views.terminal.TerminalSessionSocketTests;
 import org.rstudio.studio.client.workbench.views.source.editors.text.rmd.ChunkContextUiTests;
@@ -44,6 +52,7 @@ public class RStudioUnitTestSuite extends GWTTestSuite
       suite.addTestSuite(RTokenizerTests.class);
       suite.addTestSuite(VirtualConsoleTests.class);
       suite.addTestSuite(ConsoleOutputWriterTests.class);
+      suite.addTestSuite(ConsoleLineCountTests.class);
       suite.addTestSuite(StringUtilTests.class);
       suite.addTestSuite(DomUtilsTests.class);
       suite.addTestSuite(AnsiCodeTests.class);
@@ -58,6 +67,13 @@ public class RStudioUnitTestSuite extends GWTTestSuite
       suite.addTestSuite(ElementIdsTests.class);
       suite.addTestSuite(ChunkContextUiTests.class);
       suite.addTestSuite(SafeHtmlUtilTests.class);
+      suite.addTestSuite(MultiHunkDiffTests.class);
+      suite.addTestSuite(FileChangeBatchTests.class);
+      suite.addTestSuite(PrefsTests.class);
+      suite.addTestSuite(SpellingVerdictCacheTests.class);
+      suite.addTestSuite(StartupTraceTests.class);
+      suite.addTestSuite(SourceColumnManagerTests.class);
+      suite.addTestSuite(ScopeTreeCheckpointsTests.class);
 
       return suite;
    }
@@ -0,0 +1,70 @@
+/*
+ * SpellingVerdictCacheTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.spelling;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class SpellingVerdictCacheTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testGetAndPut()
+   {
+      SpellingVerdictCache cache = new SpellingVerdictCache(10);
+      assertNull(cache.get("word"));
+      cache.put("word", true);
+      cache.put("wrod", false);
+      assertEquals(Boolean.TRUE, cache.get("word"));
+      assertEquals(Boolean.FALSE, cache.get("wrod"));
+   }
+
+   public void testLeastRecentlyUsedEvicted()
+   {
+      SpellingVerdictCache cache = new SpellingVerdictCache(2);
+      cache.put("a", true);
+      cache.put("b", true);
+      cache.get("a");
+      cache.put("c", true);
+      assertEquals(2, cache.size());
+      assertNotNull(cache.get("a"));
+      assertNull(cache.get("b"));
+      assertNotNull(cache.get("c"));
+   }
+
+   public void testInvalidate()
+   {
+      SpellingVerdictCache cache = new SpellingVerdictCache(10);
+      cache.put("word", true);
+      int generation = cache.getGeneration();
+      cache.invalidate();
+      assertNull(cache.get("word"));
+      assertTrue(cache.getGeneration() != generation);
+   }
+
+   public void testStaleVerdictDiscarded()
+   {
+      SpellingVerdictCache cache = new SpellingVerdictCache(10);
+      int generation = cache.getGeneration();
+      cache.invalidate();
+      cache.put("word", true, generation);
+      assertNull(cache.get("word"));
+      cache.put("word", true, cache.getGeneration());
+      assertEquals(Boolean.TRUE, cache.get("word"));
+   }
+}
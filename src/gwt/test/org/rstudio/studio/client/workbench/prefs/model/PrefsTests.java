@@ -0,0 +1,140 @@
+/*
+ * PrefsTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.prefs.model;
+
+import org.rstudio.core.client.js.JsObject;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class PrefsTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   private static class TestPrefs extends Prefs
+   {
+      public TestPrefs(JsArray<PrefLayer> layers)
+      {
+         super(layers);
+      }
+
+      @Override
+      public int userLayer()
+      {
+         return 1;
+      }
+
+      @Override
+      public int projectLayer()
+      {
+         return 2;
+      }
+
+      public PrefValue<Integer> tabWidth()
+      {
+         return integer("tab_width", "", "", 2);
+      }
+
+      public PrefValue<JsObject> options()
+      {
+         return object("options", "", "", JsObject.createJsObject());
+      }
+
+      public void replaceLayers(JsArray<PrefLayer> layers)
+      {
+         updatePrefs(layers);
+      }
+   }
+
+   public void testLayerPrecedence()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers(3));
+      assertEquals(2, (int) prefs.tabWidth().getValue());
+
+      prefs.tabWidth().setGlobalValue(4);
+      assertEquals(4, (int) prefs.tabWidth().getValue());
+
+      prefs.tabWidth().setProjectValue(8);
+      assertEquals(8, (int) prefs.tabWidth().getValue());
+      assertEquals(4, (int) prefs.tabWidth().getGlobalValue());
+
+      prefs.tabWidth().removeProjectValue(false);
+      assertEquals(4, (int) prefs.tabWidth().getValue());
+   }
+
+   public void testReplacedLayersAreRead()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers(3));
+      prefs.tabWidth().setGlobalValue(4);
+      assertEquals(4, (int) prefs.tabWidth().getValue());
+
+      prefs.replaceLayers(createLayers(3));
+      assertEquals(2, (int) prefs.tabWidth().getValue());
+   }
+
+   public void testRepeatedReadsReturnCachedValue()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers(3));
+      JsObject first = JsObject.createJsObject();
+      prefs.options().setGlobalValue(first);
+
+      JsObject value = prefs.options().getValue();
+      assertSame(first, value);
+      assertSame(value, prefs.options().getValue());
+      assertEquals(2, (int) prefs.tabWidth().getValue());
+
+      // a layer changed behind the pref's back isn't re-read: the resolved
+      // value is cached
+      prefs.getUserLayer().setObject("options", JsObject.createJsObject());
+      prefs.getUserLayer().setInteger("tab_width", 6);
+      assertSame(first, prefs.options().getValue());
+      assertEquals(2, (int) prefs.tabWidth().getValue());
+   }
+
+   public void testWriteInvalidatesCachedValue()
+   {
+      TestPrefs prefs = new TestPrefs(createLayers(3));
+      assertEquals(2, (int) prefs.tabWidth().getValue());
+      JsObject first = JsObject.createJsObject();
+      prefs.options().setGlobalValue(first);
+      assertSame(first, prefs.options().getValue());
+
+      prefs.tabWidth().setGlobalValue(4);
+      assertEquals(4, (int) prefs.tabWidth().getValue());
+
+      JsObject second = JsObject.createJsObject();
+      prefs.options().setGlobalValue(second);
+      assertSame(second, prefs.options().getValue());
+      assertSame(second, prefs.options().getValue());
+
+      prefs.options().setProjectValue(first);
+      assertSame(first, prefs.options().getValue());
+      prefs.options().removeProjectValue(false);
+      assertSame(second, prefs.options().getValue());
+   }
+
+   // creates layers named like the real ones for the first three
+   private static native JsArray<PrefLayer> createLayers(int count) /*-{
+      var names = ["default", "user", "project"];
+      var layers = [];
+      for (var i = 0; i < count; i++)
+         layers.push({ name: i < names.length ? names[i] : "layer" + i, values: {} });
+      return layers;
+   }-*/;
+}
@@ -0,0 +1,77 @@
+/*
+ * FileChangeBatchTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.files.model;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.files.FileSystemItem;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class FileChangeBatchTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testRepeatedModificationsAreMerged()
+   {
+      FileChangeBatch batch = new FileChangeBatch();
+      FileChange first = FileChange.createModified(FileSystemItem.createFile("/a.R"));
+      FileChange other = FileChange.createModified(FileSystemItem.createFile("/b.R"));
+      FileChange last = FileChange.createModified(FileSystemItem.createFile("/a.R"));
+      batch.add(first);
+      batch.add(other);
+      batch.add(last);
+
+      ArrayList<FileChange> changes = batch.takeChanges();
+      assertEquals(2, changes.size());
+      assertSame(last, changes.get(0));
+      assertSame(other, changes.get(1));
+      assertTrue(batch.isEmpty());
+   }
+
+   public void testOtherChangesAreKept()
+   {
+      // a delete and re-add (as some editors do when saving) must not be
+      // merged into a modification
+      FileChangeBatch batch = new FileChangeBatch();
+      batch.add(FileChange.createModified(FileSystemItem.createFile("/a.R")));
+      batch.add(FileChange.createDelete(FileSystemItem.createFile("/a.R")));
+      batch.add(FileChange.createAdd(FileSystemItem.createFile("/a.R")));
+      batch.add(FileChange.createModified(FileSystemItem.createFile("/a.R")));
+
+      ArrayList<FileChange> changes = batch.takeChanges();
+      assertEquals(4, changes.size());
+      assertEquals(FileChange.MODIFIED, changes.get(0).getType());
+      assertEquals(FileChange.DELETE, changes.get(1).getType());
+      assertEquals(FileChange.ADD, changes.get(2).getType());
+      assertEquals(FileChange.MODIFIED, changes.get(3).getType());
+   }
+
+   public void testBatchIsReusable()
+   {
+      FileChangeBatch batch = new FileChangeBatch();
+      batch.add(FileChange.createModified(FileSystemItem.createFile("/a.R")));
+      batch.takeChanges();
+
+      // a change in a later batch isn't merged into an earlier one
+      batch.add(FileChange.createModified(FileSystemItem.createFile("/a.R")));
+      assertEquals(1, batch.size());
+      assertEquals(1, batch.takeChanges().size());
+   }
+}
@@ -0,0 +1,178 @@
+/*
+ * SourceColumnManagerTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.CommandWithArg;
+import org.rstudio.core.client.events.EnsureVisibleEvent;
+import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.placeholder.PlaceholderEditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
+
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.Command;
+
+public class SourceColumnManagerTests extends GWTTestCase
+{
+   // a restored tab that loads into the given target (or fails to load if
+   // the target is null) without going to the server
+   private static class StubPlaceholder extends PlaceholderEditingTarget
+   {
+      StubPlaceholder(EditingTarget loaded)
+      {
+         super(null);
+         loaded_ = loaded;
+      }
+
+      @Override
+      public void materialize(CommandWithArg<EditingTarget> onMaterialized,
+                              Command onFailure)
+      {
+         loadCount_++;
+         if (loaded_ == null)
+         {
+            if (onFailure != null)
+               onFailure.execute();
+         }
+         else if (onMaterialized != null)
+         {
+            onMaterialized.execute(loaded_);
+         }
+      }
+
+      private final EditingTarget loaded_;
+      private int loadCount_ = 0;
+   }
+
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testLoadsPlaceholder()
+   {
+      EditingTarget loaded = new PlaceholderEditingTarget(null);
+      StubPlaceholder placeholder = new StubPlaceholder(loaded);
+      ArrayList<EditingTarget> targets = new ArrayList<EditingTarget>();
+      Failures failures = new Failures();
+
+      SourceColumnManager.withLoadedTarget(placeholder, targets::add, failures);
+
+      assertEquals(1, placeholder.loadCount_);
+      assertEquals(1, targets.size());
+      assertSame(loaded, targets.get(0));
+      assertEquals(0, failures.count_);
+   }
+
+   public void testLoadedTargetUsedDirectly()
+   {
+      // once loaded, the editor is passed on rather than the placeholder
+      EditingTarget loaded = new PlaceholderEditingTarget(null);
+      StubPlaceholder placeholder = new StubPlaceholder(loaded);
+      ArrayList<EditingTarget> targets = new ArrayList<EditingTarget>();
+
+      SourceColumnManager.withLoadedTarget(placeholder, targets::add, null);
+      SourceColumnManager.withLoadedTarget(targets.get(0), targets::add, null);
+
+      assertEquals(2, targets.size());
+      assertSame(loaded, targets.get(1));
+      assertFalse(targets.contains(placeholder));
+   }
+
+   public void testTextCommandNotRunForOtherEditors()
+   {
+      StubPlaceholder placeholder =
+            new StubPlaceholder(new PlaceholderEditingTarget(null));
+      ArrayList<TextEditingTarget> targets = new ArrayList<TextEditingTarget>();
+      Failures failures = new Failures();
+
+      SourceColumnManager.withTextTarget(placeholder, targets::add, failures);
+
+      assertEquals(1, placeholder.loadCount_);
+      assertEquals(0, targets.size());
+      assertEquals(1, failures.count_);
+   }
+
+   public void testLoadFailure()
+   {
+      StubPlaceholder placeholder = new StubPlaceholder(null);
+      ArrayList<TextEditingTarget> targets = new ArrayList<TextEditingTarget>();
+      Failures failures = new Failures();
+
+      SourceColumnManager.withTextTarget(placeholder, targets::add, failures);
+
+      assertEquals(1, placeholder.loadCount_);
+      assertEquals(0, targets.size());
+      assertEquals(1, failures.count_);
+   }
+
+   public void testMissingTarget()
+   {
+      ArrayList<TextEditingTarget> targets = new ArrayList<TextEditingTarget>();
+      Failures failures = new Failures();
+
+      SourceColumnManager.withTextTarget(null, targets::add, failures);
+
+      assertEquals(0, targets.size());
+      assertEquals(1, failures.count_);
+   }
+
+   public void testDismissedPlaceholder()
+   {
+      // a closed tab can't be loaded, so the failure callback runs at once
+      PlaceholderEditingTarget placeholder = new PlaceholderEditingTarget(null);
+      placeholder.onDismiss(EditingTarget.DISMISS_TYPE_CLOSE);
+      ArrayList<EditingTarget> targets = new ArrayList<EditingTarget>();
+      Failures failures = new Failures();
+
+      SourceColumnManager.withLoadedTarget(placeholder, targets::add, failures);
+
+      assertEquals(0, targets.size());
+      assertEquals(1, failures.count_);
+   }
+
+   public void testPlaceholderHasNoCommandPaletteItems()
+   {
+      // the command palette walks every editor, so a placeholder must
+      // return an empty list rather than null
+      PlaceholderEditingTarget placeholder = new PlaceholderEditingTarget(null);
+      assertNotNull(placeholder.getCommandPaletteItems());
+      assertTrue(placeholder.getCommandPaletteItems().isEmpty());
+   }
+
+   public void testPlaceholderFiresEvents()
+   {
+      PlaceholderEditingTarget placeholder = new PlaceholderEditingTarget(null);
+      ArrayList<EnsureVisibleEvent> events = new ArrayList<EnsureVisibleEvent>();
+      placeholder.addEnsureVisibleHandler(events::add);
+
+      placeholder.fireEvent(new EnsureVisibleEvent());
+
+      assertEquals(1, events.size());
+   }
+
+   private static class Failures implements Command
+   {
+      @Override
+      public void execute()
+      {
+         count_++;
+      }
+
+      private int count_ = 0;
+   }
+}
@@ -0,0 +1,123 @@
+/*
+ * ScopeTreeCheckpointsTests.java
+ *
+ * Copyright (C) 2020 by RStudio, PBC
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class ScopeTreeCheckpointsTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioTests";
+   }
+
+   public void testRecordsOnlyCheckpointRows()
+   {
+      ScopeTreeCheckpoints checkpoints = parse(40);
+
+      assertTrue(checkpoints.matches(7, 8, "start"));
+      assertTrue(checkpoints.matches(31, 32, "start"));
+      assertFalse(checkpoints.matches(8, 9, "start"));
+      assertFalse(checkpoints.matches(15, 16, "string"));
+   }
+
+   public void testSkippedRowsForgotten()
+   {
+      // a parse that steps over a row without tokens didn't see its state
+      ScopeTreeCheckpoints checkpoints = parse(40);
+
+      assertFalse(checkpoints.matches(14, 17, "start"));
+      assertFalse(checkpoints.matches(15, 16, "start"));
+      assertTrue(checkpoints.matches(23, 24, "start"));
+   }
+
+   public void testRecordReplacesPreviousParse()
+   {
+      ScopeTreeCheckpoints checkpoints = parse(40);
+
+      checkpoints.record(16, "string");
+
+      assertFalse(checkpoints.matches(15, 16, "start"));
+      assertTrue(checkpoints.matches(15, 16, "string"));
+   }
+
+   public void testEditAboveCheckpoints()
+   {
+      // inserting three rows at row 2 moves every checkpoint down
+      ScopeTreeCheckpoints checkpoints = parse(40);
+
+      checkpoints.shift(2, 2, 3);
+
+      assertFalse(checkpoints.matches(7, 8, "start"));
+      assertTrue(checkpoints.matches(10, 11, "start"));
+      assertTrue(checkpoints.matches(18, 19, "start"));
+      assertTrue(checkpoints.matches(34, 35, "start"));
+   }
+
+   public void testEditInsideCheckpoints()
+   {
+      // replacing rows 14 to 18 with a single row drops the checkpoint at
+      // row 16 and moves the ones after it up
+      ScopeTreeCheckpoints checkpoints = parse(40);
+
+      checkpoints.shift(14, 18, -4);
+
+      assertTrue(checkpoints.matches(7, 8, "start"));
+      assertFalse(checkpoints.matches(15, 16, "start"));
+      assertFalse(checkpoints.matches(11, 12, "start"));
+      assertTrue(checkpoints.matches(19, 20, "start"));
+      assertTrue(checkpoints.matches(27, 28, "start"));
+   }
+
+   public void testEditBelowCheckpoints()
+   {
+      ScopeTreeCheckpoints checkpoints = parse(40);
+
+      checkpoints.shift(36, 38, 5);
+
+      assertTrue(checkpoints.matches(7, 8, "start"));
+      assertTrue(checkpoints.matches(15, 16, "start"));
+      assertTrue(checkpoints.matches(31, 32, "start"));
+   }
+
+   public void testEditOnCheckpointRow()
+   {
+      // the state at the start of the first edited row is unchanged, so its
+      // checkpoint is kept; later edited rows may start in another state
+      ScopeTreeCheckpoints checkpoints = parse(40);
+
+      checkpoints.shift(16, 16, 0);
+      checkpoints.shift(23, 24, -1);
+
+      assertTrue(checkpoints.matches(15, 16, "start"));
+      assertFalse(checkpoints.matches(23, 24, "start"));
+      assertTrue(checkpoints.matches(30, 31, "start"));
+   }
+
+   // records the states of a document of 'rows' rows, all in the start state
+   private static ScopeTreeCheckpoints parse(int rows)
+   {
+      ScopeTreeCheckpoints checkpoints = new ScopeTreeCheckpoints(CHECKPOINT_ROWS);
+      for (int row = 1; row < rows; row++)
+      {
+         checkpoints.matches(row - 1, row, "start");
+         checkpoints.record(row, "start");
+      }
+      return checkpoints;
+   }
+
+   private static final int CHECKPOINT_ROWS = 8;
+}